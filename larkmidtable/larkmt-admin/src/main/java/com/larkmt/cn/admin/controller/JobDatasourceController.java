@@ -8,10 +8,14 @@ import com.larkmt.cn.admin.base.BaseForm;
 import com.larkmt.cn.admin.core.util.LocalCacheUtil;
 import com.larkmt.cn.admin.entity.JobDatasource;
 import com.larkmt.cn.admin.service.JobDatasourceService;
+import com.larkmt.cn.admin.tool.query.DataSourcePool;
+import com.larkmt.cn.admin.tool.query.MetadataCache;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,6 +32,8 @@ import java.util.List;
 @RequestMapping("/larkmidtable/api/jobJdbcDatasource")
 @Api(tags = "jdbc数据源配置接口")
 public class JobDatasourceController extends BaseController {
+    private static final Logger logger = LoggerFactory.getLogger(JobDatasourceController.class);
+
     /**
      * 服务对象
      */
@@ -98,7 +104,6 @@ public class JobDatasourceController extends BaseController {
     @PutMapping
     @ApiOperation("修改数据")
     public R<Boolean> update(@RequestBody JobDatasource entity) {
-        LocalCacheUtil.remove(entity.getDatasourceName());
         JobDatasource d = jobJdbcDatasourceService.getById(entity.getId());
         if (null != d.getJdbcUsername() && entity.getJdbcUsername().equals(d.getJdbcUsername())) {
             entity.setJdbcUsername(null);
@@ -106,7 +111,11 @@ public class JobDatasourceController extends BaseController {
         if (null != entity.getJdbcPassword() && entity.getJdbcPassword().equals(d.getJdbcPassword())) {
             entity.setJdbcPassword(null);
         }
-        return success(jobJdbcDatasourceService.updateById(entity));
+        boolean updated = jobJdbcDatasourceService.updateById(entity);
+        // evict once the new settings are stored, a lookup in between would cache the old ones again
+        evictDatasource(entity.getDatasourceName());
+        evictDatasource(d.getDatasourceName());
+        return success(updated);
     }
 
     /**
@@ -118,7 +127,30 @@ public class JobDatasourceController extends BaseController {
     @DeleteMapping
     @ApiOperation("删除数据")
     public R<Boolean> delete(@RequestParam("idList") List<Long> idList) {
-        return success(jobJdbcDatasourceService.removeByIds(idList));
+        List<JobDatasource> datasources = jobJdbcDatasourceService.listByIds(idList);
+        boolean removed = jobJdbcDatasourceService.removeByIds(idList);
+        datasources.forEach(d -> evictDatasource(d.getDatasourceName()));
+        return success(removed);
+    }
+
+    /**
+     * close the pool and the cached mongo or hbase client, and drop the cached metadata of a datasource
+     */
+    private void evictDatasource(String datasourceName) {
+        if (datasourceName == null) {
+            return;
+        }
+        DataSourcePool.evict(datasourceName);
+        Object client = LocalCacheUtil.get(datasourceName);
+        LocalCacheUtil.remove(datasourceName);
+        if (client instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) client).close();
+            } catch (Exception e) {
+                logger.warn("close client of datasource {} error", datasourceName, e);
+            }
+        }
+        MetadataCache.invalidate(datasourceName);
     }
 
     /**
@@ -1,6 +1,7 @@
 package com.larkmt.cn.admin.controller;
 
 import com.larkmt.cn.admin.core.kill.KillJob;
+import com.larkmt.cn.admin.core.thread.JobLogReportHelper;
 import com.larkmt.cn.admin.core.util.I18nUtil;
 import com.larkmt.cn.admin.entity.JobInfo;
 import com.larkmt.cn.admin.entity.JobLog;
@@ -173,7 +174,11 @@ public class JobLogController {
         do {
             logIds = jobLogMapper.findClearLogIds(jobGroup, jobId, clearBeforeTime, clearBeforeNum, 1000);
             if (logIds != null && logIds.size() > 0) {
+                List<JobLog> logs = jobLogMapper.loadByIds(logIds);
                 jobLogMapper.clearLog(logIds);
+                for (JobLog log : logs) {
+                    JobLogReportHelper.getInstance().remove(log);
+                }
             }
         } while (logIds != null && logIds.size() > 0);
 
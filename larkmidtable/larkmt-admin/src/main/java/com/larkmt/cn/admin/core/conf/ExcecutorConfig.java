@@ -49,6 +49,24 @@ public class ExcecutorConfig implements InitializingBean, DisposableBean {
 	@Value("${larkmt.executor.dataxlogHome}")
 	private String dataxlogHome;
 
+	// flinkx process launch limits of this host
+	@Value("${larkmt.executor.launch.maxProcesses:8}")
+	private int launchMaxProcesses;
+
+	@Value("${larkmt.executor.launch.maxProjectProcesses:4}")
+	private int launchMaxProjectProcesses;
+
+	// memory of a job without -Xmx in its jvm param, and memory kept free for the admin itself, in MB
+	@Value("${larkmt.executor.launch.defaultJobMemory:1024}")
+	private long launchDefaultJobMemory;
+
+	@Value("${larkmt.executor.launch.reservedMemory:1024}")
+	private long launchReservedMemory;
+
+	// seconds smaller jobs may start ahead of a job waiting for memory, after that the queue waits for it
+	@Value("${larkmt.executor.launch.memoryWaitSeconds:300}")
+	private long launchMemoryWaitSeconds;
+
 	@Value("${spring.datasource.url}")
 	private String url;
 
@@ -114,6 +132,26 @@ public class ExcecutorConfig implements InitializingBean, DisposableBean {
 		this.dataxlogHome = dataxlogHome;
 	}
 
+	public int getLaunchMaxProcesses() {
+		return launchMaxProcesses < 1 ? 1 : launchMaxProcesses;
+	}
+
+	public int getLaunchMaxProjectProcesses() {
+		return launchMaxProjectProcesses < 1 ? 1 : launchMaxProjectProcesses;
+	}
+
+	public long getLaunchDefaultJobMemory() {
+		return launchDefaultJobMemory;
+	}
+
+	public long getLaunchReservedMemory() {
+		return launchReservedMemory;
+	}
+
+	public long getLaunchMemoryWaitSeconds() {
+		return launchMemoryWaitSeconds < 0 ? 0 : launchMemoryWaitSeconds;
+	}
+
 	public String getUrl() {
 		return url;
 	}
@@ -13,6 +13,7 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.annotation.Resource;
 import javax.sql.DataSource;
@@ -76,6 +77,13 @@ public class JobAdminConfig implements InitializingBean, DisposableBean {
     @Value("${datasource.aes.key}")
     private String dataSourceAESKey;
 
+    // 0: one admin schedules all jobs under the schedule_lock, n: jobs are split into n shards leased by the admins
+    @Value("${larkmt.job.schedule.shardCount:0}")
+    private int scheduleShardCount;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
     // dao, service
 
     @Resource
@@ -94,6 +102,10 @@ public class JobAdminConfig implements InitializingBean, DisposableBean {
     private DataSource dataSource;
     @Resource
     private JobDatasourceMapper jobDatasourceMapper;
+    @Resource
+    private JobScheduleShardMapper jobScheduleShardMapper;
+    @Resource
+    private PlatformTransactionManager transactionManager;
 
     public String getI18n() {
         return i18n;
@@ -115,6 +127,14 @@ public class JobAdminConfig implements InitializingBean, DisposableBean {
         return triggerPoolSlowMax < 100 ? 100 : triggerPoolSlowMax;
     }
 
+    public int getScheduleShardCount() {
+        return scheduleShardCount < 0 ? 0 : scheduleShardCount;
+    }
+
+    public int getServerPort() {
+        return serverPort;
+    }
+
     public int getLogretentiondays() {
         return logretentiondays < 7 ? -1 : logretentiondays;
     }
@@ -151,6 +171,14 @@ public class JobAdminConfig implements InitializingBean, DisposableBean {
         return jobDatasourceMapper;
     }
 
+    public JobScheduleShardMapper getJobScheduleShardMapper() {
+        return jobScheduleShardMapper;
+    }
+
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
     public String getDataSourceAESKey() {
         return dataSourceAESKey;
     }
@@ -3,9 +3,11 @@ package com.larkmt.cn.admin.core.scheduler;
 import com.larkmt.cn.admin.core.util.I18nUtil;
 import com.larkmt.core.enums.ExecutorBlockStrategyEnum;
 import com.larkmt.cn.admin.core.thread.JobFailMonitorHelper;
+import com.larkmt.cn.admin.core.thread.JobLaunchHelper;
 import com.larkmt.cn.admin.core.thread.JobLogReportHelper;
 import com.larkmt.cn.admin.core.thread.JobRegistryMonitorHelper;
 import com.larkmt.cn.admin.core.thread.JobScheduleHelper;
+import com.larkmt.cn.admin.core.thread.JobScheduleShardHelper;
 import com.larkmt.cn.admin.core.thread.JobTriggerPoolHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,9 +34,15 @@ public class JobScheduler {
         // admin trigger pool start
         JobTriggerPoolHelper.toStart();
 
+        // flinkx process launcher start
+        JobLaunchHelper.getInstance().start();
+
         // admin log report start
         JobLogReportHelper.getInstance().start();
 
+        // schedule shard lease start
+        JobScheduleShardHelper.getInstance().start();
+
         // start-schedule
         JobScheduleHelper.getInstance().start();
 
@@ -47,9 +55,15 @@ public class JobScheduler {
         // stop-schedule
         JobScheduleHelper.getInstance().toStop();
 
+        // schedule shard lease stop
+        JobScheduleShardHelper.getInstance().toStop();
+
         // admin log report stop
         JobLogReportHelper.getInstance().toStop();
 
+        // flinkx process launcher stop
+        JobLaunchHelper.getInstance().toStop();
+
         // admin trigger pool stop
         JobTriggerPoolHelper.toStop();
 
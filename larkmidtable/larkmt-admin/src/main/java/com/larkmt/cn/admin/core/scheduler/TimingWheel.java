@@ -0,0 +1,125 @@
+package com.larkmt.cn.admin.core.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * hierarchical timing wheel of job trigger times
+ *
+ * the lowest wheel ticks every second, a timeout beyond its span goes to an overflow wheel whose
+ * tick is the span of the wheel below, and moves down when the overflow bucket comes due.
+ * not thread safe, callers synchronize on the wheel.
+ */
+public class TimingWheel {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final List<Timeout>[] buckets;
+    private long currentTime;
+    private TimingWheel overflowWheel;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.buckets = new List[wheelSize];
+        this.currentTime = startMs - startMs % tickMs;
+    }
+
+    /**
+     * add a timeout, false when it is already due and should fire now
+     */
+    public boolean add(Timeout timeout) {
+        if (!place(timeout)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    private boolean place(Timeout timeout) {
+        if (timeout.getFireTime() < currentTime + tickMs) {
+            return false;
+        }
+        if (timeout.getFireTime() < currentTime + interval) {
+            int index = (int) ((timeout.getFireTime() / tickMs) % wheelSize);
+            if (buckets[index] == null) {
+                buckets[index] = new ArrayList<>();
+            }
+            buckets[index].add(timeout);
+            return true;
+        }
+        if (overflowWheel == null) {
+            overflowWheel = new TimingWheel(interval, wheelSize, currentTime);
+        }
+        return overflowWheel.place(timeout);
+    }
+
+    /**
+     * move the wheel tick by tick up to now, returning the timeouts that came due
+     */
+    public List<Timeout> advance(long now) {
+        List<Timeout> due = new ArrayList<>();
+        while (currentTime + tickMs <= now) {
+            currentTime += tickMs;
+            drain(currentTime, due);
+            if (overflowWheel != null) {
+                overflowWheel.cascade(currentTime, this, due);
+            }
+        }
+        size -= due.size();
+        return due;
+    }
+
+    private void cascade(long time, TimingWheel root, List<Timeout> due) {
+        if (time < currentTime + tickMs) {
+            return;
+        }
+        currentTime = time - time % tickMs;
+        List<Timeout> bucket = new ArrayList<>();
+        drain(currentTime, bucket);
+        for (Timeout timeout : bucket) {
+            if (!root.place(timeout)) {
+                due.add(timeout);
+            }
+        }
+        if (overflowWheel != null) {
+            overflowWheel.cascade(time, root, due);
+        }
+    }
+
+    private void drain(long time, List<Timeout> target) {
+        int index = (int) ((time / tickMs) % wheelSize);
+        if (buckets[index] != null) {
+            target.addAll(buckets[index]);
+            buckets[index] = null;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public static class Timeout {
+
+        private final int jobId;
+        private final long fireTime;
+
+        public Timeout(int jobId, long fireTime) {
+            this.jobId = jobId;
+            this.fireTime = fireTime;
+        }
+
+        public int getJobId() {
+            return jobId;
+        }
+
+        public long getFireTime() {
+            return fireTime;
+        }
+    }
+
+}
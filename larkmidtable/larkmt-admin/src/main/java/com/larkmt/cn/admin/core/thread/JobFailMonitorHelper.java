@@ -60,10 +60,12 @@ public class JobFailMonitorHelper {
 
 								// 1、fail retry monitor
 								if (log.getExecutorFailRetryCount() > 0) {
+									int fromStatus = JobLogReportHelper.statusOf(log.getTriggerCode(), log.getHandleCode());
 									JobTriggerPoolHelper.trigger(log.getJobId(), TriggerTypeEnum.RETRY, (log.getExecutorFailRetryCount()-1), log.getExecutorShardingParam(), log.getExecutorParam());
 									String retryMsg = "<br><br><span style=\"color:#F39C12;\" > >>>>>>>>>>>"+ I18nUtil.getString("jobconf_trigger_type_retry") +"<<<<<<<<<<< </span><br>";
 									log.setTriggerMsg(log.getTriggerMsg() + retryMsg);
 									JobAdminConfig.getAdminConfig().getJobLogMapper().updateTriggerInfo(log);
+									JobLogReportHelper.getInstance().record(log, fromStatus);
 								}
 
 								// 2、fail alarm monitor
@@ -0,0 +1,378 @@
+package com.larkmt.cn.admin.core.thread;
+
+import cn.hutool.core.io.FileUtil;
+import com.larkmt.cn.admin.core.conf.ExcecutorConfig;
+import com.larkmt.cn.admin.core.conf.JobAdminConfig;
+import com.larkmt.cn.admin.core.trigger.TriggerTypeEnum;
+import com.larkmt.cn.admin.entity.JobInfo;
+import com.larkmt.cn.admin.entity.JobLog;
+import com.larkmt.core.biz.model.ReturnT;
+import com.larkmt.core.log.JobLogger;
+import com.larkmt.core.util.ProcessUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * flinkx process launcher
+ *
+ * launches wait in a priority queue and start while the host stays under its process limit, the
+ * project under its own limit, and the -Xmx of the job fits both beside the running processes and
+ * in the available physical memory. each process is waited for and its exit code is written to its log.
+ */
+public class JobLaunchHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobLaunchHelper.class);
+
+    private static JobLaunchHelper instance = new JobLaunchHelper();
+
+    public static JobLaunchHelper getInstance() {
+        return instance;
+    }
+
+    private static final Pattern XMX_PATTERN = Pattern.compile("-Xmx(\\d+)([kKmMgG]?)");
+    private static final long MB = 1024 * 1024;
+    private static final File MEMINFO = new File("/proc/meminfo");
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<LaunchRequest> pending = new PriorityQueue<>();
+    private final Map<Integer, Integer> projectRunning = new HashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private int running;
+    private long committedMemory;   // MB
+
+    private Thread launchThread;
+    private ExecutorService waitPool;
+    private volatile boolean toStop = false;
+
+    public void start() {
+        waitPool = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "LarkMidTable, admin JobLaunchHelper-waitPool-" + r.hashCode());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        launchThread = new Thread(() -> {
+            while (!toStop) {
+                LaunchRequest request;
+                lock.lock();
+                try {
+                    request = pollAdmissible();
+                    if (request == null) {
+                        // wait for a launch or an exit, the available memory is checked again after the timeout
+                        changed.await(1, TimeUnit.SECONDS);
+                        continue;
+                    }
+                    acquire(request);
+                } catch (InterruptedException e) {
+                    if (!toStop) {
+                        logger.error(e.getMessage(), e);
+                    }
+                    continue;
+                } finally {
+                    lock.unlock();
+                }
+                launch(request);
+            }
+
+            lock.lock();
+            try {
+                if (!pending.isEmpty()) {
+                    logger.warn(">>>>>>>>>>> LarkMidTable, JobLaunchHelper stop, {} pending launches dropped", pending.size());
+                    pending.clear();
+                }
+            } finally {
+                lock.unlock();
+            }
+            logger.info(">>>>>>>>>>> LarkMidTable, JobLaunchHelper#launchThread stop");
+        });
+        launchThread.setDaemon(true);
+        launchThread.setName("LarkMidTable, admin JobLaunchHelper#launchThread");
+        launchThread.start();
+    }
+
+    public void toStop() {
+        toStop = true;
+        // interrupt and wait, running processes are left to finish on their own
+        launchThread.interrupt();
+        try {
+            launchThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+        waitPool.shutdown();
+    }
+
+    /**
+     * queue the launch of the flinkx process of a job
+     */
+    public void submit(JobInfo jobInfo, TriggerTypeEnum triggerType) {
+        LaunchRequest request = new LaunchRequest(jobInfo, priorityOf(triggerType), sequence.incrementAndGet(), memoryOf(jobInfo.getJvmParam()));
+        long hostMemory = totalPhysicalMemory() - ExcecutorConfig.getExcecutorConfig().getLaunchReservedMemory();
+        if (request.memory > hostMemory) {
+            saveFailLog(jobInfo, "job memory " + request.memory + "MB exceeds the host memory " + hostMemory + "MB");
+            return;
+        }
+
+        lock.lock();
+        try {
+            pending.add(request);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * the first request in priority order that fits. a request held by its project limit lets the
+     * next ones pass, and so does one held by memory so that small jobs are not stuck behind a large
+     * one. a request held by memory for longer than the memory wait is not passed any more, the
+     * queue then waits until enough memory is released for it so that large jobs are not starved
+     */
+    private LaunchRequest pollAdmissible() {
+        if (pending.isEmpty() || running >= ExcecutorConfig.getExcecutorConfig().getLaunchMaxProcesses()) {
+            return null;
+        }
+        long reserved = ExcecutorConfig.getExcecutorConfig().getLaunchReservedMemory();
+        long hostMemory = totalPhysicalMemory() - reserved;
+        long availableMemory = availablePhysicalMemory() - reserved;
+        long nowTime = System.currentTimeMillis();
+        long memoryWaitMs = ExcecutorConfig.getExcecutorConfig().getLaunchMemoryWaitSeconds() * 1000L;
+
+        List<LaunchRequest> candidates = new ArrayList<>(pending);
+        Collections.sort(candidates);
+        for (LaunchRequest request : candidates) {
+            Integer projectCount = projectRunning.get(request.jobInfo.getProjectId());
+            if (projectCount != null && projectCount >= ExcecutorConfig.getExcecutorConfig().getLaunchMaxProjectProcesses()) {
+                continue;
+            }
+            if (committedMemory + request.memory > hostMemory || request.memory > availableMemory) {
+                if (nowTime - request.queueTime >= memoryWaitMs) {
+                    return null;
+                }
+                continue;
+            }
+            pending.remove(request);
+            return request;
+        }
+        return null;
+    }
+
+    private void acquire(LaunchRequest request) {
+        running++;
+        committedMemory += request.memory;
+        projectRunning.merge(request.jobInfo.getProjectId(), 1, Integer::sum);
+    }
+
+    private void release(LaunchRequest request) {
+        lock.lock();
+        try {
+            running--;
+            committedMemory -= request.memory;
+            projectRunning.computeIfPresent(request.jobInfo.getProjectId(), (key, count) -> count > 1 ? count - 1 : null);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void launch(LaunchRequest request) {
+        JobInfo jobInfo = request.jobInfo;
+        String tmpFilePath = null;
+        Process process;
+        JobLog jobLog;
+        try {
+            tmpFilePath = JobTriggerPoolHelper.generateTemJsonFile(jobInfo.getJobJson());
+            String[] cmdarray = JobTriggerPoolHelper.buildFlinkXExecutorCmd(ExcecutorConfig.getExcecutorConfig().getFlinkxHome(), tmpFilePath, jobInfo.getId());
+            String cmdstr = String.join(" ", cmdarray);
+
+            // the arguments are passed as built, paths with spaces stay one argument. the output is read by the
+            // wait thread so the process never blocks on it
+            process = new ProcessBuilder(cmdarray).redirectErrorStream(true).start();
+            String prcsId = ProcessUtil.getProcessId(process);
+            JobLogger.log("Execute: " + cmdstr);
+            JobLogger.log("process id: " + prcsId);
+
+            // 记录日志
+            jobLog = newJobLog(jobInfo);
+            jobLog.setTriggerCode(ReturnT.SUCCESS_CODE);
+            jobLog.setHandleCode(0);
+            jobLog.setProcessId(prcsId);
+            // 设置job的执行路径
+            jobLog.setExecutorAddress(cmdarray[cmdarray.length - 1]);
+            JobAdminConfig.getAdminConfig().getJobLogMapper().save(jobLog);
+            JobLogReportHelper.getInstance().record(jobLog, JobLogReportHelper.STATUS_NONE);
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> LarkMidTable, launch job error, jobId = " + jobInfo.getId(), e);
+            release(request);
+            deleteTmpFile(tmpFilePath);
+            saveFailLog(jobInfo, "launch error: " + e.getMessage());
+            return;
+        }
+
+        final String finalTmpFilePath = tmpFilePath;
+        waitPool.execute(() -> {
+            int exitCode = -1;
+            try {
+                drain(process.getInputStream());
+                exitCode = process.waitFor();
+            } catch (Exception e) {
+                logger.error(">>>>>>>>>>> LarkMidTable, wait job process error, jobId = " + jobInfo.getId(), e);
+            } finally {
+                release(request);
+                deleteTmpFile(finalTmpFilePath);
+            }
+            try {
+                jobLog.setHandleTime(new Date());
+                jobLog.setHandleCode(exitCode == 0 ? ReturnT.SUCCESS_CODE : ReturnT.FAIL_CODE);
+                jobLog.setHandleMsg("process exit code: " + exitCode);
+                JobAdminConfig.getAdminConfig().getJobLogMapper().updateHandleInfo(jobLog);
+                JobLogReportHelper.getInstance().record(jobLog, JobLogReportHelper.STATUS_RUNNING);
+                JobAdminConfig.getAdminConfig().getJobInfoMapper().updateLastHandleCode(jobInfo.getId(), jobLog.getHandleCode());
+            } catch (Exception e) {
+                logger.error(">>>>>>>>>>> LarkMidTable, save job exit code error, jobId = " + jobInfo.getId(), e);
+            }
+        });
+    }
+
+    private static void drain(InputStream inputStream) throws Exception {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = inputStream) {
+            while (in.read(buffer) != -1) {
+                // flinkx writes its own log file
+            }
+        }
+    }
+
+    private static void deleteTmpFile(String tmpFilePath) {
+        if (tmpFilePath != null && FileUtil.exist(tmpFilePath)) {
+            FileUtil.del(tmpFilePath);
+        }
+    }
+
+    private static JobLog newJobLog(JobInfo jobInfo) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(new Date());
+        calendar.set(Calendar.MILLISECOND, 0);
+        Date triggerTime = calendar.getTime();
+        JobLog jobLog = new JobLog();
+        jobLog.setJobGroup(jobInfo.getJobGroup());
+        jobLog.setJobId(jobInfo.getId());
+        jobLog.setTriggerTime(triggerTime);
+        jobLog.setJobDesc(jobInfo.getJobDesc());
+        jobLog.setHandleTime(triggerTime);
+        return jobLog;
+    }
+
+    private static void saveFailLog(JobInfo jobInfo, String msg) {
+        logger.warn(">>>>>>>>>>> LarkMidTable, launch job fail, jobId = {}, {}", jobInfo.getId(), msg);
+        JobLog jobLog = newJobLog(jobInfo);
+        jobLog.setTriggerCode(ReturnT.FAIL_CODE);
+        jobLog.setHandleCode(ReturnT.FAIL_CODE);
+        JobAdminConfig.getAdminConfig().getJobLogMapper().save(jobLog);
+        jobLog.setHandleMsg(msg);
+        JobAdminConfig.getAdminConfig().getJobLogMapper().updateHandleInfo(jobLog);
+        JobLogReportHelper.getInstance().record(jobLog, JobLogReportHelper.STATUS_NONE);
+    }
+
+    private static int priorityOf(TriggerTypeEnum triggerType) {
+        if (triggerType == TriggerTypeEnum.MANUAL || triggerType == TriggerTypeEnum.API) {
+            return 0;
+        }
+        if (triggerType == TriggerTypeEnum.PARENT || triggerType == TriggerTypeEnum.RETRY) {
+            return 1;
+        }
+        return 2;
+    }
+
+    /**
+     * memory of the job in MB, taken from the -Xmx of its jvm param
+     */
+    static long memoryOf(String jvmParam) {
+        if (jvmParam != null) {
+            Matcher matcher = XMX_PATTERN.matcher(jvmParam);
+            if (matcher.find()) {
+                long value = Long.parseLong(matcher.group(1));
+                switch (matcher.group(2).toLowerCase()) {
+                    case "g":
+                        return value * 1024;
+                    case "m":
+                        return value;
+                    case "k":
+                        return Math.max(1, value / 1024);
+                    default:
+                        return Math.max(1, value / MB);
+                }
+            }
+        }
+        return ExcecutorConfig.getExcecutorConfig().getLaunchDefaultJobMemory();
+    }
+
+    private static long totalPhysicalMemory() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getTotalPhysicalMemorySize() / MB;
+    }
+
+    private static long freePhysicalMemory() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getFreePhysicalMemorySize() / MB;
+    }
+
+    /**
+     * memory in MB a new process can get without swapping. MemAvailable of the kernel counts the page
+     * cache that can be reclaimed, the free memory of the os bean does not and is only the fallback
+     */
+    private static long availablePhysicalMemory() {
+        if (MEMINFO.isFile()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(MEMINFO))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("MemAvailable:")) {
+                        // MemAvailable:   12345678 kB
+                        return Long.parseLong(line.replaceAll("\\D+", "")) / 1024;
+                    }
+                }
+            } catch (Exception e) {
+                logger.debug(">>>>>>>>>>> LarkMidTable, read {} error", MEMINFO, e);
+            }
+        }
+        return freePhysicalMemory();
+    }
+
+    private static class LaunchRequest implements Comparable<LaunchRequest> {
+
+        private final JobInfo jobInfo;
+        private final int priority;
+        private final long sequence;
+        private final long memory;
+        private final long queueTime = System.currentTimeMillis();
+
+        private LaunchRequest(JobInfo jobInfo, int priority, long sequence, long memory) {
+            this.jobInfo = jobInfo;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.memory = memory;
+        }
+
+        @Override
+        public int compareTo(LaunchRequest other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+}
@@ -1,19 +1,32 @@
 package com.larkmt.cn.admin.core.thread;
 
 import com.larkmt.cn.admin.core.conf.JobAdminConfig;
+import com.larkmt.cn.admin.entity.JobLog;
 import com.larkmt.cn.admin.entity.JobLogReport;
+import com.larkmt.cn.admin.mapper.JobLogReportMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * job log report helper
  *
+ * report counters are kept in memory as logs are triggered and called back, and flushed as
+ * increments to job_log_report and job_log_report_job. logs deleted by hand or with their job are
+ * counted out again, the retention purge keeps the report of the days it cleans. the hourly recount
+ * is only a safety net.
+ *
  * @author xuxueli 2019-11-22
  */
 public class JobLogReportHelper {
@@ -25,103 +38,143 @@ public class JobLogReportHelper {
     }
 
 
+    public static final int STATUS_NONE = -1;
+    public static final int STATUS_RUNNING = 0;
+    public static final int STATUS_SUC = 1;
+    public static final int STATUS_FAIL = 2;
+
+    private static final long FLUSH_INTERVAL = 10 * 1000;
+    private static final long RECONCILE_INTERVAL = 60 * 60 * 1000;
+    private static final int PURGE_BATCH_SIZE = 1000;
+    private static final int PURGE_MAX_BATCHES = 100;       // per round, the rest goes on next round
+    private static final long PURGE_BATCH_PAUSE = 200;      // ms
+
+    // pending counter deltas of (trigger day, job group, job id), flushed in batches
+    private final ConcurrentMap<ReportKey, int[]> pendingCounts = new ConcurrentHashMap<>();
+    // day total deltas of the job deltas already written, kept until written to job_log_report too
+    private final ConcurrentMap<Long, int[]> pendingDayCounts = new ConcurrentHashMap<>();
+    // jobs removed with their logs, their per job rows are taken out of the day totals on flush
+    private final Set<Integer> removedJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * report status of a log, same rule as findLogReport
+     */
+    public static int statusOf(int triggerCode, int handleCode) {
+        if (handleCode == 200) {
+            return STATUS_SUC;
+        }
+        if ((triggerCode == 0 || triggerCode == 200) && handleCode == 0) {
+            return STATUS_RUNNING;
+        }
+        return STATUS_FAIL;
+    }
+
+    /**
+     * count a log moving from one status to its current one, STATUS_NONE for a new log
+     */
+    public void record(JobLog jobLog, int fromStatus) {
+        count(jobLog, fromStatus, statusOf(jobLog.getTriggerCode(), jobLog.getHandleCode()));
+    }
+
+    /**
+     * count out a deleted log
+     */
+    public void remove(JobLog jobLog) {
+        count(jobLog, statusOf(jobLog.getTriggerCode(), jobLog.getHandleCode()), STATUS_NONE);
+    }
+
+    /**
+     * count out all logs of a job deleted with it
+     */
+    public void removeJob(int jobId) {
+        removedJobs.add(jobId);
+    }
+
+    private void count(JobLog jobLog, int fromStatus, int toStatus) {
+        if (fromStatus == toStatus || jobLog.getTriggerTime() == null) {
+            return;
+        }
+        ReportKey key = new ReportKey(dayOf(jobLog.getTriggerTime()).getTime(), jobLog.getJobGroup(), jobLog.getJobId());
+        pendingCounts.compute(key, (k, counts) -> {
+            if (counts == null) {
+                counts = new int[3];
+            }
+            if (fromStatus != STATUS_NONE) {
+                counts[fromStatus]--;
+            }
+            if (toStatus != STATUS_NONE) {
+                counts[toStatus]++;
+            }
+            return counts;
+        });
+    }
+
     private Thread logrThread;
     private volatile boolean toStop = false;
+    private TransactionTemplate transactionTemplate;
     public void start(){
+        transactionTemplate = new TransactionTemplate(JobAdminConfig.getAdminConfig().getTransactionManager());
         logrThread = new Thread(new Runnable() {
 
             @Override
             public void run() {
 
-                // last clean log time
+                // last clean log time, last reconcile time
                 long lastCleanLogTime = 0;
-
+                long lastReconcileTime = 0;
+                boolean purging = false;
 
                 while (!toStop) {
 
-                    // 1、log-report refresh: refresh log report in 3 days
+                    // 1、log-report flush: counters recorded on trigger and callback
                     try {
+                        flush();
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> LarkMidTable, job log report flush error:{}", e);
+                        }
+                    }
 
-                        for (int i = 0; i < 3; i++) {
-
-                            // today
-                            Calendar itemDay = Calendar.getInstance();
-                            itemDay.add(Calendar.DAY_OF_MONTH, -i);
-                            itemDay.set(Calendar.HOUR_OF_DAY, 0);
-                            itemDay.set(Calendar.MINUTE, 0);
-                            itemDay.set(Calendar.SECOND, 0);
-                            itemDay.set(Calendar.MILLISECOND, 0);
-
-                            Date todayFrom = itemDay.getTime();
-
-                            itemDay.set(Calendar.HOUR_OF_DAY, 23);
-                            itemDay.set(Calendar.MINUTE, 59);
-                            itemDay.set(Calendar.SECOND, 59);
-                            itemDay.set(Calendar.MILLISECOND, 999);
-
-                            Date todayTo = itemDay.getTime();
-
-                            // refresh log-report every minute
-                            JobLogReport xxlJobLogReport = new JobLogReport();
-                            xxlJobLogReport.setTriggerDay(todayFrom);
-                            xxlJobLogReport.setRunningCount(0);
-                            xxlJobLogReport.setSucCount(0);
-                            xxlJobLogReport.setFailCount(0);
-
-                            Map<String, Object> triggerCountMap = JobAdminConfig
-									.getAdminConfig().getJobLogMapper().findLogReport(todayFrom, todayTo);
-                            if (triggerCountMap!=null && triggerCountMap.size()>0) {
-                                int triggerDayCount = triggerCountMap.containsKey("triggerDayCount")? Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCount"))):0;
-                                int triggerDayCountRunning = triggerCountMap.containsKey("triggerDayCountRunning")? Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCountRunning"))):0;
-                                int triggerDayCountSuc = triggerCountMap.containsKey("triggerDayCountSuc")? Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCountSuc"))):0;
-                                int triggerDayCountFail = triggerDayCount - triggerDayCountRunning - triggerDayCountSuc;
-
-                                xxlJobLogReport.setRunningCount(triggerDayCountRunning);
-                                xxlJobLogReport.setSucCount(triggerDayCountSuc);
-                                xxlJobLogReport.setFailCount(triggerDayCountFail);
+                    // 2、log-report reconcile: recount the last 3 days from job_log, only as a safety net
+                    if (System.currentTimeMillis() - lastReconcileTime > RECONCILE_INTERVAL) {
+                        try {
+                            for (int i = 0; i < 3; i++) {
+                                Calendar itemDay = Calendar.getInstance();
+                                itemDay.add(Calendar.DAY_OF_MONTH, -i);
+                                reconcile(dayOf(itemDay.getTime()));
                             }
-
-                            // do refresh
-                            int ret = JobAdminConfig.getAdminConfig().getJobLogReportMapper().update(xxlJobLogReport);
-                            if (ret < 1) {
-                                JobAdminConfig.getAdminConfig().getJobLogReportMapper().save(xxlJobLogReport);
+                            lastReconcileTime = System.currentTimeMillis();
+                        } catch (Exception e) {
+                            if (!toStop) {
+                                logger.error(">>>>>>>>>>> LarkMidTable, job log report thread error:{}", e);
                             }
                         }
-
-                    } catch (Exception e) {
-                        if (!toStop) {
-                            logger.error(">>>>>>>>>>> LarkMidTable, job log report thread error:{}", e);
-                        }
                     }
 
-                    // 2、log-clean: switch open & once each day
+                    // 3、log-clean: switch open & once each day, bounded batches per round
                     if (JobAdminConfig.getAdminConfig().getLogretentiondays()>0
-                            && System.currentTimeMillis() - lastCleanLogTime > 24*60*60*1000) {
+                            && (purging || System.currentTimeMillis() - lastCleanLogTime > 24*60*60*1000)) {
 
                         // expire-time
                         Calendar expiredDay = Calendar.getInstance();
                         expiredDay.add(Calendar.DAY_OF_MONTH, -1 * JobAdminConfig.getAdminConfig().getLogretentiondays());
-                        expiredDay.set(Calendar.HOUR_OF_DAY, 0);
-                        expiredDay.set(Calendar.MINUTE, 0);
-                        expiredDay.set(Calendar.SECOND, 0);
-                        expiredDay.set(Calendar.MILLISECOND, 0);
-                        Date clearBeforeTime = expiredDay.getTime();
-
-                        // clean expired log
-                        List<Long> logIds = null;
-                        do {
-                            logIds = JobAdminConfig.getAdminConfig().getJobLogMapper().findClearLogIds(0, 0, clearBeforeTime, 0, 1000);
-                            if (logIds!=null && logIds.size()>0) {
-                                JobAdminConfig.getAdminConfig().getJobLogMapper().clearLog(logIds);
-                            }
-                        } while (logIds!=null && logIds.size()>0);
+                        Date clearBeforeTime = dayOf(expiredDay.getTime());
 
-                        // update clean time
-                        lastCleanLogTime = System.currentTimeMillis();
+                        try {
+                            purging = purge(clearBeforeTime);
+                            if (!purging) {
+                                // update clean time
+                                lastCleanLogTime = System.currentTimeMillis();
+                            }
+                        } catch (Exception e) {
+                            if (!toStop) {
+                                logger.error(">>>>>>>>>>> LarkMidTable, job log clean error:{}", e);
+                            }
+                        }
                     }
 
                     try {
-                        TimeUnit.MINUTES.sleep(1);
+                        TimeUnit.MILLISECONDS.sleep(FLUSH_INTERVAL);
                     } catch (Exception e) {
                         if (!toStop) {
                             logger.error(e.getMessage(), e);
@@ -130,6 +183,13 @@ public class JobLogReportHelper {
 
                 }
 
+                // flush the counters left
+                try {
+                    flush();
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+
                 logger.info(">>>>>>>>>>> LarkMidTable, job log report thread stop");
 
             }
@@ -139,6 +199,165 @@ public class JobLogReportHelper {
         logrThread.start();
     }
 
+    private void flush() {
+        JobLogReportMapper reportMapper = JobAdminConfig.getAdminConfig().getJobLogReportMapper();
+        for (Integer jobId : removedJobs) {
+            pendingCounts.keySet().removeIf(key -> key.jobId == jobId);
+            transactionTemplate.execute(status -> {
+                List<JobLogReport> jobReports = reportMapper.queryJobReport(jobId);
+                for (JobLogReport jobReport : jobReports) {
+                    reportMapper.increment(newReport(jobReport.getTriggerDay(), new int[]{
+                            -jobReport.getRunningCount(), -jobReport.getSucCount(), -jobReport.getFailCount()}));
+                }
+                reportMapper.deleteByJobId(jobId);
+                return null;
+            });
+            removedJobs.remove(jobId);
+        }
+
+        for (ReportKey key : pendingCounts.keySet()) {
+            int[] counts = pendingCounts.remove(key);
+            if (counts == null) {
+                continue;
+            }
+            JobLogReport report = newReport(new Date(key.triggerDay), counts);
+            report.setJobGroup(key.jobGroup);
+            report.setJobId(key.jobId);
+            try {
+                if (reportMapper.incrementJob(report) < 1) {
+                    try {
+                        reportMapper.saveJob(report);
+                    } catch (DuplicateKeyException e) {
+                        reportMapper.incrementJob(report);
+                    }
+                }
+            } catch (RuntimeException e) {
+                restore(pendingCounts, key, counts);
+                throw e;
+            }
+            restore(pendingDayCounts, key.triggerDay, counts);
+        }
+
+        for (Long triggerDay : pendingDayCounts.keySet()) {
+            int[] counts = pendingDayCounts.remove(triggerDay);
+            if (counts == null) {
+                continue;
+            }
+            JobLogReport report = newReport(new Date(triggerDay), counts);
+            try {
+                if (reportMapper.increment(report) < 1) {
+                    try {
+                        reportMapper.save(report);
+                    } catch (DuplicateKeyException e) {
+                        reportMapper.increment(report);
+                    }
+                }
+            } catch (RuntimeException e) {
+                restore(pendingDayCounts, triggerDay, counts);
+                throw e;
+            }
+        }
+    }
+
+    private static <K> void restore(ConcurrentMap<K, int[]> pending, K key, int[] counts) {
+        pending.merge(key, counts.clone(), (a, b) -> {
+            for (int i = 0; i < 3; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        });
+    }
+
+    private void reconcile(Date todayFrom) {
+        Calendar itemDay = Calendar.getInstance();
+        itemDay.setTime(todayFrom);
+        itemDay.set(Calendar.HOUR_OF_DAY, 23);
+        itemDay.set(Calendar.MINUTE, 59);
+        itemDay.set(Calendar.SECOND, 59);
+        itemDay.set(Calendar.MILLISECOND, 999);
+        Date todayTo = itemDay.getTime();
+
+        // recount the day and the jobs of the day
+        JobLogReport xxlJobLogReport = newReport(todayFrom, new int[3]);
+        Map<String, Object> triggerCountMap = JobAdminConfig.getAdminConfig().getJobLogMapper().findLogReport(todayFrom, todayTo);
+        if (triggerCountMap!=null && triggerCountMap.size()>0) {
+            fillCounts(xxlJobLogReport, triggerCountMap);
+        }
+        List<Map<String, Object>> jobCountList = JobAdminConfig.getAdminConfig().getJobLogMapper().findLogReportByJob(todayFrom, todayTo);
+
+        // the recount already holds the pending deltas of the day, drop them. flush runs on this thread
+        long triggerDay = todayFrom.getTime();
+        pendingCounts.keySet().removeIf(key -> key.triggerDay == triggerDay);
+        pendingDayCounts.remove(triggerDay);
+
+        // replace the day total and its per job rows together
+        JobLogReportMapper reportMapper = JobAdminConfig.getAdminConfig().getJobLogReportMapper();
+        transactionTemplate.execute(status -> {
+            int ret = reportMapper.update(xxlJobLogReport);
+            if (ret < 1) {
+                reportMapper.save(xxlJobLogReport);
+            }
+            reportMapper.deleteJob(todayFrom);
+            if (jobCountList != null) {
+                for (Map<String, Object> jobCountMap : jobCountList) {
+                    JobLogReport jobReport = newReport(todayFrom, new int[3]);
+                    jobReport.setJobGroup(Integer.valueOf(String.valueOf(jobCountMap.get("jobGroup"))));
+                    jobReport.setJobId(Integer.valueOf(String.valueOf(jobCountMap.get("jobId"))));
+                    fillCounts(jobReport, jobCountMap);
+                    reportMapper.saveJob(jobReport);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * delete expired logs in bounded batches with a pause between them, true when some are left
+     */
+    private boolean purge(Date clearBeforeTime) throws InterruptedException {
+        List<Long> logIds = null;
+        int batches = 0;
+        do {
+            logIds = JobAdminConfig.getAdminConfig().getJobLogMapper().findClearLogIds(0, 0, clearBeforeTime, 0, PURGE_BATCH_SIZE);
+            if (logIds!=null && logIds.size()>0) {
+                JobAdminConfig.getAdminConfig().getJobLogMapper().clearLog(logIds);
+                batches++;
+                TimeUnit.MILLISECONDS.sleep(PURGE_BATCH_PAUSE);
+            }
+        } while (!toStop && logIds!=null && logIds.size()>0 && batches < PURGE_MAX_BATCHES);
+        return logIds!=null && logIds.size()>0;
+    }
+
+    private static void fillCounts(JobLogReport report, Map<String, Object> triggerCountMap) {
+        int triggerDayCount = triggerCountMap.containsKey("triggerDayCount")? Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCount"))):0;
+        int triggerDayCountRunning = triggerCountMap.containsKey("triggerDayCountRunning")? Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCountRunning"))):0;
+        int triggerDayCountSuc = triggerCountMap.containsKey("triggerDayCountSuc")? Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCountSuc"))):0;
+        int triggerDayCountFail = triggerDayCount - triggerDayCountRunning - triggerDayCountSuc;
+
+        report.setRunningCount(triggerDayCountRunning);
+        report.setSucCount(triggerDayCountSuc);
+        report.setFailCount(triggerDayCountFail);
+    }
+
+    private static JobLogReport newReport(Date triggerDay, int[] counts) {
+        JobLogReport report = new JobLogReport();
+        report.setTriggerDay(triggerDay);
+        report.setRunningCount(counts[STATUS_RUNNING]);
+        report.setSucCount(counts[STATUS_SUC]);
+        report.setFailCount(counts[STATUS_FAIL]);
+        return report;
+    }
+
+    private static Date dayOf(Date time) {
+        Calendar day = Calendar.getInstance();
+        day.setTime(time);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        return day.getTime();
+    }
+
     public void toStop(){
         toStop = true;
         // interrupt and wait
@@ -150,4 +369,33 @@ public class JobLogReportHelper {
         }
     }
 
+    private static class ReportKey {
+        private final long triggerDay;
+        private final int jobGroup;
+        private final int jobId;
+
+        ReportKey(long triggerDay, int jobGroup, int jobId) {
+            this.triggerDay = triggerDay;
+            this.jobGroup = jobGroup;
+            this.jobId = jobId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ReportKey)) {
+                return false;
+            }
+            ReportKey that = (ReportKey) o;
+            return triggerDay == that.triggerDay && jobGroup == that.jobGroup && jobId == that.jobId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(triggerDay, jobGroup, jobId);
+        }
+    }
+
 }
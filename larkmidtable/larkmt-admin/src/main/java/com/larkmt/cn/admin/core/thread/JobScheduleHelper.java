@@ -2,17 +2,21 @@ package com.larkmt.cn.admin.core.thread;
 
 import com.larkmt.cn.admin.core.conf.JobAdminConfig;
 import com.larkmt.cn.admin.core.cron.CronExpression;
+import com.larkmt.cn.admin.core.scheduler.TimingWheel;
 import com.larkmt.cn.admin.core.trigger.TriggerTypeEnum;
 import com.larkmt.cn.admin.entity.JobInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -33,7 +37,35 @@ public class JobScheduleHelper {
     private Thread ringThread;
     private volatile boolean scheduleThreadToStop = false;
     private volatile boolean ringThreadToStop = false;
-    private volatile static Map<Integer, List<Integer>> ringData = new ConcurrentHashMap<>();
+    private static final TimingWheel timingWheel = new TimingWheel(1000, 60, System.currentTimeMillis());
+    private static final int BATCH_UPDATE_SIZE = 1000;
+
+    // parsed cron expressions, only used by the schedule thread
+    private final Map<String, CronExpression> cronCache = new LinkedHashMap<String, CronExpression>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CronExpression> eldest) {
+            return size() > 4096;
+        }
+    };
+
+    // metrics
+    private static final Timer tickLagTimer = Timer.builder("larkmt.schedule.tick.lag")
+            .description("delay between the trigger time of a job and its trigger by the time wheel")
+            .register(Metrics.globalRegistry);
+    private static final Counter misfireCounter = Counter.builder("larkmt.schedule.misfire")
+            .description("jobs skipped since their trigger time expired more than the pre read time")
+            .register(Metrics.globalRegistry);
+    private static final Timer lockHoldTimer = Timer.builder("larkmt.schedule.lock.hold")
+            .description("time the schedule lock is held by each scan")
+            .register(Metrics.globalRegistry);
+
+    static {
+        Metrics.globalRegistry.gauge("larkmt.schedule.wheel.size", timingWheel, wheel -> {
+            synchronized (wheel) {
+                return wheel.size();
+            }
+        });
+    }
 
     public void start() {
 
@@ -64,20 +96,51 @@ public class JobScheduleHelper {
                     PreparedStatement preparedStatement = null;
 
                     boolean preReadSuc = true;
+                    long lockStart = 0;
                     try {
 
                         conn = JobAdminConfig.getAdminConfig().getDataSource().getConnection();
                         connAutoCommit = conn.getAutoCommit();
                         conn.setAutoCommit(false);
 
-                        preparedStatement = conn.prepareStatement("select * from job_lock where lock_name = 'schedule_lock' for update");
-                        preparedStatement.execute();
+                        int shardCount = JobAdminConfig.getAdminConfig().getScheduleShardCount();
+                        List<Integer> shardIds = null;
+                        if (shardCount > 0) {
+                            // lock the shards leased by this admin by primary key, the other admins schedule their shards in parallel;
+                            // a lease lost since the last beat is dropped after the rows are locked
+                            List<Integer> ownedShards = JobScheduleShardHelper.getInstance().getOwnedShards();
+                            shardIds = new ArrayList<>();
+                            if (!ownedShards.isEmpty()) {
+                                StringBuilder placeholders = new StringBuilder();
+                                for (int i = 0; i < ownedShards.size(); i++) {
+                                    placeholders.append(i == 0 ? "?" : ",?");
+                                }
+                                preparedStatement = conn.prepareStatement("select shard_id, owner, lease_expire_time from job_schedule_shard where shard_id in (" + placeholders + ") for update");
+                                for (int i = 0; i < ownedShards.size(); i++) {
+                                    preparedStatement.setInt(i + 1, ownedShards.get(i));
+                                }
+                                String address = JobScheduleShardHelper.getInstance().getAddress();
+                                long lockTime = System.currentTimeMillis();
+                                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                                    while (resultSet.next()) {
+                                        if (address.equals(resultSet.getString(2)) && resultSet.getLong(3) > lockTime) {
+                                            shardIds.add(resultSet.getInt(1));
+                                        }
+                                    }
+                                }
+                            }
+                        } else {
+                            preparedStatement = conn.prepareStatement("select * from job_lock where lock_name = 'schedule_lock' for update");
+                            preparedStatement.execute();
+                        }
+                        lockStart = System.nanoTime();
 
                         // tx start
 
-                        // 1、pre read
+                        // 1、pre read, only the columns needed to schedule
                         long nowTime = System.currentTimeMillis();
-                        List<JobInfo> scheduleList = JobAdminConfig.getAdminConfig().getJobInfoMapper().scheduleJobQuery(nowTime + PRE_READ_MS, preReadCount);
+                        List<JobInfo> scheduleList = shardIds != null && shardIds.isEmpty() ? null
+                                : JobAdminConfig.getAdminConfig().getJobInfoMapper().scheduleJobQuery(nowTime + PRE_READ_MS, preReadCount, shardCount, shardIds);
                         if (scheduleList != null && scheduleList.size() > 0) {
                             // 2、push time-ring
                             for (JobInfo jobInfo : scheduleList) {
@@ -86,6 +149,7 @@ public class JobScheduleHelper {
                                 if (nowTime > jobInfo.getTriggerNextTime() + PRE_READ_MS) {
                                     // 2.1、trigger-expire > 5s：pass && make next-trigger-time
                                     logger.warn(">>>>>>>>>>> LarkMidTable, schedule misfire, jobId = " + jobInfo.getId());
+                                    misfireCounter.increment();
 
                                     // fresh next
                                     refreshNextValidTime(jobInfo, new Date());
@@ -99,40 +163,24 @@ public class JobScheduleHelper {
 
                                     // 2、fresh next
                                     refreshNextValidTime(jobInfo, new Date());
+                                }
 
-                                    // next-trigger-time in 5s, pre-read again
-                                    if (jobInfo.getTriggerStatus() == 1 && nowTime + PRE_READ_MS > jobInfo.getTriggerNextTime()) {
-
-                                        // 1、make ring second
-                                        int ringSecond = (int) ((jobInfo.getTriggerNextTime() / 1000) % 60);
-
-                                        // 2、push time ring
-                                        pushTimeRing(ringSecond, jobInfo.getId());
-
-                                        // 3、fresh next
-                                        refreshNextValidTime(jobInfo, new Date(jobInfo.getTriggerNextTime()));
-
-                                    }
-
-                                } else {
-                                    // 2.3、trigger-pre-read：time-ring trigger && make next-trigger-time
-
-                                    // 1、make ring second
-                                    int ringSecond = (int) ((jobInfo.getTriggerNextTime() / 1000) % 60);
+                                // 2.3、trigger-pre-read：push every trigger time inside the pre read time to the time wheel
+                                while (jobInfo.getTriggerStatus() == 1 && nowTime + PRE_READ_MS > jobInfo.getTriggerNextTime()) {
 
-                                    // 2、push time ring
-                                    pushTimeRing(ringSecond, jobInfo.getId());
+                                    // 1、push time wheel
+                                    pushTimeRing(jobInfo.getId(), jobInfo.getTriggerNextTime());
 
-                                    // 3、fresh next
+                                    // 2、fresh next
                                     refreshNextValidTime(jobInfo, new Date(jobInfo.getTriggerNextTime()));
-
                                 }
 
                             }
 
-                            // 3、update trigger info
-                            for (JobInfo jobInfo : scheduleList) {
-                                JobAdminConfig.getAdminConfig().getJobInfoMapper().scheduleUpdate(jobInfo);
+                            // 3、update trigger info, one statement for the whole scan
+                            for (int i = 0; i < scheduleList.size(); i += BATCH_UPDATE_SIZE) {
+                                JobAdminConfig.getAdminConfig().getJobInfoMapper().scheduleUpdateBatch(
+                                        scheduleList.subList(i, Math.min(i + BATCH_UPDATE_SIZE, scheduleList.size())));
                             }
 
                         } else {
@@ -157,6 +205,9 @@ public class JobScheduleHelper {
                                     logger.error(e.getMessage(), e);
                                 }
                             }
+                            if (lockStart > 0) {
+                                lockHoldTimer.record(System.nanoTime() - lockStart, TimeUnit.NANOSECONDS);
+                            }
                             try {
                                 conn.setAutoCommit(connAutoCommit);
                             } catch (SQLException e) {
@@ -224,26 +275,23 @@ public class JobScheduleHelper {
             while (!ringThreadToStop) {
 
                 try {
-                    // second data
-                    List<Integer> ringItemData = new ArrayList<>();
-                    int nowSecond = Calendar.getInstance().get(Calendar.SECOND);   // 避免处理耗时太长，跨过刻度，向前校验一个刻度；
-                    for (int i = 0; i < 2; i++) {
-                        List<Integer> tmpData = ringData.remove((nowSecond + 60 - i) % 60);
-                        if (tmpData != null) {
-                            ringItemData.addAll(tmpData);
-                        }
+                    // due data, the wheel also returns the ticks passed while a trigger took long
+                    long now = System.currentTimeMillis();
+                    List<TimingWheel.Timeout> dueList;
+                    synchronized (timingWheel) {
+                        dueList = timingWheel.advance(now);
                     }
 
                     // ring trigger
-                    logger.debug(">>>>>>>>>>> LarkMidTable, time-ring beat : " + nowSecond + " = " + Arrays.asList(ringItemData));
-                    if (ringItemData.size() > 0) {
+                    logger.debug(">>>>>>>>>>> LarkMidTable, time-ring beat : " + now + " = " + dueList.size());
+                    long maxLag = 0;
+                    for (TimingWheel.Timeout timeout : dueList) {
                         // do trigger
-                        for (int jobId : ringItemData) {
-                            // do trigger
-                            JobTriggerPoolHelper.trigger(jobId, TriggerTypeEnum.CRON, -1, null, null);
-                        }
-                        // clear
-                        ringItemData.clear();
+                        JobTriggerPoolHelper.trigger(timeout.getJobId(), TriggerTypeEnum.CRON, -1, null, null);
+                        maxLag = Math.max(maxLag, now - timeout.getFireTime());
+                    }
+                    if (!dueList.isEmpty()) {
+                        tickLagTimer.record(maxLag, TimeUnit.MILLISECONDS);
                     }
                 } catch (Exception e) {
                     if (!ringThreadToStop) {
@@ -268,7 +316,12 @@ public class JobScheduleHelper {
     }
 
     private void refreshNextValidTime(JobInfo jobInfo, Date fromTime) throws ParseException {
-        Date nextValidTime = new CronExpression(jobInfo.getJobCron()).getNextValidTimeAfter(fromTime);
+        CronExpression cronExpression = cronCache.get(jobInfo.getJobCron());
+        if (cronExpression == null) {
+            cronExpression = new CronExpression(jobInfo.getJobCron());
+            cronCache.put(jobInfo.getJobCron(), cronExpression);
+        }
+        Date nextValidTime = cronExpression.getNextValidTimeAfter(fromTime);
         if (nextValidTime != null) {
             jobInfo.setTriggerLastTime(jobInfo.getTriggerNextTime());
             jobInfo.setTriggerNextTime(nextValidTime.getTime());
@@ -279,16 +332,18 @@ public class JobScheduleHelper {
         }
     }
 
-    private void pushTimeRing(int ringSecond, int jobId) {
+    private void pushTimeRing(int jobId, long triggerTime) {
         // push async ring
-        List<Integer> ringItemData = ringData.get(ringSecond);
-        if (ringItemData == null) {
-            ringItemData = new ArrayList<Integer>();
-            ringData.put(ringSecond, ringItemData);
+        boolean pushed;
+        synchronized (timingWheel) {
+            pushed = timingWheel.add(new TimingWheel.Timeout(jobId, triggerTime));
+        }
+        if (!pushed) {
+            // the tick already passed, trigger directly
+            JobTriggerPoolHelper.trigger(jobId, TriggerTypeEnum.CRON, -1, null, null);
         }
-        ringItemData.add(jobId);
 
-        logger.debug(">>>>>>>>>>> LarkMidTable, schedule push time-ring : " + ringSecond + " = " + Arrays.asList(ringItemData));
+        logger.debug(">>>>>>>>>>> LarkMidTable, schedule push time-ring : " + triggerTime + " = " + jobId);
     }
 
     public void toStop() {
@@ -311,15 +366,9 @@ public class JobScheduleHelper {
         }
 
         // if has ring data
-        boolean hasRingData = false;
-        if (!ringData.isEmpty()) {
-            for (int second : ringData.keySet()) {
-                List<Integer> tmpData = ringData.get(second);
-                if (tmpData != null && tmpData.size() > 0) {
-                    hasRingData = true;
-                    break;
-                }
-            }
+        boolean hasRingData;
+        synchronized (timingWheel) {
+            hasRingData = timingWheel.size() > 0;
         }
         if (hasRingData) {
             try {
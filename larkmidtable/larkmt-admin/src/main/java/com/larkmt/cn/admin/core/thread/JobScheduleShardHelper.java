@@ -0,0 +1,185 @@
+package com.larkmt.cn.admin.core.thread;
+
+import com.larkmt.cn.admin.core.conf.JobAdminConfig;
+import com.larkmt.cn.admin.entity.JobRegistry;
+import com.larkmt.cn.admin.entity.JobScheduleShard;
+import com.larkmt.core.enums.RegistryConfig;
+import com.larkmt.rpc.util.IpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * schedule shard lease
+ *
+ * jobs are split into shards by id, each admin beats into job_registry and leases the shards
+ * assigned to it among the live admins. when an admin joins or stops beating, the assignment
+ * changes and the shards move once their lease is released or expired.
+ */
+public class JobScheduleShardHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobScheduleShardHelper.class);
+
+    private static JobScheduleShardHelper instance = new JobScheduleShardHelper();
+
+    public static JobScheduleShardHelper getInstance() {
+        return instance;
+    }
+
+    public static final int BEAT_INTERVAL = 10;                 // s
+    public static final int LEASE_TIMEOUT = BEAT_INTERVAL * 3;  // s
+    private static final String REGISTRY_KEY = "schedule";
+
+    private Thread shardThread;
+    private volatile boolean toStop = false;
+    private volatile String address;
+    private volatile List<Integer> ownedShards = Collections.emptyList();
+
+    public boolean isEnabled() {
+        return JobAdminConfig.getAdminConfig().getScheduleShardCount() > 0;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public List<Integer> getOwnedShards() {
+        return ownedShards;
+    }
+
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        address = IpUtil.getIpPort(JobAdminConfig.getAdminConfig().getServerPort());
+
+        shardThread = new Thread(() -> {
+            try {
+                initShards();
+            } catch (Exception e) {
+                logger.error(">>>>>>>>>>> LarkMidTable, init schedule shard error:{}", e);
+            }
+
+            while (!toStop) {
+                try {
+                    beat();
+                } catch (Exception e) {
+                    if (!toStop) {
+                        logger.error(">>>>>>>>>>> LarkMidTable, JobScheduleShardHelper#shardThread error:{}", e);
+                    }
+                }
+                try {
+                    TimeUnit.SECONDS.sleep(BEAT_INTERVAL);
+                } catch (InterruptedException e) {
+                    if (!toStop) {
+                        logger.error(e.getMessage(), e);
+                    }
+                }
+            }
+
+            // hand over the shards at once instead of waiting for the lease to expire
+            try {
+                List<Integer> shardIds = new ArrayList<>();
+                for (int i = 0; i < JobAdminConfig.getAdminConfig().getScheduleShardCount(); i++) {
+                    shardIds.add(i);
+                }
+                JobAdminConfig.getAdminConfig().getJobScheduleShardMapper().release(shardIds, address);
+                JobAdminConfig.getAdminConfig().getJobRegistryMapper().registryDelete(RegistryConfig.RegistType.ADMIN.name(), REGISTRY_KEY, address);
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+            ownedShards = Collections.emptyList();
+            logger.info(">>>>>>>>>>> LarkMidTable, JobScheduleShardHelper#shardThread stop");
+        });
+        shardThread.setDaemon(true);
+        shardThread.setName("LarkMidTable, admin JobScheduleShardHelper#shardThread");
+        shardThread.start();
+    }
+
+    private void initShards() {
+        Set<Integer> exists = new HashSet<>();
+        for (JobScheduleShard shard : JobAdminConfig.getAdminConfig().getJobScheduleShardMapper().findAll()) {
+            exists.add(shard.getShardId());
+        }
+        for (int i = 0; i < JobAdminConfig.getAdminConfig().getScheduleShardCount(); i++) {
+            if (exists.contains(i)) {
+                continue;
+            }
+            try {
+                JobAdminConfig.getAdminConfig().getJobScheduleShardMapper().save(i);
+            } catch (DuplicateKeyException e) {
+                // saved by another admin
+            }
+        }
+    }
+
+    private void beat() {
+        int shardCount = JobAdminConfig.getAdminConfig().getScheduleShardCount();
+        long nowTime = System.currentTimeMillis();
+
+        // 1、heartbeat
+        int ret = JobAdminConfig.getAdminConfig().getJobRegistryMapper().registryUpdate(RegistryConfig.RegistType.ADMIN.name(), REGISTRY_KEY, address, 0, 0, 0, new Date(nowTime));
+        if (ret < 1) {
+            JobAdminConfig.getAdminConfig().getJobRegistryMapper().registrySave(RegistryConfig.RegistType.ADMIN.name(), REGISTRY_KEY, address, 0, 0, 0, new Date(nowTime));
+        }
+
+        // 2、live admins, sorted so that every admin computes the same assignment
+        TreeSet<String> admins = new TreeSet<>();
+        admins.add(address);
+        List<JobRegistry> registryList = JobAdminConfig.getAdminConfig().getJobRegistryMapper().findAll(LEASE_TIMEOUT, new Date(nowTime));
+        if (registryList != null) {
+            for (JobRegistry item : registryList) {
+                if (RegistryConfig.RegistType.ADMIN.name().equals(item.getRegistryGroup()) && REGISTRY_KEY.equals(item.getRegistryKey())) {
+                    admins.add(item.getRegistryValue());
+                }
+            }
+        }
+        int adminIndex = admins.headSet(address).size();
+
+        // 3、release the shards of other admins, take or renew the own ones
+        List<Integer> assigned = new ArrayList<>();
+        List<Integer> others = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            if (i % admins.size() == adminIndex) {
+                assigned.add(i);
+            } else {
+                others.add(i);
+            }
+        }
+        if (!others.isEmpty()) {
+            JobAdminConfig.getAdminConfig().getJobScheduleShardMapper().release(others, address);
+        }
+        if (!assigned.isEmpty()) {
+            JobAdminConfig.getAdminConfig().getJobScheduleShardMapper().claim(assigned, address, nowTime, nowTime + LEASE_TIMEOUT * 1000L);
+        }
+
+        // 4、fresh owned shards, a shard still leased by its former admin is taken on a later beat
+        List<Integer> owned = new ArrayList<>();
+        for (JobScheduleShard shard : JobAdminConfig.getAdminConfig().getJobScheduleShardMapper().findAll()) {
+            if (address.equals(shard.getOwner()) && shard.getLeaseExpireTime() > nowTime) {
+                owned.add(shard.getShardId());
+            }
+        }
+        if (!owned.equals(ownedShards)) {
+            logger.info(">>>>>>>>>>> LarkMidTable, schedule shard change, admins = {}, owned shards = {}", admins, owned);
+        }
+        ownedShards = owned;
+    }
+
+    public void toStop() {
+        if (shardThread == null) {
+            return;
+        }
+        toStop = true;
+        // interrupt and wait
+        shardThread.interrupt();
+        try {
+            shardThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+}
@@ -7,12 +7,9 @@ import com.larkmt.cn.admin.core.conf.JobAdminConfig;
 import com.larkmt.cn.admin.core.trigger.TriggerTypeEnum;
 import com.larkmt.cn.admin.core.trigger.JobTrigger;
 import com.larkmt.cn.admin.entity.JobInfo;
-import com.larkmt.cn.admin.entity.JobLog;
-import com.larkmt.core.biz.model.ReturnT;
 import com.larkmt.core.log.JobLogger;
 import com.larkmt.core.util.Constants;
 import com.larkmt.core.util.DateUtil;
-import com.larkmt.core.util.ProcessUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,8 +19,7 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -152,12 +148,13 @@ public class JobTriggerPoolHelper {
 	public static String[] buildFlinkXExecutorCmd(String flinkXShPath, String tmpFilePath,int jobId) {
 		long timestamp = System.currentTimeMillis();
 		List<String> cmdArr = new ArrayList<>();
+		// only the interpreter command is split into words, the paths are single arguments
 		if(JobTriggerPoolHelper.isWindows()) {
-			cmdArr.add(Constants.CMDWINDOW);
+			cmdArr.addAll(Arrays.asList(Constants.CMDWINDOW.trim().split("\\s+")));
 			cmdArr.add(flinkXShPath);
 			cmdArr.add(tmpFilePath);
 		} else {
-			cmdArr.add(Constants.CMDLINUX);
+			cmdArr.addAll(Arrays.asList(Constants.CMDLINUX.trim().split("\\s+")));
 			cmdArr.add(flinkXShPath);
 			cmdArr.add(tmpFilePath);
 		}
@@ -176,47 +173,11 @@ public class JobTriggerPoolHelper {
 	}
 
 	public static void runJob(int jobId) {
-		try {
-			JobInfo jobInfo = JobAdminConfig.getAdminConfig().getJobInfoMapper().loadById(jobId);
-			String cmdstr = "";
-			String tmpFilePath ="";
-			String[] cmdarrayFinal = null;
-			tmpFilePath = generateTemJsonFile(jobInfo.getJobJson());
-			cmdarrayFinal = buildFlinkXExecutorCmd(ExcecutorConfig.getExcecutorConfig().getFlinkxHome(), tmpFilePath,jobId);
-			for (int j = 0; j < cmdarrayFinal.length; j++) {
-				cmdstr += cmdarrayFinal[j] + " ";
-			}
-			System.out.println(cmdstr);
-			final Process process = Runtime.getRuntime().exec(cmdstr);
-			String prcsId = ProcessUtil.getProcessId(process);
-			JobLogger.log("Execute: " + cmdstr);
-			JobLogger.log("process id: " + prcsId);
-			if (FileUtil.exist(tmpFilePath)) {
-				//				FileUtil.del(new File(tmpFilePath));
-			}
-			// 记录日志
-			Calendar calendar = Calendar.getInstance();
-			calendar.setTime(new Date());
-			calendar.set(Calendar.MILLISECOND, 0);
-			Date triggerTime = calendar.getTime();
-			JobLog jobLog = new JobLog();
-			jobLog.setJobGroup(jobInfo.getJobGroup());
-			jobLog.setJobId(jobInfo.getId());
-			jobLog.setTriggerTime(triggerTime);
-			jobLog.setJobDesc(jobInfo.getJobDesc());
-			jobLog.setHandleTime(triggerTime);
-			jobLog.setTriggerCode(ReturnT.SUCCESS_CODE);
-			jobLog.setHandleCode(0);
-			jobLog.setProcessId(prcsId);
-			// 设置job的执行路径
-			jobLog.setExecutorAddress(cmdarrayFinal[3]);
-			JobAdminConfig.getAdminConfig().getJobLogMapper().save(jobLog);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+		JobInfo jobInfo = JobAdminConfig.getAdminConfig().getJobInfoMapper().loadById(jobId);
+		JobLaunchHelper.getInstance().submit(jobInfo, TriggerTypeEnum.MANUAL);
 	}
 
-	private static String generateTemJsonFile(String jobJson) {
+	static String generateTemJsonFile(String jobJson) {
 		String jsonPath = "";
 		jsonPath = ExcecutorConfig.getExcecutorConfig().getFlinkxjsonPath();
 		if (!FileUtil.exist(jsonPath)) {
@@ -1,13 +1,11 @@
 package com.larkmt.cn.admin.core.trigger;
 
-import com.larkmt.cn.admin.core.thread.JobTriggerPoolHelper;
+import com.larkmt.cn.admin.core.thread.JobLaunchHelper;
 import com.larkmt.rpc.util.IpUtil;
 import com.larkmt.cn.admin.core.conf.JobAdminConfig;
-import com.larkmt.cn.admin.core.route.ExecutorRouteStrategyEnum;
 import com.larkmt.cn.admin.core.scheduler.JobScheduler;
 import com.larkmt.cn.admin.core.util.I18nUtil;
 import com.larkmt.cn.admin.entity.JobDatasource;
-import com.larkmt.cn.admin.entity.JobGroup;
 import com.larkmt.cn.admin.entity.JobInfo;
 import com.larkmt.cn.admin.entity.JobLog;
 import com.larkmt.cn.admin.tool.query.BaseQueryTool;
@@ -38,11 +36,13 @@ public class JobTrigger {
     /**
      * trigger job
      *
+     * the job is launched once on this host, no executor is routed to, so the retry count and the
+     * sharding param are not used
+     *
      * @param jobId
      * @param triggerType
-     * @param failRetryCount        >=0: use this param
-     *                              <0: use param from job info config
-     * @param executorShardingParam
+     * @param failRetryCount        unused
+     * @param executorShardingParam unused
      * @param executorParam         null: use job param
      *                              not null: cover job param
      */
@@ -60,56 +60,18 @@ public class JobTrigger {
 		if (StringUtils.isNotBlank(executorParam)) {
 			jobInfo.setExecutorParam(executorParam);
 		}
-		int finalFailRetryCount = failRetryCount >= 0 ? failRetryCount : jobInfo.getExecutorFailRetryCount();
-		JobGroup group = JobAdminConfig.getAdminConfig().getJobGroupMapper().load(jobInfo.getJobGroup());
-
-		// sharding param
-		int[] shardingParam = null;
-		if (executorShardingParam != null) {
-			String[] shardingArr = executorShardingParam.split("/");
-			if (shardingArr.length == 2 && isNumeric(shardingArr[0]) && isNumeric(shardingArr[1])) {
-				shardingParam = new int[2];
-				shardingParam[0] = Integer.valueOf(shardingArr[0]);
-				shardingParam[1] = Integer.valueOf(shardingArr[1]);
-			}
-		}
-		if (ExecutorRouteStrategyEnum.SHARDING_BROADCAST == ExecutorRouteStrategyEnum.match(jobInfo.getExecutorRouteStrategy(), null)
-				&& group.getRegistryList() != null && !group.getRegistryList().isEmpty()
-				&& shardingParam == null) {
-			for (int i = 0; i < group.getRegistryList().size(); i++) {
-				processTrigger(group, jobInfo, finalFailRetryCount, triggerType, i, group.getRegistryList().size());
-			}
-		} else {
-			if (shardingParam == null) {
-				shardingParam = new int[]{0, 1};
-			}
-			System.out.println("processTrigger");
-			processTrigger(group, jobInfo, finalFailRetryCount, triggerType, shardingParam[0], shardingParam[1]);
-		}
+		processTrigger(jobInfo, triggerType);
 
     }
 
-    private static boolean isNumeric(String str) {
-        try {
-            int result = Integer.valueOf(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-
     /**
-     * @param group               job group, registry list may be empty
      * @param jobInfo
-     * @param finalFailRetryCount
      * @param triggerType
-     * @param index               sharding index
-     * @param total               sharding index
      */
-    private static void processTrigger(JobGroup group, JobInfo jobInfo, int finalFailRetryCount, TriggerTypeEnum triggerType, int index, int total) {
+    private static void processTrigger(JobInfo jobInfo, TriggerTypeEnum triggerType) {
 
-        JobTriggerPoolHelper jobTriggerPoolHelper =  new JobTriggerPoolHelper();
-        jobTriggerPoolHelper.runJob(jobInfo.getId());
+        // queued, the launcher starts the process once the host has room for it
+        JobLaunchHelper.getInstance().submit(jobInfo, triggerType);
 
     }
 
@@ -11,6 +11,10 @@ public class JobLogReport {
 
     private Date triggerDay;
 
+    // only set on the per job rows of job_log_report_job
+    private int jobGroup;
+    private int jobId;
+
     private int runningCount;
     private int sucCount;
     private int failCount;
@@ -0,0 +1,14 @@
+package com.larkmt.cn.admin.entity;
+
+import lombok.Data;
+
+/**
+ * schedule shard lease, jobs are assigned to shards by id and each admin schedules the shards it leases
+ */
+@Data
+public class JobScheduleShard {
+
+    private int shardId;
+    private String owner;
+    private long leaseExpireTime;
+}
@@ -48,10 +48,15 @@ public interface JobInfoMapper {
 
     int findAllCount();
 
-    List<JobInfo> scheduleJobQuery(@Param("maxNextTime") long maxNextTime, @Param("pagesize") int pagesize);
+    List<JobInfo> scheduleJobQuery(@Param("maxNextTime") long maxNextTime, @Param("pagesize") int pagesize,
+                                   @Param("shardCount") int shardCount, @Param("shardIds") List<Integer> shardIds);
+
+    List<JobInfo> loadCallbackInfoByIds(@Param("ids") List<Integer> ids);
 
     int scheduleUpdate(JobInfo xxlJobInfo);
 
+    int scheduleUpdateBatch(@Param("list") List<JobInfo> jobInfoList);
+
     int incrementTimeUpdate(@Param("id") int id, @Param("incStartTime") Date incStartTime);
 
 	public int updateLastHandleCode(@Param("id") int id,@Param("lastHandleCode")int lastHandleCode);
@@ -35,6 +35,8 @@ public interface JobLogMapper {
 
     JobLog load(@Param("id") long id);
 
+    List<JobLog> loadByIds(@Param("ids") List<Long> ids);
+
     long save(JobLog jobLog);
 
     int updateTriggerInfo(JobLog jobLog);
@@ -49,6 +51,9 @@ public interface JobLogMapper {
     Map<String, Object> findLogReport(@Param("from") Date from,
                                       @Param("to") Date to);
 
+    List<Map<String, Object>> findLogReportByJob(@Param("from") Date from,
+                                                 @Param("to") Date to);
+
     List<Long> findClearLogIds(@Param("jobGroup") int jobGroup,
                                @Param("jobId") int jobId,
                                @Param("clearBeforeTime") Date clearBeforeTime,
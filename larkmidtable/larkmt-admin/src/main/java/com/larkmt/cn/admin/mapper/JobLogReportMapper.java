@@ -19,6 +19,18 @@ public interface JobLogReportMapper {
 
     int update(JobLogReport xxlJobLogReport);
 
+    int increment(JobLogReport xxlJobLogReport);
+
+    int saveJob(JobLogReport xxlJobLogReport);
+
+    int incrementJob(JobLogReport xxlJobLogReport);
+
+    int deleteJob(@Param("triggerDay") Date triggerDay);
+
+    List<JobLogReport> queryJobReport(@Param("jobId") int jobId);
+
+    int deleteByJobId(@Param("jobId") int jobId);
+
     List<JobLogReport> queryLogReport(@Param("triggerDayFrom") Date triggerDayFrom,
                                       @Param("triggerDayTo") Date triggerDayTo);
 
@@ -0,0 +1,27 @@
+package com.larkmt.cn.admin.mapper;
+
+import com.larkmt.cn.admin.entity.JobScheduleShard;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * schedule shard lease
+ */
+@Mapper
+public interface JobScheduleShardMapper {
+
+    List<JobScheduleShard> findAll();
+
+    int save(@Param("shardId") int shardId);
+
+    int claim(@Param("shardIds") List<Integer> shardIds,
+              @Param("owner") String owner,
+              @Param("nowTime") long nowTime,
+              @Param("leaseExpireTime") long leaseExpireTime);
+
+    int release(@Param("shardIds") List<Integer> shardIds,
+                @Param("owner") String owner);
+
+}
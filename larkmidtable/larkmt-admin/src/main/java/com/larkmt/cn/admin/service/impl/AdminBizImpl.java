@@ -1,6 +1,7 @@
 package com.larkmt.cn.admin.service.impl;
 
 import com.larkmt.cn.admin.core.kill.KillJob;
+import com.larkmt.cn.admin.core.thread.JobLogReportHelper;
 import com.larkmt.cn.admin.core.thread.JobTriggerPoolHelper;
 import com.larkmt.cn.admin.core.trigger.TriggerTypeEnum;
 import com.larkmt.cn.admin.core.util.I18nUtil;
@@ -16,15 +17,20 @@ import com.larkmt.core.biz.model.RegistryParam;
 import com.larkmt.core.biz.model.ReturnT;
 import com.larkmt.core.enums.IncrementTypeEnum;
 import com.larkmt.core.handler.IJobHandler;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.text.MessageFormat;
-import java.util.Date;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author xuxueli 2017-07-27 21:54:20
@@ -39,15 +45,94 @@ public class AdminBizImpl implements AdminBiz {
     private JobInfoMapper jobInfoMapper;
     @Resource
     private JobRegistryMapper jobRegistryMapper;
+    @Resource
+    private SqlSessionFactory sqlSessionFactory;
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    // ids per IN query
+    private static final int CALLBACK_LOAD_SIZE = 1000;
+
+    private SqlSessionTemplate batchSqlSessionTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        batchSqlSessionTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @Override
     public ReturnT<String> callback(List<HandleCallbackParam> callbackParamList) {
+        if (callbackParamList == null || callbackParamList.isEmpty()) {
+            return ReturnT.SUCCESS;
+        }
+
+        // 1、load the logs of the batch, then the jobs of the successful ones
+        List<Long> logIds = new ArrayList<>();
         for (HandleCallbackParam handleCallbackParam : callbackParamList) {
-            ReturnT<String> callbackResult = callback(handleCallbackParam);
+            logIds.add(handleCallbackParam.getLogId());
+        }
+        Map<Long, JobLog> logMap = new HashMap<>();
+        for (List<Long> ids : partition(logIds)) {
+            for (JobLog log : jobLogMapper.loadByIds(ids)) {
+                logMap.put(log.getId(), log);
+            }
+        }
+        Set<Integer> jobIds = new HashSet<>();
+        for (HandleCallbackParam handleCallbackParam : callbackParamList) {
+            JobLog log = logMap.get(handleCallbackParam.getLogId());
+            if (log != null && IJobHandler.SUCCESS.getCode() == handleCallbackParam.getExecuteResult().getCode()) {
+                jobIds.add(log.getJobId());
+            }
+        }
+        Map<Integer, JobInfo> jobMap = new HashMap<>();
+        for (List<Integer> ids : partition(new ArrayList<>(jobIds))) {
+            for (JobInfo jobInfo : jobInfoMapper.loadCallbackInfoByIds(ids)) {
+                jobMap.put(jobInfo.getId(), jobInfo);
+            }
+        }
+
+        // 2、handle each callback in memory
+        List<JobLog> handledLogs = new ArrayList<>();
+        List<JobLog> incrementLogs = new ArrayList<>();
+        List<Integer> childJobIds = new ArrayList<>();
+        for (HandleCallbackParam handleCallbackParam : callbackParamList) {
+            ReturnT<String> callbackResult = callback(handleCallbackParam, logMap.get(handleCallbackParam.getLogId()),
+                    jobMap, handledLogs, incrementLogs, childJobIds);
             logger.debug(">>>>>>>>> JobApiController.callback {}, handleCallbackParam={}, callbackResult={}",
                     (callbackResult.getCode() == IJobHandler.SUCCESS.getCode() ? "success" : "fail"), handleCallbackParam, callbackResult);
         }
 
+        // 3、save the batch in one transaction, each statement sent as a jdbc batch
+        if (!handledLogs.isEmpty()) {
+            transactionTemplate.execute(status -> {
+                JobLogMapper batchJobLogMapper = batchSqlSessionTemplate.getMapper(JobLogMapper.class);
+                JobInfoMapper batchJobInfoMapper = batchSqlSessionTemplate.getMapper(JobInfoMapper.class);
+                for (JobLog log : incrementLogs) {
+                    updateIncrementParam(batchJobInfoMapper, log, jobMap.get(log.getJobId()).getIncrementType());
+                }
+                for (JobLog log : handledLogs) {
+                    batchJobLogMapper.updateHandleInfo(log);
+                }
+                for (JobLog log : handledLogs) {
+                    batchJobInfoMapper.updateLastHandleCode(log.getJobId(), log.getHandleCode());
+                }
+                batchSqlSessionTemplate.flushStatements();
+                return null;
+            });
+        }
+
+        // 4、count the callbacks in the log report, a handled log was running with handle code 0 before
+        for (JobLog log : handledLogs) {
+            JobLogReportHelper.getInstance().record(log, JobLogReportHelper.statusOf(log.getTriggerCode(), 0));
+        }
+
+        // 5、trigger child jobs once the callbacks are saved, the trigger pool runs them async
+        for (int childJobId : childJobIds) {
+            JobTriggerPoolHelper.trigger(childJobId, TriggerTypeEnum.PARENT, -1, null, null);
+        }
+
         return ReturnT.SUCCESS;
     }
 
@@ -67,9 +152,9 @@ public class AdminBizImpl implements AdminBiz {
     }
 
 
-    private ReturnT<String> callback(HandleCallbackParam handleCallbackParam) {
+    private ReturnT<String> callback(HandleCallbackParam handleCallbackParam, JobLog log, Map<Integer, JobInfo> jobMap,
+                                     List<JobLog> handledLogs, List<JobLog> incrementLogs, List<Integer> childJobIdList) {
         // valid log item
-        JobLog log = jobLogMapper.load(handleCallbackParam.getLogId());
         if (log == null) {
             return new ReturnT<String>(ReturnT.FAIL_CODE, "log item not found.");
         }
@@ -83,9 +168,11 @@ public class AdminBizImpl implements AdminBiz {
 
         if (IJobHandler.SUCCESS.getCode() == resultCode) {
 
-            JobInfo jobInfo = jobInfoMapper.loadById(log.getJobId());
+            JobInfo jobInfo = jobMap.get(log.getJobId());
 
-            updateIncrementParam(log, jobInfo.getIncrementType());
+            if (jobInfo != null) {
+                incrementLogs.add(log);
+            }
 
             if (jobInfo != null && jobInfo.getChildJobId() != null && jobInfo.getChildJobId().trim().length() > 0) {
                 callbackMsg = "<br><br><span style=\"color:#00c0ef;\" > >>>>>>>>>>>" + I18nUtil.getString("jobconf_trigger_child_run") + "<<<<<<<<<<< </span><br>";
@@ -95,7 +182,7 @@ public class AdminBizImpl implements AdminBiz {
                     int childJobId = (childJobIds[i] != null && childJobIds[i].trim().length() > 0 && isNumeric(childJobIds[i])) ? Integer.valueOf(childJobIds[i]) : -1;
                     if (childJobId > 0) {
 
-                        JobTriggerPoolHelper.trigger(childJobId, TriggerTypeEnum.PARENT, -1, null, null);
+                        childJobIdList.add(childJobId);
                         ReturnT<String> triggerChildResult = ReturnT.SUCCESS;
 
                         // add msg
@@ -142,13 +229,13 @@ public class AdminBizImpl implements AdminBiz {
         log.setHandleCode(resultCode);
         log.setHandleMsg(handleMsg.toString());
 
-        jobLogMapper.updateHandleInfo(log);
-        jobInfoMapper.updateLastHandleCode(log.getJobId(), resultCode);
+        // a repeated callback later in the same batch is rejected as well
+        handledLogs.add(log);
 
         return ReturnT.SUCCESS;
     }
 
-    private void updateIncrementParam(JobLog log, Integer incrementType) {
+    private void updateIncrementParam(JobInfoMapper jobInfoMapper, JobLog log, Integer incrementType) {
         if (IncrementTypeEnum.ID.getCode() == incrementType) {
             jobInfoMapper.incrementIdUpdate(log.getJobId(),log.getMaxId());
         } else if (IncrementTypeEnum.TIME.getCode() == incrementType) {
@@ -156,6 +243,14 @@ public class AdminBizImpl implements AdminBiz {
         }
     }
 
+    private static <T> List<List<T>> partition(List<T> list) {
+        List<List<T>> partitions = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += CALLBACK_LOAD_SIZE) {
+            partitions.add(list.subList(i, Math.min(i + CALLBACK_LOAD_SIZE, list.size())));
+        }
+        return partitions;
+    }
+
     private boolean isNumeric(String str) {
         try {
             Integer.valueOf(str);
@@ -14,6 +14,7 @@ import com.larkmt.cn.admin.service.FlinkxJsonService;
 import com.larkmt.cn.admin.service.JobService;
 import com.larkmt.cn.admin.core.cron.CronExpression;
 import com.larkmt.cn.admin.core.route.ExecutorRouteStrategyEnum;
+import com.larkmt.cn.admin.core.thread.JobLogReportHelper;
 import com.larkmt.cn.admin.core.thread.JobScheduleHelper;
 import com.larkmt.cn.admin.core.util.I18nUtil;
 import com.larkmt.cn.admin.entity.JobGroup;
@@ -281,6 +282,7 @@ public class JobServiceImpl implements JobService {
 
         jobInfoMapper.delete(id);
         jobLogMapper.delete(id);
+        JobLogReportHelper.getInstance().removeJob(id);
         jobLogGlueMapper.deleteByJobId(id);
         return ReturnT.SUCCESS;
     }
@@ -3,6 +3,7 @@ package com.larkmt.cn.admin.service.impl;
 import com.larkmt.cn.admin.mapper.*;
 import com.larkmt.cn.admin.core.cron.CronExpression;
 import com.larkmt.cn.admin.core.route.ExecutorRouteStrategyEnum;
+import com.larkmt.cn.admin.core.thread.JobLogReportHelper;
 import com.larkmt.cn.admin.core.util.I18nUtil;
 import com.larkmt.cn.admin.entity.JobGroup;
 import com.larkmt.cn.admin.entity.JobInfo;
@@ -236,6 +237,7 @@ public class JobTemplateServiceImpl implements JobTemplateService {
 
         jobTemplateMapper.delete(id);
         jobLogMapper.delete(id);
+        JobLogReportHelper.getInstance().removeJob(id);
         jobLogGlueMapper.deleteByJobId(id);
         return ReturnT.SUCCESS;
     }
@@ -3,30 +3,26 @@ package com.larkmt.cn.admin.tool.query;
 import cn.hutool.core.util.StrUtil;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.larkmt.cn.admin.core.util.LocalCacheUtil;
 import com.larkmt.cn.admin.entity.JobDatasource;
 import com.larkmt.cn.admin.tool.database.ColumnInfo;
 import com.larkmt.cn.admin.tool.database.DasColumn;
 import com.larkmt.cn.admin.tool.database.TableInfo;
 import com.larkmt.cn.admin.tool.meta.DatabaseInterface;
 import com.larkmt.cn.admin.tool.meta.DatabaseMetaFactory;
-import com.larkmt.cn.admin.util.AESUtil;
 import com.larkmt.cn.admin.util.JdbcConstants;
 import com.larkmt.cn.admin.util.JdbcUtils;
 import com.larkmt.core.util.Constants;
-import com.zaxxer.hikari.HikariDataSource;
-import net.sourceforge.jtds.jdbcx.JtdsDataSource;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
-import java.net.URI;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * 抽象查询工具
@@ -46,7 +42,7 @@ public abstract class BaseQueryTool implements QueryToolInterface {
 
     private DataSource datasource;
 
-    private Connection connection;
+    private String datasourceName;
     /**
      * 当前数据库名
      */
@@ -59,78 +55,35 @@ public abstract class BaseQueryTool implements QueryToolInterface {
      * @param jobDatasource
      */
     BaseQueryTool(JobDatasource jobDatasource) throws SQLException {
-        System.out.println("#####################"+jobDatasource.getDatasourceName());
-        if (LocalCacheUtil.get(jobDatasource.getDatasourceName()) == null) {
-            getDataSource(jobDatasource);
-        } else {
-            this.connection = (Connection) LocalCacheUtil.get(jobDatasource.getDatasourceName());
-            String jdbcUrl = jobDatasource.getJdbcUrl();
-            if (jdbcUrl != null && jdbcUrl.startsWith("jdbc:jtds")) {
-                if (connection == null) {
-                    LocalCacheUtil.remove(jobDatasource.getDatasourceName());
-                    getDataSource(jobDatasource);
-                }
-            } else {
-                if (!this.connection.isValid(500)) {
-                    LocalCacheUtil.remove(jobDatasource.getDatasourceName());
-                    getDataSource(jobDatasource);
-                }
+        this.datasource = DataSourcePool.getDataSource(jobDatasource);
+        this.datasourceName = jobDatasource.getDatasourceName();
+        sqlBuilder = DatabaseMetaFactory.getByDbType(jobDatasource.getDatasource());
+        currentSchema = DataSourcePool.getCurrentSchema(jobDatasource);
+        if (currentSchema == null) {
+            try (Connection connection = getConnection()) {
+                currentSchema = getSchema(connection, jobDatasource.getJdbcUsername());
             }
+            DataSourcePool.setCurrentSchema(jobDatasource, currentSchema);
         }
-        sqlBuilder = DatabaseMetaFactory.getByDbType(jobDatasource.getDatasource());
-        currentSchema = getSchema(jobDatasource.getJdbcUsername());
         currentDatabase = jobDatasource.getDatasource();
-        LocalCacheUtil.set(jobDatasource.getDatasourceName(), this.connection, 4 * 60 * 60 * 1000);
     }
 
-    private void getDataSource(JobDatasource jobDatasource) throws SQLException {
-        String userName = AESUtil.decrypt(jobDatasource.getJdbcUsername());
-        String password = AESUtil.decrypt(jobDatasource.getJdbcPassword());
-        String jdbcUrl = jobDatasource.getJdbcUrl();
-        String DBtype = jobDatasource.getDatasource();
-        if (jdbcUrl != null && jdbcUrl.startsWith("jdbc:jtds")) {
-            JtdsDataSource jtdsDataSource = new JtdsDataSource();
-            //"jdbc:jtds:".length()
-            String cleanURI = jdbcUrl.substring(10);
-            URI uri = URI.create(cleanURI);
-            String serverName = uri.getHost();
-            int port = uri.getPort();
-            String path = uri.getPath();
-            String a[] = path.split("/");
-            String dbName = a[1];
-            jtdsDataSource.setServerName(serverName);
-            jtdsDataSource.setPortNumber(port);
-            jtdsDataSource.setDatabaseName(dbName);
-//            jtdsDataSource.setServerName(jobDatasource.g);
-            jtdsDataSource.setUser(userName);
-            jtdsDataSource.setPassword(password);
-            this.datasource = jtdsDataSource;
-            this.connection = this.datasource.getConnection();
-
-        } else {
-            //这里默认使用 hikari 数据源
-            HikariDataSource dataSource = new HikariDataSource();
-            dataSource.setUsername(userName);
-            dataSource.setPassword(password);
-            dataSource.setJdbcUrl(jdbcUrl);
-            dataSource.setDriverClassName(jobDatasource.getJdbcDriverClass());
-            dataSource.setMaximumPoolSize(1);
-            dataSource.setMinimumIdle(0);
-            String testSQL ="SELECT 1";
-            if("hana".equals(DBtype)){
-                testSQL ="SELECT 1 from tables LIMIT 1";
-            }else if("oracle".equals(DBtype)){
-                testSQL ="select 1 from dual";
-            }
-            dataSource.setConnectionTestQuery(testSQL );
-            dataSource.setConnectionTimeout(30000);
-            this.datasource = dataSource;
-            this.connection = this.datasource.getConnection();
-        }
+    /**
+     * borrow a connection of the datasource pool, callers close it to give it back
+     */
+    protected Connection getConnection() throws SQLException {
+        return datasource.getConnection();
+    }
+
+    /**
+     * metadata listing through the metadata cache, the copy returned can be changed freely
+     */
+    protected <T> List<T> cachedList(String key, Callable<List<T>> loader) throws Exception {
+        return new ArrayList<>(MetadataCache.get(datasourceName, key, loader));
     }
 
     //根据connection获取schema
-    private String getSchema(String jdbcUsername) {
+    private String getSchema(Connection connection, String jdbcUsername) {
         String res = null;
         try {
             res = connection.getCatalog();
@@ -192,7 +145,7 @@ public abstract class BaseQueryTool implements QueryToolInterface {
         String sqlQueryTableNameComment = sqlBuilder.getSQLQueryTableNameComment();
         logger.info(sqlQueryTableNameComment);
         List<Map<String, Object>> res = null;
-        try {
+        try (Connection connection = getConnection()) {
             res = JdbcUtils.executeQuery(connection, sqlQueryTableNameComment, ImmutableList.of(currentSchema, tableName));
         } catch (SQLException e) {
             logger.error("[getTableInfo Exception] --> "
@@ -203,12 +156,16 @@ public abstract class BaseQueryTool implements QueryToolInterface {
 
     @Override
     public List<Map<String, Object>> getTables() {
-        String sqlQueryTables = sqlBuilder.getSQLQueryTables();
-        logger.info(sqlQueryTables);
         List<Map<String, Object>> res = null;
         try {
-            res = JdbcUtils.executeQuery(connection, sqlQueryTables, ImmutableList.of(currentSchema));
-        } catch (SQLException e) {
+            res = cachedList("tables", () -> {
+                String sqlQueryTables = sqlBuilder.getSQLQueryTables();
+                logger.info(sqlQueryTables);
+                try (Connection connection = getConnection()) {
+                    return JdbcUtils.executeQuery(connection, sqlQueryTables, ImmutableList.of(currentSchema));
+                }
+            });
+        } catch (Exception e) {
             logger.error("[getTables Exception] --> "
                     + "the exception message is:" + e.getMessage());
         }
@@ -221,22 +178,25 @@ public abstract class BaseQueryTool implements QueryToolInterface {
         List<ColumnInfo> fullColumn = Lists.newArrayList();
         //获取指定表的所有字段
         try {
-            //获取查询指定表所有字段的sql语句
-            String querySql = sqlBuilder.getSQLQueryFields(tableName);
-            logger.info("querySql: {}", querySql);
-
-            //获取所有字段
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(querySql);
-            ResultSetMetaData metaData = resultSet.getMetaData();
-
-            List<DasColumn> dasColumns = buildDasColumn(tableName, metaData);
-            statement.close();
-
-            //构建 fullColumn
-            fullColumn = buildFullColumn(dasColumns);
-
-        } catch (SQLException e) {
+            fullColumn = cachedList("columns#" + tableName, () -> {
+                //获取查询指定表所有字段的sql语句
+                String querySql = sqlBuilder.getSQLQueryFields(tableName);
+                logger.info("querySql: {}", querySql);
+
+                //获取所有字段
+                try (Connection connection = getConnection()) {
+                    Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery(querySql);
+                    ResultSetMetaData metaData = resultSet.getMetaData();
+
+                    List<DasColumn> dasColumns = buildDasColumn(connection, tableName, metaData);
+                    statement.close();
+
+                    //构建 fullColumn
+                    return buildFullColumn(dasColumns);
+                }
+            });
+        } catch (Exception e) {
             logger.error("[getColumns Exception] --> "
                     + "the exception message is:" + e.getMessage());
         }
@@ -258,7 +218,7 @@ public abstract class BaseQueryTool implements QueryToolInterface {
     }
 
     //构建DasColumn对象
-    private List<DasColumn> buildDasColumn(String tableName, ResultSetMetaData metaData) {
+    private List<DasColumn> buildDasColumn(Connection connection, String tableName, ResultSetMetaData metaData) {
         List<DasColumn> res = Lists.newArrayList();
         try {
             int columnCount = metaData.getColumnCount();
@@ -319,7 +279,7 @@ public abstract class BaseQueryTool implements QueryToolInterface {
     private List<String> getPrimaryKeys(String tableName) {
         List<String> res = Lists.newArrayList();
         String sqlQueryPrimaryKey = sqlBuilder.getSQLQueryPrimaryKey();
-        try {
+        try (Connection connection = getConnection()) {
             List<Map<String, Object>> pkColumns = JdbcUtils.executeQuery(connection, sqlQueryPrimaryKey, ImmutableList.of(currentSchema, tableName));
             //返回主键名称即可
             pkColumns.forEach(e -> res.add((String) new ArrayList<>(e.values()).get(0)));
@@ -334,38 +294,40 @@ public abstract class BaseQueryTool implements QueryToolInterface {
     public List<String> getColumnNames(String tableName, String datasource) {
 
         List<String> res = Lists.newArrayList();
-        Statement stmt = null;
-        ResultSet rs = null;
         try {
-            //获取查询指定表所有字段的sql语句
-            String querySql = sqlBuilder.getSQLQueryFields(tableName);
-            logger.info("querySql: {}", querySql);
-
-            //获取所有字段
-            stmt = connection.createStatement();
-            rs = stmt.executeQuery(querySql);
-            ResultSetMetaData metaData = rs.getMetaData();
+            // the listing format depends on the datasource type argument, so it is part of the key
+            res = cachedList("columnNames#" + datasource + "#" + tableName, () -> {
+                List<String> columnNames = Lists.newArrayList();
+                //获取查询指定表所有字段的sql语句
+                String querySql = sqlBuilder.getSQLQueryFields(tableName);
+                logger.info("querySql: {}", querySql);
+
+                //获取所有字段
+                try (Connection connection = getConnection();
+                     Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(querySql)) {
+                    ResultSetMetaData metaData = rs.getMetaData();
+
+                    int columnCount = metaData.getColumnCount();
+                    for (int i = 1; i <= columnCount; i++) {
+                        String columnName = metaData.getColumnName(i);
+                        if (JdbcConstants.HIVE.equals(datasource)) {
+                            if (columnName.contains(Constants.SPLIT_POINT)) {
+                                columnNames.add(i - 1 + Constants.SPLIT_SCOLON + columnName.substring(columnName.indexOf(Constants.SPLIT_POINT) + 1) + Constants.SPLIT_SCOLON + metaData.getColumnTypeName(i));
+                            } else {
+                                columnNames.add(i - 1 + Constants.SPLIT_SCOLON + columnName + Constants.SPLIT_SCOLON + metaData.getColumnTypeName(i));
+                            }
+                        } else {
+                            columnNames.add(columnName);
+                        }
 
-            int columnCount = metaData.getColumnCount();
-            for (int i = 1; i <= columnCount; i++) {
-                String columnName = metaData.getColumnName(i);
-                if (JdbcConstants.HIVE.equals(datasource)) {
-                    if (columnName.contains(Constants.SPLIT_POINT)) {
-                        res.add(i - 1 + Constants.SPLIT_SCOLON + columnName.substring(columnName.indexOf(Constants.SPLIT_POINT) + 1) + Constants.SPLIT_SCOLON + metaData.getColumnTypeName(i));
-                    } else {
-                        res.add(i - 1 + Constants.SPLIT_SCOLON + columnName + Constants.SPLIT_SCOLON + metaData.getColumnTypeName(i));
                     }
-                } else {
-                    res.add(columnName);
                 }
-
-            }
-        } catch (SQLException e) {
+                return columnNames;
+            });
+        } catch (Exception e) {
             logger.error("[getColumnNames Exception] --> "
                     + "the exception message is:" + e.getMessage());
-        } finally {
-            JdbcUtils.close(rs);
-            JdbcUtils.close(stmt);
         }
         return res;
     }
@@ -373,24 +335,24 @@ public abstract class BaseQueryTool implements QueryToolInterface {
     @Override
     public List<String> getTableNames(String tableSchema) {
         List<String> tables = new ArrayList<String>();
-        Statement stmt = null;
-        ResultSet rs = null;
         try {
-            stmt = connection.createStatement();
-            //获取sql
-            String sql = getSQLQueryTables(tableSchema);
-            rs = stmt.executeQuery(sql);
-            while (rs.next()) {
-                String tableName = rs.getString(1);
-                tables.add(tableName);
-            }
-            tables.sort(Comparator.naturalOrder());
-        } catch (SQLException e) {
+            tables = cachedList("tableNames#" + tableSchema, () -> {
+                List<String> tableNames = new ArrayList<String>();
+                //获取sql
+                String sql = getSQLQueryTables(tableSchema);
+                try (Connection connection = getConnection();
+                     Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        tableNames.add(rs.getString(1));
+                    }
+                }
+                tableNames.sort(Comparator.naturalOrder());
+                return tableNames;
+            });
+        } catch (Exception e) {
             logger.error("[getTableNames Exception] --> "
                     + "the exception message is:" + e.getMessage());
-        } finally {
-            JdbcUtils.close(rs);
-            JdbcUtils.close(stmt);
         }
         return tables;
     }
@@ -398,29 +360,29 @@ public abstract class BaseQueryTool implements QueryToolInterface {
     @Override
     public List<String> getTableNames() {
         List<String> tables = new ArrayList<String>();
-        Statement stmt = null;
-        ResultSet rs = null;
         try {
-            stmt = connection.createStatement();
-            //获取sql
-            String sql = getSQLQueryTables();
-            rs = stmt.executeQuery(sql);
-            while (rs.next()) {
-                String tableName = rs.getString(1);
-                tables.add(tableName);
-            }
-        } catch (SQLException e) {
+            tables = cachedList("tableNames", () -> {
+                List<String> tableNames = new ArrayList<String>();
+                //获取sql
+                String sql = getSQLQueryTables();
+                try (Connection connection = getConnection();
+                     Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        tableNames.add(rs.getString(1));
+                    }
+                }
+                return tableNames;
+            });
+        } catch (Exception e) {
             logger.error("[getTableNames Exception] --> "
                     + "the exception message is:" + e.getMessage());
-        } finally {
-            JdbcUtils.close(rs);
-            JdbcUtils.close(stmt);
         }
         return tables;
     }
 
     public Boolean dataSourceTest() {
-        try {
+        try (Connection connection = getConnection()) {
             DatabaseMetaData metaData = connection.getMetaData();
             if (metaData.getDatabaseProductName().length() > 0) {
                 return true;
@@ -448,47 +410,51 @@ public abstract class BaseQueryTool implements QueryToolInterface {
 
     @Override
     public List<String> getColumnsByQuerySql(String querySql) throws SQLException {
-
-        List<String> res = Lists.newArrayList();
-        Statement stmt = null;
-        ResultSet rs = null;
         try {
-            querySql = querySql.replace(";", "");
-            //拼装sql语句，在后面加上 where 1=0 即可
-            String sql = querySql.concat(" where 1=0");
-            //判断是否已有where，如果是，则加 and 1=0
-            //从最后一个 ) 开始找 where，或者整个语句找
-            if (querySql.contains(")")) {
-                if (querySql.substring(querySql.indexOf(")")).contains("where")) {
-                    sql = querySql.concat(" and 1=0");
+            return cachedList("querySql#" + querySql, () -> {
+                List<String> res = Lists.newArrayList();
+                String trimSql = querySql.replace(";", "");
+                //拼装sql语句，在后面加上 where 1=0 即可
+                String sql = trimSql.concat(" where 1=0");
+                //判断是否已有where，如果是，则加 and 1=0
+                //从最后一个 ) 开始找 where，或者整个语句找
+                if (trimSql.contains(")")) {
+                    if (trimSql.substring(trimSql.indexOf(")")).contains("where")) {
+                        sql = trimSql.concat(" and 1=0");
+                    }
+                } else {
+                    if (trimSql.contains("where")) {
+                        sql = trimSql.concat(" and 1=0");
+                    }
                 }
-            } else {
-                if (querySql.contains("where")) {
-                    sql = querySql.concat(" and 1=0");
+                //获取所有字段
+                try (Connection connection = getConnection();
+                     Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(sql)) {
+                    ResultSetMetaData metaData = rs.getMetaData();
+
+                    int columnCount = metaData.getColumnCount();
+                    for (int i = 1; i <= columnCount; i++) {
+                        res.add(metaData.getColumnName(i));
+                    }
                 }
-            }
-            //获取所有字段
-            stmt = connection.createStatement();
-            rs = stmt.executeQuery(sql);
-            ResultSetMetaData metaData = rs.getMetaData();
-
-            int columnCount = metaData.getColumnCount();
-            for (int i = 1; i <= columnCount; i++) {
-                res.add(metaData.getColumnName(i));
-            }
-        } finally {
-            JdbcUtils.close(rs);
-            JdbcUtils.close(stmt);
+                return res;
+            });
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e);
         }
-        return res;
     }
 
     @Override
     public long getMaxIdVal(String tableName, String primaryKey) {
+        Connection connection = null;
         Statement stmt = null;
         ResultSet rs = null;
         long maxVal = 0;
         try {
+            connection = getConnection();
             stmt = connection.createStatement();
             //获取sql
             String sql = getSQLMaxID(tableName, primaryKey);
@@ -501,6 +467,7 @@ public abstract class BaseQueryTool implements QueryToolInterface {
         } finally {
             JdbcUtils.close(rs);
             JdbcUtils.close(stmt);
+            JdbcUtils.close(connection);
         }
 
 
@@ -515,8 +482,10 @@ public abstract class BaseQueryTool implements QueryToolInterface {
         if (StringUtils.isBlank(querySql)) {
             return;
         }
+        Connection connection = null;
         Statement stmt = null;
         try {
+            connection = getConnection();
             stmt = connection.createStatement();
             stmt.executeUpdate(querySql);
         } catch (SQLException e) {
@@ -524,28 +493,31 @@ public abstract class BaseQueryTool implements QueryToolInterface {
                     + "the exception message is:" + e.getMessage());
         } finally {
             JdbcUtils.close(stmt);
+            JdbcUtils.close(connection);
+            // the table listings are stale now
+            MetadataCache.invalidate(datasourceName);
         }
     }
 
     public List<String> getTableSchema() {
         List<String> schemas = new ArrayList<>();
-        Statement stmt = null;
-        ResultSet rs = null;
         try {
-            stmt = connection.createStatement();
-            //获取sql
-            String sql = getSQLQueryTableSchema();
-            rs = stmt.executeQuery(sql);
-            while (rs.next()) {
-                String tableName = rs.getString(1);
-                schemas.add(tableName);
-            }
-        } catch (SQLException e) {
+            schemas = cachedList("tableSchema", () -> {
+                List<String> schemaNames = new ArrayList<>();
+                //获取sql
+                String sql = getSQLQueryTableSchema();
+                try (Connection connection = getConnection();
+                     Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        schemaNames.add(rs.getString(1));
+                    }
+                }
+                return schemaNames;
+            });
+        } catch (Exception e) {
             logger.error("[getTableNames Exception] --> "
                     + "the exception message is:" + e.getMessage());
-        } finally {
-            JdbcUtils.close(rs);
-            JdbcUtils.close(stmt);
         }
         return schemas;
     }
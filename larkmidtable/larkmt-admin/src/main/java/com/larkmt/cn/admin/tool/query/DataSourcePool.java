@@ -0,0 +1,195 @@
+package com.larkmt.cn.admin.tool.query;
+
+import com.larkmt.cn.admin.entity.JobDatasource;
+import com.larkmt.cn.admin.util.AESUtil;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import net.sourceforge.jtds.jdbcx.JtdsDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 元数据查询连接池
+ *
+ * one small pool per datasource name, shared by the query tools. a pool is rebuilt when the
+ * connection settings of its datasource change, retired on update or delete, and retired after
+ * it has been idle for a while. a retired pool stops handing out its idle connections at once
+ * and is closed after a grace period, so queries still holding it can finish.
+ */
+public class DataSourcePool {
+    private static Logger logger = LoggerFactory.getLogger(DataSourcePool.class);
+
+    private static final int MAX_POOL_SIZE = 4;
+    private static final long CONNECTION_TIMEOUT = 30 * 1000;
+    private static final long IDLE_TIMEOUT = 5 * 60 * 1000;
+    private static final long EVICT_IDLE_TIME = 30 * 60 * 1000;
+    private static final long EVICT_IDLE_INTERVAL = 60 * 1000;
+    private static final long CLOSE_GRACE_TIME = 2 * CONNECTION_TIMEOUT;
+
+    private static ConcurrentMap<String, PoolEntry> poolRepository = new ConcurrentHashMap<>();
+
+    // idle check and delayed close of retired pools
+    private static final ScheduledExecutorService evictScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "LarkMidTable, admin DataSourcePool-evict");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        evictScheduler.scheduleWithFixedDelay(DataSourcePool::evictIdle,
+                EVICT_IDLE_INTERVAL, EVICT_IDLE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private static class PoolEntry {
+        private final String signature;
+        private final DataSource dataSource;
+        private volatile String currentSchema;
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        PoolEntry(String signature, DataSource dataSource) {
+            this.signature = signature;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * get the pool of a datasource, created on first use or when its settings changed
+     */
+    public static DataSource getDataSource(JobDatasource jobDatasource) {
+        return getEntry(jobDatasource).dataSource;
+    }
+
+    /**
+     * current schema of a datasource, looked up once per pool
+     */
+    static String getCurrentSchema(JobDatasource jobDatasource) {
+        return getEntry(jobDatasource).currentSchema;
+    }
+
+    static void setCurrentSchema(JobDatasource jobDatasource, String currentSchema) {
+        getEntry(jobDatasource).currentSchema = currentSchema;
+    }
+
+    private static PoolEntry getEntry(JobDatasource jobDatasource) {
+        String signature = signatureOf(jobDatasource);
+        PoolEntry entry = poolRepository.compute(jobDatasource.getDatasourceName(), (name, old) -> {
+            if (old != null && old.signature.equals(signature)) {
+                return old;
+            }
+            if (old != null) {
+                // settings changed, the old pool and listings belong to the former settings
+                close(name, old);
+                MetadataCache.invalidate(name);
+            }
+            return new PoolEntry(signature, createDataSource(jobDatasource));
+        });
+        entry.lastAccessTime = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * close the pool of a datasource, on datasource update or delete
+     */
+    public static void evict(String datasourceName) {
+        if (datasourceName == null) {
+            return;
+        }
+        PoolEntry entry = poolRepository.remove(datasourceName);
+        if (entry != null) {
+            close(datasourceName, entry);
+        }
+    }
+
+    private static void evictIdle() {
+        try {
+            long now = System.currentTimeMillis();
+            for (String name : poolRepository.keySet()) {
+                poolRepository.computeIfPresent(name, (key, entry) -> {
+                    if (now - entry.lastAccessTime < EVICT_IDLE_TIME) {
+                        return entry;
+                    }
+                    close(key, entry);
+                    return null;
+                });
+            }
+        } catch (Exception e) {
+            // keep the scheduled check alive
+            logger.error(">>>>>>>>>>> LarkMidTable, evict idle datasource pool error", e);
+        }
+    }
+
+    /**
+     * retire a pool: its idle connections are closed now, connections in use when they are returned,
+     * and the pool itself after the grace period
+     */
+    private static void close(String datasourceName, PoolEntry entry) {
+        if (!(entry.dataSource instanceof HikariDataSource)) {
+            return;
+        }
+        HikariDataSource dataSource = (HikariDataSource) entry.dataSource;
+        HikariPoolMXBean poolMXBean = dataSource.getHikariPoolMXBean();
+        if (poolMXBean != null) {
+            poolMXBean.softEvictConnections();
+        }
+        evictScheduler.schedule(() -> {
+            dataSource.close();
+            logger.info(">>>>>>>>>>> LarkMidTable, close datasource pool, datasourceName = {}", datasourceName);
+        }, CLOSE_GRACE_TIME, TimeUnit.MILLISECONDS);
+    }
+
+    private static String signatureOf(JobDatasource jobDatasource) {
+        return Objects.hash(jobDatasource.getJdbcUrl(), jobDatasource.getJdbcUsername(), jobDatasource.getJdbcPassword(),
+                jobDatasource.getJdbcDriverClass(), jobDatasource.getDatasource()) + "";
+    }
+
+    private static DataSource createDataSource(JobDatasource jobDatasource) {
+        String userName = AESUtil.decrypt(jobDatasource.getJdbcUsername());
+        String password = AESUtil.decrypt(jobDatasource.getJdbcPassword());
+        String jdbcUrl = jobDatasource.getJdbcUrl();
+        String DBtype = jobDatasource.getDatasource();
+        if (jdbcUrl != null && jdbcUrl.startsWith("jdbc:jtds")) {
+            // jtds has no pool, each borrow opens a connection
+            JtdsDataSource jtdsDataSource = new JtdsDataSource();
+            //"jdbc:jtds:".length()
+            String cleanURI = jdbcUrl.substring(10);
+            URI uri = URI.create(cleanURI);
+            String a[] = uri.getPath().split("/");
+            jtdsDataSource.setServerName(uri.getHost());
+            jtdsDataSource.setPortNumber(uri.getPort());
+            jtdsDataSource.setDatabaseName(a[1]);
+            jtdsDataSource.setUser(userName);
+            jtdsDataSource.setPassword(password);
+            return jtdsDataSource;
+        }
+
+        //这里默认使用 hikari 数据源
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("larkmt-meta-" + jobDatasource.getDatasourceName());
+        dataSource.setUsername(userName);
+        dataSource.setPassword(password);
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setDriverClassName(jobDatasource.getJdbcDriverClass());
+        dataSource.setMaximumPoolSize(MAX_POOL_SIZE);
+        dataSource.setMinimumIdle(0);
+        dataSource.setIdleTimeout(IDLE_TIMEOUT);
+        String testSQL ="SELECT 1";
+        if("hana".equals(DBtype)){
+            testSQL ="SELECT 1 from tables LIMIT 1";
+        }else if("oracle".equals(DBtype)){
+            testSQL ="select 1 from dual";
+        }
+        dataSource.setConnectionTestQuery(testSQL);
+        dataSource.setConnectionTimeout(CONNECTION_TIMEOUT);
+        return dataSource;
+    }
+
+}
@@ -1,7 +1,6 @@
 package com.larkmt.cn.admin.tool.query;
 
 import com.google.common.collect.Lists;
-import com.larkmt.cn.admin.core.util.LocalCacheUtil;
 import com.larkmt.cn.admin.entity.JobDatasource;
 import com.larkmt.cn.admin.util.JdbcUtils;
 
@@ -14,7 +13,6 @@ import java.util.List;
  */
 
 public class Hbase20XsqlQueryTool extends BaseQueryTool implements QueryToolInterface {
-    Connection conn = null;
 
 
     /**
@@ -24,17 +22,6 @@ public class Hbase20XsqlQueryTool extends BaseQueryTool implements QueryToolInte
      */
     public Hbase20XsqlQueryTool(JobDatasource jobJdbcDatasource) throws SQLException {
         super(jobJdbcDatasource);
-
-        if (LocalCacheUtil.get(jobJdbcDatasource.getDatasourceName()) == null) {
-            getDataSource(jobJdbcDatasource);
-        } else {
-            conn = (Connection) LocalCacheUtil.get(jobJdbcDatasource.getDatasourceName());
-            if (conn == null) {
-                LocalCacheUtil.remove(jobJdbcDatasource.getDatasourceName());
-            }
-        }
-        LocalCacheUtil.set(jobJdbcDatasource.getDatasourceName(), conn, 4 * 60 * 60 * 1000);
-
     }
 
     @Override
@@ -42,7 +29,7 @@ public class Hbase20XsqlQueryTool extends BaseQueryTool implements QueryToolInte
         DatabaseMetaData metaData = null;
         List<String> tables = new ArrayList<String>();
         ResultSet rs = null;
-        try {
+        try (Connection conn = getConnection()) {
             metaData = conn.getMetaData();
             rs = metaData.getTables(conn.getCatalog(), null, "%", new String[]{"TABLE"});
             while (rs.next()) {
@@ -65,7 +52,7 @@ public class Hbase20XsqlQueryTool extends BaseQueryTool implements QueryToolInte
         DatabaseMetaData metaData = null;
         List<String> columnNames = Lists.newArrayList();
         ResultSet rs = null;
-        try {
+        try (Connection conn = getConnection()) {
             metaData = conn.getMetaData();
             rs = metaData.getColumns(conn.getCatalog(), null, tableName, "%");
             while (rs.next()) {
@@ -103,11 +90,4 @@ public class Hbase20XsqlQueryTool extends BaseQueryTool implements QueryToolInte
     }
 
 
-    private void getDataSource(JobDatasource jobDatasource) throws SQLException {
-        conn = DriverManager.getConnection(jobDatasource.getJdbcUrl());
-
-
-    }
-
-
 }
@@ -0,0 +1,46 @@
+package com.larkmt.cn.admin.tool.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 元数据缓存
+ *
+ * table, column and schema listings of the datasources, kept for a few minutes and dropped
+ * when the datasource is updated or deleted. concurrent lookups of the same key load once.
+ */
+public class MetadataCache {
+
+    private static final long EXPIRE_MINUTES = 10;
+    private static final long MAXIMUM_SIZE = 10000;
+
+    private static Cache<String, Object> cache = CacheBuilder.newBuilder()
+            .expireAfterWrite(EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String datasourceName, String key, Callable<T> loader) throws Exception {
+        try {
+            return (T) cache.get(datasourceName + "#" + key, loader);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * drop the cached metadata of a datasource
+     */
+    public static void invalidate(String datasourceName) {
+        if (datasourceName == null) {
+            return;
+        }
+        String prefix = datasourceName + "#";
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+}
@@ -7,6 +7,7 @@ import com.larkmt.core.biz.impl.ExecutorBizImpl;
 import com.larkmt.core.handler.IJobHandler;
 import com.larkmt.core.log.JobFileAppender;
 import com.larkmt.core.thread.*;
+import com.larkmt.core.util.ThreadUtil;
 import com.larkmt.rpc.registry.ServiceRegistry;
 import com.larkmt.rpc.remoting.net.impl.netty_http.server.NettyHttpServer;
 import com.larkmt.rpc.remoting.provider.XxlRpcProviderFactory;
@@ -36,6 +37,7 @@ public class JobExecutor {
     private String accessToken;
     private String logPath;
     private int logRetentionDays;
+    private boolean virtualThreads;
 
     public void setAdminAddresses(String adminAddresses) {
         this.adminAddresses = adminAddresses;
@@ -65,6 +67,10 @@ public class JobExecutor {
         this.logRetentionDays = logRetentionDays;
     }
 
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
 
     // ---------------------- start + stop ----------------------
     public void start() throws Exception {
@@ -72,6 +78,9 @@ public class JobExecutor {
         // init logpath
         JobFileAppender.initLogPath(logPath);
 
+        // init job thread mode, virtual threads on jdk 21+
+        ThreadUtil.setVirtualThreads(virtualThreads);
+
         // init invoker, admin-client
         initAdminBizList(adminAddresses, accessToken);
 
@@ -123,6 +132,9 @@ public class JobExecutor {
         // destory ProcessCallbackThread
         ProcessCallbackThread.getInstance().toStop();
 
+        // flush and close job log writers
+        JobFileAppender.closeAll();
+
     }
 
 
@@ -5,11 +5,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * store trigger log in each log-file
+ *
+ * lines are appended through a buffered writer per log-file, and a sparse line-offset index
+ * ("9999.log.idx") is kept alongside, so a tail read seeks close to the requested line.
  * @author xuxueli 2016-3-12 19:25:12
  */
 public class JobFileAppender {
@@ -85,6 +98,50 @@ public class JobFileAppender {
 		return logFileName;
 	}
 
+	// ---------------------- append ----------------------
+
+	private static final int WRITE_BUFFER_SIZE = 8 * 1024;
+	private static final long FLUSH_INTERVAL = 1000;
+	private static final long WRITER_IDLE_TIME = 30 * 1000;
+
+	/**
+	 * open log writers, each buffered and flushed by the flush thread; a writer idle for a while is closed
+	 */
+	private static final ConcurrentMap<String, LogWriter> writerRepository = new ConcurrentHashMap<>();
+
+	private static class LogWriter {
+		private final OutputStream out;
+		private volatile long lastWriteTime = System.currentTimeMillis();
+		private boolean closed = false;
+
+		LogWriter(File logFile) throws IOException {
+			this.out = new BufferedOutputStream(new FileOutputStream(logFile, true), WRITE_BUFFER_SIZE);
+		}
+	}
+
+	static {
+		Thread flushThread = new Thread(() -> {
+			while (true) {
+				try {
+					TimeUnit.MILLISECONDS.sleep(FLUSH_INTERVAL);
+				} catch (InterruptedException e) {
+					break;
+				}
+				long now = System.currentTimeMillis();
+				for (Map.Entry<String, LogWriter> item : writerRepository.entrySet()) {
+					if (now - item.getValue().lastWriteTime > WRITER_IDLE_TIME) {
+						close(item.getKey());
+					} else {
+						flush(item.getValue());
+					}
+				}
+			}
+		});
+		flushThread.setDaemon(true);
+		flushThread.setName("LarkMidTable, executor JobFileAppender flushThread");
+		flushThread.start();
+	}
+
 	/**
 	 * append log
 	 *
@@ -97,46 +154,134 @@ public class JobFileAppender {
 		if (logFileName==null || logFileName.trim().length()==0) {
 			return;
 		}
-		File logFile = new File(logFileName);
-
-		if (!logFile.exists()) {
-			try {
-				logFile.createNewFile();
-			} catch (IOException e) {
-				logger.error(e.getMessage(), e);
-				return;
-			}
-		}
 
 		// log
 		if (appendLog == null) {
 			appendLog = "";
 		}
 		appendLog += "\r\n";
+		byte[] bytes = appendLog.getBytes(StandardCharsets.UTF_8);
 
-		// append file content
-		FileOutputStream fos = null;
-		try {
-			fos = new FileOutputStream(logFile, true);
-			fos.write(appendLog.getBytes("utf-8"));
-			fos.flush();
-		} catch (Exception e) {
-			logger.error(e.getMessage(), e);
-		} finally {
-			if (fos != null) {
+		// append to the buffered writer, retry once when it was closed meanwhile by the flush thread
+		for (int i = 0; i < 2; i++) {
+			LogWriter writer;
+			try {
+				writer = writerRepository.computeIfAbsent(logFileName, name -> {
+					try {
+						return new LogWriter(new File(name));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				logger.error(e.getMessage(), e);
+				return;
+			}
+			synchronized (writer) {
+				if (writer.closed) {
+					continue;
+				}
 				try {
-					fos.close();
+					writer.out.write(bytes);
+					writer.lastWriteTime = System.currentTimeMillis();
 				} catch (IOException e) {
 					logger.error(e.getMessage(), e);
 				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * flush the buffered log of a log-file, before others write or read it directly
+	 *
+	 * @param logFileName
+	 */
+	public static void flush(String logFileName) {
+		if (logFileName == null) {
+			return;
+		}
+		LogWriter writer = writerRepository.get(logFileName);
+		if (writer != null) {
+			flush(writer);
+		}
+	}
+
+	private static void flush(LogWriter writer) {
+		synchronized (writer) {
+			if (writer.closed) {
+				return;
+			}
+			try {
+				writer.out.flush();
+			} catch (IOException e) {
+				logger.error(e.getMessage(), e);
+			}
+		}
+	}
+
+	private static void close(String logFileName) {
+		LogWriter writer = writerRepository.remove(logFileName);
+		if (writer == null) {
+			return;
+		}
+		synchronized (writer) {
+			writer.closed = true;
+			try {
+				writer.out.close();
+			} catch (IOException e) {
+				logger.error(e.getMessage(), e);
 			}
 		}
+	}
 
+	/**
+	 * flush and close all open log writers
+	 */
+	public static void closeAll() {
+		for (String logFileName : writerRepository.keySet()) {
+			close(logFileName);
+		}
+	}
+
+
+	// ---------------------- read ----------------------
+
+	/**
+	 * one index entry every INDEX_INTERVAL lines: the byte offset where line (n * INDEX_INTERVAL + 1) starts
+	 */
+	private static final int INDEX_INTERVAL = 1000;
+	private static final String INDEX_SUFFIX = ".idx";
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_READ_BYTES = 1024 * 1024;
+	private static final Object INDEX_LOCK = new Object();
+
+	/**
+	 * read log lines, content collected as utf-8 bytes, line ends normalized to "\n"
+	 */
+	private static class LineBuffer extends ByteArrayOutputStream {
+		LineBuffer() {
+			super(READ_BUFFER_SIZE);
+		}
+
+		void endLine() {
+			if (count > 0 && buf[count - 1] == '\r') {
+				count--;
+			}
+			write('\n');
+		}
+
+		void truncate(int size) {
+			count = Math.min(count, size);
+		}
 	}
 
 	/**
 	 * support read log-file
 	 *
+	 * seek to the nearest indexed line before fromLineNum, then read at most MAX_READ_BYTES of complete lines;
+	 * the poll goes on from toLineNum + 1
+	 *
 	 * @param logFileName
 	 * @return log content
 	 */
@@ -152,43 +297,130 @@ public class JobFileAppender {
             return new LogResult(fromLineNum, 0, "readLog fail, logFile not exists", true);
 		}
 
+		// buffered lines first
+		flush(logFileName);
+
 		// read file
-		StringBuffer logContentBuffer = new StringBuffer();
+		File indexFile = new File(logFileName.concat(INDEX_SUFFIX));
+		int startLineNum = Math.max(fromLineNum, 1);
+		LineBuffer content = new LineBuffer();
 		int toLineNum = 0;
-		LineNumberReader reader = null;
-		try {
-			//reader = new LineNumberReader(new FileReader(logFile));
-			reader = new LineNumberReader(new InputStreamReader(new FileInputStream(logFile), "utf-8"));
-			String line;
-
-			while ((line = reader.readLine())!=null) {
-				toLineNum = reader.getLineNumber();		// [from, to], start as 1
-				if (toLineNum >= fromLineNum) {
-					logContentBuffer.append(line).append("\n");
+		try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+			long[] index = readIndex(indexFile, channel.size());
+			List<Long> newIndex = new ArrayList<>();
+
+			// seek
+			int checkpoint = Math.min((startLineNum - 1) / INDEX_INTERVAL, index.length);
+			long position = checkpoint == 0 ? 0 : index[checkpoint - 1];
+			int lineNum = checkpoint * INDEX_INTERVAL;		// complete lines before position, [from, to], start as 1
+			int lineMark = content.size();
+			channel.position(position);
+
+			ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			boolean full = false;
+			while (!full && channel.read(buffer) > 0) {
+				int limit = buffer.position();
+				int lineStart = 0;
+				for (int i = 0; i < limit; i++) {
+					if (bytes[i] != '\n') {
+						continue;
+					}
+					lineNum++;
+					if (lineNum >= startLineNum) {
+						content.write(bytes, lineStart, i - lineStart);
+						content.endLine();
+						lineMark = content.size();
+					}
+					lineStart = i + 1;
+
+					// new index entry
+					if (lineNum % INDEX_INTERVAL == 0 && lineNum / INDEX_INTERVAL == index.length + newIndex.size() + 1) {
+						newIndex.add(position + lineStart);
+					}
+
+					// page
+					if (content.size() >= MAX_READ_BYTES) {
+						full = true;
+						break;
+					}
+				}
+				if (!full && lineNum + 1 >= startLineNum) {
+					// part of a line, completed by the next chunk
+					content.write(bytes, lineStart, limit - lineStart);
 				}
+				position += limit;
+				buffer.clear();
 			}
+
+			// the last line is not complete yet, left to the next poll
+			content.truncate(lineMark);
+			toLineNum = lineNum;
+
+			writeIndex(indexFile, index.length, newIndex);
 		} catch (IOException e) {
 			logger.error(e.getMessage(), e);
-		} finally {
-			if (reader != null) {
-				try {
-					reader.close();
-				} catch (IOException e) {
-					logger.error(e.getMessage(), e);
-				}
-			}
 		}
 
 		// result
-		LogResult logResult = new LogResult(fromLineNum, toLineNum, logContentBuffer.toString(), false);
+		LogResult logResult = new LogResult(fromLineNum, toLineNum, new String(content.toByteArray(), StandardCharsets.UTF_8), false);
 		return logResult;
+	}
 
-		/*
-        // it will return the number of characters actually skipped
-        reader.skip(Long.MAX_VALUE);
-        int maxLineNum = reader.getLineNumber();
-        maxLineNum++;	// 最大行号
-        */
+	private static long[] readIndex(File indexFile, long logFileSize) {
+		if (!indexFile.exists()) {
+			return new long[0];
+		}
+		try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() / 8 * 8));
+			while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+				// read whole index
+			}
+			buffer.flip();
+			long[] index = new long[buffer.remaining() / 8];
+			buffer.asLongBuffer().get(index);
+
+			// the log-file was rewritten, index is stale
+			if (index.length > 0 && index[index.length - 1] > logFileSize) {
+				return new long[0];
+			}
+			return index;
+		} catch (IOException e) {
+			logger.error(e.getMessage(), e);
+			return new long[0];
+		}
+	}
+
+	private static void writeIndex(File indexFile, int fromEntry, List<Long> newIndex) {
+		if (newIndex.isEmpty()) {
+			return;
+		}
+		synchronized (INDEX_LOCK) {
+			try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				// entries past the stored ones only, concurrent polls may have written some already
+				long stored = channel.size() / 8;
+				int skip = 0;
+				if (fromEntry == 0) {
+					// first entries or a stale index, written over
+					channel.truncate(0);
+				} else if (fromEntry <= stored && fromEntry + newIndex.size() > stored) {
+					skip = (int) (stored - fromEntry);
+				} else {
+					return;
+				}
+				ByteBuffer buffer = ByteBuffer.allocate((newIndex.size() - skip) * 8);
+				for (int i = skip; i < newIndex.size(); i++) {
+					buffer.putLong(newIndex.get(i));
+				}
+				buffer.flip();
+				channel.position((long) (fromEntry + skip) * 8);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} catch (IOException e) {
+				logger.error(e.getMessage(), e);
+			}
+		}
 	}
 
 	/**
@@ -8,6 +8,7 @@ import com.larkmt.core.handler.IJobHandler;
 import com.larkmt.core.log.JobFileAppender;
 import com.larkmt.core.log.JobLogger;
 import com.larkmt.core.util.ShardingUtil;
+import com.larkmt.core.util.ThreadUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,9 +27,11 @@ import java.util.concurrent.TimeoutException;
 /**
  * handler thread
  *
+ * runs on a platform or a virtual thread, see ThreadUtil
+ *
  * @author xuxueli 2016-1-16 19:52:47
  */
-public class JobThread extends Thread {
+public class JobThread implements Runnable {
     private static Logger logger = LoggerFactory.getLogger(JobThread.class);
 
     private int jobId;
@@ -42,12 +45,27 @@ public class JobThread extends Thread {
     private boolean running = false;    // if running job
     private int idleTimes = 0;            // idel times
 
+    private final Thread thread;
+
 
     public JobThread(int jobId, IJobHandler handler) {
         this.jobId = jobId;
         this.handler = handler;
         this.triggerQueue = new LinkedBlockingQueue<>();
         this.triggerLogIdSet = Collections.synchronizedSet(new HashSet<>());
+        this.thread = ThreadUtil.newThread(this, "LarkMidTable, JobThread-" + jobId);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void interrupt() {
+        thread.interrupt();
+    }
+
+    public void join() throws InterruptedException {
+        thread.join();
     }
 
     public IJobHandler getHandler() {
@@ -135,7 +153,7 @@ public class JobThread extends Thread {
                         try {
                             final TriggerParam tgParamT = tgParam;
                             FutureTask<ReturnT<String>> futureTask = new FutureTask<>(() -> handler.execute(tgParamT));
-                            futureThread = new Thread(futureTask);
+                            futureThread = ThreadUtil.newThread(futureTask, "LarkMidTable, JobThread-" + jobId + "-timeout");
                             futureThread.start();
 
                             executeResult = futureTask.get(tgParam.getExecutorTimeout(), TimeUnit.MINUTES);
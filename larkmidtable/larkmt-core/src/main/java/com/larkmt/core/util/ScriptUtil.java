@@ -3,12 +3,12 @@ package com.larkmt.core.util;
 
 import com.larkmt.core.thread.ProcessCallbackThread;
 import com.larkmt.core.biz.model.HandleProcessCallbackParam;
+import com.larkmt.core.log.JobFileAppender;
 import com.larkmt.core.log.JobLogger;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,12 +56,10 @@ public class ScriptUtil {
      */
     public static int execToFile(String command, String scriptFile, String logFile,long logId,long logDateTime, String... params) {
 
-        FileOutputStream fileOutputStream = null;
-        Thread inputThread = null;
-        Thread errThread = null;
         try {
-            // file
-            fileOutputStream = new FileOutputStream(logFile, true);
+            // file, after the lines buffered by JobLogger
+            JobFileAppender.flush(logFile);
+            File outputFile = new File(logFile);
 
             // command
             List<String> cmdarray = new ArrayList<>();
@@ -72,97 +70,26 @@ public class ScriptUtil {
                     cmdarray.add(param);
                 }
             }
-            String[] cmdarrayFinal = cmdarray.toArray(new String[cmdarray.size()]);
 
-            // process-exec
-            final Process process = Runtime.getRuntime().exec(cmdarrayFinal);
+            // process-exec, stdout and stderr appended to the log file by the os, no pump thread
+            final Process process = new ProcessBuilder(cmdarray)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(outputFile))
+                    .redirectError(ProcessBuilder.Redirect.appendTo(outputFile))
+                    .start();
 
             String prcsId = ProcessUtil.getProcessId(process);
             JobLogger.log("------------------Process id: " + prcsId);
             //update task process id
             HandleProcessCallbackParam prcs = new HandleProcessCallbackParam(logId, logDateTime, prcsId);
             ProcessCallbackThread.pushCallBack(prcs);
-            // log-thread
-            final FileOutputStream finalFileOutputStream = fileOutputStream;
-            inputThread = new Thread(() -> {
-                try {
-                    copy(process.getInputStream(), finalFileOutputStream, new byte[1024]);
-                } catch (IOException e) {
-                    JobLogger.log(e);
-                }
-            });
-            errThread = new Thread(() -> {
-                try {
-                    copy(process.getErrorStream(), finalFileOutputStream, new byte[1024]);
-                } catch (IOException e) {
-                    JobLogger.log(e);
-                }
-            });
-            inputThread.start();
-            errThread.start();
 
             // process-wait
             int exitValue = process.waitFor();      // exit code: 0=success, 1=error
 
-            // log-thread join
-            inputThread.join();
-            errThread.join();
-
             return exitValue;
         } catch (Exception e) {
             JobLogger.log(e);
             return -1;
-        } finally {
-            if (fileOutputStream != null) {
-                try {
-                    fileOutputStream.close();
-                } catch (IOException e) {
-                    JobLogger.log(e);
-                }
-
-            }
-            if (inputThread != null && inputThread.isAlive()) {
-                inputThread.interrupt();
-            }
-            if (errThread != null && errThread.isAlive()) {
-                errThread.interrupt();
-            }
-        }
-    }
-
-    /**
-     * 数据流Copy（Input自动关闭，Output不处理）
-     *
-     * @param inputStream
-     * @param outputStream
-     * @param buffer
-     * @return
-     * @throws IOException
-     */
-    private static long copy(InputStream inputStream, OutputStream outputStream, byte[] buffer) throws IOException {
-        try {
-            long total = 0;
-            for (; ; ) {
-                int res = inputStream.read(buffer);
-                if (res == -1) {
-                    break;
-                }
-                if (res > 0) {
-                    total += res;
-                    if (outputStream != null) {
-                        outputStream.write(buffer, 0, res);
-                    }
-                }
-            }
-            outputStream.flush();
-            //out = null;
-            inputStream.close();
-            inputStream = null;
-            return total;
-        } finally {
-            if (inputStream != null) {
-                inputStream.close();
-            }
         }
     }
 
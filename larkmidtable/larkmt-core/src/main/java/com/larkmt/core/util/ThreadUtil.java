@@ -0,0 +1,78 @@
+package com.larkmt.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+
+/**
+ * job thread factory
+ *
+ * job threads run as platform threads by default; with virtualThreads enabled and a jdk 21+ runtime
+ * they run as virtual threads, so thousands of idle job threads park without holding os threads.
+ * the virtual thread api is looked up reflectively, the module still builds for jdk 8.
+ */
+public class ThreadUtil {
+    private static Logger logger = LoggerFactory.getLogger(ThreadUtil.class);
+
+    private static volatile boolean virtualThreads = false;
+
+    private static Method ofVirtualMethod;
+    private static Method nameMethod;
+    private static Method unstartedMethod;
+
+    static {
+        try {
+            ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            nameMethod = builderClass.getMethod("name", String.class);
+            unstartedMethod = builderClass.getMethod("unstarted", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            // before jdk 21
+            ofVirtualMethod = null;
+        }
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return ofVirtualMethod != null;
+    }
+
+    /**
+     * switch job threads to virtual threads, ignored when the runtime has none
+     *
+     * @param enabled
+     */
+    public static void setVirtualThreads(boolean enabled) {
+        if (enabled && !isVirtualThreadSupported()) {
+            logger.warn(">>>>>>>>>>> LarkMidTable, virtual threads need jdk 21+, job threads run as platform threads, java.version:{}",
+                    System.getProperty("java.version"));
+            enabled = false;
+        }
+        virtualThreads = enabled;
+    }
+
+    public static boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * new unstarted thread, virtual or platform according to the execution mode
+     *
+     * @param task
+     * @param name
+     * @return
+     */
+    public static Thread newThread(Runnable task, String name) {
+        if (virtualThreads) {
+            try {
+                // a builder is not thread-safe, one per thread
+                Object builder = nameMethod.invoke(ofVirtualMethod.invoke(null), name);
+                return (Thread) unstartedMethod.invoke(builder, task);
+            } catch (ReflectiveOperationException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+        return new Thread(task, name);
+    }
+
+}
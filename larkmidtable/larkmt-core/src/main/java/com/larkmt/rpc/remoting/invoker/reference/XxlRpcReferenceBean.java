@@ -45,6 +45,7 @@ public class XxlRpcReferenceBean {
     private String version = null;
 
     private long timeout = 10000;
+    private int channelsPerAddress = 2;
 
     private String address = null;
     private String accessToken = null;
@@ -83,6 +84,10 @@ public class XxlRpcReferenceBean {
         this.timeout = timeout;
     }
 
+    public void setChannelsPerAddress(int channelsPerAddress) {
+        this.channelsPerAddress = channelsPerAddress;
+    }
+
     public void setAddress(String address) {
         this.address = address;
     }
@@ -109,6 +114,10 @@ public class XxlRpcReferenceBean {
         return timeout;
     }
 
+    public int getChannelsPerAddress() {
+        return channelsPerAddress;
+    }
+
     public XxlRpcInvokerFactory getInvokerFactory() {
         return invokerFactory;
     }
@@ -144,6 +153,9 @@ public class XxlRpcReferenceBean {
         if (this.timeout < 0) {
             this.timeout = 0;
         }
+        if (this.channelsPerAddress < 1) {
+            this.channelsPerAddress = 1;
+        }
         if (this.invokerFactory == null) {
             this.invokerFactory = XxlRpcInvokerFactory.getInstance();
         }
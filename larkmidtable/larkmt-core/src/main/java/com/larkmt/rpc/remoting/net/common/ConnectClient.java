@@ -3,6 +3,7 @@ package com.larkmt.rpc.remoting.net.common;
 import com.larkmt.rpc.remoting.invoker.XxlRpcInvokerFactory;
 import com.larkmt.rpc.remoting.invoker.reference.XxlRpcReferenceBean;
 import com.larkmt.rpc.remoting.net.params.BaseCallback;
+import com.larkmt.rpc.remoting.net.params.Beat;
 import com.larkmt.rpc.remoting.net.params.XxlRpcRequest;
 import com.larkmt.rpc.serialize.Serializer;
 import org.slf4j.Logger;
@@ -10,6 +11,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * @author xuxueli 2018-10-19
@@ -28,6 +30,31 @@ public abstract class ConnectClient {
     public abstract void send(XxlRpcRequest xxlRpcRequest) throws Exception;
 
 
+    // ---------------------- in-flight ----------------------
+
+    private static final long IN_FLIGHT_EXPIRE = 60 * 1000;     // a request without response is no longer counted after it
+    private final ConcurrentMap<String, Long> inFlightRequests = new ConcurrentHashMap<>();
+    private volatile long lastPruneTime = 0;
+
+    /**
+     * a response arrived on this client, called by the client handlers
+     */
+    public void onResponse(String requestId) {
+        if (requestId != null) {
+            inFlightRequests.remove(requestId);
+        }
+    }
+
+    private int pendingCount() {
+        long nowTime = System.currentTimeMillis();
+        if (nowTime - lastPruneTime > 1000) {
+            lastPruneTime = nowTime;
+            inFlightRequests.values().removeIf(sendTime -> nowTime - sendTime > IN_FLIGHT_EXPIRE);
+        }
+        return inFlightRequests.size();
+    }
+
+
     // ---------------------- client pool map ----------------------
 
     /**
@@ -40,18 +67,30 @@ public abstract class ConnectClient {
         // client pool	[tips03 : may save 35ms/100invoke if move it to constructor, but it is necessary. cause by ConcurrentHashMap.get]
         ConnectClient clientPool = ConnectClient.getPool(address, connectClientImpl, xxlRpcReferenceBean);
 
+        String requestId = xxlRpcRequest.getRequestId();
+        boolean countable = requestId != null && !Beat.BEAT_ID.equalsIgnoreCase(requestId);
+        if (countable) {
+            clientPool.inFlightRequests.put(requestId, System.currentTimeMillis());
+        }
         try {
             // do invoke
             clientPool.send(xxlRpcRequest);
         } catch (Exception e) {
+            if (countable) {
+                clientPool.inFlightRequests.remove(requestId);
+            }
             throw e;
         }
 
     }
 
-    private static volatile ConcurrentMap<String, ConnectClient> connectClientMap;        // (static) alread addStopCallBack
+    private static volatile ConcurrentMap<String, AtomicReferenceArray<ConnectClient>> connectClientMap;        // (static) alread addStopCallBack
     private static volatile ConcurrentMap<String, Object> connectClientLockMap = new ConcurrentHashMap<>();
 
+    /**
+     * several clients per address and serializer, the one with the fewest requests in flight is picked. a new
+     * client is connected into a free slot only while every live client is busy.
+     */
     private static ConnectClient getPool(String address, Class<? extends ConnectClient> connectClientImpl,
                                          final XxlRpcReferenceBean xxlRpcReferenceBean) throws Exception {
 
@@ -60,15 +99,19 @@ public abstract class ConnectClient {
             synchronized (ConnectClient.class) {
                 if (connectClientMap == null) {
                     // init
-                    connectClientMap = new ConcurrentHashMap<String, ConnectClient>();
+                    connectClientMap = new ConcurrentHashMap<String, AtomicReferenceArray<ConnectClient>>();
                     // stop callback
                     xxlRpcReferenceBean.getInvokerFactory().addStopCallBack(new BaseCallback() {
                         @Override
                         public void run() throws Exception {
                             if (connectClientMap.size() > 0) {
-                                for (String key : connectClientMap.keySet()) {
-                                    ConnectClient clientPool = connectClientMap.get(key);
-                                    clientPool.close();
+                                for (AtomicReferenceArray<ConnectClient> clients : connectClientMap.values()) {
+                                    for (int i = 0; i < clients.length(); i++) {
+                                        ConnectClient clientPool = clients.get(i);
+                                        if (clientPool != null) {
+                                            clientPool.close();
+                                        }
+                                    }
                                 }
                                 connectClientMap.clear();
                             }
@@ -78,41 +121,56 @@ public abstract class ConnectClient {
             }
         }
 
-        // get-valid client
-        ConnectClient connectClient = connectClientMap.get(address);
-        if (connectClient != null && connectClient.isValidate()) {
+        // a client encodes with the serializer it was connected with, references of other serializers get their own
+        Serializer serializer = xxlRpcReferenceBean.getSerializerInstance();
+        String poolKey = address + "#" + serializer.getClass().getName();
+        AtomicReferenceArray<ConnectClient> clients = connectClientMap.get(poolKey);
+        if (clients == null) {
+            connectClientMap.putIfAbsent(poolKey, new AtomicReferenceArray<ConnectClient>(xxlRpcReferenceBean.getChannelsPerAddress()));
+            clients = connectClientMap.get(poolKey);
+        }
+
+        // get-valid client, least pending
+        ConnectClient connectClient = leastPending(clients);
+        if (connectClient != null && (connectClient.pendingCount() == 0 || freeSlot(clients) < 0)) {
             return connectClient;
         }
 
         // lock
-        Object clientLock = connectClientLockMap.get(address);
+        Object clientLock = connectClientLockMap.get(poolKey);
         if (clientLock == null) {
-            connectClientLockMap.putIfAbsent(address, new Object());
-            clientLock = connectClientLockMap.get(address);
+            connectClientLockMap.putIfAbsent(poolKey, new Object());
+            clientLock = connectClientLockMap.get(poolKey);
         }
 
         // remove-create new client
         synchronized (clientLock) {
 
-            // get-valid client, avlid repeat
-            connectClient = connectClientMap.get(address);
-            if (connectClient != null && connectClient.isValidate()) {
-                return connectClient;
+            // get-free slot, avlid repeat
+            int slot = freeSlot(clients);
+            if (slot < 0) {
+                return leastPending(clients);
             }
 
             // remove old
-            if (connectClient != null) {
-                connectClient.close();
-                connectClientMap.remove(address);
+            ConnectClient oldClient = clients.get(slot);
+            if (oldClient != null) {
+                oldClient.close();
+                clients.set(slot, null);
             }
 
             // set pool
             ConnectClient connectClient_new = connectClientImpl.newInstance();
             try {
-                connectClient_new.init(address, xxlRpcReferenceBean.getSerializerInstance(), xxlRpcReferenceBean.getInvokerFactory());
-                connectClientMap.put(address, connectClient_new);
+                connectClient_new.init(address, serializer, xxlRpcReferenceBean.getInvokerFactory());
+                clients.set(slot, connectClient_new);
             } catch (Exception e) {
                 connectClient_new.close();
+                if (connectClient != null) {
+                    // a busy client is better than none
+                    logger.warn(">>>>>>>>>>> xxl-rpc, connect extra client fail, address = {}", address, e);
+                    return connectClient;
+                }
                 throw e;
             }
 
@@ -121,4 +179,30 @@ public abstract class ConnectClient {
 
     }
 
+    private static ConnectClient leastPending(AtomicReferenceArray<ConnectClient> clients) {
+        ConnectClient best = null;
+        int bestPending = Integer.MAX_VALUE;
+        for (int i = 0; i < clients.length(); i++) {
+            ConnectClient item = clients.get(i);
+            if (item != null && item.isValidate()) {
+                int pending = item.pendingCount();
+                if (pending < bestPending) {
+                    best = item;
+                    bestPending = pending;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int freeSlot(AtomicReferenceArray<ConnectClient> clients) {
+        for (int i = 0; i < clients.length(); i++) {
+            ConnectClient item = clients.get(i);
+            if (item == null || !item.isValidate()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
 }
@@ -3,4 +3,14 @@ package com.larkmt.rpc.remoting.net.common;
 public class NettyConstant {
 
     public static int MAX_LENGTH = 20 * 1024 * 1024;
+
+    /**
+     * flushes coalesced into one while reading, see FlushConsolidationHandler
+     */
+    public static final int EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
+
+    /**
+     * http header carrying the serializer code of the body, see Serializer#getCode
+     */
+    public static final String SERIALIZER_HEADER = "XXL-RPC-SERIALIZER";
 }
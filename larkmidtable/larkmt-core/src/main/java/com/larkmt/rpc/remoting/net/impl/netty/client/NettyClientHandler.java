@@ -30,6 +30,7 @@ public class NettyClientHandler extends SimpleChannelInboundHandler<XxlRpcRespon
 	protected void channelRead0(ChannelHandlerContext ctx, XxlRpcResponse xxlRpcResponse) throws Exception {
 
 		// notify response
+		nettyConnectClient.onResponse(xxlRpcResponse.getRequestId());
 		xxlRpcInvokerFactory.notifyInvokerFuture(xxlRpcResponse.getRequestId(), xxlRpcResponse);
 	}
 
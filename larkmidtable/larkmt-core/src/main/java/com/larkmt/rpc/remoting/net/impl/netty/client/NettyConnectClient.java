@@ -10,11 +10,13 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import com.larkmt.rpc.remoting.invoker.XxlRpcInvokerFactory;
 import com.larkmt.rpc.remoting.net.common.ConnectClient;
 import com.larkmt.rpc.remoting.net.impl.netty.codec.NettyDecoder;
 import com.larkmt.rpc.remoting.net.impl.netty.codec.NettyEncoder;
+import com.larkmt.rpc.remoting.net.common.NettyConstant;
 import com.larkmt.rpc.remoting.net.params.Beat;
 import com.larkmt.rpc.remoting.net.params.XxlRpcResponse;
 import com.larkmt.rpc.util.IpUtil;
@@ -50,6 +52,7 @@ public class NettyConnectClient extends ConnectClient {
                     @Override
                     public void initChannel(SocketChannel channel) throws Exception {
                         channel.pipeline()
+                                .addLast(new FlushConsolidationHandler(NettyConstant.EXPLICIT_FLUSH_AFTER_FLUSHES, true))     // coalesce flushes of small calls
                                 .addLast(new IdleStateHandler(0,0, Beat.BEAT_INTERVAL, TimeUnit.SECONDS))    // beat N, close if fail
                                 .addLast(new NettyEncoder(XxlRpcRequest.class, serializer))
                                 .addLast(new NettyDecoder(XxlRpcResponse.class, serializer))
@@ -1,18 +1,35 @@
 package com.larkmt.rpc.remoting.net.impl.netty.codec;
 
+import com.larkmt.rpc.remoting.net.common.NettyConstant;
 import com.larkmt.rpc.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
 /**
  * decoder
  *
+ * frame: int header (serializer code in the high 4 bits, data length below) + data, read straight
+ * from the frame slice without copying it out.
+ *
  * @author xuxueli 2015-10-29 19:02:36
  */
 public class NettyDecoder extends ByteToMessageDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(NettyDecoder.class);
+
+    /**
+     * serializer of the last frame read on the channel, the encoder answers in kind
+     */
+    public static final AttributeKey<Serializer> SERIALIZER = AttributeKey.valueOf("xxl-rpc-serializer");
+
+    static final int CODE_SHIFT = 28;
+    static final int LENGTH_MASK = (1 << CODE_SHIFT) - 1;
 
     private Class<?> genericClass;
     private Serializer serializer;
@@ -28,18 +45,27 @@ public class NettyDecoder extends ByteToMessageDecoder {
             return;
         }
         in.markReaderIndex();
-        int dataLength = in.readInt();
-        if (dataLength < 0) {
+        int header = in.readInt();
+        int code = header >>> CODE_SHIFT;
+        int dataLength = header & LENGTH_MASK;
+        Serializer frameSerializer = Serializer.match(code, serializer);
+        if (frameSerializer == null || dataLength > NettyConstant.MAX_LENGTH) {
+            logger.error(">>>>>>>>>>> xxl-rpc, invalid frame, serializer code = {}, length = {}, close channel {}", code, dataLength, ctx.channel());
+            in.skipBytes(in.readableBytes());
             ctx.close();
+            return;
         }
         if (in.readableBytes() < dataLength) {
             in.resetReaderIndex();
             return;	// fix 1024k buffer splice limix
         }
-        byte[] data = new byte[dataLength];
-        in.readBytes(data);
 
-        Object obj = serializer.deserialize(data, genericClass);
+        ByteBuf frame = in.readSlice(dataLength);
+        Object obj;
+        try (ByteBufInputStream is = new ByteBufInputStream(frame)) {
+            obj = frameSerializer.deserialize(is, genericClass);
+        }
+        ctx.channel().attr(SERIALIZER).set(frameSerializer);
         out.add(obj);
     }
 }
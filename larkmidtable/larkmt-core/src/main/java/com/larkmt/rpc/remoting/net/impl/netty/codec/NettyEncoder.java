@@ -1,13 +1,18 @@
 package com.larkmt.rpc.remoting.net.impl.netty.codec;
 
+import com.larkmt.rpc.remoting.net.common.NettyConstant;
 import com.larkmt.rpc.serialize.Serializer;
+import com.larkmt.rpc.util.XxlRpcException;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 /**
  * encoder
  *
+ * serializes straight into the pooled buffer of the encoder, the length is patched in afterwards.
+ *
  * @author xuxueli 2015-10-29 19:43:00
  */
 public class NettyEncoder extends MessageToByteEncoder<Object> {
@@ -23,9 +28,23 @@ public class NettyEncoder extends MessageToByteEncoder<Object> {
     @Override
     public void encode(ChannelHandlerContext ctx, Object in, ByteBuf out) throws Exception {
         if (genericClass.isInstance(in)) {
-            byte[] data = serializer.serialize(in);
-            out.writeInt(data.length);
-            out.writeBytes(data);
+            // answer with the serializer the peer used
+            Serializer frameSerializer = ctx.channel().attr(NettyDecoder.SERIALIZER).get();
+            if (frameSerializer == null) {
+                frameSerializer = serializer;
+            }
+
+            int headerIndex = out.writerIndex();
+            out.writeInt(0);
+            try (ByteBufOutputStream os = new ByteBufOutputStream(out)) {
+                frameSerializer.serialize(in, os);
+            }
+            int dataLength = out.writerIndex() - headerIndex - 4;
+            if (dataLength > NettyConstant.MAX_LENGTH) {
+                out.writerIndex(headerIndex);
+                throw new XxlRpcException("xxl-rpc frame too long, length = " + dataLength + ", max = " + NettyConstant.MAX_LENGTH);
+            }
+            out.setInt(headerIndex, (frameSerializer.getCode() << NettyDecoder.CODE_SHIFT) | dataLength);
         }
     }
 }
@@ -12,8 +12,10 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import com.larkmt.rpc.remoting.net.impl.netty.codec.NettyDecoder;
+import com.larkmt.rpc.remoting.net.common.NettyConstant;
 import com.larkmt.rpc.remoting.net.params.Beat;
 import com.larkmt.rpc.remoting.net.params.XxlRpcResponse;
 import com.larkmt.rpc.remoting.provider.XxlRpcProviderFactory;
@@ -54,6 +56,7 @@ public class NettyServer extends Server {
                                 @Override
                                 public void initChannel(SocketChannel channel) throws Exception {
                                     channel.pipeline()
+                                            .addLast(new FlushConsolidationHandler(NettyConstant.EXPLICIT_FLUSH_AFTER_FLUSHES, true))     // coalesce flushes of small calls
                                             .addLast(new IdleStateHandler(0,0, Beat.BEAT_INTERVAL*3, TimeUnit.SECONDS))     // beat 3N, close if idle
                                             .addLast(new NettyDecoder(XxlRpcRequest.class, xxlRpcProviderFactory.getSerializerInstance()))
                                             .addLast(new NettyEncoder(XxlRpcResponse.class, xxlRpcProviderFactory.getSerializerInstance()))
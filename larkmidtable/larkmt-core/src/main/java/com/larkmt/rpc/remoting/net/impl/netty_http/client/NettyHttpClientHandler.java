@@ -5,7 +5,7 @@ import com.larkmt.rpc.remoting.net.params.Beat;
 import com.larkmt.rpc.remoting.net.params.XxlRpcResponse;
 import com.larkmt.rpc.serialize.Serializer;
 import com.larkmt.rpc.util.XxlRpcException;
-import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpResponse;
@@ -40,18 +40,19 @@ public class NettyHttpClientHandler extends SimpleChannelInboundHandler<FullHttp
             throw new XxlRpcException("xxl-rpc response status invalid.");
         }
 
-        // response parse
-        byte[] responseBytes = ByteBufUtil.getBytes(msg.content());
-
         // valid length
-        if (responseBytes.length == 0) {
+        if (msg.content().readableBytes() == 0) {
             throw new XxlRpcException("xxl-rpc response data empty.");
         }
 
-        // response deserialize
-        XxlRpcResponse xxlRpcResponse = (XxlRpcResponse) serializer.deserialize(responseBytes, XxlRpcResponse.class);
+        // response deserialize, read from the content without copying it out
+        XxlRpcResponse xxlRpcResponse;
+        try (ByteBufInputStream is = new ByteBufInputStream(msg.content())) {
+            xxlRpcResponse = (XxlRpcResponse) serializer.deserialize(is, XxlRpcResponse.class);
+        }
 
         // notify response
+        nettyHttpConnectClient.onResponse(xxlRpcResponse.getRequestId());
         xxlRpcInvokerFactory.notifyInvokerFuture(xxlRpcResponse.getRequestId(), xxlRpcResponse);
 
     }
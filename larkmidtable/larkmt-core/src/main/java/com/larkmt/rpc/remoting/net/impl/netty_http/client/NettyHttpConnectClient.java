@@ -6,7 +6,8 @@ import com.larkmt.rpc.remoting.net.params.Beat;
 import com.larkmt.rpc.remoting.net.params.XxlRpcRequest;
 import com.larkmt.rpc.serialize.Serializer;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
@@ -15,6 +16,7 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import com.larkmt.rpc.remoting.net.common.ConnectClient;
 
@@ -59,6 +61,7 @@ public class NettyHttpConnectClient extends ConnectClient {
                     @Override
                     public void initChannel(SocketChannel channel) throws Exception {
                         channel.pipeline()
+                                .addLast(new FlushConsolidationHandler(NettyConstant.EXPLICIT_FLUSH_AFTER_FLUSHES, true))     // coalesce flushes of small calls
                                 .addLast(new IdleStateHandler(0, 0, Beat.BEAT_INTERVAL, TimeUnit.SECONDS))   // beat N, close if fail
                                 .addLast(new HttpClientCodec())
                                 .addLast(new HttpObjectAggregator(NettyConstant.MAX_LENGTH))
@@ -103,10 +106,18 @@ public class NettyHttpConnectClient extends ConnectClient {
 
     @Override
     public void send(XxlRpcRequest xxlRpcRequest) throws Exception {
-        byte[] requestBytes = serializer.serialize(xxlRpcRequest);
+        // serialize straight into a pooled buffer, released by the http encoder once written
+        ByteBuf content = channel.alloc().buffer();
+        try (ByteBufOutputStream os = new ByteBufOutputStream(content)) {
+            serializer.serialize(xxlRpcRequest, os);
+        } catch (Exception e) {
+            content.release();
+            throw e;
+        }
 
-        DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, new URI(address).getRawPath(), Unpooled.wrappedBuffer(requestBytes));
+        DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, new URI(address).getRawPath(), content);
         request.headers().set(HttpHeaderNames.HOST, host);
+        request.headers().set(NettyConstant.SERIALIZER_HEADER, serializer.getCode());
         request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
         request.headers().set(HttpHeaderNames.CONTENT_LENGTH, request.content().readableBytes());
 
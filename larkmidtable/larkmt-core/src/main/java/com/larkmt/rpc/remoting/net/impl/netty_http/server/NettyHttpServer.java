@@ -15,6 +15,7 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 
 import java.util.concurrent.ThreadPoolExecutor;
@@ -50,6 +51,7 @@ public class NettyHttpServer extends Server {
                             @Override
                             public void initChannel(SocketChannel channel) {
                                 channel.pipeline()
+                                        .addLast(new FlushConsolidationHandler(NettyConstant.EXPLICIT_FLUSH_AFTER_FLUSHES, true))     // coalesce flushes of small calls
                                         .addLast(new IdleStateHandler(0, 0, Beat.BEAT_INTERVAL * 3, TimeUnit.SECONDS))  // beat 3N, close if idle
                                         .addLast(new HttpServerCodec())
                                         .addLast(new HttpObjectAggregator(NettyConstant.MAX_LENGTH))  // merge request & reponse to FULL
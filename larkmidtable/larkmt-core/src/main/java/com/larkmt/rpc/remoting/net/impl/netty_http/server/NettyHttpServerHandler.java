@@ -2,7 +2,11 @@ package com.larkmt.rpc.remoting.net.impl.netty_http.server;
 
 import com.larkmt.rpc.remoting.net.params.XxlRpcRequest;
 import com.larkmt.rpc.util.ThrowableUtil;
-import io.netty.buffer.ByteBufUtil;
+import com.larkmt.rpc.remoting.net.common.NettyConstant;
+import com.larkmt.rpc.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -38,21 +42,45 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
     @Override
     protected void channelRead0(final ChannelHandlerContext ctx, FullHttpRequest msg) throws Exception {
 
-        // request parse
-        final byte[] requestBytes = ByteBufUtil.getBytes(msg.content());    // byteBuf.toString(io.netty.util.CharsetUtil.UTF_8);
+        // request parse, the content is kept until the handler pool has read it
+        final Serializer serializer = matchSerializer(msg.headers().get(NettyConstant.SERIALIZER_HEADER));
         final String uri = msg.uri();
         final boolean keepAlive = HttpUtil.isKeepAlive(msg);
+        final ByteBuf requestContent = msg.content().retain();
 
         // do invoke
-        serverHandlerPool.execute(new Runnable() {
-            @Override
-            public void run() {
-                process(ctx, uri, requestBytes, keepAlive);
-            }
-        });
+        try {
+            serverHandlerPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        process(ctx, uri, requestContent, keepAlive, serializer);
+                    } finally {
+                        requestContent.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            requestContent.release();
+            throw e;
+        }
     }
 
-    private void process(ChannelHandlerContext ctx, String uri, byte[] requestBytes, boolean keepAlive){
+    /**
+     * serializer of the request, the provider one for peers that send no code
+     */
+    private Serializer matchSerializer(String code) {
+        if (code == null) {
+            return xxlRpcProviderFactory.getSerializerInstance();
+        }
+        Serializer serializer = Serializer.match(Integer.parseInt(code.trim()), xxlRpcProviderFactory.getSerializerInstance());
+        if (serializer == null) {
+            throw new XxlRpcException("xxl-rpc serializer code invalid: " + code);
+        }
+        return serializer;
+    }
+
+    private void process(ChannelHandlerContext ctx, String uri, ByteBuf requestContent, boolean keepAlive, Serializer serializer){
         String requestId = null;
         try {
             if ("/services".equals(uri)) {	// services mapping
@@ -68,17 +96,19 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
                 byte[] responseBytes = stringBuffer.toString().getBytes("UTF-8");
 
                 // response-write
-                writeResponse(ctx, keepAlive, responseBytes);
+                writeResponse(ctx, keepAlive, Unpooled.wrappedBuffer(responseBytes), null);
 
             } else {
-				System.out.println("=================");
                 // valid
-                if (requestBytes.length == 0) {
+                if (requestContent.readableBytes() == 0) {
                     throw new XxlRpcException("xxl-rpc request data empty.");
                 }
 
                 // request deserialize
-                XxlRpcRequest xxlRpcRequest = (XxlRpcRequest) xxlRpcProviderFactory.getSerializerInstance().deserialize(requestBytes, XxlRpcRequest.class);
+                XxlRpcRequest xxlRpcRequest;
+                try (ByteBufInputStream is = new ByteBufInputStream(requestContent.duplicate())) {
+                    xxlRpcRequest = (XxlRpcRequest) serializer.deserialize(is, XxlRpcRequest.class);
+                }
                 requestId = xxlRpcRequest.getRequestId();
 
                 // filter beat
@@ -90,11 +120,8 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
                 // invoke + response
                 XxlRpcResponse xxlRpcResponse = xxlRpcProviderFactory.invokeService(xxlRpcRequest);
 
-                // response serialize
-                byte[] responseBytes = xxlRpcProviderFactory.getSerializerInstance().serialize(xxlRpcResponse);
-
                 // response-write
-                writeResponse(ctx, keepAlive, responseBytes);
+                writeResponse(ctx, keepAlive, serialize(ctx, serializer, xxlRpcResponse), serializer);
             }
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -104,21 +131,35 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
             xxlRpcResponse.setRequestId(requestId);
             xxlRpcResponse.setErrorMsg(ThrowableUtil.toString(e));
 
-            // response serialize
-            byte[] responseBytes = xxlRpcProviderFactory.getSerializerInstance().serialize(xxlRpcResponse);
-
             // response-write
-            writeResponse(ctx, keepAlive, responseBytes);
+            writeResponse(ctx, keepAlive, serialize(ctx, serializer, xxlRpcResponse), serializer);
         }
 
     }
 
+    /**
+     * serialize straight into a pooled buffer
+     */
+    private ByteBuf serialize(ChannelHandlerContext ctx, Serializer serializer, XxlRpcResponse xxlRpcResponse) {
+        ByteBuf content = ctx.alloc().buffer();
+        try (ByteBufOutputStream os = new ByteBufOutputStream(content)) {
+            serializer.serialize(xxlRpcResponse, os);
+        } catch (Exception e) {
+            content.release();
+            throw e instanceof XxlRpcException ? (XxlRpcException) e : new XxlRpcException(e);
+        }
+        return content;
+    }
+
     /**
      * write response
      */
-    private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, byte[] responseBytes){
-        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(responseBytes));
+    private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, ByteBuf content, Serializer serializer){
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html;charset=UTF-8");       // HttpHeaderValues.TEXT_PLAIN.toString()
+        if (serializer != null) {
+            response.headers().set(NettyConstant.SERIALIZER_HEADER, serializer.getCode());
+        }
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
         if (keepAlive) {
             response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
@@ -15,6 +15,9 @@ import com.larkmt.rpc.remoting.net.params.BaseCallback;
 import com.larkmt.rpc.serialize.impl.HessianSerializer;
 import com.larkmt.rpc.util.NetUtil;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
@@ -168,6 +171,43 @@ public class XxlRpcProviderFactory {
 		return serviceData;
 	}
 
+	/**
+	 * method handles of each service, resolved once at registration and bound to the bean,
+	 * taking the parameters as one Object[]
+	 */
+	private Map<String, Map<String, MethodHandle>> serviceMethodData = new HashMap<String, Map<String, MethodHandle>>();
+
+	private static Map<String, MethodHandle> resolveMethods(Object serviceBean) {
+		Map<String, MethodHandle> methodHandles = new HashMap<String, MethodHandle>();
+		for (Method method : serviceBean.getClass().getMethods()) {
+			if (method.getDeclaringClass() == Object.class) {
+				continue;
+			}
+			try {
+				method.setAccessible(true);
+				MethodHandle methodHandle = MethodHandles.lookup().unreflect(method)
+						.bindTo(serviceBean)
+						.asSpreader(Object[].class, method.getParameterCount())
+						.asType(MethodType.methodType(Object.class, Object[].class));
+				methodHandles.put(makeMethodKey(method.getName(), method.getParameterTypes()), methodHandle);
+			} catch (Exception e) {
+				// left to the reflection fallback
+				logger.warn(">>>>>>>>>>> xxl-rpc, resolve method handle fail, method = {}", method, e);
+			}
+		}
+		return methodHandles;
+	}
+
+	private static String makeMethodKey(String methodName, Class<?>[] parameterTypes) {
+		StringBuilder methodKey = new StringBuilder(methodName).append('(');
+		if (parameterTypes != null) {
+			for (Class<?> parameterType : parameterTypes) {
+				methodKey.append(parameterType.getName()).append(',');
+			}
+		}
+		return methodKey.append(')').toString();
+	}
+
 	/**
 	 * make service key
 	 *
@@ -193,6 +233,7 @@ public class XxlRpcProviderFactory {
 	public void addService(String iface, String version, Object serviceBean){
 		String serviceKey = makeServiceKey(iface, version);
 		serviceData.put(serviceKey, serviceBean);
+		serviceMethodData.put(serviceKey, resolveMethods(serviceBean));
 
 		logger.info(">>>>>>>>>>> xxl-rpc, provider factory add service success. serviceKey = {}, serviceBean = {}", serviceKey, serviceBean.getClass());
 	}
@@ -230,14 +271,20 @@ public class XxlRpcProviderFactory {
 
 		try {
 			// invoke
-			Class<?> serviceClass = serviceBean.getClass();
 			String methodName = xxlRpcRequest.getMethodName();
 			Class<?>[] parameterTypes = xxlRpcRequest.getParameterTypes();
 			Object[] parameters = xxlRpcRequest.getParameters();
 
-            Method method = serviceClass.getMethod(methodName, parameterTypes);
-            method.setAccessible(true);
-			Object result = method.invoke(serviceBean, parameters);
+			Object result;
+			Map<String, MethodHandle> methodHandles = serviceMethodData.get(serviceKey);
+			MethodHandle methodHandle = methodHandles != null ? methodHandles.get(makeMethodKey(methodName, parameterTypes)) : null;
+			if (methodHandle != null) {
+				result = (Object) methodHandle.invokeExact(parameters != null ? parameters : new Object[0]);
+			} else {
+				Method method = serviceBean.getClass().getMethod(methodName, parameterTypes);
+				method.setAccessible(true);
+				result = method.invoke(serviceBean, parameters);
+			}
 
 			/*FastClass serviceFastClass = FastClass.create(serviceClass);
 			FastMethod serviceFastMethod = serviceFastClass.getMethod(methodName, parameterTypes);
@@ -1,5 +1,12 @@
 package com.larkmt.rpc.serialize;
 
+import com.larkmt.rpc.util.XxlRpcException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * serializer
  *
@@ -15,6 +22,52 @@ public abstract class Serializer {
 
 	public abstract <T> Object deserialize(byte[] bytes, Class<T> clazz);
 
+	/**
+	 * code written in the frame header, so that the peer decodes with the same serializer
+	 */
+	public int getCode() {
+		return 0;
+	}
+
+	/**
+	 * serializer of a code read from the peer, only the local one is accepted, null for any other code.
+	 * a peer never makes a provider decode with a serializer it was not configured with
+	 */
+	public static Serializer match(int code, Serializer localSerializer) {
+		if (localSerializer != null && localSerializer.getCode() == code) {
+			return localSerializer;
+		}
+		return null;
+	}
+
+	/**
+	 * serialize into a stream, implementations override it to skip the byte[] copy
+	 */
+	public <T> void serialize(T obj, OutputStream os) {
+		try {
+			os.write(serialize(obj));
+		} catch (IOException e) {
+			throw new XxlRpcException(e);
+		}
+	}
+
+	/**
+	 * deserialize from a stream, implementations override it to skip the byte[] copy
+	 */
+	public <T> Object deserialize(InputStream is, Class<T> clazz) {
+		try {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int len;
+			while ((len = is.read(buffer)) != -1) {
+				os.write(buffer, 0, len);
+			}
+			return deserialize(os.toByteArray(), clazz);
+		} catch (IOException e) {
+			throw new XxlRpcException(e);
+		}
+	}
+
 	/*public enum SerializeEnum {
 		HESSIAN(HessianSerializer.class),
 		HESSIAN1(Hessian1Serializer.class);
@@ -8,6 +8,8 @@ import com.larkmt.rpc.util.XxlRpcException;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * hessian serialize
@@ -64,4 +66,30 @@ public class HessianSerializer extends Serializer {
 		}
 	}
 
+	@Override
+	public int getCode() {
+		return 0;
+	}
+
+	@Override
+	public <T> void serialize(T obj, OutputStream os) {
+		Hessian2Output ho = new Hessian2Output(os);
+		try {
+			ho.writeObject(obj);
+			ho.flush();
+		} catch (IOException e) {
+			throw new XxlRpcException(e);
+		}
+	}
+
+	@Override
+	public <T> Object deserialize(InputStream is, Class<T> clazz) {
+		Hessian2Input hi = new Hessian2Input(is);
+		try {
+			return hi.readObject();
+		} catch (IOException e) {
+			throw new XxlRpcException(e);
+		}
+	}
+
 }
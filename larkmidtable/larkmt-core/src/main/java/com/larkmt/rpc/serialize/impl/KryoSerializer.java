@@ -0,0 +1,99 @@
+package com.larkmt.rpc.serialize.impl;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.larkmt.core.biz.model.HandleCallbackParam;
+import com.larkmt.core.biz.model.HandleProcessCallbackParam;
+import com.larkmt.core.biz.model.LogResult;
+import com.larkmt.core.biz.model.RegistryParam;
+import com.larkmt.core.biz.model.ReturnT;
+import com.larkmt.core.biz.model.TriggerParam;
+import com.larkmt.rpc.remoting.net.params.Beat;
+import com.larkmt.rpc.remoting.net.params.XxlRpcRequest;
+import com.larkmt.rpc.remoting.net.params.XxlRpcResponse;
+import com.larkmt.rpc.serialize.Serializer;
+import com.larkmt.rpc.util.XxlRpcException;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * kryo serialize
+ *
+ * the rpc params and job models are registered with fixed ids, so they are written as small ints
+ * instead of class names; both peers must run the same registration. other classes still work,
+ * written with their class name, so a provider only decodes kryo frames when it is configured with
+ * this serializer.
+ */
+public class KryoSerializer extends Serializer {
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private static final ThreadLocal<Kryo> kryoLocal = ThreadLocal.withInitial(() -> {
+		Kryo kryo = new Kryo();
+		kryo.setRegistrationRequired(false);
+		kryo.setReferences(true);
+		kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+
+		// append only, the ids are part of the wire format
+		kryo.register(XxlRpcRequest.class, 100);
+		kryo.register(XxlRpcResponse.class, 101);
+		kryo.register(Beat.class, 102);
+		kryo.register(Object[].class, 103);
+		kryo.register(Class[].class, 104);
+		kryo.register(ArrayList.class, 105);
+		kryo.register(HashMap.class, 106);
+		kryo.register(Date.class, 107);
+		kryo.register(ReturnT.class, 110);
+		kryo.register(TriggerParam.class, 111);
+		kryo.register(HandleCallbackParam.class, 112);
+		kryo.register(HandleProcessCallbackParam.class, 113);
+		kryo.register(RegistryParam.class, 114);
+		kryo.register(LogResult.class, 115);
+		return kryo;
+	});
+
+	@Override
+	public <T> byte[] serialize(T obj) {
+		Output output = new Output(BUFFER_SIZE, -1);
+		kryoLocal.get().writeClassAndObject(output, obj);
+		return output.toBytes();
+	}
+
+	@Override
+	public <T> Object deserialize(byte[] bytes, Class<T> clazz) {
+		return kryoLocal.get().readClassAndObject(new Input(bytes));
+	}
+
+	@Override
+	public int getCode() {
+		return 1;
+	}
+
+	@Override
+	public <T> void serialize(T obj, OutputStream os) {
+		Output output = new Output(os, BUFFER_SIZE);
+		try {
+			kryoLocal.get().writeClassAndObject(output, obj);
+			output.flush();
+		} catch (RuntimeException e) {
+			throw new XxlRpcException(e);
+		}
+	}
+
+	@Override
+	public <T> Object deserialize(InputStream is, Class<T> clazz) {
+		try {
+			return kryoLocal.get().readClassAndObject(new Input(is, BUFFER_SIZE));
+		} catch (RuntimeException e) {
+			throw new XxlRpcException(e);
+		}
+	}
+
+}
@@ -354,3 +354,29 @@ CHANGE COLUMN `author` `user_id` INT(11) NOT NULL COMMENT '修改用户' ;
 
 ALTER TABLE `job_info`
 CHANGE COLUMN `increment_type` `increment_type` TINYINT(4) NULL DEFAULT 0 COMMENT '增量类型' ;
+
+-- ----------------------------
+-- Table structure for job_schedule_shard
+-- ----------------------------
+CREATE TABLE `job_schedule_shard`  (
+  `shard_id` int(11) NOT NULL COMMENT '调度分片编号',
+  `owner` varchar(191) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '持有分片的调度中心地址',
+  `lease_expire_time` bigint(13) NOT NULL DEFAULT 0 COMMENT '租约到期时间',
+  PRIMARY KEY (`shard_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Table structure for job_log_report_job
+-- ----------------------------
+CREATE TABLE `job_log_report_job`  (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `trigger_day` datetime NULL DEFAULT NULL COMMENT '调度-时间',
+  `job_group` int(11) NOT NULL COMMENT '执行器主键ID',
+  `job_id` int(11) NOT NULL COMMENT '任务，主键ID',
+  `running_count` int(11) NOT NULL DEFAULT 0 COMMENT '运行中-日志数量',
+  `suc_count` int(11) NOT NULL DEFAULT 0 COMMENT '执行成功-日志数量',
+  `fail_count` int(11) NOT NULL DEFAULT 0 COMMENT '执行失败-日志数量',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `i_trigger_day_job`(`trigger_day`, `job_group`, `job_id`) USING BTREE,
+  INDEX `i_job_id`(`job_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = Dynamic;
@@ -1,5 +1,7 @@
 package com.tencent.supersonic.auth.authorization.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.gson.Gson;
 import com.tencent.supersonic.auth.api.authentication.service.UserService;
 import com.tencent.supersonic.auth.api.authorization.pojo.AuthGroup;
@@ -16,20 +18,41 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Auth groups are kept in memory, indexed by model and by authorized user and department. The
+ * index is rebuilt after a group is added, updated or removed here, and at least every
+ * {@link #INDEX_TTL_MILLIS} so changes made by other instances are picked up. Resolved resources
+ * are memoized per user and model ids for a short time, which also bounds how long a change of the
+ * user's departments takes to apply.
+ */
 @Service
 @Slf4j
 public class AuthServiceImpl implements AuthService {
 
+    private static final long INDEX_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
     private JdbcTemplate jdbcTemplate;
 
     private UserService userService;
 
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile AuthIndex authIndex;
+
+    private final Cache<String, AuthorizedResourceResp> resourceCache = Caffeine.newBuilder()
+            .maximumSize(10000).expireAfterWrite(1, TimeUnit.MINUTES).build();
+
     public AuthServiceImpl(JdbcTemplate jdbcTemplate, UserService userService) {
         this.jdbcTemplate = jdbcTemplate;
         this.userService = userService;
@@ -43,11 +66,37 @@ public class AuthServiceImpl implements AuthService {
                 .collect(Collectors.toList());
     }
 
+    private AuthIndex getAuthIndex() {
+        AuthIndex index = authIndex;
+        if (index != null && System.currentTimeMillis() - index.buildTime < INDEX_TTL_MILLIS) {
+            return index;
+        }
+        synchronized (this) {
+            index = authIndex;
+            if (index != null
+                    && System.currentTimeMillis() - index.buildTime < INDEX_TTL_MILLIS) {
+                return index;
+            }
+            long current = generation.get();
+            index = new AuthIndex(current, load());
+            // a group changed while loading, keep the index for this call only
+            if (generation.get() == current) {
+                authIndex = index;
+            }
+            return index;
+        }
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        authIndex = null;
+        resourceCache.invalidateAll();
+    }
+
     @Override
     public List<AuthGroup> queryAuthGroups(String modelId, Integer groupId) {
-        return load().stream()
-                .filter(group -> (Objects.isNull(groupId) || groupId.equals(group.getGroupId()))
-                        && modelId.equals(group.getModelId().toString()))
+        return getAuthIndex().getByModel(modelId).stream()
+                .filter(group -> Objects.isNull(groupId) || groupId.equals(group.getGroupId()))
                 .collect(Collectors.toList());
     }
 
@@ -68,11 +117,13 @@ public class AuthServiceImpl implements AuthService {
             jdbcTemplate.update("update s2_auth_groups set config = ? where group_id = ?;",
                     g.toJson(group), group.getGroupId());
         }
+        invalidate();
     }
 
     @Override
     public void removeAuthGroup(AuthGroup group) {
         jdbcTemplate.update("delete from s2_auth_groups where group_id = ?", group.getGroupId());
+        invalidate();
     }
 
     @Override
@@ -80,13 +131,26 @@ public class AuthServiceImpl implements AuthService {
         if (CollectionUtils.isEmpty(req.getModelIds())) {
             return new AuthorizedResourceResp();
         }
-        Set<String> userOrgIds = userService.getUserAllOrgId(user.getName());
+        AuthIndex index = getAuthIndex();
+        String cacheKey = index.generation + ":" + user.getName() + ":" + req.getModelIds();
+        AuthorizedResourceResp resource = resourceCache.get(cacheKey,
+                key -> resolveAuthorizedResources(index, req.getModelIds(), user.getName()));
+        // callers get their own lists, the cached ones stay untouched
+        AuthorizedResourceResp copy = new AuthorizedResourceResp();
+        copy.getAuthResList().addAll(resource.getAuthResList());
+        copy.getFilters().addAll(resource.getFilters());
+        return copy;
+    }
+
+    private AuthorizedResourceResp resolveAuthorizedResources(AuthIndex index, List<Long> modelIds,
+            String userName) {
+        Set<String> userOrgIds = userService.getUserAllOrgId(userName);
         List<AuthGroup> groups =
-                getAuthGroups(req.getModelIds(), user.getName(), new ArrayList<>(userOrgIds));
+                getAuthGroups(index, modelIds, userName, new ArrayList<>(userOrgIds));
         AuthorizedResourceResp resource = new AuthorizedResourceResp();
         Map<Long, List<AuthGroup>> authGroupsByModelId =
                 groups.stream().collect(Collectors.groupingBy(AuthGroup::getModelId));
-        for (Long modelId : req.getModelIds()) {
+        for (Long modelId : modelIds) {
             if (authGroupsByModelId.containsKey(modelId)) {
                 List<AuthGroup> authGroups = authGroupsByModelId.get(modelId);
                 for (AuthGroup authRuleGroup : authGroups) {
@@ -112,25 +176,62 @@ public class AuthServiceImpl implements AuthService {
         return resource;
     }
 
-    private List<AuthGroup> getAuthGroups(List<Long> modelIds, String userName,
+    private List<AuthGroup> getAuthGroups(AuthIndex index, List<Long> modelIds, String userName,
             List<String> departmentIds) {
-        List<AuthGroup> groups = load().stream().filter(group -> {
-            if (!modelIds.contains(group.getModelId())) {
-                return false;
-            }
-            if (!CollectionUtils.isEmpty(group.getAuthorizedUsers())
-                    && group.getAuthorizedUsers().contains(userName)) {
-                return true;
-            }
-            for (String departmentId : departmentIds) {
-                if (!CollectionUtils.isEmpty(group.getAuthorizedDepartmentIds())
-                        && group.getAuthorizedDepartmentIds().contains(departmentId)) {
-                    return true;
-                }
-            }
-            return false;
-        }).collect(Collectors.toList());
+        // positions in load order, the groups come out in the same order as a full scan
+        Set<Integer> positions = new TreeSet<>(index.getByUser(userName));
+        for (String departmentId : departmentIds) {
+            positions.addAll(index.getByDepartment(departmentId));
+        }
+        List<AuthGroup> groups = positions.stream().map(index.groups::get)
+                .filter(group -> modelIds.contains(group.getModelId()))
+                .collect(Collectors.toList());
         log.info("user:{} department:{} authGroups:{}", userName, departmentIds, groups);
         return groups;
     }
+
+    private static class AuthIndex {
+
+        private final long generation;
+        private final long buildTime = System.currentTimeMillis();
+        private final List<AuthGroup> groups;
+        private final Map<String, List<AuthGroup>> byModel = new HashMap<>();
+        private final Map<String, List<Integer>> byUser = new HashMap<>();
+        private final Map<String, List<Integer>> byDepartment = new HashMap<>();
+
+        private AuthIndex(long generation, List<AuthGroup> groups) {
+            this.generation = generation;
+            this.groups = groups;
+            for (int i = 0; i < groups.size(); i++) {
+                AuthGroup group = groups.get(i);
+                if (group.getModelId() == null) {
+                    continue;
+                }
+                byModel.computeIfAbsent(group.getModelId().toString(), k -> new ArrayList<>())
+                        .add(group);
+                if (!CollectionUtils.isEmpty(group.getAuthorizedUsers())) {
+                    for (String user : group.getAuthorizedUsers()) {
+                        byUser.computeIfAbsent(user, k -> new ArrayList<>()).add(i);
+                    }
+                }
+                if (!CollectionUtils.isEmpty(group.getAuthorizedDepartmentIds())) {
+                    for (String departmentId : group.getAuthorizedDepartmentIds()) {
+                        byDepartment.computeIfAbsent(departmentId, k -> new ArrayList<>()).add(i);
+                    }
+                }
+            }
+        }
+
+        private List<AuthGroup> getByModel(String modelId) {
+            return byModel.getOrDefault(modelId, Collections.emptyList());
+        }
+
+        private List<Integer> getByUser(String userName) {
+            return byUser.getOrDefault(userName, Collections.emptyList());
+        }
+
+        private List<Integer> getByDepartment(String departmentId) {
+            return byDepartment.getOrDefault(departmentId, Collections.emptyList());
+        }
+    }
 }
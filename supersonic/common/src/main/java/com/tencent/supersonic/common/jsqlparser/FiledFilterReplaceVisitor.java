@@ -13,6 +13,7 @@ import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
 import net.sf.jsqlparser.expression.operators.relational.MinorThan;
 import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.parser.SimpleNode;
 import net.sf.jsqlparser.schema.Column;
 import org.apache.commons.collections.CollectionUtils;
 
@@ -78,7 +79,6 @@ public class FiledFilterReplaceVisitor extends ExpressionVisitorAdapter {
 
     public List<Expression> parserFilter(ComparisonOperator comparisonOperator, String condExpr) {
         List<Expression> result = new ArrayList<>();
-        String comparisonOperatorStr = comparisonOperator.toString();
         Expression leftExpression = comparisonOperator.getLeftExpression();
 
         if (!(leftExpression instanceof Function)) {
@@ -102,12 +102,20 @@ public class FiledFilterReplaceVisitor extends ExpressionVisitorAdapter {
         }
 
         try {
-            ComparisonOperator parsedExpression =
+            // the constant has the operator of the filter, it takes over the operands of the
+            // filter and becomes the having condition, the filter gets the constant operands
+            ComparisonOperator constant =
                     (ComparisonOperator) CCJSqlParserUtil.parseCondExpression(condExpr);
-            comparisonOperator.setLeftExpression(parsedExpression.getLeftExpression());
-            comparisonOperator.setRightExpression(parsedExpression.getRightExpression());
-            comparisonOperator.setASTNode(parsedExpression.getASTNode());
-            result.add(CCJSqlParserUtil.parseCondExpression(comparisonOperatorStr));
+            Expression constantLeft = constant.getLeftExpression();
+            Expression constantRight = constant.getRightExpression();
+            SimpleNode constantNode = constant.getASTNode();
+            constant.setLeftExpression(comparisonOperator.getLeftExpression());
+            constant.setRightExpression(comparisonOperator.getRightExpression());
+            constant.setASTNode(comparisonOperator.getASTNode());
+            comparisonOperator.setLeftExpression(constantLeft);
+            comparisonOperator.setRightExpression(constantRight);
+            comparisonOperator.setASTNode(constantNode);
+            result.add(constant);
             return result;
         } catch (JSQLParserException e) {
             log.error("JSQLParserException", e);
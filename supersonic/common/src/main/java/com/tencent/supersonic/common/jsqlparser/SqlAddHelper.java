@@ -36,10 +36,16 @@ import java.util.Set;
 public class SqlAddHelper {
 
     public static String addFieldsToSelect(String sql, List<String> fields) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        addFieldsToSelect(handle, fields);
+        return Objects.isNull(handle.edit()) ? null : handle.getSql();
+    }
+
+    public static void addFieldsToSelect(SqlHandle sql, List<String> fields) {
+        Select selectStatement = sql.edit();
         // add fields to select
         if (selectStatement == null) {
-            return null;
+            return;
         }
         if (selectStatement instanceof PlainSelect) {
             PlainSelect plainSelect = (PlainSelect) selectStatement;
@@ -60,13 +66,18 @@ public class SqlAddHelper {
                 });
             }
         }
-        return selectStatement.toString();
     }
 
     public static String addFunctionToSelect(String sql, List<Expression> expressionList) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        addFunctionToSelect(handle, expressionList);
+        return Objects.isNull(handle.edit()) ? null : handle.getSql();
+    }
+
+    public static void addFunctionToSelect(SqlHandle sql, List<Expression> expressionList) {
+        Select selectStatement = sql.edit();
         if (selectStatement == null) {
-            return null;
+            return;
         }
 
         List<PlainSelect> plainSelectList = new ArrayList<>();
@@ -85,7 +96,7 @@ public class SqlAddHelper {
         }
 
         if (CollectionUtils.isEmpty(plainSelectList)) {
-            return sql;
+            return;
         }
         for (PlainSelect plainSelect : plainSelectList) {
             List<SelectItem<?>> selectItems = plainSelect.getSelectItems();
@@ -109,7 +120,6 @@ public class SqlAddHelper {
                 }
             }
         }
-        return selectStatement.toString();
     }
 
     public static String addWhere(String sql, String column, Object value) {
@@ -138,10 +148,22 @@ public class SqlAddHelper {
     }
 
     public static String addWhere(String sql, Expression expression) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        addWhere(handle, expression);
+        return handle.getSql();
+    }
 
+    public static void addWhere(SqlHandle sql, Expression expression) {
+        addWhere(sql.edit(), expression);
+    }
+
+    /**
+     * Adds the condition to a parsed statement in place, for callers applying several rewrites to
+     * one statement. Returns false when the statement is not a plain select.
+     */
+    public static boolean addWhere(Select selectStatement, Expression expression) {
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return false;
         }
         PlainSelect plainSelect = (PlainSelect) selectStatement;
         List<String> chNameList = TimeDimensionEnum.getChNameList();
@@ -153,7 +175,7 @@ public class SqlAddHelper {
         }
         List<PlainSelect> plainSelectList = SqlSelectHelper.getWithItem(selectStatement);
         if (!CollectionUtils.isEmpty(plainSelectList) && dateWhere) {
-            List<String> withNameList = SqlSelectHelper.getWithName(sql);
+            List<String> withNameList = SqlSelectHelper.getWithName(selectStatement);
             for (int i = 0; i < plainSelectList.size(); i++) {
                 if (plainSelectList.get(i).getFromItem() instanceof Table) {
                     Table table = (Table) plainSelectList.get(i).getFromItem();
@@ -171,19 +193,19 @@ public class SqlAddHelper {
                 Expression subWhere = plainSelectList.get(i).getWhere();
                 addWhere(plainSelectList.get(i), subWhere, expression);
             }
-            return selectStatement.toString();
+            return true;
         }
         if (plainSelect.getFromItem() instanceof ParenthesedSelect && dateWhere) {
             ParenthesedSelect parenthesedSelect = (ParenthesedSelect) plainSelect.getFromItem();
             PlainSelect subPlainSelect = parenthesedSelect.getPlainSelect();
             Expression subWhere = subPlainSelect.getWhere();
             addWhere(subPlainSelect, subWhere, expression);
-            return selectStatement.toString();
+            return true;
         }
         Expression where = plainSelect.getWhere();
 
         addWhere(plainSelect, where, expression);
-        return selectStatement.toString();
+        return true;
     }
 
     private static void addWhere(PlainSelect plainSelect, Expression where, Expression expression) {
@@ -219,10 +241,17 @@ public class SqlAddHelper {
     }
 
     public static String addAggregateToField(String sql, Map<String, String> fieldNameToAggregate) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        addAggregateToField(handle, fieldNameToAggregate);
+        return handle.getSql();
+    }
+
+    public static void addAggregateToField(SqlHandle sql,
+            Map<String, String> fieldNameToAggregate) {
+        Select selectStatement = sql.edit();
 
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return;
         }
         selectStatement.accept(new SelectVisitorAdapter() {
             @Override
@@ -233,17 +262,22 @@ public class SqlAddHelper {
                 addAggregateToWhereItems(plainSelect.getWhere(), fieldNameToAggregate);
             }
         });
-        return selectStatement.toString();
     }
 
     public static String addGroupBy(String sql, Set<String> groupByFields) {
+        SqlHandle handle = SqlHandle.of(sql);
+        addGroupBy(handle, groupByFields);
+        return handle.getSql();
+    }
+
+    public static void addGroupBy(SqlHandle sql, Set<String> groupByFields) {
         if (CollectionUtils.isEmpty(groupByFields)) {
-            return sql;
+            return;
         }
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        Select selectStatement = sql.edit();
 
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return;
         }
 
         PlainSelect plainSelect = (PlainSelect) selectStatement;
@@ -256,7 +290,6 @@ public class SqlAddHelper {
             groupByElement.addGroupByExpression(new Column(groupByField));
         }
         plainSelect.setGroupByElement(groupByElement);
-        return selectStatement.toString();
     }
 
     private static void addAggregateToSelectItems(List<SelectItem<?>> selectItems,
@@ -363,10 +396,16 @@ public class SqlAddHelper {
     }
 
     public static String addHaving(String sql, Set<String> fieldNames) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        addHaving(handle, fieldNames);
+        return handle.getSql();
+    }
+
+    public static void addHaving(SqlHandle sql, Set<String> fieldNames) {
+        Select selectStatement = sql.edit();
 
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return;
         }
 
         PlainSelect plainSelect = (PlainSelect) selectStatement;
@@ -387,7 +426,7 @@ public class SqlAddHelper {
                 }
             }
         }
-        return SqlRemoveHelper.removeNumberFilter(selectStatement.toString());
+        SqlRemoveHelper.removeNumberFilter(sql);
     }
 
     public static String addHaving(String sql, List<Expression> expressionList) {
@@ -415,10 +454,16 @@ public class SqlAddHelper {
     }
 
     public static String addParenthesisToWhere(String sql) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        addParenthesisToWhere(handle);
+        return handle.getSql();
+    }
+
+    public static void addParenthesisToWhere(SqlHandle sql) {
+        Select selectStatement = sql.edit();
 
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return;
         }
         PlainSelect plainSelect = (PlainSelect) selectStatement;
         Expression where = plainSelect.getWhere();
@@ -426,6 +471,5 @@ public class SqlAddHelper {
             Parenthesis parenthesis = new Parenthesis(where);
             plainSelect.setWhere(parenthesis);
         }
-        return selectStatement.toString();
     }
 }
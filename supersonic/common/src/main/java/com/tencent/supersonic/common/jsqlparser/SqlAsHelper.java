@@ -35,7 +35,11 @@ public class SqlAsHelper {
 
 
     public static List<String> getAsFields(String sql) {
-        List<PlainSelect> plainSelectList = SqlSelectHelper.getPlainSelect(sql);
+        return getAsFields(SqlHandle.of(sql));
+    }
+
+    public static List<String> getAsFields(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         if (CollectionUtils.isEmpty(plainSelectList)) {
             return new ArrayList<>();
         }
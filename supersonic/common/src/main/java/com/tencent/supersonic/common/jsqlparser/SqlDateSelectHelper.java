@@ -13,7 +13,11 @@ import java.util.Objects;
 public class SqlDateSelectHelper {
 
     public static DateVisitor.DateBoundInfo getDateBoundInfo(String sql) {
-        List<PlainSelect> plainSelectList = SqlSelectHelper.getPlainSelect(sql);
+        return getDateBoundInfo(SqlHandle.of(sql));
+    }
+
+    public static DateVisitor.DateBoundInfo getDateBoundInfo(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         if (plainSelectList.size() != 1) {
             return null;
         }
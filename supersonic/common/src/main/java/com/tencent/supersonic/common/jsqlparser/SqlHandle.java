@@ -0,0 +1,78 @@
+package com.tencent.supersonic.common.jsqlparser;
+
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * A sql together with its parsed statement. The correctors inspect and rewrite one sql many times
+ * in a row, a handle is parsed once and passed to every helper: the inspection helpers read the
+ * statement, the rewrite helpers change it in place, and the sql text is only rendered again when
+ * it is asked for after a rewrite. A handle belongs to one request and is not thread safe.
+ */
+public final class SqlHandle {
+
+    private String sql;
+    private Select select;
+    private boolean parsed;
+    /** whether the statement was parsed for this handle alone, only then it may be rewritten */
+    private boolean owned;
+    /** whether the statement may have been rewritten since the sql was rendered */
+    private boolean stale;
+
+    private SqlHandle(String sql) {
+        this.sql = sql;
+    }
+
+    public static SqlHandle of(String sql) {
+        return new SqlHandle(sql);
+    }
+
+    /** The sql of the current statement, rendered at most once per rewrite. */
+    public String getSql() {
+        if (stale) {
+            sql = select.toString();
+            stale = false;
+        }
+        return sql;
+    }
+
+    public boolean isBlank() {
+        return !stale && StringUtils.isBlank(sql);
+    }
+
+    /** The statement to inspect, it must not be modified. Null when the sql is not a select. */
+    Select getSelect() {
+        if (!parsed) {
+            select = SqlSelectHelper.getReadOnlySelect(sql);
+            parsed = true;
+        }
+        return select;
+    }
+
+    List<PlainSelect> getPlainSelects() {
+        return SqlSelectHelper.getPlainSelect(getSelect());
+    }
+
+    /**
+     * The statement to rewrite in place, null when the sql is not a select. A statement shared
+     * with other sql texts is never modified, the first rewrite parses one of its own. From then on
+     * the sql is rendered from the statement, also when the rewrite did not change it.
+     */
+    Select edit() {
+        if (!owned) {
+            select = SqlSelectHelper.getSelect(sql);
+            parsed = true;
+            owned = true;
+        }
+        stale = select != null;
+        return select;
+    }
+
+    @Override
+    public String toString() {
+        return getSql();
+    }
+}
@@ -67,9 +67,16 @@ public class SqlRemoveHelper {
     }
 
     public static String removeAsteriskAndAddFields(String sql, Set<String> needAddDefaultFields) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        removeAsteriskAndAddFields(handle, needAddDefaultFields);
+        return handle.getSql();
+    }
+
+    public static void removeAsteriskAndAddFields(SqlHandle sql,
+            Set<String> needAddDefaultFields) {
+        Select selectStatement = sql.edit();
         if (isInvalidSelect(selectStatement)) {
-            return sql;
+            return;
         }
         List<SelectItem<?>> selectItems = ((PlainSelect) selectStatement).getSelectItems();
         if (selectItems.stream().anyMatch(item -> item.getExpression() instanceof AllColumns)) {
@@ -81,13 +88,18 @@ public class SqlRemoveHelper {
             }
             selectItems.addAll(columnSelectItems);
         }
-        return selectStatement.toString();
     }
 
     public static String removeSameFieldFromSelect(String sql) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        removeSameFieldFromSelect(handle);
+        return handle.getSql();
+    }
+
+    public static void removeSameFieldFromSelect(SqlHandle sql) {
+        Select selectStatement = sql.edit();
         if (isInvalidSelect(selectStatement)) {
-            return sql;
+            return;
         }
         List<SelectItem<?>> selectItems = ((PlainSelect) selectStatement).getSelectItems();
         Set<String> fields = new HashSet<>();
@@ -100,13 +112,18 @@ public class SqlRemoveHelper {
             return false;
         });
         ((PlainSelect) selectStatement).setSelectItems(selectItems);
-        return selectStatement.toString();
     }
 
     public static String removeWhereCondition(String sql, Set<String> removeFieldNames) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        removeWhereCondition(handle, removeFieldNames);
+        return handle.getSql();
+    }
+
+    public static void removeWhereCondition(SqlHandle sql, Set<String> removeFieldNames) {
+        Select selectStatement = sql.edit();
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return;
         }
         selectStatement.accept(new SelectVisitorAdapter() {
             @Override
@@ -114,7 +131,7 @@ public class SqlRemoveHelper {
                 removeWhereCondition(plainSelect.getWhere(), removeFieldNames);
             }
         });
-        return removeNumberFilter(selectStatement.toString());
+        removeNumberFilter(sql);
     }
 
     private static void removeWhereCondition(Expression whereExpression,
@@ -126,9 +143,15 @@ public class SqlRemoveHelper {
     }
 
     public static String removeNumberFilter(String sql) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        removeNumberFilter(handle);
+        return handle.getSql();
+    }
+
+    public static void removeNumberFilter(SqlHandle sql) {
+        Select selectStatement = sql.edit();
         if (isInvalidSelect(selectStatement)) {
-            return sql;
+            return;
         }
         Expression where = ((PlainSelect) selectStatement).getWhere();
         Expression having = ((PlainSelect) selectStatement).getHaving();
@@ -140,7 +163,6 @@ public class SqlRemoveHelper {
         } catch (Exception e) {
             log.info("replaceFunction has an exception:{}", e.toString());
         }
-        return selectStatement.toString();
     }
 
     private static void removeWhereExpression(Expression whereExpression,
@@ -260,13 +282,19 @@ public class SqlRemoveHelper {
     }
 
     public static String removeGroupBy(String sql, Set<String> fields) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        removeGroupBy(handle, fields);
+        return handle.getSql();
+    }
+
+    public static void removeGroupBy(SqlHandle sql, Set<String> fields) {
+        Select selectStatement = sql.edit();
         if (isInvalidSelect(selectStatement)) {
-            return sql;
+            return;
         }
         GroupByElement groupByElement = ((PlainSelect) selectStatement).getGroupBy();
         if (groupByElement == null) {
-            return sql;
+            return;
         }
         ExpressionList groupByExpressionList = groupByElement.getGroupByExpressionList();
         groupByExpressionList.getExpressions().removeIf(expression -> {
@@ -279,13 +307,18 @@ public class SqlRemoveHelper {
         if (CollectionUtils.isEmpty(groupByExpressionList.getExpressions())) {
             ((PlainSelect) selectStatement).setGroupByElement(null);
         }
-        return selectStatement.toString();
     }
 
     public static String removeSelect(String sql, Set<String> fields) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        removeSelect(handle, fields);
+        return handle.getSql();
+    }
+
+    public static void removeSelect(SqlHandle sql, Set<String> fields) {
+        Select selectStatement = sql.edit();
         if (isInvalidSelect(selectStatement)) {
-            return sql;
+            return;
         }
         List<SelectItem<?>> selectItems = ((PlainSelect) selectStatement).getSelectItems();
         Iterator<SelectItem<?>> iterator = selectItems.iterator();
@@ -303,7 +336,6 @@ public class SqlRemoveHelper {
         if (selectItems.isEmpty()) {
             selectItems.add(new SelectItem(new AllColumns()));
         }
-        return selectStatement.toString();
     }
 
     public static Expression filteredExpression(Expression where, SqlEditEnum sqlEditEnum)
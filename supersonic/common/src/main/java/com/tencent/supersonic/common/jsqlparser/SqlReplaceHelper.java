@@ -80,9 +80,29 @@ public class SqlReplaceHelper {
 
     public static String replaceValue(String sql,
             Map<String, Map<String, String>> filedNameToValueMap, boolean exactReplace) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        replaceValue(handle, filedNameToValueMap, exactReplace);
+        return handle.getSql();
+    }
+
+    public static void replaceValue(SqlHandle sql,
+            Map<String, Map<String, String>> filedNameToValueMap) {
+        replaceValue(sql, filedNameToValueMap, true);
+    }
+
+    public static void replaceValue(SqlHandle sql,
+            Map<String, Map<String, String>> filedNameToValueMap, boolean exactReplace) {
+        replaceValue(sql.edit(), filedNameToValueMap, exactReplace);
+    }
+
+    /**
+     * Replaces the where values of a parsed statement in place, for callers applying several
+     * rewrites to one statement. Returns false when the statement is not a plain select.
+     */
+    public static boolean replaceValue(Select selectStatement,
+            Map<String, Map<String, String>> filedNameToValueMap, boolean exactReplace) {
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return false;
         }
         List<PlainSelect> plainSelects = SqlSelectHelper.getPlainSelect(selectStatement);
         for (PlainSelect plainSelect : plainSelects) {
@@ -93,14 +113,21 @@ public class SqlReplaceHelper {
                 where.accept(visitor);
             }
         }
-        return selectStatement.toString();
+        return true;
     }
 
     public static String replaceFieldNameByValue(String sql,
             Map<String, Set<String>> fieldValueToFieldNames) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        replaceFieldNameByValue(handle, fieldValueToFieldNames);
+        return handle.getSql();
+    }
+
+    public static void replaceFieldNameByValue(SqlHandle sql,
+            Map<String, Set<String>> fieldValueToFieldNames) {
+        Select selectStatement = sql.edit();
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return;
         }
         List<PlainSelect> plainSelectList = new ArrayList<>();
         plainSelectList.add((PlainSelect) selectStatement);
@@ -112,7 +139,6 @@ public class SqlReplaceHelper {
                 where.accept(visitor);
             }
         }
-        return selectStatement.toString();
     }
 
     public static void getFromSelect(FromItem fromItem, List<PlainSelect> plainSelectList) {
@@ -143,7 +169,21 @@ public class SqlReplaceHelper {
 
     public static String replaceFields(String sql, Map<String, String> fieldNameMap,
             boolean exactReplace) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        replaceFields(handle, fieldNameMap, exactReplace);
+        return handle.getSql();
+    }
+
+    public static void replaceFields(SqlHandle sql, Map<String, String> fieldNameMap) {
+        replaceFields(sql, fieldNameMap, false);
+    }
+
+    public static void replaceFields(SqlHandle sql, Map<String, String> fieldNameMap,
+            boolean exactReplace) {
+        Select selectStatement = sql.edit();
+        if (selectStatement == null) {
+            return;
+        }
         Set<Select> plainSelectList = SqlSelectHelper.getAllSelect(selectStatement);
         for (Select plainSelect : plainSelectList) {
             if (plainSelect instanceof PlainSelect) {
@@ -155,7 +195,6 @@ public class SqlReplaceHelper {
                         (SetOperationList) plainSelect);
             }
         }
-        return selectStatement.toString();
     }
 
     private static void replaceFieldsInPlainOneSelect(Map<String, String> fieldNameMap,
@@ -237,9 +276,20 @@ public class SqlReplaceHelper {
 
     public static String replaceFunction(String sql, Map<String, String> functionMap,
             Map<String, UnaryOperator> functionCall) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        replaceFunction(handle, functionMap, functionCall);
+        return handle.getSql();
+    }
+
+    public static void replaceFunction(SqlHandle sql, Map<String, String> functionMap) {
+        replaceFunction(sql, functionMap, null);
+    }
+
+    public static void replaceFunction(SqlHandle sql, Map<String, String> functionMap,
+            Map<String, UnaryOperator> functionCall) {
+        Select selectStatement = sql.edit();
         if (!(selectStatement instanceof PlainSelect)) {
-            return sql;
+            return;
         }
         List<PlainSelect> plainSelectList = new ArrayList<>();
         plainSelectList.add((PlainSelect) selectStatement);
@@ -247,7 +297,6 @@ public class SqlReplaceHelper {
         for (PlainSelect plainSelect : plainSelects) {
             replaceFunction(functionMap, functionCall, plainSelect);
         }
-        return selectStatement.toString();
     }
 
     private static void replaceFunction(Map<String, String> functionMap,
@@ -591,7 +640,13 @@ public class SqlReplaceHelper {
     }
 
     public static String replaceSqlByExpression(String sql, Map<String, String> replace) {
-        Select selectStatement = SqlSelectHelper.getSelect(sql);
+        SqlHandle handle = SqlHandle.of(sql);
+        replaceSqlByExpression(handle, replace);
+        return handle.getSql();
+    }
+
+    public static void replaceSqlByExpression(SqlHandle sql, Map<String, String> replace) {
+        Select selectStatement = sql.edit();
         List<PlainSelect> plainSelectList = new ArrayList<>();
         if (selectStatement instanceof PlainSelect) {
             plainSelectList.add((PlainSelect) selectStatement);
@@ -604,13 +659,12 @@ public class SqlReplaceHelper {
                 });
             }
         } else {
-            return sql;
+            return;
         }
         List<PlainSelect> plainSelects = SqlSelectHelper.getPlainSelects(plainSelectList);
         for (PlainSelect plainSelect : plainSelects) {
             replacePlainSelectByExpr(plainSelect, replace);
         }
-        return selectStatement.toString();
     }
 
     public static void replaceSqlByPositions(Select select) {
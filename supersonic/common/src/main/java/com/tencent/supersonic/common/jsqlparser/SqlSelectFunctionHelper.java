@@ -32,6 +32,10 @@ public class SqlSelectFunctionHelper {
             Arrays.asList("SUM", "COUNT", "MAX", "MIN", "AVG");
 
     public static boolean hasAggregateFunction(String sql) {
+        return hasAggregateFunction(SqlHandle.of(sql));
+    }
+
+    public static boolean hasAggregateFunction(SqlHandle sql) {
         return !CollectionUtils.isEmpty(getFunctions(sql));
     }
 
@@ -44,7 +48,12 @@ public class SqlSelectFunctionHelper {
     }
 
     public static Set<String> getFunctions(String sql) {
-        Set<Select> allSelect = SqlSelectHelper.getAllSelect(sql);
+        return getFunctions(SqlHandle.of(sql));
+    }
+
+    public static Set<String> getFunctions(SqlHandle sql) {
+        Set<Select> allSelect =
+                SqlSelectHelper.getAllSelect(sql.getSelect());
         Set<String> result = new HashSet<>();
         for (Select select : allSelect) {
             if (!(select instanceof PlainSelect)) {
@@ -110,7 +119,11 @@ public class SqlSelectFunctionHelper {
     }
 
     public static boolean hasAsterisk(String sql) {
-        List<PlainSelect> plainSelectList = SqlSelectHelper.getPlainSelect(sql);
+        return hasAsterisk(SqlHandle.of(sql));
+    }
+
+    public static boolean hasAsterisk(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         if (CollectionUtils.isEmpty(plainSelectList)) {
             return false;
         }
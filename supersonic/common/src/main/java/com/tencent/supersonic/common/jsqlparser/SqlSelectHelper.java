@@ -1,5 +1,7 @@
 package com.tencent.supersonic.common.jsqlparser;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.tencent.supersonic.common.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.JSQLParserException;
@@ -49,6 +51,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -57,8 +60,14 @@ import java.util.stream.Collectors;
 @Slf4j
 public class SqlSelectHelper {
 
+    /** One llm generated sql is inspected many times by the correctors, keep it parsed. */
+    private static final Cache<String, Select> READ_ONLY_SELECTS =
+            Caffeine.newBuilder().maximumWeight(4 * 1024 * 1024)
+                    .weigher((String sql, Select select) -> sql.length())
+                    .expireAfterAccess(10, TimeUnit.MINUTES).build();
+
     public static List<FieldExpression> getFilterExpression(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        List<PlainSelect> plainSelectList = getReadOnlyPlainSelect(sql);
         Set<FieldExpression> result = new HashSet<>();
         for (PlainSelect plainSelect : plainSelectList) {
             if (Objects.isNull(plainSelect)) {
@@ -80,7 +89,11 @@ public class SqlSelectHelper {
     }
 
     public static List<String> getWhereFields(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        return getWhereFields(SqlHandle.of(sql));
+    }
+
+    public static List<String> getWhereFields(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         if (CollectionUtils.isEmpty(plainSelectList)) {
             return new ArrayList<>();
         }
@@ -99,7 +112,11 @@ public class SqlSelectHelper {
     }
 
     public static List<String> gePureSelectFields(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        return gePureSelectFields(SqlHandle.of(sql));
+    }
+
+    public static List<String> gePureSelectFields(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         Set<String> result = new HashSet<>();
         plainSelectList.stream().forEach(plainSelect -> {
             List<SelectItem<?>> selectItems = plainSelect.getSelectItems();
@@ -115,7 +132,11 @@ public class SqlSelectHelper {
     }
 
     public static List<String> getSelectFields(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        return getSelectFields(SqlHandle.of(sql));
+    }
+
+    public static List<String> getSelectFields(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         if (CollectionUtils.isEmpty(plainSelectList)) {
             return new ArrayList<>();
         }
@@ -161,7 +182,7 @@ public class SqlSelectHelper {
     }
 
     public static Boolean hasSubSelect(String sql) {
-        Select selectStatement = getSelect(sql);
+        Select selectStatement = getReadOnlySelect(sql);
         if (selectStatement == null) {
             return false;
         }
@@ -202,6 +223,28 @@ public class SqlSelectHelper {
         }
     }
 
+    /**
+     * Returns a parsed statement shared by the read only helpers, it must not be modified. Helpers
+     * rewriting the sql use {@link #getSelect(String)}, which always parses a new statement.
+     */
+    static Select getReadOnlySelect(String sql) {
+        if (Objects.isNull(sql)) {
+            return getSelect(sql);
+        }
+        Select select = READ_ONLY_SELECTS.getIfPresent(sql);
+        if (select == null) {
+            select = getSelect(sql);
+            if (select != null) {
+                READ_ONLY_SELECTS.put(sql, select);
+            }
+        }
+        return select;
+    }
+
+    static List<PlainSelect> getReadOnlyPlainSelect(String sql) {
+        return getPlainSelect(getReadOnlySelect(sql));
+    }
+
     public static Select getSelect(String sql) {
         Statement statement = null;
         try {
@@ -262,7 +305,7 @@ public class SqlSelectHelper {
     }
 
     public static List<String> getAllSelectFields(String sql) {
-        List<PlainSelect> plainSelects = getPlainSelects(getPlainSelect(sql));
+        List<PlainSelect> plainSelects = getPlainSelects(getReadOnlyPlainSelect(sql));
         Set<String> results = new HashSet<>();
         for (PlainSelect plainSelect : plainSelects) {
             List<String> fields = getFieldsByPlainSelect(plainSelect);
@@ -331,7 +374,11 @@ public class SqlSelectHelper {
     }
 
     public static List<FieldExpression> getWhereExpressions(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        return getWhereExpressions(SqlHandle.of(sql));
+    }
+
+    public static List<FieldExpression> getWhereExpressions(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         Set<FieldExpression> result = new HashSet<>();
         for (PlainSelect plainSelect : plainSelectList) {
             if (Objects.isNull(plainSelect)) {
@@ -372,7 +419,7 @@ public class SqlSelectHelper {
     }
 
     public static List<FieldExpression> getHavingExpressions(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        List<PlainSelect> plainSelectList = getReadOnlyPlainSelect(sql);
         Set<FieldExpression> result = new HashSet<>();
         for (PlainSelect plainSelect : plainSelectList) {
             if (Objects.isNull(plainSelect)) {
@@ -387,7 +434,11 @@ public class SqlSelectHelper {
     }
 
     public static List<String> getOrderByFields(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        return getOrderByFields(SqlHandle.of(sql));
+    }
+
+    public static List<String> getOrderByFields(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         Set<String> result = new HashSet<>();
         for (PlainSelect plainSelect : plainSelectList) {
             if (Objects.isNull(plainSelect)) {
@@ -418,7 +469,7 @@ public class SqlSelectHelper {
     }
 
     public static List<FieldExpression> getOrderByExpressions(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        List<PlainSelect> plainSelectList = getReadOnlyPlainSelect(sql);
         HashSet<FieldExpression> result = new HashSet<>();
         for (PlainSelect plainSelect : plainSelectList) {
             if (Objects.isNull(plainSelect)) {
@@ -430,7 +481,11 @@ public class SqlSelectHelper {
     }
 
     public static List<String> getGroupByFields(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        return getGroupByFields(SqlHandle.of(sql));
+    }
+
+    public static List<String> getGroupByFields(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         HashSet<String> result = new HashSet<>();
         for (PlainSelect plainSelect : plainSelectList) {
             if (Objects.isNull(plainSelect)) {
@@ -460,7 +515,11 @@ public class SqlSelectHelper {
     }
 
     public static List<String> getAggregateFields(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        return getAggregateFields(SqlHandle.of(sql));
+    }
+
+    public static List<String> getAggregateFields(SqlHandle sql) {
+        List<PlainSelect> plainSelectList = sql.getPlainSelects();
         Set<String> result = new HashSet<>();
         for (PlainSelect plainSelect : plainSelectList) {
             if (Objects.isNull(plainSelect)) {
@@ -484,7 +543,7 @@ public class SqlSelectHelper {
     }
 
     public static List<String> getAggregateAsFields(String sql) {
-        List<PlainSelect> plainSelectList = getPlainSelect(sql);
+        List<PlainSelect> plainSelectList = getReadOnlyPlainSelect(sql);
         Set<String> result = new HashSet<>();
         for (PlainSelect plainSelect : plainSelectList) {
             if (Objects.isNull(plainSelect)) {
@@ -513,7 +572,11 @@ public class SqlSelectHelper {
     }
 
     public static boolean hasGroupBy(String sql) {
-        Select selectStatement = getSelect(sql);
+        return hasGroupBy(SqlHandle.of(sql));
+    }
+
+    public static boolean hasGroupBy(SqlHandle sql) {
+        Select selectStatement = sql.getSelect();
 
         if (!(selectStatement instanceof PlainSelect)) {
             return false;
@@ -586,7 +649,7 @@ public class SqlSelectHelper {
     }
 
     public static Boolean hasWith(String sql) {
-        Select selectStatement = getSelect(sql);
+        Select selectStatement = getReadOnlySelect(sql);
         if (selectStatement == null) {
             return false;
         }
@@ -628,7 +691,10 @@ public class SqlSelectHelper {
     }
 
     public static List<String> getWithName(String sql) {
-        Select selectStatement = getSelect(sql);
+        return getWithName(getReadOnlySelect(sql));
+    }
+
+    public static List<String> getWithName(Select selectStatement) {
         if (selectStatement == null) {
             return new ArrayList<>();
         }
@@ -738,7 +804,7 @@ public class SqlSelectHelper {
     }
 
     public static Boolean hasLimit(String querySql) {
-        Select selectStatement = SqlSelectHelper.getSelect(querySql);
+        Select selectStatement = getReadOnlySelect(querySql);
         if (selectStatement instanceof PlainSelect) {
             PlainSelect plainSelect = selectStatement.getPlainSelect();
             Limit limit = plainSelect.getLimit();
@@ -762,7 +828,7 @@ public class SqlSelectHelper {
     }
 
     public static Map<String, Set<String>> getFieldsWithSubQuery(String sql) {
-        List<PlainSelect> plainSelects = getPlainSelects(getPlainSelect(sql));
+        List<PlainSelect> plainSelects = getPlainSelects(getReadOnlyPlainSelect(sql));
         Map<String, Set<String>> results = new HashMap<>();
         for (PlainSelect plainSelect : plainSelects) {
             getFieldsWithSubQuery(plainSelect, results);
@@ -80,7 +80,11 @@ public class SqlValidHelper {
     }
 
     public static boolean isComplexSQL(String sql) {
-        List<PlainSelect> plainSelect = SqlSelectHelper.getPlainSelect(sql);
+        return isComplexSQL(SqlHandle.of(sql));
+    }
+
+    public static boolean isComplexSQL(SqlHandle sql) {
+        List<PlainSelect> plainSelect = sql.getPlainSelects();
         return !CollectionUtils.isEmpty(plainSelect) && plainSelect.size() >= 2;
     }
 }
@@ -2,8 +2,10 @@ package com.tencent.supersonic.common.pojo;
 
 import lombok.Data;
 
+import java.io.Serializable;
+
 @Data
-public class DataFormat {
+public class DataFormat implements Serializable {
 
     private boolean needMultiply100;
 
@@ -5,13 +5,14 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import java.io.Serializable;
 import java.util.List;
 
 @AllArgsConstructor
 @Data
 @ToString
 @NoArgsConstructor
-public class QueryAuthorization {
+public class QueryAuthorization implements Serializable {
 
     private String domainName;
     private List<String> dimensionFilters;
@@ -17,7 +17,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 @Slf4j
 public class InMemoryEmbeddingStoreFactory extends BaseEmbeddingStoreFactory {
@@ -61,7 +60,6 @@ public class InMemoryEmbeddingStoreFactory extends BaseEmbeddingStoreFactory {
                     && !collectionName.equals(embeddingConfig.getMetaCollectionName())
                     && !collectionName.equals(embeddingConfig.getText2sqlCollectionName())) {
                 embeddingStore = InMemoryEmbeddingStore.fromFile(filePath);
-                embeddingStore.entries = new CopyOnWriteArraySet<>(embeddingStore.entries);
                 log.info("embeddingStore reload from file:{}", filePath);
             }
         } catch (Exception e) {
@@ -1,62 +1,90 @@
 package dev.langchain4j.store.embedding.inmemory;
 
+import com.google.gson.Gson;
 import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.spi.store.embedding.inmemory.InMemoryEmbeddingStoreJsonCodecFactory;
-import dev.langchain4j.store.embedding.CosineSimilarity;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.RelevanceScore;
 import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Or;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.PriorityQueue;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.IntStream;
 
 import static dev.langchain4j.internal.Utils.randomUUID;
 import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
 import static dev.langchain4j.internal.ValidationUtils.ensureNotEmpty;
 import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
-import static dev.langchain4j.spi.ServiceHelper.loadFactories;
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.util.Comparator.comparingDouble;
 import static java.util.stream.Collectors.toList;
 
 /**
  * An {@link EmbeddingStore} that stores embeddings in memory.
  *
  * <p>
- * Uses a brute force approach by iterating over all embeddings to find the best matches.
+ * Vectors are normalized when added and kept in one contiguous {@code float[]}, so the cosine
+ * similarity is a plain dot product over consecutive memory. Search is exact. The metadata of
+ * {@link TextSegment}s is indexed by key and value: {@link IsEqualTo}, {@link IsIn}, {@link And}
+ * and {@link Or} filters select their candidates from the index before any vector is scored.
  *
  * <p>
- * This store can be persisted using the {@link #serializeToJson()} and
- * {@link #serializeToFile(Path)} methods.
- *
- * <p>
- * It can also be recreated from JSON or a file using the {@link #fromJson(String)} and
- * {@link #fromFile(Path)} methods.
+ * This store can be persisted in a compact binary format using {@link #serializeToFile(Path)} and
+ * recreated with {@link #fromFile(Path)}, which also reads files written in the former JSON
+ * format. {@link #serializeToJson()} and {@link #fromJson(String)} keep the JSON format.
  *
  * @param <Embedded> The class of the object that has been embedded. Typically, it is
  *        {@link dev.langchain4j.data.segment.TextSegment}.
  */
 public class InMemoryEmbeddingStore<Embedded> implements EmbeddingStore<Embedded> {
 
-    public Set<Entry<Embedded>> entries = new CopyOnWriteArraySet<>();
+    private static final int MAGIC = 0x53324553;
+    private static final int FORMAT_VERSION = 1;
+    private static final Gson GSON = new Gson();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int dimension = -1;
+    private int size;
+    /** Normalized vectors, the vector of slot i starts at i * dimension. */
+    private float[] vectors = new float[0];
+    private float[] norms = new float[0];
+    private String[] ids = new String[0];
+    private Object[] embedded = new Object[0];
+    private final Map<String, Integer> idToSlot = new HashMap<>();
+    /** metadata key -> value -> slots. */
+    private final Map<String, Map<String, BitSet>> metadataIndex = new HashMap<>();
+    /** Slots without metadata, filters do not apply to them. */
+    private final BitSet unfiltered = new BitSet();
 
     @Override
     public String add(Embedding embedding) {
@@ -78,23 +106,14 @@ public class InMemoryEmbeddingStore<Embedded> implements EmbeddingStore<Embedded
     }
 
     public void add(String id, Embedding embedding, Embedded embedded) {
-        entries.add(new Entry<>(id, embedding, embedded));
-    }
-
-    private List<String> add(List<Entry<Embedded>> newEntries) {
-
-        entries.addAll(newEntries);
-
-        return newEntries.stream().map(entry -> entry.id).collect(toList());
+        add(Collections.singletonList(id), Collections.singletonList(embedding),
+                Collections.singletonList(embedded));
     }
 
     @Override
     public List<String> addAll(List<Embedding> embeddings) {
-
-        List<Entry<Embedded>> newEntries = embeddings.stream()
-                .map(embedding -> new Entry<Embedded>(randomUUID(), embedding)).collect(toList());
-
-        return add(newEntries);
+        List<String> newIds = embeddings.stream().map(embedding -> randomUUID()).collect(toList());
+        return add(newIds, embeddings, Collections.nCopies(embeddings.size(), null));
     }
 
     @Override
@@ -103,84 +122,374 @@ public class InMemoryEmbeddingStore<Embedded> implements EmbeddingStore<Embedded
             throw new IllegalArgumentException(
                     "The list of embeddings and embedded must have the same size");
         }
+        List<String> newIds = embeddings.stream().map(embedding -> randomUUID()).collect(toList());
+        return add(newIds, embeddings, embedded);
+    }
 
-        List<Entry<Embedded>> newEntries = IntStream.range(0, embeddings.size())
-                .mapToObj(i -> new Entry<>(randomUUID(), embeddings.get(i), embedded.get(i)))
-                .collect(toList());
-
-        return add(newEntries);
+    private List<String> add(List<String> newIds, List<Embedding> embeddings,
+            List<Embedded> newEmbedded) {
+        lock.writeLock().lock();
+        try {
+            // validate the whole batch first, a rejected entry must leave the store unchanged
+            int expectedDimension = dimension;
+            for (int i = 0; i < newIds.size(); i++) {
+                ensureNotBlank(newIds.get(i), "id");
+                float[] vector = ensureNotNull(embeddings.get(i), "embedding").vector();
+                if (expectedDimension < 0) {
+                    expectedDimension = vector.length;
+                }
+                if (vector.length != expectedDimension) {
+                    throw new IllegalArgumentException(String.format(
+                            "The embedding dimension %s does not match the store dimension %s",
+                            vector.length, expectedDimension));
+                }
+            }
+            ensureCapacity(size + newIds.size(), embeddings);
+            for (int i = 0; i < newIds.size(); i++) {
+                String id = newIds.get(i);
+                float[] vector = embeddings.get(i).vector();
+                Integer slot = idToSlot.get(id);
+                if (slot != null) {
+                    unindex(slot);
+                } else {
+                    slot = size++;
+                }
+                put(slot, id, vector, newEmbedded.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return newIds;
     }
 
     @Override
     public void removeAll(Collection<String> ids) {
         ensureNotEmpty(ids, "ids");
 
-        entries.removeIf(entry -> ids.contains(entry.id));
+        lock.writeLock().lock();
+        try {
+            int[] slots = ids.stream().map(idToSlot::get).filter(slot -> slot != null)
+                    .mapToInt(Integer::intValue).sorted().toArray();
+            removeSlots(slots);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void removeAll(Filter filter) {
         ensureNotNull(filter, "filter");
 
-        entries.removeIf(entry -> {
-            if (entry.embedded instanceof TextSegment) {
-                return filter.test(((TextSegment) entry.embedded).metadata());
-            } else if (entry.embedded == null) {
-                return false;
-            } else {
-                throw new UnsupportedOperationException("Not supported yet.");
-            }
-        });
+        lock.writeLock().lock();
+        try {
+            int[] slots = IntStream.range(0, size).filter(slot -> {
+                if (embedded[slot] instanceof TextSegment) {
+                    return filter.test(((TextSegment) embedded[slot]).metadata());
+                } else if (embedded[slot] == null) {
+                    return false;
+                } else {
+                    throw new UnsupportedOperationException("Not supported yet.");
+                }
+            }).toArray();
+            removeSlots(slots);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void removeAll() {
-        entries.clear();
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(ids, 0, size, null);
+            Arrays.fill(embedded, 0, size, null);
+            size = 0;
+            idToSlot.clear();
+            metadataIndex.clear();
+            unfiltered.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public EmbeddingSearchResult<Embedded> search(EmbeddingSearchRequest embeddingSearchRequest) {
+        Filter filter = embeddingSearchRequest.filter();
+        int maxResults = embeddingSearchRequest.maxResults();
+        double minScore = embeddingSearchRequest.minScore();
+        float[] query = embeddingSearchRequest.queryEmbedding().vector().clone();
+        normalize(query, 0, query.length);
+
+        Comparator<ScoredSlot> comparator = (a, b) -> Double.compare(a.score, b.score);
+        PriorityQueue<ScoredSlot> matches = new PriorityQueue<>(comparator);
+        List<EmbeddingMatch<Embedded>> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return new EmbeddingSearchResult<>(result);
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException(String.format(
+                        "Length of vector a (%s) must be equal to the length of vector b (%s)",
+                        query.length, dimension));
+            }
+            BitSet candidates = filter == null ? null : candidates(filter);
+            if (candidates != null) {
+                candidates.or(unfiltered);
+            }
+            int slot = candidates == null ? 0 : candidates.nextSetBit(0);
+            while (slot >= 0 && slot < size) {
+                if (filter == null || !(embedded[slot] instanceof TextSegment)
+                        || filter.test(((TextSegment) embedded[slot]).metadata())) {
+                    double cosineSimilarity = dot(query, slot * dimension);
+                    double score = RelevanceScore.fromCosineSimilarity(cosineSimilarity);
+                    if (score >= minScore && (matches.size() < maxResults
+                            || score > matches.peek().score)) {
+                        matches.add(new ScoredSlot(slot, score));
+                        if (matches.size() > maxResults) {
+                            matches.poll();
+                        }
+                    }
+                }
+                slot = candidates == null ? slot + 1 : candidates.nextSetBit(slot + 1);
+            }
+            List<ScoredSlot> scoredSlots = new ArrayList<>(matches);
+            scoredSlots.sort(comparator.reversed());
+            for (ScoredSlot scoredSlot : scoredSlots) {
+                result.add(new EmbeddingMatch<>(scoredSlot.score, ids[scoredSlot.slot],
+                        embeddingOf(scoredSlot.slot), embeddedOf(scoredSlot.slot)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new EmbeddingSearchResult<>(result);
+    }
+
+    /** Dot product with the vector at the offset, four partial sums let the loop pipeline. */
+    private double dot(float[] query, int offset) {
+        float[] data = vectors;
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            s0 += query[i] * data[offset + i];
+            s1 += query[i + 1] * data[offset + i + 1];
+            s2 += query[i + 2] * data[offset + i + 2];
+            s3 += query[i + 3] * data[offset + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += query[i] * data[offset + i];
+        }
+        return (double) s0 + s1 + s2 + s3;
+    }
 
-        Comparator<EmbeddingMatch<Embedded>> comparator = comparingDouble(EmbeddingMatch::score);
-        PriorityQueue<EmbeddingMatch<Embedded>> matches = new PriorityQueue<>(comparator);
+    /** Returns the slots that may match the filter, null when the index can not tell. */
+    private BitSet candidates(Filter filter) {
+        if (filter instanceof IsEqualTo) {
+            IsEqualTo isEqualTo = (IsEqualTo) filter;
+            return posting(isEqualTo.key(), isEqualTo.comparisonValue());
+        }
+        if (filter instanceof IsIn) {
+            IsIn isIn = (IsIn) filter;
+            BitSet result = new BitSet();
+            for (Object value : isIn.comparisonValues()) {
+                result.or(posting(isIn.key(), value));
+            }
+            return result;
+        }
+        if (filter instanceof And) {
+            BitSet left = candidates(((And) filter).left());
+            BitSet right = candidates(((And) filter).right());
+            if (left == null) {
+                return right;
+            }
+            if (right != null) {
+                left.and(right);
+            }
+            return left;
+        }
+        if (filter instanceof Or) {
+            BitSet left = candidates(((Or) filter).left());
+            BitSet right = candidates(((Or) filter).right());
+            if (left == null || right == null) {
+                return null;
+            }
+            left.or(right);
+            return left;
+        }
+        return null;
+    }
 
-        Filter filter = embeddingSearchRequest.filter();
+    private BitSet posting(String key, Object value) {
+        Map<String, BitSet> values = metadataIndex.get(key);
+        BitSet slots = values == null ? null : values.get(valueKey(value));
+        return slots == null ? new BitSet() : (BitSet) slots.clone();
+    }
 
-        for (Entry<Embedded> entry : entries) {
+    private static String valueKey(Object value) {
+        if (value instanceof Number) {
+            // numbers are compared by value, 1 and 1.0 are equal
+            return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+        }
+        return String.valueOf(value);
+    }
 
-            if (filter != null && entry.embedded instanceof TextSegment) {
-                Metadata metadata = ((TextSegment) entry.embedded).metadata();
-                if (!filter.test(metadata)) {
-                    continue;
-                }
+    private void ensureCapacity(int capacity, List<Embedding> embeddings) {
+        if (dimension < 0 && !embeddings.isEmpty()) {
+            dimension = embeddings.get(0).vector().length;
+        }
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1) + 16);
+        vectors = Arrays.copyOf(vectors, newCapacity * Math.max(dimension, 0));
+        norms = Arrays.copyOf(norms, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        embedded = Arrays.copyOf(embedded, newCapacity);
+    }
+
+    private void put(int slot, String id, float[] vector, Object embeddedObject) {
+        int offset = slot * dimension;
+        System.arraycopy(vector, 0, vectors, offset, dimension);
+        norms[slot] = normalize(vectors, offset, dimension);
+        ids[slot] = id;
+        embedded[slot] = embeddedObject;
+        idToSlot.put(id, slot);
+        index(slot);
+    }
+
+    private static float normalize(float[] data, int offset, int length) {
+        double sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += data[i] * data[i];
+        }
+        float norm = (float) Math.sqrt(sum);
+        if (norm > 0) {
+            for (int i = offset; i < offset + length; i++) {
+                data[i] /= norm;
             }
+        }
+        return norm;
+    }
 
-            double cosineSimilarity = CosineSimilarity.between(entry.embedding,
-                    embeddingSearchRequest.queryEmbedding());
-            double score = RelevanceScore.fromCosineSimilarity(cosineSimilarity);
-            if (score >= embeddingSearchRequest.minScore()) {
-                matches.add(new EmbeddingMatch<>(score, entry.id, entry.embedding, entry.embedded));
-                if (matches.size() > embeddingSearchRequest.maxResults()) {
-                    matches.poll();
-                }
+    private void index(int slot) {
+        if (!(embedded[slot] instanceof TextSegment)) {
+            unfiltered.set(slot);
+            return;
+        }
+        Map<String, Object> metadata = ((TextSegment) embedded[slot]).metadata().toMap();
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            metadataIndex.computeIfAbsent(entry.getKey(), key -> new HashMap<>())
+                    .computeIfAbsent(valueKey(entry.getValue()), key -> new BitSet()).set(slot);
+        }
+    }
+
+    private void unindex(int slot) {
+        if (!(embedded[slot] instanceof TextSegment)) {
+            unfiltered.clear(slot);
+            return;
+        }
+        Map<String, Object> metadata = ((TextSegment) embedded[slot]).metadata().toMap();
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            Map<String, BitSet> values = metadataIndex.get(entry.getKey());
+            String valueKey = valueKey(entry.getValue());
+            BitSet slots = values == null ? null : values.get(valueKey);
+            if (slots == null) {
+                continue;
+            }
+            slots.clear(slot);
+            if (slots.isEmpty()) {
+                values.remove(valueKey);
             }
         }
+    }
 
-        List<EmbeddingMatch<Embedded>> result = new ArrayList<>(matches);
-        result.sort(comparator);
-        Collections.reverse(result);
+    /** Removes the slots, sorted ascending, by moving the last entry into each freed slot. */
+    private void removeSlots(int[] slots) {
+        for (int i = slots.length - 1; i >= 0; i--) {
+            int slot = slots[i];
+            int last = size - 1;
+            unindex(slot);
+            idToSlot.remove(ids[slot]);
+            if (slot != last) {
+                unindex(last);
+                System.arraycopy(vectors, last * dimension, vectors, slot * dimension, dimension);
+                norms[slot] = norms[last];
+                ids[slot] = ids[last];
+                embedded[slot] = embedded[last];
+                idToSlot.put(ids[slot], slot);
+                index(slot);
+            }
+            ids[last] = null;
+            embedded[last] = null;
+            size--;
+        }
+    }
 
-        return new EmbeddingSearchResult<>(result);
+    private Embedding embeddingOf(int slot) {
+        float[] vector = Arrays.copyOfRange(vectors, slot * dimension, (slot + 1) * dimension);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= norms[slot];
+        }
+        return new Embedding(vector);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Embedded embeddedOf(int slot) {
+        return (Embedded) embedded[slot];
     }
 
     public String serializeToJson() {
-        return loadCodec().toJson(this);
+        JsonStore store = new JsonStore();
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < size; slot++) {
+                store.entries.add(new JsonEntry(ids[slot], embeddingOf(slot), embedded[slot]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return GSON.toJson(store);
     }
 
+    /** Writes the store in the binary format, through a temporary file replacing the target. */
     public void serializeToFile(Path filePath) {
+        Path tmpPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(dimension);
+            out.writeInt(size);
+            for (int slot = 0; slot < size; slot++) {
+                writeString(out, ids[slot]);
+                out.writeFloat(norms[slot]);
+                int offset = slot * dimension;
+                for (int i = 0; i < dimension; i++) {
+                    out.writeFloat(vectors[offset + i]);
+                }
+                writeEmbedded(out, embedded[slot]);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
         try {
-            String json = serializeToJson();
-            Files.write(filePath, json.getBytes(), CREATE, TRUNCATE_EXISTING);
+            Files.move(tmpPath, filePath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -191,13 +500,24 @@ public class InMemoryEmbeddingStore<Embedded> implements EmbeddingStore<Embedded
     }
 
     public static InMemoryEmbeddingStore<TextSegment> fromJson(String json) {
-        return loadCodec().fromJson(json);
+        JsonStore store = GSON.fromJson(json, JsonStore.class);
+        InMemoryEmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        if (store == null || store.entries == null || store.entries.isEmpty()) {
+            return embeddingStore;
+        }
+        embeddingStore.add(store.entries.stream().map(entry -> entry.id).collect(toList()),
+                store.entries.stream().map(entry -> entry.embedding).collect(toList()),
+                store.entries.stream().map(entry -> entry.embedded).collect(toList()));
+        return embeddingStore;
     }
 
     public static InMemoryEmbeddingStore<TextSegment> fromFile(Path filePath) {
-        try {
-            String json = new String(Files.readAllBytes(filePath));
-            return fromJson(json);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 4 || buffer.getInt(0) != MAGIC) {
+                return fromJson(new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8));
+            }
+            return fromBuffer(buffer);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -207,47 +527,147 @@ public class InMemoryEmbeddingStore<Embedded> implements EmbeddingStore<Embedded
         return fromFile(Paths.get(filePath));
     }
 
-    private static class Entry<Embedded> {
-
-        String id;
-        Embedding embedding;
-        Embedded embedded;
-
-        Entry(String id, Embedding embedding) {
-            this(id, embedding, null);
+    private static InMemoryEmbeddingStore<TextSegment> fromBuffer(ByteBuffer buffer) {
+        buffer.getInt();
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported embedding store format " + version);
         }
-
-        Entry(String id, Embedding embedding, Embedded embedded) {
-            this.id = ensureNotBlank(id, "id");
-            this.embedding = ensureNotNull(embedding, "embedding");
-            this.embedded = embedded;
+        int dimension = buffer.getInt();
+        int count = buffer.getInt();
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        store.dimension = dimension;
+        store.vectors = new float[count * Math.max(dimension, 0)];
+        store.norms = new float[count];
+        store.ids = new String[count];
+        store.embedded = new Object[count];
+        for (int slot = 0; slot < count; slot++) {
+            store.ids[slot] = readString(buffer);
+            store.norms[slot] = buffer.getFloat();
+            buffer.asFloatBuffer().get(store.vectors, slot * dimension, dimension);
+            buffer.position(buffer.position() + dimension * Float.BYTES);
+            store.embedded[slot] = readEmbedded(buffer);
+            store.idToSlot.put(store.ids[slot], slot);
+            store.size++;
+            store.index(slot);
         }
+        return store;
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
+    private static void writeEmbedded(DataOutputStream out, Object embeddedObject)
+            throws IOException {
+        if (embeddedObject == null) {
+            out.writeByte(0);
+            return;
+        }
+        if (!(embeddedObject instanceof TextSegment)) {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+        TextSegment segment = (TextSegment) embeddedObject;
+        out.writeByte(1);
+        writeString(out, segment.text());
+        Map<String, Object> metadata = segment.metadata().toMap();
+        out.writeInt(metadata.size());
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            writeString(out, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Integer) {
+                out.writeByte('i');
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte('l');
+                out.writeLong((Long) value);
+            } else if (value instanceof Float) {
+                out.writeByte('f');
+                out.writeFloat((Float) value);
+            } else if (value instanceof Double) {
+                out.writeByte('d');
+                out.writeDouble((Double) value);
+            } else if (value instanceof UUID) {
+                out.writeByte('u');
+                writeString(out, value.toString());
+            } else {
+                out.writeByte('s');
+                writeString(out, String.valueOf(value));
             }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
+        }
+    }
+
+    private static TextSegment readEmbedded(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        String text = readString(buffer);
+        int count = buffer.getInt();
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = readString(buffer);
+            byte type = buffer.get();
+            switch (type) {
+                case 'i':
+                    metadata.put(key, buffer.getInt());
+                    break;
+                case 'l':
+                    metadata.put(key, buffer.getLong());
+                    break;
+                case 'f':
+                    metadata.put(key, buffer.getFloat());
+                    break;
+                case 'd':
+                    metadata.put(key, buffer.getDouble());
+                    break;
+                case 'u':
+                    metadata.put(key, UUID.fromString(readString(buffer)));
+                    break;
+                default:
+                    metadata.put(key, readString(buffer));
             }
-            Entry<?> that = (Entry<?>) o;
-            return Objects.equals(this.id, that.id)
-                    && Objects.equals(this.embedding, that.embedding)
-                    && Objects.equals(this.embedded, that.embedded);
         }
+        return TextSegment.from(text, new Metadata(metadata));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class ScoredSlot {
+
+        private final int slot;
+        private final double score;
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(id, embedding, embedded);
+        ScoredSlot(int slot, double score) {
+            this.slot = slot;
+            this.score = score;
         }
     }
 
-    private static InMemoryEmbeddingStoreJsonCodec loadCodec() {
-        for (InMemoryEmbeddingStoreJsonCodecFactory factory : loadFactories(
-                InMemoryEmbeddingStoreJsonCodecFactory.class)) {
-            return factory.create();
+    /** Layout of the JSON format, the same as written by the former entry set. */
+    private static class JsonStore {
+
+        private List<JsonEntry> entries = new ArrayList<>();
+    }
+
+    private static class JsonEntry {
+
+        private String id;
+        private Embedding embedding;
+        private TextSegment embedded;
+
+        JsonEntry(String id, Embedding embedding, Object embedded) {
+            this.id = id;
+            this.embedding = embedding;
+            if (embedded != null && !(embedded instanceof TextSegment)) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+            this.embedded = (TextSegment) embedded;
         }
-        return new GsonInMemoryEmbeddingStoreJsonCodec();
     }
 }
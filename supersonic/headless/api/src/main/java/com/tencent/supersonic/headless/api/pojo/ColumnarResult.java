@@ -0,0 +1,523 @@
+package com.tencent.supersonic.headless.api.pojo;
+
+import com.tencent.supersonic.common.pojo.QueryColumn;
+import com.tencent.supersonic.common.util.DateUtils;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, column oriented query result. Integral and floating point values are kept in primitive
+ * arrays, decimals of one scale as unscaled longs, temporal values as epoch numbers and strings are
+ * dictionary encoded. Values are
+ * addressed by position; the row maps used by processors are built on demand, see
+ * {@link ColumnarRowList}. Once built the result is not modified and can be shared.
+ */
+public class ColumnarResult implements Serializable {
+
+    private static final DateTimeFormatter DATE_FORMATTER =
+            DateTimeFormatter.ofPattern(DateUtils.DEFAULT_DATE_FORMAT);
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern(DateUtils.DEFAULT_TIME_FORMAT);
+
+    @Getter
+    private final List<QueryColumn> columns;
+    private final Column[] data;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    @Getter
+    private int rowCount;
+
+    public ColumnarResult(List<QueryColumn> columns) {
+        this.columns = columns;
+        this.data = new Column[columns.size()];
+        for (int col = columns.size() - 1; col >= 0; col--) {
+            // the first column of a duplicated name wins, as in a scan
+            columnIndexes.put(columns.get(col).getNameEn(), col);
+        }
+    }
+
+    public enum ColumnType {
+        EMPTY, INT, LONG, FLOAT, DOUBLE, DECIMAL, STRING, TEMPORAL, OBJECT
+    }
+
+    /** Converts a raw jdbc value to the value exposed in query results. */
+    public static Object normalize(Object value) {
+        if (value instanceof LocalDate) {
+            return ((LocalDate) value).format(DATE_FORMATTER);
+        } else if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).format(TIME_FORMATTER);
+        } else if (value instanceof java.util.Date) {
+            return DateUtils.format((java.util.Date) value);
+        } else if (value instanceof byte[]) {
+            return new String((byte[]) value);
+        }
+        return value;
+    }
+
+    /** Appends a row of raw jdbc values, ordered as {@link #getColumns()}. */
+    public void addRow(Object[] row) {
+        for (int col = 0; col < data.length; col++) {
+            Object value = row[col];
+            if (value instanceof byte[]) {
+                value = new String((byte[]) value);
+            }
+            if (value == null) {
+                if (data[col] != null) {
+                    data[col].nulls.set(rowCount);
+                }
+                continue;
+            }
+            Column column = data[col];
+            if (column == null) {
+                column = Column.of(value);
+                column.nulls.set(0, rowCount);
+                data[col] = column;
+            } else if (!column.accepts(value)) {
+                column = column.toObjectColumn(rowCount);
+                data[col] = column;
+            }
+            column.put(rowCount, value);
+        }
+        rowCount++;
+    }
+
+    /** Releases spare capacity and build-time indexes once all rows are added. */
+    public ColumnarResult seal() {
+        for (Column column : data) {
+            if (column != null) {
+                column.trim(rowCount);
+            }
+        }
+        return this;
+    }
+
+    public int getColumnCount() {
+        return data.length;
+    }
+
+    public int indexOf(String columnName) {
+        Integer col = columnIndexes.get(columnName);
+        return col == null ? -1 : col;
+    }
+
+    public ColumnType getColumnType(int col) {
+        return data[col] == null ? ColumnType.EMPTY : data[col].type();
+    }
+
+    public boolean isNull(int row, int col) {
+        return data[col] == null || data[col].nulls.get(row);
+    }
+
+    public Object getValue(int row, int col) {
+        return isNull(row, col) ? null : data[col].get(row);
+    }
+
+    /** Reads an {@link ColumnType#INT} or {@link ColumnType#LONG} value without boxing. */
+    public long getLong(int row, int col) {
+        Column column = data[col];
+        if (column instanceof IntColumn) {
+            return ((IntColumn) column).values[row];
+        }
+        return ((LongColumn) column).values[row];
+    }
+
+    /** Reads a {@link ColumnType#FLOAT} or {@link ColumnType#DOUBLE} value without boxing. */
+    public double getDouble(int row, int col) {
+        Column column = data[col];
+        if (column instanceof FloatColumn) {
+            return ((FloatColumn) column).values[row];
+        }
+        return ((DoubleColumn) column).values[row];
+    }
+
+    public Map<String, Object> getRow(int row) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        for (int col = 0; col < data.length; col++) {
+            line.put(columns.get(col).getNameEn(), getValue(row, col));
+        }
+        return line;
+    }
+
+    private abstract static class Column implements Serializable {
+
+        protected final BitSet nulls = new BitSet();
+
+        static Column of(Object value) {
+            if (value instanceof Integer) {
+                return new IntColumn();
+            }
+            if (value instanceof Long) {
+                return new LongColumn();
+            }
+            if (value instanceof Float) {
+                return new FloatColumn();
+            }
+            if (value instanceof Double) {
+                return new DoubleColumn();
+            }
+            if (DecimalColumn.supports(value)) {
+                return new DecimalColumn(((BigDecimal) value).scale());
+            }
+            if (value instanceof String) {
+                return new StringColumn();
+            }
+            if (TemporalColumn.supports(value)) {
+                return new TemporalColumn(value);
+            }
+            return new ObjectColumn();
+        }
+
+        abstract ColumnType type();
+
+        abstract boolean accepts(Object value);
+
+        abstract void put(int row, Object value);
+
+        abstract Object get(int row);
+
+        abstract int capacity();
+
+        abstract void trim(int size);
+
+        protected int grow(int row) {
+            return Math.max(row + 1, Math.max(16, capacity() * 2));
+        }
+
+        ObjectColumn toObjectColumn(int rowCount) {
+            ObjectColumn column = new ObjectColumn();
+            column.nulls.or(nulls);
+            for (int row = 0; row < rowCount; row++) {
+                if (!nulls.get(row)) {
+                    column.put(row, get(row));
+                }
+            }
+            return column;
+        }
+    }
+
+    private static class IntColumn extends Column {
+
+        private int[] values = new int[0];
+
+        ColumnType type() {
+            return ColumnType.INT;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof Integer;
+        }
+
+        void put(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(row));
+            }
+            values[row] = (Integer) value;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class LongColumn extends Column {
+
+        private long[] values = new long[0];
+
+        ColumnType type() {
+            return ColumnType.LONG;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof Long;
+        }
+
+        void put(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(row));
+            }
+            values[row] = (Long) value;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+
+        private double[] values = new double[0];
+
+        ColumnType type() {
+            return ColumnType.DOUBLE;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof Double;
+        }
+
+        void put(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(row));
+            }
+            values[row] = (Double) value;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class FloatColumn extends Column {
+
+        private float[] values = new float[0];
+
+        ColumnType type() {
+            return ColumnType.FLOAT;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof Float;
+        }
+
+        void put(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(row));
+            }
+            values[row] = (Float) value;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Decimals of the column scale whose unscaled value fits a long, such as the sums and averages
+     * of decimal columns. Values are read back as equal {@link BigDecimal}s.
+     */
+    private static class DecimalColumn extends Column {
+
+        private final int scale;
+        private long[] values = new long[0];
+
+        DecimalColumn(int scale) {
+            this.scale = scale;
+        }
+
+        static boolean supports(Object value) {
+            return value instanceof BigDecimal
+                    && ((BigDecimal) value).unscaledValue().bitLength() < Long.SIZE;
+        }
+
+        ColumnType type() {
+            return ColumnType.DECIMAL;
+        }
+
+        boolean accepts(Object value) {
+            return supports(value) && ((BigDecimal) value).scale() == scale;
+        }
+
+        void put(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(row));
+            }
+            values[row] = ((BigDecimal) value).unscaledValue().longValue();
+        }
+
+        Object get(int row) {
+            return BigDecimal.valueOf(values[row], scale);
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /** Dictionary encoded strings, each distinct value is stored once. */
+    private static class StringColumn extends Column {
+
+        private int[] codes = new int[0];
+        private List<String> dictionary = new ArrayList<>();
+        private transient Map<String, Integer> index = new HashMap<>();
+
+        ColumnType type() {
+            return ColumnType.STRING;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof String;
+        }
+
+        void put(int row, Object value) {
+            if (row >= codes.length) {
+                codes = Arrays.copyOf(codes, grow(row));
+            }
+            if (index == null) {
+                index = new HashMap<>();
+                for (int i = 0; i < dictionary.size(); i++) {
+                    index.put(dictionary.get(i), i);
+                }
+            }
+            Integer code = index.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add((String) value);
+                index.put((String) value, code);
+            }
+            codes[row] = code;
+        }
+
+        Object get(int row) {
+            return dictionary.get(codes[row]);
+        }
+
+        int capacity() {
+            return codes.length;
+        }
+
+        void trim(int size) {
+            codes = Arrays.copyOf(codes, size);
+            dictionary = new ArrayList<>(dictionary);
+            index = null;
+        }
+    }
+
+    /**
+     * Temporal values stored as epoch numbers and formatted the same way as
+     * {@link #normalize(Object)} when read.
+     */
+    private static class TemporalColumn extends Column {
+
+        private final Class<?> valueClass;
+        private long[] values = new long[0];
+
+        TemporalColumn(Object value) {
+            this.valueClass = value.getClass();
+        }
+
+        static boolean supports(Object value) {
+            return value instanceof LocalDate || value instanceof LocalDateTime
+                    || value instanceof java.sql.Date || value instanceof java.sql.Timestamp
+                    || value.getClass() == java.util.Date.class;
+        }
+
+        ColumnType type() {
+            return ColumnType.TEMPORAL;
+        }
+
+        boolean accepts(Object value) {
+            return value.getClass() == valueClass;
+        }
+
+        void put(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(row));
+            }
+            if (value instanceof LocalDate) {
+                values[row] = ((LocalDate) value).toEpochDay();
+            } else if (value instanceof LocalDateTime) {
+                values[row] = ((LocalDateTime) value).toEpochSecond(ZoneOffset.UTC);
+            } else {
+                values[row] = ((java.util.Date) value).getTime();
+            }
+        }
+
+        Object get(int row) {
+            if (valueClass == LocalDate.class) {
+                return normalize(LocalDate.ofEpochDay(values[row]));
+            }
+            if (valueClass == LocalDateTime.class) {
+                return normalize(LocalDateTime.ofEpochSecond(values[row], 0, ZoneOffset.UTC));
+            }
+            return normalize(new java.util.Date(values[row]));
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class ObjectColumn extends Column {
+
+        private Object[] values = new Object[0];
+
+        ColumnType type() {
+            return ColumnType.OBJECT;
+        }
+
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        void put(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(row));
+            }
+            values[row] = normalize(value);
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.tencent.supersonic.headless.api.pojo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Row view over a {@link ColumnarResult}. {@link #get(int)} returns a light map view of the row,
+ * no row map is built or kept. Values written through a view go to one overlay array per written
+ * key, so modifications made by processors stay visible at the cost of the touched columns only.
+ * Structural modifications detach the list from the columnar result.
+ */
+@JsonSerialize(using = ColumnarRowList.ColumnarRowListSerializer.class)
+public class ColumnarRowList extends AbstractList<Map<String, Object>> implements Serializable {
+
+    private static final Object UNSET = new Serializable() {};
+    private static final Object REMOVED = new Serializable() {};
+
+    private final ColumnarResult result;
+    private final Map<String, Object[]> overlays = new LinkedHashMap<>();
+    private final Map<Integer, Map<String, Object>> replacedRows = new HashMap<>();
+    private List<Map<String, Object>> detached;
+
+    public ColumnarRowList(ColumnarResult result) {
+        this.result = result;
+    }
+
+    /** Returns the columnar result when it still reflects the list content, else null. */
+    public ColumnarResult getColumnarResult() {
+        return isPristine() ? result : null;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        if (detached != null) {
+            return detached.get(index);
+        }
+        if (index < 0 || index >= result.getRowCount()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Map<String, Object> replaced = replacedRows.get(index);
+        return replaced != null ? replaced : new RowView(index);
+    }
+
+    @Override
+    public int size() {
+        return detached != null ? detached.size() : result.getRowCount();
+    }
+
+    @Override
+    public Map<String, Object> set(int index, Map<String, Object> element) {
+        Map<String, Object> previous = get(index);
+        if (detached != null) {
+            detached.set(index, element);
+        } else {
+            // the view of the replaced row must not change with the new element
+            previous = new LinkedHashMap<>(previous);
+            replacedRows.put(index, element);
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Map<String, Object> element) {
+        detach().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Map<String, Object> remove(int index) {
+        Map<String, Object> removed = detach().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    private boolean isPristine() {
+        return detached == null && overlays.isEmpty() && replacedRows.isEmpty();
+    }
+
+    private Object overlayValue(String key, int row) {
+        Object[] overlay = overlays.get(key);
+        return overlay == null ? UNSET : overlay[row];
+    }
+
+    private void setOverlayValue(String key, int row, Object value) {
+        overlays.computeIfAbsent(key, k -> {
+            Object[] overlay = new Object[result.getRowCount()];
+            Arrays.fill(overlay, UNSET);
+            return overlay;
+        })[row] = value;
+    }
+
+    private List<Map<String, Object>> detach() {
+        if (detached == null) {
+            List<Map<String, Object>> list = new ArrayList<>(size() + 1);
+            for (int i = 0; i < size(); i++) {
+                Map<String, Object> row = get(i);
+                list.add(row instanceof RowView ? new LinkedHashMap<>(row) : row);
+            }
+            detached = list;
+            overlays.clear();
+            replacedRows.clear();
+        }
+        return detached;
+    }
+
+    /** Map view of one row, reads the overlay first and the columns after. */
+    private class RowView extends AbstractMap<String, Object> {
+
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            Object value = overlayValue((String) key, row);
+            if (value != UNSET) {
+                return value == REMOVED ? null : value;
+            }
+            int col = result.indexOf((String) key);
+            return col < 0 ? null : result.getValue(row, col);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+            Object value = overlayValue((String) key, row);
+            if (value != UNSET) {
+                return value != REMOVED;
+            }
+            return result.indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            Object previous = get(key);
+            setOverlayValue(key, row, value);
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (!containsKey(key)) {
+                return null;
+            }
+            Object previous = get(key);
+            setOverlayValue((String) key, row, REMOVED);
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new KeyIterator();
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (Iterator<Entry<String, Object>> it = iterator(); it.hasNext(); it.next()) {
+                        size++;
+                    }
+                    return size;
+                }
+            };
+        }
+
+        /** Column keys in column order, then keys only present in the overlay. */
+        private class KeyIterator implements Iterator<Entry<String, Object>> {
+
+            private final List<String> keys = new ArrayList<>();
+            private int position;
+            private String last;
+
+            KeyIterator() {
+                for (int col = 0; col < result.getColumnCount(); col++) {
+                    keys.add(result.getColumns().get(col).getNameEn());
+                }
+                for (String key : overlays.keySet()) {
+                    if (result.indexOf(key) < 0) {
+                        keys.add(key);
+                    }
+                }
+                skipAbsent();
+            }
+
+            private void skipAbsent() {
+                while (position < keys.size() && !containsKey(keys.get(position))) {
+                    position++;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return position < keys.size();
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = keys.get(position++);
+                skipAbsent();
+                String key = last;
+                return new SimpleEntry<String, Object>(key, RowView.this.get(key)) {
+                    @Override
+                    public Object setValue(Object value) {
+                        super.setValue(value);
+                        return RowView.this.put(key, value);
+                    }
+                };
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                RowView.this.remove(last);
+                last = null;
+            }
+        }
+    }
+
+    /** Writes rows straight from the columns, without building the row maps. */
+    public static class ColumnarRowListSerializer extends StdSerializer<ColumnarRowList> {
+
+        public ColumnarRowListSerializer() {
+            super(ColumnarRowList.class);
+        }
+
+        @Override
+        public void serialize(ColumnarRowList list, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartArray();
+            ColumnarResult result = list.result;
+            boolean pristine = list.isPristine();
+            for (int row = 0; row < list.size(); row++) {
+                if (!pristine) {
+                    provider.defaultSerializeValue(list.get(row), gen);
+                    continue;
+                }
+                gen.writeStartObject();
+                for (int col = 0; col < result.getColumnCount(); col++) {
+                    gen.writeFieldName(result.getColumns().get(col).getNameEn());
+                    writeValue(result, row, col, gen, provider);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+
+        private void writeValue(ColumnarResult result, int row, int col, JsonGenerator gen,
+                SerializerProvider provider) throws IOException {
+            if (result.isNull(row, col)) {
+                gen.writeNull();
+                return;
+            }
+            switch (result.getColumnType(col)) {
+                case INT:
+                case LONG:
+                    gen.writeNumber(result.getLong(row, col));
+                    break;
+                case FLOAT:
+                    gen.writeNumber((float) result.getDouble(row, col));
+                    break;
+                case DOUBLE:
+                    gen.writeNumber(result.getDouble(row, col));
+                    break;
+                case DECIMAL:
+                    gen.writeNumber((BigDecimal) result.getValue(row, col));
+                    break;
+                case STRING:
+                case TEMPORAL:
+                    gen.writeString((String) result.getValue(row, col));
+                    break;
+                default:
+                    provider.defaultSerializeValue(result.getValue(row, col), gen);
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.tencent.supersonic.headless.api.pojo;
 
+import com.tencent.supersonic.common.jsqlparser.SqlHandle;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
 public class SqlInfo {
@@ -13,4 +18,33 @@ public class SqlInfo {
 
     // SQL to be executed finally
     private String querySQL;
+
+    // parsed correctedS2SQL, rewritten in place by the correctors until the sql is replaced
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient SqlHandle correctedS2SQLHandle;
+
+    /**
+     * Handle of the corrected S2SQL. Rewrites through the handle change the corrected S2SQL, its
+     * text is rendered when it is read.
+     */
+    public SqlHandle correctedS2SQLHandle() {
+        if (correctedS2SQLHandle == null) {
+            correctedS2SQLHandle = SqlHandle.of(correctedS2SQL);
+        }
+        return correctedS2SQLHandle;
+    }
+
+    public String getCorrectedS2SQL() {
+        if (correctedS2SQLHandle != null) {
+            correctedS2SQL = correctedS2SQLHandle.getSql();
+        }
+        return correctedS2SQL;
+    }
+
+    public void setCorrectedS2SQL(String correctedS2SQL) {
+        this.correctedS2SQL = correctedS2SQL;
+        this.correctedS2SQLHandle = null;
+    }
 }
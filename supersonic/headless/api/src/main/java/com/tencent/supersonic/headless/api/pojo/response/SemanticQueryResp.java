@@ -1,14 +1,19 @@
 package com.tencent.supersonic.headless.api.pojo.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.collect.Lists;
 import com.tencent.supersonic.common.pojo.QueryAuthorization;
 import com.tencent.supersonic.common.pojo.QueryColumn;
 import com.tencent.supersonic.common.util.StringUtil;
+import com.tencent.supersonic.headless.api.pojo.ColumnarResult;
+import com.tencent.supersonic.headless.api.pojo.ColumnarRowList;
 import com.tencent.supersonic.headless.api.pojo.QueryResult;
 import com.tencent.supersonic.headless.api.pojo.enums.SemanticType;
 import lombok.Data;
 import lombok.ToString;
+import org.springframework.beans.BeanUtils;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -38,4 +43,45 @@ public class SemanticQueryResp extends QueryResult<Map<String, Object>> {
     public void appendErrorMsg(String msg) {
         errorMsg = StringUtil.append(errorMsg, msg);
     }
+
+    /** Returns the compact form of the result rows, or null if rows are plain maps. */
+    @JsonIgnore
+    public ColumnarResult getColumnarResult() {
+        if (getResultList() instanceof ColumnarRowList) {
+            return ((ColumnarRowList) getResultList()).getColumnarResult();
+        }
+        return null;
+    }
+
+    public void setColumnarResult(ColumnarResult columnarResult) {
+        setResultList(new ColumnarRowList(columnarResult));
+    }
+
+    /**
+     * Copies the response so that the copy can be modified independently. Rows still held in
+     * columnar form are shared instead of copied.
+     */
+    public SemanticQueryResp compactCopy() {
+        SemanticQueryResp copy = new SemanticQueryResp();
+        copy.setPageNo(getPageNo());
+        copy.setPageSize(getPageSize());
+        copy.setTotalCount(getTotalCount());
+        copy.setColumns(columns.stream().map(column -> {
+            QueryColumn queryColumn = new QueryColumn();
+            BeanUtils.copyProperties(column, queryColumn);
+            return queryColumn;
+        }).collect(Collectors.toList()));
+        copy.setSql(sql);
+        copy.setQueryAuthorization(queryAuthorization);
+        copy.setUseCache(useCache);
+        copy.setErrorMsg(errorMsg);
+        ColumnarResult columnarResult = getColumnarResult();
+        if (columnarResult != null) {
+            copy.setColumnarResult(columnarResult);
+        } else {
+            copy.setResultList(getResultList().stream().map(LinkedHashMap::new)
+                    .collect(Collectors.toList()));
+        }
+        return copy;
+    }
 }
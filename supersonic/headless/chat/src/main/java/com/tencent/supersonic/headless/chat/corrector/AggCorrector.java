@@ -17,8 +17,7 @@ public class AggCorrector extends BaseSemanticCorrector {
 
     @Override
     public void doCorrect(ChatQueryContext chatQueryContext, SemanticParseInfo semanticParseInfo) {
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
-        if (SqlValidHelper.isComplexSQL(correctS2SQL)) {
+        if (SqlValidHelper.isComplexSQL(semanticParseInfo.getSqlInfo().correctedS2SQLHandle())) {
             return;
         }
         addAggregate(chatQueryContext, semanticParseInfo);
@@ -27,7 +26,7 @@ public class AggCorrector extends BaseSemanticCorrector {
     private void addAggregate(ChatQueryContext chatQueryContext,
             SemanticParseInfo semanticParseInfo) {
         List<String> sqlGroupByFields = SqlSelectHelper
-                .getGroupByFields(semanticParseInfo.getSqlInfo().getCorrectedS2SQL());
+                .getGroupByFields(semanticParseInfo.getSqlInfo().correctedS2SQLHandle());
         if (CollectionUtils.isEmpty(sqlGroupByFields)) {
             return;
         }
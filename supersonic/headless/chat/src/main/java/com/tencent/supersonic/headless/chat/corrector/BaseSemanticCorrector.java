@@ -1,6 +1,7 @@
 package com.tencent.supersonic.headless.chat.corrector;
 
 import com.tencent.supersonic.common.jsqlparser.SqlAddHelper;
+import com.tencent.supersonic.common.jsqlparser.SqlHandle;
 import com.tencent.supersonic.common.jsqlparser.SqlRemoveHelper;
 import com.tencent.supersonic.common.pojo.enums.AggregateTypeEnum;
 import com.tencent.supersonic.common.pojo.enums.TimeDimensionEnum;
@@ -10,7 +11,6 @@ import com.tencent.supersonic.headless.api.pojo.SemanticParseInfo;
 import com.tencent.supersonic.headless.api.pojo.SemanticSchema;
 import com.tencent.supersonic.headless.chat.ChatQueryContext;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.util.CollectionUtils;
 
@@ -31,7 +31,7 @@ public abstract class BaseSemanticCorrector implements SemanticCorrector {
 
     public void correct(ChatQueryContext chatQueryContext, SemanticParseInfo semanticParseInfo) {
         try {
-            if (StringUtils.isBlank(semanticParseInfo.getSqlInfo().getCorrectedS2SQL())) {
+            if (semanticParseInfo.getSqlInfo().correctedS2SQLHandle().isBlank()) {
                 return;
             }
             doCorrect(chatQueryContext, semanticParseInfo);
@@ -84,7 +84,6 @@ public abstract class BaseSemanticCorrector implements SemanticCorrector {
     protected void addAggregateToMetric(ChatQueryContext chatQueryContext,
             SemanticParseInfo semanticParseInfo) {
         // add aggregate to all metric
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
         Long dataSetId = semanticParseInfo.getDataSet().getDataSetId();
         List<SchemaElement> metrics = getMetricElements(chatQueryContext, dataSetId);
 
@@ -106,8 +105,8 @@ public abstract class BaseSemanticCorrector implements SemanticCorrector {
         if (CollectionUtils.isEmpty(metricToAggregate)) {
             return;
         }
-        String aggregateSql = SqlAddHelper.addAggregateToField(correctS2SQL, metricToAggregate);
-        semanticParseInfo.getSqlInfo().setCorrectedS2SQL(aggregateSql);
+        SqlAddHelper.addAggregateToField(semanticParseInfo.getSqlInfo().correctedS2SQLHandle(),
+                metricToAggregate);
     }
 
     protected List<SchemaElement> getMetricElements(ChatQueryContext chatQueryContext,
@@ -140,7 +139,7 @@ public abstract class BaseSemanticCorrector implements SemanticCorrector {
 
     protected void removeDateIfExist(ChatQueryContext chatQueryContext,
             SemanticParseInfo semanticParseInfo) {
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
+        SqlHandle correctS2SQL = semanticParseInfo.getSqlInfo().correctedS2SQLHandle();
         Set<String> removeFieldNames = new HashSet<>();
         removeFieldNames.addAll(TimeDimensionEnum.getChNameList());
         removeFieldNames.addAll(TimeDimensionEnum.getNameList());
@@ -148,10 +147,9 @@ public abstract class BaseSemanticCorrector implements SemanticCorrector {
                 getFieldNameMapFromDB(chatQueryContext, semanticParseInfo.getDataSetId());
         removeFieldNames.removeIf(fieldName -> fieldNameMap.containsKey(fieldName));
         if (!CollectionUtils.isEmpty(removeFieldNames)) {
-            correctS2SQL = SqlRemoveHelper.removeWhereCondition(correctS2SQL, removeFieldNames);
-            correctS2SQL = SqlRemoveHelper.removeSelect(correctS2SQL, removeFieldNames);
-            correctS2SQL = SqlRemoveHelper.removeGroupBy(correctS2SQL, removeFieldNames);
+            SqlRemoveHelper.removeWhereCondition(correctS2SQL, removeFieldNames);
+            SqlRemoveHelper.removeSelect(correctS2SQL, removeFieldNames);
+            SqlRemoveHelper.removeGroupBy(correctS2SQL, removeFieldNames);
         }
-        semanticParseInfo.getSqlInfo().setCorrectedS2SQL(correctS2SQL);
     }
 }
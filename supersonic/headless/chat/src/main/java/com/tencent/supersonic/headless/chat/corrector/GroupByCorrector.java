@@ -1,6 +1,7 @@
 package com.tencent.supersonic.headless.chat.corrector;
 
 import com.tencent.supersonic.common.jsqlparser.SqlAddHelper;
+import com.tencent.supersonic.common.jsqlparser.SqlHandle;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlValidHelper;
 import com.tencent.supersonic.common.pojo.enums.QueryType;
@@ -25,8 +26,7 @@ public class GroupByCorrector extends BaseSemanticCorrector {
 
     @Override
     public void doCorrect(ChatQueryContext chatQueryContext, SemanticParseInfo semanticParseInfo) {
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
-        if (SqlValidHelper.isComplexSQL(correctS2SQL)) {
+        if (SqlValidHelper.isComplexSQL(semanticParseInfo.getSqlInfo().correctedS2SQLHandle())) {
             return;
         }
         Boolean needAddGroupBy = needAddGroupBy(chatQueryContext, semanticParseInfo);
@@ -45,7 +45,7 @@ public class GroupByCorrector extends BaseSemanticCorrector {
         Long dataSetId = semanticParseInfo.getDataSetId();
         // add dimension group by
         SqlInfo sqlInfo = semanticParseInfo.getSqlInfo();
-        String correctS2SQL = sqlInfo.getCorrectedS2SQL();
+        SqlHandle correctS2SQL = sqlInfo.correctedS2SQLHandle();
         SemanticSchema semanticSchema = chatQueryContext.getSemanticSchema();
         // add alias field name
         Set<String> dimensions = getDimensions(dataSetId, semanticSchema);
@@ -76,7 +76,7 @@ public class GroupByCorrector extends BaseSemanticCorrector {
         Long dataSetId = semanticParseInfo.getDataSetId();
         // add dimension group by
         SqlInfo sqlInfo = semanticParseInfo.getSqlInfo();
-        String correctS2SQL = sqlInfo.getCorrectedS2SQL();
+        SqlHandle correctS2SQL = sqlInfo.correctedS2SQLHandle();
         SemanticSchema semanticSchema = chatQueryContext.getSemanticSchema();
         // add alias field name
         Set<String> dimensions = getDimensions(dataSetId, semanticSchema);
@@ -90,7 +90,6 @@ public class GroupByCorrector extends BaseSemanticCorrector {
                     }
                     return true;
                 }).collect(Collectors.toSet());
-        semanticParseInfo.getSqlInfo()
-                .setCorrectedS2SQL(SqlAddHelper.addGroupBy(correctS2SQL, groupByFields));
+        SqlAddHelper.addGroupBy(correctS2SQL, groupByFields);
     }
 }
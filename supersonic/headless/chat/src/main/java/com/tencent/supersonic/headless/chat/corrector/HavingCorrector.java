@@ -1,6 +1,7 @@
 package com.tencent.supersonic.headless.chat.corrector;
 
 import com.tencent.supersonic.common.jsqlparser.SqlAddHelper;
+import com.tencent.supersonic.common.jsqlparser.SqlHandle;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectFunctionHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectHelper;
 import com.tencent.supersonic.headless.api.pojo.SemanticParseInfo;
@@ -35,21 +36,19 @@ public class HavingCorrector extends BaseSemanticCorrector {
         if (CollectionUtils.isEmpty(metrics)) {
             return;
         }
-        String havingSql =
-                SqlAddHelper.addHaving(semanticParseInfo.getSqlInfo().getCorrectedS2SQL(), metrics);
-        semanticParseInfo.getSqlInfo().setCorrectedS2SQL(havingSql);
+        SqlAddHelper.addHaving(semanticParseInfo.getSqlInfo().correctedS2SQLHandle(), metrics);
     }
 
     private void addHavingToSelect(SemanticParseInfo semanticParseInfo) {
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
-        if (!SqlSelectFunctionHelper.hasAggregateFunction(correctS2SQL)) {
+        SqlHandle sqlHandle = semanticParseInfo.getSqlInfo().correctedS2SQLHandle();
+        if (!SqlSelectFunctionHelper.hasAggregateFunction(sqlHandle)) {
             return;
         }
-        List<Expression> havingExpressionList = SqlSelectHelper.getHavingExpression(correctS2SQL);
+        // parsed apart from the handle, its nodes are added to the select of the handle
+        List<Expression> havingExpressionList =
+                SqlSelectHelper.getHavingExpression(sqlHandle.getSql());
         if (!CollectionUtils.isEmpty(havingExpressionList)) {
-            String replaceSql =
-                    SqlAddHelper.addFunctionToSelect(correctS2SQL, havingExpressionList);
-            semanticParseInfo.getSqlInfo().setCorrectedS2SQL(replaceSql);
+            SqlAddHelper.addFunctionToSelect(sqlHandle, havingExpressionList);
         }
     }
 }
@@ -20,6 +20,7 @@ public class RuleSqlCorrector extends BaseSemanticCorrector {
 
     @Override
     public void doCorrect(ChatQueryContext chatQueryContext, SemanticParseInfo semanticParseInfo) {
+        // the correctors rewrite one parsed statement, its sql is rendered when it is read after
         for (BaseSemanticCorrector corrector : correctors) {
             corrector.correct(chatQueryContext, semanticParseInfo);
         }
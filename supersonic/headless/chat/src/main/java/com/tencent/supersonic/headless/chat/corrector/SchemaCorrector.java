@@ -3,6 +3,7 @@ package com.tencent.supersonic.headless.chat.corrector;
 import com.tencent.supersonic.common.jsqlparser.AggregateEnum;
 import com.tencent.supersonic.common.jsqlparser.FieldExpression;
 import com.tencent.supersonic.common.jsqlparser.SqlAsHelper;
+import com.tencent.supersonic.common.jsqlparser.SqlHandle;
 import com.tencent.supersonic.common.jsqlparser.SqlRemoveHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlReplaceHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectHelper;
@@ -13,7 +14,6 @@ import com.tencent.supersonic.common.util.DateUtils;
 import com.tencent.supersonic.common.util.JsonUtil;
 import com.tencent.supersonic.headless.api.pojo.SemanticParseInfo;
 import com.tencent.supersonic.headless.api.pojo.SemanticSchema;
-import com.tencent.supersonic.headless.api.pojo.SqlInfo;
 import com.tencent.supersonic.headless.chat.ChatQueryContext;
 import com.tencent.supersonic.headless.chat.parser.llm.ParseResult;
 import com.tencent.supersonic.headless.chat.query.llm.s2sql.LLMReq;
@@ -56,9 +56,8 @@ public class SchemaCorrector extends BaseSemanticCorrector {
 
     private void correctAggFunction(SemanticParseInfo semanticParseInfo) {
         Map<String, String> aggregateEnum = AggregateEnum.getAggregateEnum();
-        SqlInfo sqlInfo = semanticParseInfo.getSqlInfo();
-        String sql = SqlReplaceHelper.replaceFunction(sqlInfo.getCorrectedS2SQL(), aggregateEnum);
-        sqlInfo.setCorrectedS2SQL(sql);
+        SqlReplaceHelper.replaceFunction(semanticParseInfo.getSqlInfo().correctedS2SQLHandle(),
+                aggregateEnum);
     }
 
     private void correctFieldName(ChatQueryContext chatQueryContext,
@@ -66,13 +65,12 @@ public class SchemaCorrector extends BaseSemanticCorrector {
         Map<String, String> fieldNameMap =
                 getFieldNameMap(chatQueryContext, semanticParseInfo.getDataSetId());
         // add as fieldName
-        SqlInfo sqlInfo = semanticParseInfo.getSqlInfo();
-        List<String> asFields = SqlAsHelper.getAsFields(sqlInfo.getCorrectedS2SQL());
+        SqlHandle sqlHandle = semanticParseInfo.getSqlInfo().correctedS2SQLHandle();
+        List<String> asFields = SqlAsHelper.getAsFields(sqlHandle);
         for (String asField : asFields) {
             fieldNameMap.put(asField, asField);
         }
-        String sql = SqlReplaceHelper.replaceFields(sqlInfo.getCorrectedS2SQL(), fieldNameMap);
-        sqlInfo.setCorrectedS2SQL(sql);
+        SqlReplaceHelper.replaceFields(sqlHandle, fieldNameMap);
     }
 
     private void updateFieldNameByLinkingValue(SemanticParseInfo semanticParseInfo) {
@@ -85,11 +83,8 @@ public class SchemaCorrector extends BaseSemanticCorrector {
                 linking.stream().collect(Collectors.groupingBy(LLMReq.ElementValue::getFieldValue,
                         Collectors.mapping(LLMReq.ElementValue::getFieldName, Collectors.toSet())));
 
-        SqlInfo sqlInfo = semanticParseInfo.getSqlInfo();
-
-        String sql = SqlReplaceHelper.replaceFieldNameByValue(sqlInfo.getCorrectedS2SQL(),
-                fieldValueToFieldNames);
-        sqlInfo.setCorrectedS2SQL(sql);
+        SqlReplaceHelper.replaceFieldNameByValue(
+                semanticParseInfo.getSqlInfo().correctedS2SQLHandle(), fieldValueToFieldNames);
     }
 
     private List<LLMReq.ElementValue> getLinkingValues(SemanticParseInfo semanticParseInfo) {
@@ -117,18 +112,14 @@ public class SchemaCorrector extends BaseSemanticCorrector {
                                 Collectors.toMap(oldValue -> oldValue, newValue -> newValue,
                                         (existingValue, newValue) -> newValue))));
 
-        SqlInfo sqlInfo = semanticParseInfo.getSqlInfo();
-        String sql = SqlReplaceHelper.replaceValue(sqlInfo.getCorrectedS2SQL(), filedNameToValueMap,
-                false);
-        sqlInfo.setCorrectedS2SQL(sql);
+        SqlReplaceHelper.replaceValue(semanticParseInfo.getSqlInfo().correctedS2SQLHandle(),
+                filedNameToValueMap, false);
     }
 
     public void removeFilterIfNotInLinkingValue(ChatQueryContext chatQueryContext,
             SemanticParseInfo semanticParseInfo) {
-        SqlInfo sqlInfo = semanticParseInfo.getSqlInfo();
-        String correctS2SQL = sqlInfo.getCorrectedS2SQL();
-        List<FieldExpression> whereExpressionList =
-                SqlSelectHelper.getWhereExpressions(correctS2SQL);
+        SqlHandle sqlHandle = semanticParseInfo.getSqlInfo().correctedS2SQLHandle();
+        List<FieldExpression> whereExpressionList = SqlSelectHelper.getWhereExpressions(sqlHandle);
         if (CollectionUtils.isEmpty(whereExpressionList)) {
             return;
         }
@@ -155,7 +146,6 @@ public class SchemaCorrector extends BaseSemanticCorrector {
                         .contains(fieldExpression.getFieldName()))
                 .map(fieldExpression -> fieldExpression.getFieldName()).collect(Collectors.toSet());
 
-        String sql = SqlRemoveHelper.removeWhereCondition(correctS2SQL, removeFieldNames);
-        sqlInfo.setCorrectedS2SQL(sql);
+        SqlRemoveHelper.removeWhereCondition(sqlHandle, removeFieldNames);
     }
 }
@@ -1,6 +1,7 @@
 package com.tencent.supersonic.headless.chat.corrector;
 
 import com.tencent.supersonic.common.jsqlparser.SqlAddHelper;
+import com.tencent.supersonic.common.jsqlparser.SqlHandle;
 import com.tencent.supersonic.common.jsqlparser.SqlRemoveHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectFunctionHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectHelper;
@@ -30,52 +31,48 @@ public class SelectCorrector extends BaseSemanticCorrector {
 
     @Override
     public void doCorrect(ChatQueryContext chatQueryContext, SemanticParseInfo semanticParseInfo) {
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
-        if (SqlValidHelper.isComplexSQL(correctS2SQL)) {
+        SqlHandle sqlHandle = semanticParseInfo.getSqlInfo().correctedS2SQLHandle();
+        if (SqlValidHelper.isComplexSQL(sqlHandle)) {
             return;
         }
-        List<String> aggregateFields = SqlSelectHelper.getAggregateFields(correctS2SQL);
-        List<String> selectFields = SqlSelectHelper.getSelectFields(correctS2SQL);
+        List<String> aggregateFields = SqlSelectHelper.getAggregateFields(sqlHandle);
+        List<String> selectFields = SqlSelectHelper.getSelectFields(sqlHandle);
         // If the number of aggregated fields is equal to the number of queried fields, do not add
         // fields to select.
         if (!CollectionUtils.isEmpty(aggregateFields) && !CollectionUtils.isEmpty(selectFields)
                 && aggregateFields.size() == selectFields.size()) {
             return;
         }
-        correctS2SQL = addFieldsToSelect(chatQueryContext, semanticParseInfo, correctS2SQL);
-        semanticParseInfo.getSqlInfo().setCorrectedS2SQL(correctS2SQL);
+        addFieldsToSelect(chatQueryContext, semanticParseInfo, sqlHandle);
     }
 
-    protected String addFieldsToSelect(ChatQueryContext chatQueryContext,
-            SemanticParseInfo semanticParseInfo, String correctS2SQL) {
-        correctS2SQL = addTagDefaultFields(chatQueryContext, semanticParseInfo, correctS2SQL);
+    protected void addFieldsToSelect(ChatQueryContext chatQueryContext,
+            SemanticParseInfo semanticParseInfo, SqlHandle sqlHandle) {
+        addTagDefaultFields(chatQueryContext, semanticParseInfo, sqlHandle);
 
-        Set<String> selectFields = new HashSet<>(SqlSelectHelper.getSelectFields(correctS2SQL));
-        Set<String> needAddFields = new HashSet<>(SqlSelectHelper.getGroupByFields(correctS2SQL));
+        Set<String> selectFields = new HashSet<>(SqlSelectHelper.getSelectFields(sqlHandle));
+        Set<String> needAddFields = new HashSet<>(SqlSelectHelper.getGroupByFields(sqlHandle));
 
         // decide whether add order by expression field to select
         Environment environment = ContextUtils.getBean(Environment.class);
         String correctorAdditionalInfo = environment.getProperty(ADDITIONAL_INFORMATION);
         if (StringUtils.isNotBlank(correctorAdditionalInfo)
                 && Boolean.parseBoolean(correctorAdditionalInfo)) {
-            needAddFields.addAll(SqlSelectHelper.getOrderByFields(correctS2SQL));
+            needAddFields.addAll(SqlSelectHelper.getOrderByFields(sqlHandle));
         }
         if (CollectionUtils.isEmpty(selectFields) || CollectionUtils.isEmpty(needAddFields)) {
-            return correctS2SQL;
+            return;
         }
         needAddFields.removeAll(selectFields);
-        String addFieldsToSelectSql =
-                SqlAddHelper.addFieldsToSelect(correctS2SQL, new ArrayList<>(needAddFields));
-        semanticParseInfo.getSqlInfo().setCorrectedS2SQL(addFieldsToSelectSql);
-        return addFieldsToSelectSql;
+        SqlAddHelper.addFieldsToSelect(sqlHandle, new ArrayList<>(needAddFields));
     }
 
-    private String addTagDefaultFields(ChatQueryContext chatQueryContext,
-            SemanticParseInfo semanticParseInfo, String correctS2SQL) {
+    private void addTagDefaultFields(ChatQueryContext chatQueryContext,
+            SemanticParseInfo semanticParseInfo, SqlHandle sqlHandle) {
         // If it is in DETAIL mode and select *, add default metrics and dimensions.
-        boolean hasAsterisk = SqlSelectFunctionHelper.hasAsterisk(correctS2SQL);
+        boolean hasAsterisk = SqlSelectFunctionHelper.hasAsterisk(sqlHandle);
         if (!(hasAsterisk && QueryType.DETAIL.equals(semanticParseInfo.getQueryType()))) {
-            return correctS2SQL;
+            return;
         }
         Long dataSetId = semanticParseInfo.getDataSetId();
         DataSetSchema dataSetSchema =
@@ -95,9 +92,7 @@ public class SelectCorrector extends BaseSemanticCorrector {
         }
         // remove * in sql and add default fields.
         if (!CollectionUtils.isEmpty(needAddDefaultFields)) {
-            correctS2SQL =
-                    SqlRemoveHelper.removeAsteriskAndAddFields(correctS2SQL, needAddDefaultFields);
+            SqlRemoveHelper.removeAsteriskAndAddFields(sqlHandle, needAddDefaultFields);
         }
-        return correctS2SQL;
     }
 }
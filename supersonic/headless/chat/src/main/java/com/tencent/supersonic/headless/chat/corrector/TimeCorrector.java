@@ -3,6 +3,7 @@ package com.tencent.supersonic.headless.chat.corrector;
 import com.tencent.supersonic.common.jsqlparser.DateVisitor.DateBoundInfo;
 import com.tencent.supersonic.common.jsqlparser.SqlAddHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlDateSelectHelper;
+import com.tencent.supersonic.common.jsqlparser.SqlHandle;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectHelper;
 import com.tencent.supersonic.common.pojo.enums.QueryType;
 import com.tencent.supersonic.common.pojo.enums.TimeDimensionEnum;
@@ -38,8 +39,8 @@ public class TimeCorrector extends BaseSemanticCorrector {
 
     private void addDateIfNotExist(ChatQueryContext chatQueryContext,
             SemanticParseInfo semanticParseInfo) {
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
-        List<String> whereFields = SqlSelectHelper.getWhereFields(correctS2SQL);
+        SqlHandle sqlHandle = semanticParseInfo.getSqlInfo().correctedS2SQLHandle();
+        List<String> whereFields = SqlSelectHelper.getWhereFields(sqlHandle);
         Long dataSetId = semanticParseInfo.getDataSetId();
         DataSetSchema dataSetSchema =
                 chatQueryContext.getSemanticSchema().getDataSetSchemaMap().get(dataSetId);
@@ -62,28 +63,26 @@ public class TimeCorrector extends BaseSemanticCorrector {
             Pair<String, String> dateRange =
                     S2SqlDateHelper.calculateDateRange(timeConfig, timeFormat);
             if (isValidDateRange(dateRange)) {
-                correctS2SQL = SqlAddHelper.addParenthesisToWhere(correctS2SQL);
+                SqlAddHelper.addParenthesisToWhere(sqlHandle);
                 String startDateLeft = dateRange.getLeft();
                 String endDateRight = dateRange.getRight();
                 String condExpr = String.format(" ( %s >= '%s'  and %s <= '%s' )",
                         partitionDimension, startDateLeft, partitionDimension, endDateRight);
-                correctS2SQL = addConditionToSQL(correctS2SQL, condExpr);
+                addConditionToSQL(sqlHandle, condExpr);
             }
         }
-        semanticParseInfo.getSqlInfo().setCorrectedS2SQL(correctS2SQL);
     }
 
     private void addLowerBoundDate(SemanticParseInfo semanticParseInfo) {
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
-        DateBoundInfo dateBoundInfo = SqlDateSelectHelper.getDateBoundInfo(correctS2SQL);
+        SqlHandle sqlHandle = semanticParseInfo.getSqlInfo().correctedS2SQLHandle();
+        DateBoundInfo dateBoundInfo = SqlDateSelectHelper.getDateBoundInfo(sqlHandle);
 
         if (dateBoundInfo != null && StringUtils.isBlank(dateBoundInfo.getLowerBound())
                 && StringUtils.isNotBlank(dateBoundInfo.getUpperBound())
                 && StringUtils.isNotBlank(dateBoundInfo.getUpperDate())) {
             String upperDate = dateBoundInfo.getUpperDate();
             String condExpr = dateBoundInfo.getColumName() + " >= '" + upperDate + "'";
-            correctS2SQL = addConditionToSQL(correctS2SQL, condExpr);
-            semanticParseInfo.getSqlInfo().setCorrectedS2SQL(correctS2SQL);
+            addConditionToSQL(sqlHandle, condExpr);
         }
     }
 
@@ -92,13 +91,12 @@ public class TimeCorrector extends BaseSemanticCorrector {
                 && StringUtils.isNotBlank(startEndDate.getRight());
     }
 
-    private String addConditionToSQL(String sql, String condition) {
+    private void addConditionToSQL(SqlHandle sql, String condition) {
         try {
             Expression expression = CCJSqlParserUtil.parseCondExpression(condition);
-            return SqlAddHelper.addWhere(sql, expression);
+            SqlAddHelper.addWhere(sql, expression);
         } catch (JSQLParserException e) {
             log.error("addConditionToSQL:{}", e);
-            return sql;
         }
     }
 }
@@ -34,14 +34,12 @@ public class WhereCorrector extends BaseSemanticCorrector {
     protected void addQueryFilter(ChatQueryContext chatQueryContext,
             SemanticParseInfo semanticParseInfo) {
         String queryFilter = getQueryFilter(chatQueryContext.getRequest().getQueryFilters());
-        String correctS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
-
         if (StringUtils.isNotEmpty(queryFilter)) {
             log.info("add queryFilter to correctS2SQL :{}", queryFilter);
             try {
                 Expression expression = CCJSqlParserUtil.parseCondExpression(queryFilter);
-                correctS2SQL = SqlAddHelper.addWhere(correctS2SQL, expression);
-                semanticParseInfo.getSqlInfo().setCorrectedS2SQL(correctS2SQL);
+                SqlAddHelper.addWhere(semanticParseInfo.getSqlInfo().correctedS2SQLHandle(),
+                        expression);
             } catch (JSQLParserException e) {
                 log.error("parseCondExpression", e);
             }
@@ -66,10 +64,8 @@ public class WhereCorrector extends BaseSemanticCorrector {
         }
         Map<String, Map<String, String>> aliasAndBizNameToTechName =
                 getAliasAndBizNameToTechName(dimensions);
-        String correctedS2SQL = semanticParseInfo.getSqlInfo().getCorrectedS2SQL();
-        String replaceSql =
-                SqlReplaceHelper.replaceValue(correctedS2SQL, aliasAndBizNameToTechName);
-        semanticParseInfo.getSqlInfo().setCorrectedS2SQL(replaceSql);
+        SqlReplaceHelper.replaceValue(semanticParseInfo.getSqlInfo().correctedS2SQLHandle(),
+                aliasAndBizNameToTechName);
     }
 
     private Map<String, Map<String, String>> getAliasAndBizNameToTechName(
@@ -10,6 +10,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -48,4 +49,21 @@ public class DictionaryAttributeUtil {
                 originals, list.stream().map(i -> i.getValue()).findFirst().get());
         return attribute;
     }
+
+    /** Returns the attribute without the given natures, null if no nature is left. */
+    public static CoreDictionary.Attribute removeNatures(CoreDictionary.Attribute old,
+            Set<String> natures) {
+        List<Integer> kept = IntStream.range(0, old.nature.length).boxed()
+                .filter(i -> !natures.contains(old.nature[i].toString()))
+                .collect(Collectors.toList());
+        if (kept.isEmpty()) {
+            return null;
+        }
+        Nature[] nature = kept.stream().map(i -> old.nature[i]).toArray(Nature[]::new);
+        int[] frequency = kept.stream().mapToInt(i -> old.frequency[i]).toArray();
+        String[] originals = Objects.isNull(old.originals) ? new String[kept.size()]
+                : kept.stream().map(i -> old.originals[i]).toArray(String[]::new);
+        return new CoreDictionary.Attribute(nature, frequency, originals,
+                IntStream.of(frequency).sum());
+    }
 }
@@ -33,9 +33,11 @@ public class KnowledgeBaseService {
     }
 
     public void reloadAllData(List<DictWord> natures) {
-        // 1. reload custom knowledge
+        // 1. reload custom knowledge together with the online knowledge
         try {
-            HanlpHelper.reloadCustomDictionary();
+            if (HanlpHelper.reloadCustomDictionary(natures)) {
+                return;
+            }
         } catch (Exception e) {
             log.error("reloadCustomDictionary error", e);
         }
@@ -44,6 +46,18 @@ public class KnowledgeBaseService {
         updateOnlineKnowledge(natures);
     }
 
+    /** Applies the difference between two versions of the online knowledge in place. */
+    public void updateDictWords(List<DictWord> added, List<DictWord> removed) {
+        for (DictWord dictWord : removed) {
+            try {
+                HanlpHelper.removeDictWord(dictWord);
+            } catch (Exception e) {
+                log.error("removeDictWord error, dictWord:{}", dictWord, e);
+            }
+        }
+        updateOnlineKnowledge(added);
+    }
+
     private void updateOnlineKnowledge(List<DictWord> natures) {
         try {
             updateSemanticKnowledge(natures);
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -409,4 +410,45 @@ public class MultiCustomDictionary extends DynamicCustomDictionary {
             return true;
         }
     }
+
+    /** Removes the given natures of a word, the inverse of {@link #insert(String, String)}. */
+    public synchronized void removeNatures(String word, Set<String> natures) {
+        if (word == null) {
+            return;
+        }
+        if (HanLP.Config.Normalization) {
+            word = CharTable.convert(word);
+        }
+        boolean isLetters = isLetters(word);
+        word = getWordBySpace(word);
+        if (isLetters) {
+            word = word.toLowerCase();
+        }
+        CoreDictionary.Attribute att;
+        if (this.dat.containsKey(word)) {
+            att = DictionaryAttributeUtil.removeNatures(this.dat.get(word), natures);
+            // words can not be removed from the double array trie, keep it without our natures
+            this.dat.set(word, att == null ? new CoreDictionary.Attribute(Nature.nz, 1) : att);
+        } else if (this.trie != null && this.trie.containsKey(word)) {
+            att = DictionaryAttributeUtil.removeNatures(this.trie.get(word), natures);
+            if (att == null) {
+                this.trie.remove(word);
+            } else {
+                this.trie.put(word, att);
+            }
+        } else {
+            return;
+        }
+        if (addToSuggesterTrie) {
+            if (att == null) {
+                SearchService.removeWord(word);
+            } else {
+                SearchService.put(word, att);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return this.dat.size() == 0 && (this.trie == null || this.trie.size() == 0);
+    }
 }
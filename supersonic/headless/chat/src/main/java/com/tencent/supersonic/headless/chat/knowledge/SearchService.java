@@ -30,8 +30,11 @@ import java.util.stream.Collectors;
 public class SearchService {
 
     public static final int SEARCH_SIZE = 200;
-    private static BinTrie<List<String>> trie;
-    private static BinTrie<List<String>> suffixTrie;
+    private static volatile BinTrie<List<String>> trie;
+    private static volatile BinTrie<List<String>> suffixTrie;
+    /** Tries filled by a reload, published once the reload completes. */
+    private static BinTrie<List<String>> reloadTrie;
+    private static BinTrie<List<String>> reloadSuffixTrie;
 
     static {
         trie = new BinTrie<>();
@@ -153,8 +156,37 @@ public class SearchService {
         suffixTrie = new BinTrie<>();
     }
 
+    /**
+     * Starts filling new tries, searches keep using the current ones until
+     * {@link #finishReload()}. Callers serialize reloads and updates.
+     */
+    public static void startReload() {
+        reloadTrie = new BinTrie<>();
+        reloadSuffixTrie = new BinTrie<>();
+    }
+
+    public static void finishReload() {
+        if (reloadTrie == null) {
+            return;
+        }
+        trie = reloadTrie;
+        suffixTrie = reloadSuffixTrie;
+        abortReload();
+        log.debug("publish reloaded trie");
+    }
+
+    public static void abortReload() {
+        reloadTrie = null;
+        reloadSuffixTrie = null;
+    }
+
     public static void put(String key, CoreDictionary.Attribute attribute) {
-        trie.put(key, getValue(attribute.nature));
+        BinTrie<List<String>> target = reloadTrie != null ? reloadTrie : trie;
+        target.put(key, getValue(attribute.nature));
+    }
+
+    public static void removeWord(String key) {
+        trie.remove(key);
     }
 
     public static void loadSuffix(List<DictWord> suffixes) {
@@ -179,7 +211,22 @@ public class SearchService {
 
     public static void putSuffix(String key, CoreDictionary.Attribute attribute) {
         Nature[] nature = attribute.nature;
-        suffixTrie.put(key, getValue(nature));
+        BinTrie<List<String>> target = reloadSuffixTrie != null ? reloadSuffixTrie : suffixTrie;
+        target.put(key, getValue(nature));
+    }
+
+    public static void removeSuffix(String key, Set<String> natures) {
+        List<String> values = suffixTrie.get(key);
+        if (values == null) {
+            return;
+        }
+        List<String> remaining = values.stream().filter(nature -> !natures.contains(nature))
+                .collect(Collectors.toList());
+        if (remaining.isEmpty()) {
+            suffixTrie.remove(key);
+        } else {
+            suffixTrie.put(key, remaining);
+        }
     }
 
     private static List<String> getValue(Nature[] nature) {
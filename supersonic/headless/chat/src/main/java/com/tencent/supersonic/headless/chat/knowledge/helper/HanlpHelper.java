@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -57,20 +58,22 @@ public class HanlpHelper {
         if (segment == null) {
             synchronized (HanlpHelper.class) {
                 if (segment == null) {
-                    segment = HanLP.newSegment().enableIndexMode(true).enableIndexMode(4)
-                            .enableCustomDictionary(true).enableCustomDictionaryForcing(true)
-                            .enableOffset(true).enableJapaneseNameRecognize(false)
-                            .enableNameRecognize(false).enableAllNamedEntityRecognize(false)
-                            .enableJapaneseNameRecognize(false)
-                            .enableNumberQuantifierRecognize(false).enablePlaceRecognize(false)
-                            .enableOrganizationRecognize(false)
-                            .enableCustomDictionary(getDynamicCustomDictionary());
+                    segment = newSegment(getDynamicCustomDictionary());
                 }
             }
         }
         return segment;
     }
 
+    private static Segment newSegment(DynamicCustomDictionary dictionary) {
+        return HanLP.newSegment().enableIndexMode(true).enableIndexMode(4)
+                .enableCustomDictionary(true).enableCustomDictionaryForcing(true)
+                .enableOffset(true).enableJapaneseNameRecognize(false).enableNameRecognize(false)
+                .enableAllNamedEntityRecognize(false).enableJapaneseNameRecognize(false)
+                .enableNumberQuantifierRecognize(false).enablePlaceRecognize(false)
+                .enableOrganizationRecognize(false).enableCustomDictionary(dictionary);
+    }
+
     public static DynamicCustomDictionary getDynamicCustomDictionary() {
         if (CustomDictionary == null) {
             synchronized (HanlpHelper.class) {
@@ -82,8 +85,12 @@ public class HanlpHelper {
         return CustomDictionary;
     }
 
-    /** reload custom dictionary */
-    public static boolean reloadCustomDictionary() throws IOException {
+    /**
+     * Reloads the custom dictionary files together with the given words. The new dictionary and
+     * search tries are built next to the published ones and swapped in once complete, so lookups
+     * never see a partially loaded dictionary.
+     */
+    public static boolean reloadCustomDictionary(List<DictWord> dictWords) throws IOException {
 
         final long startTime = System.currentTimeMillis();
 
@@ -91,24 +98,46 @@ public class HanlpHelper {
                 || HanLP.Config.CustomDictionaryPath.length == 0) {
             return false;
         }
-        if (HanLP.Config.IOAdapter instanceof HadoopFileIOAdapter) {
-            // 1.delete hdfs file
-            HdfsFileHelper.deleteCacheFile(HanLP.Config.CustomDictionaryPath);
-            // 2.query txt files，update CustomDictionaryPath
-            HdfsFileHelper.resetCustomPath(getDynamicCustomDictionary());
-        } else {
-            FileHelper.deleteCacheFile(HanLP.Config.CustomDictionaryPath);
-            FileHelper.resetCustomPath(getDynamicCustomDictionary());
-        }
-        // 3.clear trie
-        SearchService.clear();
-
-        boolean reload = getDynamicCustomDictionary().reload();
-        if (reload) {
-            log.info("Custom dictionary has been reloaded in {} milliseconds",
-                    System.currentTimeMillis() - startTime);
+        synchronized (HanlpHelper.class) {
+            DynamicCustomDictionary current = getDynamicCustomDictionary();
+            if (HanLP.Config.IOAdapter instanceof HadoopFileIOAdapter) {
+                // 1.delete hdfs file
+                HdfsFileHelper.deleteCacheFile(HanLP.Config.CustomDictionaryPath);
+                // 2.query txt files，update CustomDictionaryPath
+                HdfsFileHelper.resetCustomPath(current);
+            } else {
+                FileHelper.deleteCacheFile(HanLP.Config.CustomDictionaryPath);
+                FileHelper.resetCustomPath(current);
+            }
+            // 3.build the dictionary and tries aside
+            SearchService.startReload();
+            try {
+                MultiCustomDictionary dictionary = new MultiCustomDictionary(current.path);
+                if (dictionary.isEmpty()) {
+                    log.warn("Custom dictionary reload failed, keep the current one");
+                    return false;
+                }
+                List<DictWord> suffixes = new ArrayList<>();
+                for (DictWord dictWord : dictWords) {
+                    if (StringUtils.contains(dictWord.getNatureWithFrequency(),
+                            DictWordType.SUFFIX.getType())) {
+                        suffixes.add(dictWord);
+                    } else {
+                        dictionary.insert(dictWord.getWord(), dictWord.getNatureWithFrequency());
+                    }
+                }
+                SearchService.loadSuffix(suffixes);
+                // 4.publish
+                CustomDictionary = dictionary;
+                segment = newSegment(dictionary);
+                SearchService.finishReload();
+            } finally {
+                SearchService.abortReload();
+            }
         }
-        return reload;
+        log.info("Custom dictionary has been reloaded in {} milliseconds",
+                System.currentTimeMillis() - startTime);
+        return true;
     }
 
     private static void resetHanlpConfig() throws FileNotFoundException {
@@ -185,7 +214,7 @@ public class HanlpHelper {
         return ResourceUtils.getFile("classpath:hanlp.properties").getParent();
     }
 
-    public static boolean addToCustomDictionary(DictWord dictWord) {
+    public static synchronized boolean addToCustomDictionary(DictWord dictWord) {
         log.debug("dictWord:{}", dictWord);
         return getDynamicCustomDictionary().insert(dictWord.getWord(),
                 dictWord.getNatureWithFrequency());
@@ -218,6 +247,26 @@ public class HanlpHelper {
         SearchService.remove(dictWord, natureList.toArray(new Nature[0]));
     }
 
+    /** Removes the natures of a word added by {@link #addToCustomDictionary(DictWord)}. */
+    public static synchronized void removeDictWord(DictWord dictWord) {
+        log.debug("dictWord:{}", dictWord);
+        String natureWithFrequency = dictWord.getNatureWithFrequency();
+        if (StringUtils.isBlank(natureWithFrequency)) {
+            return;
+        }
+        String[] params = natureWithFrequency.trim().split("\\s+");
+        Set<String> natures = new HashSet<>();
+        for (int i = 0; i < params.length; i += 2) {
+            natures.add(params[i]);
+        }
+        if (natureWithFrequency.contains(DictWordType.SUFFIX.getType())) {
+            SearchService.removeSuffix(dictWord.getWord(), natures);
+            return;
+        }
+        ((MultiCustomDictionary) getDynamicCustomDictionary()).removeNatures(dictWord.getWord(),
+                natures);
+    }
+
     public static <T extends MapResult> void transLetterOriginal(List<T> mapResults) {
         if (CollectionUtils.isEmpty(mapResults)) {
             return;
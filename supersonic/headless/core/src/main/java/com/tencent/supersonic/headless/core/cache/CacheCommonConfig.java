@@ -22,4 +22,19 @@ public class CacheCommonConfig {
 
     @Value("${s2.query.cache.enable:true}")
     private Boolean cacheEnable;
+
+    /** serve expired results while one background query refreshes them */
+    @Value("${s2.query.cache.stale.enable:false}")
+    private Boolean staleEnable;
+
+    /** seconds a cached result is fresh, older results are refreshed when stale is enabled */
+    @Value("${s2.query.cache.fresh.seconds:300}")
+    private Integer freshSeconds;
+
+    @Value("${s2.query.cache.refresh.threads:2}")
+    private Integer refreshThreads;
+
+    /** seconds a query waits for an identical running query before it runs on its own */
+    @Value("${s2.query.cache.coalesce.wait.seconds:30}")
+    private Integer coalesceWaitSeconds;
 }
@@ -0,0 +1,37 @@
+package com.tencent.supersonic.headless.core.cache;
+
+import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/** A cached query result together with the time it was written. */
+@Getter
+@AllArgsConstructor
+public class CachedResult implements Serializable {
+
+    private final Object value;
+    private final long writeTime;
+
+    public boolean isFresh(long freshMillis) {
+        return System.currentTimeMillis() - writeTime < freshMillis;
+    }
+
+    /** Expiry time of a cached value that expires the given minutes after it was written. */
+    public static long expireAt(Object value, int expireAfterWriteMinutes) {
+        long writeTime = value instanceof CachedResult ? ((CachedResult) value).getWriteTime()
+                : System.currentTimeMillis();
+        return writeTime + TimeUnit.MINUTES.toMillis(expireAfterWriteMinutes);
+    }
+
+    /** Number of result rows of a cached value, 0 if it is not a query result. */
+    public static int rowCount(Object value) {
+        Object result = value instanceof CachedResult ? ((CachedResult) value).getValue() : value;
+        if (result instanceof SemanticQueryResp) {
+            return ((SemanticQueryResp) result).getResultList().size();
+        }
+        return 0;
+    }
+}
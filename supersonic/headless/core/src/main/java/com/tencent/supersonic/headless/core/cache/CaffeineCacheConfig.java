@@ -2,11 +2,16 @@ package com.tencent.supersonic.headless.core.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -21,12 +26,37 @@ public class CaffeineCacheConfig {
     @Value("${s2.caffeine.max.size:5000}")
     private Integer caffeineMaximumSize;
 
+    @Value("${s2.cache.second.level.file:}")
+    private String secondLevelFile;
+
+    @Value("${s2.cache.second.level.size.mb:256}")
+    private Integer secondLevelSizeMb;
+
     @Bean(name = "caffeineCache")
-    public Cache<String, Object> caffeineCache() {
-        return Caffeine.newBuilder()
+    public Cache<String, Object> caffeineCache(
+            ObjectProvider<SecondLevelCache> secondLevelCacheProvider) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
                 .expireAfterWrite(cacheCommonConfig.getCacheCommonExpireAfterWrite(),
                         TimeUnit.MINUTES)
-                .initialCapacity(caffeineInitialCapacity).maximumSize(caffeineMaximumSize).build();
+                .initialCapacity(caffeineInitialCapacity).maximumSize(caffeineMaximumSize);
+        SecondLevelCache secondLevelCache = secondLevelCacheProvider.getIfAvailable();
+        if (secondLevelCache == null) {
+            return builder.build();
+        }
+        // entries evicted for size move to the second level until they expire
+        return builder.<String, Object>removalListener((key, value, cause) -> {
+            if (cause == RemovalCause.SIZE && key != null && value != null) {
+                secondLevelCache.put(key, value, CachedResult.expireAt(value,
+                        cacheCommonConfig.getCacheCommonExpireAfterWrite()));
+            }
+        }).build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(SecondLevelCache.class)
+    @ConditionalOnProperty(name = "s2.cache.second.level.enable", havingValue = "true")
+    public SecondLevelCache secondLevelCache() throws IOException {
+        return new MappedFileCache(secondLevelFile, secondLevelSizeMb * 1024L * 1024L);
     }
 
     @Bean(name = "searchCaffeineCache")
@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -19,9 +20,22 @@ public class CaffeineCacheManager implements CacheManager {
     @Qualifier("caffeineCache")
     private Cache<String, Object> caffeineCache;
 
+    @Autowired(required = false)
+    private SecondLevelCache secondLevelCache;
+
+    /** results with at least this many rows are kept in the second level only */
+    @Value("${s2.cache.second.level.direct.rows:10000}")
+    private Integer secondLevelDirectRows;
+
     @Override
     public Boolean put(String key, Object value) {
         log.debug("[put caffeineCache] key:{}, value:{}", key, value);
+        if (secondLevelCache != null && CachedResult.rowCount(value) >= secondLevelDirectRows
+                && secondLevelCache.put(key, value, CachedResult.expireAt(value,
+                        cacheCommonConfig.getCacheCommonExpireAfterWrite()))) {
+            caffeineCache.invalidate(key);
+            return true;
+        }
         caffeineCache.put(key, value);
         return true;
     }
@@ -29,6 +43,9 @@ public class CaffeineCacheManager implements CacheManager {
     @Override
     public Object get(String key) {
         Object value = caffeineCache.asMap().get(key);
+        if (value == null && secondLevelCache != null) {
+            value = secondLevelCache.get(key);
+        }
         log.debug("[get caffeineCache] key:{}, value:{}", key, value);
         return value;
     }
@@ -46,6 +63,9 @@ public class CaffeineCacheManager implements CacheManager {
     @Override
     public Boolean removeCache(String key) {
         caffeineCache.asMap().remove(key);
+        if (secondLevelCache != null) {
+            secondLevelCache.remove(key);
+        }
         return true;
     }
 }
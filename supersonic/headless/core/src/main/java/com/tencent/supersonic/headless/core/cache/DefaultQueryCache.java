@@ -1,46 +1,120 @@
 package com.tencent.supersonic.headless.core.cache;
 
+import com.alibaba.ttl.threadpool.TtlExecutors;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.tencent.supersonic.common.util.ContextUtils;
 import com.tencent.supersonic.headless.api.pojo.request.SemanticQueryReq;
+import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
+/**
+ * Query cache on top of {@link CacheManager}. Identical concurrent queries are coalesced onto one
+ * execution, also when their results are not cached, and with stale enabled an expired result is
+ * served while one background query refreshes it.
+ */
 @Component
 @Slf4j
 public class DefaultQueryCache implements QueryCache {
 
+    private static final int REFRESH_QUEUE_SIZE = 100;
+    private static final int STATS_MAX_SIZE = 10000;
+
+    private final Map<String, InFlightQuery> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, QueryCacheStats> stats = Caffeine.newBuilder()
+            .maximumSize(STATS_MAX_SIZE).expireAfterAccess(1, TimeUnit.DAYS).build();
+    private volatile ExecutorService refreshExecutor;
+
     public Object query(SemanticQueryReq semanticQueryReq, String cacheKey) {
-        CacheManager cacheManager = ContextUtils.getBean(CacheManager.class);
         if (isCache(semanticQueryReq)) {
-            Object result = cacheManager.get(cacheKey);
-            if (Objects.nonNull(result)) {
+            CachedResult cachedResult = getCachedResult(cacheKey);
+            if (Objects.nonNull(cachedResult)) {
                 log.info("query from cache, key:{},result:{}", cacheKey,
-                        StringUtils.normalizeSpace(result.toString()));
+                        StringUtils.normalizeSpace(cachedResult.getValue().toString()));
+                getStats(cacheKey).recordHit();
+                return fromCache(cachedResult.getValue());
             }
-            return result;
         }
         return null;
     }
 
-    public Boolean put(String cacheKey, Object value) {
-        CacheManager cacheManager = ContextUtils.getBean(CacheManager.class);
+    @Override
+    public Object query(SemanticQueryReq semanticQueryReq, String cacheKey,
+            Supplier<Object> loader, Runnable onCached) {
+        boolean cache = isCache(semanticQueryReq);
         CacheCommonConfig cacheCommonConfig = ContextUtils.getBean(CacheCommonConfig.class);
-        if (cacheCommonConfig.getCacheEnable() && Objects.nonNull(value)) {
-            CompletableFuture.supplyAsync(() -> cacheManager.put(cacheKey, value))
-                    .exceptionally(exception -> {
-                        log.warn("exception:", exception);
-                        return null;
-                    });
-            log.debug("put to cache, key: {}", cacheKey);
-            return true;
+        if (cache) {
+            CachedResult cachedResult = getCachedResult(cacheKey);
+            if (Objects.nonNull(cachedResult)) {
+                if (Boolean.TRUE.equals(cacheCommonConfig.getStaleEnable())
+                        && !cachedResult.isFresh(cacheCommonConfig.getFreshSeconds() * 1000L)) {
+                    getStats(cacheKey).recordStale();
+                    refreshAsync(cacheKey, loader);
+                } else {
+                    getStats(cacheKey).recordHit();
+                }
+                log.info("query from cache, key:{}", cacheKey);
+                return fromCache(cachedResult.getValue());
+            }
         }
-        return false;
+        // identical running queries are shared whether or not their results are cached
+        InFlightQuery query = new InFlightQuery();
+        InFlightQuery running = inFlight.putIfAbsent(cacheKey, query);
+        if (Objects.nonNull(running)) {
+            getStats(cacheKey).recordCoalesce();
+            log.info("wait for running query, key:{}", cacheKey);
+            running.joined = true;
+            Object result = await(cacheKey, running.future,
+                    cacheCommonConfig.getCoalesceWaitSeconds() * 1000L);
+            if (Objects.nonNull(result)) {
+                return fromCache(result);
+            }
+            // the running query timed out or ended before this one joined, run on its own
+            return load(cache, cacheKey, loader, onCached);
+        }
+        getStats(cacheKey).recordMiss();
+        Object result;
+        try {
+            result = load(cache, cacheKey, loader, onCached);
+        } catch (Throwable e) {
+            inFlight.remove(cacheKey, query);
+            // waiting requests must never be left on an uncompleted future
+            query.future.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(cacheKey, query);
+        // waiting requests get a copy, the caller may modify the result in place
+        query.future.complete(query.joined ? compact(result) : null);
+        return result;
+    }
+
+    private Object load(boolean cache, String cacheKey, Supplier<Object> loader,
+            Runnable onCached) {
+        Object result = loader.get();
+        if (cache && Objects.nonNull(store(cacheKey, result))) {
+            onCached.run();
+        }
+        return result;
+    }
+
+    public Boolean put(String cacheKey, Object value) {
+        return Objects.nonNull(store(cacheKey, value));
     }
 
     public String getCacheKey(SemanticQueryReq semanticQueryReq) {
@@ -50,9 +124,123 @@ public class DefaultQueryCache implements QueryCache {
         return cacheManager.generateCacheKey(keyByModelIds, commandMd5);
     }
 
+    @Override
+    public Map<String, QueryCacheStats> getStats() {
+        return stats.asMap();
+    }
+
+    /** Caches a compact copy of the value and returns it, null when nothing is cached. */
+    private Object store(String cacheKey, Object value) {
+        CacheManager cacheManager = ContextUtils.getBean(CacheManager.class);
+        CacheCommonConfig cacheCommonConfig = ContextUtils.getBean(CacheCommonConfig.class);
+        if (!cacheCommonConfig.getCacheEnable() || Objects.isNull(value)) {
+            return null;
+        }
+        // cache a compact copy, later processors modify the returned response in place
+        Object cacheValue = compact(value);
+        try {
+            cacheManager.put(cacheKey, new CachedResult(cacheValue, System.currentTimeMillis()));
+            log.debug("put to cache, key: {}", cacheKey);
+        } catch (Exception e) {
+            log.warn("exception:", e);
+        }
+        return cacheValue;
+    }
+
+    /** Refreshes a stale result, at most one refresh runs per key. */
+    private void refreshAsync(String cacheKey, Supplier<Object> loader) {
+        InFlightQuery query = new InFlightQuery();
+        if (Objects.nonNull(inFlight.putIfAbsent(cacheKey, query))) {
+            return;
+        }
+        try {
+            getRefreshExecutor().execute(() -> {
+                try {
+                    query.future.complete(store(cacheKey, loader.get()));
+                } catch (Throwable e) {
+                    log.warn("refresh cache error, key:{}", cacheKey, e);
+                    query.future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(cacheKey, query);
+                }
+            });
+        } catch (Exception e) {
+            // refresh queue is full, the next request tries again
+            inFlight.remove(cacheKey, query);
+            query.future.complete(null);
+        }
+    }
+
+    private ExecutorService getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            synchronized (this) {
+                if (refreshExecutor == null) {
+                    int threads = ContextUtils.getBean(CacheCommonConfig.class).getRefreshThreads();
+                    // refreshes run the loader with the thread locals of the request
+                    refreshExecutor = TtlExecutors.getTtlExecutorService(new ThreadPoolExecutor(
+                            threads, threads, 0L, TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<>(REFRESH_QUEUE_SIZE),
+                            new ThreadFactoryBuilder().setNameFormat("query-cache-refresh-%d")
+                                    .setDaemon(true).build()));
+                }
+            }
+        }
+        return refreshExecutor;
+    }
+
+    private CachedResult getCachedResult(String cacheKey) {
+        CacheManager cacheManager = ContextUtils.getBean(CacheManager.class);
+        Object value = cacheManager.get(cacheKey);
+        if (value instanceof CachedResult) {
+            return (CachedResult) value;
+        }
+        return Objects.nonNull(value) ? new CachedResult(value, System.currentTimeMillis()) : null;
+    }
+
+    /** Waits for the running query of the key, returns null when it does not finish in time. */
+    private Object await(String cacheKey, CompletableFuture<Object> future, long timeoutMs) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("running query not finished after {}ms, key:{}", timeoutMs, cacheKey);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted waiting for running query, key:" + cacheKey,
+                    e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private Object fromCache(Object value) {
+        Object result = compact(value);
+        if (result instanceof SemanticQueryResp) {
+            ((SemanticQueryResp) result).setUseCache(true);
+        }
+        return result;
+    }
+
+    private QueryCacheStats getStats(String cacheKey) {
+        return stats.get(cacheKey, key -> new QueryCacheStats());
+    }
+
+    private Object compact(Object value) {
+        if (value instanceof SemanticQueryResp) {
+            return ((SemanticQueryResp) value).compactCopy();
+        }
+        return value;
+    }
+
+    /** Model ids with their schema versions, a model change makes its old entries unreachable. */
     private String getKeyByModelIds(List<Long> modelIds) {
-        return String.join(",",
-                modelIds.stream().map(Object::toString).collect(Collectors.toList()));
+        return ContextUtils.getBean(SchemaVersionManager.class).getVersionKey(modelIds);
     }
 
     private boolean isCache(SemanticQueryReq semanticQueryReq) {
@@ -65,4 +253,12 @@ public class DefaultQueryCache implements QueryCache {
         }
         return false;
     }
+
+    /** A running query of a key, joined by identical requests. */
+    private static class InFlightQuery {
+
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        /** whether a request waits for the result, a copy is only made for waiters */
+        private volatile boolean joined;
+    }
 }
@@ -0,0 +1,213 @@
+package com.tencent.supersonic.headless.core.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.SerializationUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Second level cache in a memory mapped local file. Values are serialized into a ring of fixed
+ * size, so the cache is bounded by bytes and its content lives outside of the java heap. When the
+ * ring is full the oldest entries are overwritten.
+ *
+ * <p>Reads take no lock. An entry keeps the checksum of its bytes, a read that raced with a writer
+ * overwriting the region gets bytes that do not match and is dropped as a miss. Reads only count
+ * themselves in, so that {@link #close()} can unmap the file once the running ones are done.
+ */
+@Slf4j
+public class MappedFileCache implements SecondLevelCache, Closeable {
+
+    private final File file;
+    private final int capacity;
+    private volatile MappedByteBuffer buffer;
+    private final AtomicInteger activeReads = new AtomicInteger();
+    private volatile boolean closed;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    /** absolute position of the next write, the offset in the file is position % capacity */
+    private long writePosition;
+    /** end of the region being written, readers of overwritten entries check against it */
+    private volatile long reservedPosition;
+
+    public MappedFileCache(String path, long capacityBytes) throws IOException {
+        this.capacity = (int) Math.min(capacityBytes, Integer.MAX_VALUE - 8);
+        if (StringUtils.isBlank(path)) {
+            file = File.createTempFile("s2-query-cache", ".dat");
+            file.deleteOnExit();
+        } else {
+            file = new File(path);
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(capacity);
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    capacity);
+        }
+        log.info("query cache file {} mapped, capacity {} bytes", file, capacity);
+    }
+
+    @Override
+    public boolean put(String key, Object value, long expireAt) {
+        byte[] bytes;
+        try {
+            bytes = SerializationUtils.serialize(value);
+        } catch (Exception e) {
+            log.warn("serialize cache value error, key:{}", key, e);
+            return false;
+        }
+        if (bytes == null || bytes.length > capacity / 4) {
+            return false;
+        }
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            long position = writePosition;
+            int offset = (int) (position % capacity);
+            if (offset + bytes.length > capacity) {
+                // entries do not wrap around, continue at the start of the file
+                position += capacity - offset;
+                offset = 0;
+            }
+            long end = position + bytes.length;
+            reservedPosition = end;
+            if (offset == 0) {
+                index.values().removeIf(entry -> isOverwritten(entry, end));
+            }
+            ByteBuffer target = buffer.duplicate();
+            target.position(offset);
+            target.put(bytes);
+            writePosition = end;
+            index.put(key, new Entry(position, bytes.length, checksum(bytes), expireAt));
+        }
+        return true;
+    }
+
+    @Override
+    public Object get(String key) {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt < System.currentTimeMillis()) {
+            index.remove(key, entry);
+            return null;
+        }
+        byte[] bytes = new byte[entry.length];
+        activeReads.incrementAndGet();
+        try {
+            if (closed) {
+                return null;
+            }
+            ByteBuffer source = buffer.duplicate();
+            source.position((int) (entry.position % capacity));
+            source.get(bytes);
+        } finally {
+            activeReads.decrementAndGet();
+        }
+        if (isOverwritten(entry, reservedPosition) || checksum(bytes) != entry.checksum) {
+            index.remove(key, entry);
+            return null;
+        }
+        try {
+            return SerializationUtils.deserialize(bytes);
+        } catch (Exception e) {
+            log.warn("deserialize cache value error, key:{}", key, e);
+            index.remove(key, entry);
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        index.remove(key);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        index.clear();
+        // reads that counted themselves in before the flag was set finish on the mapping
+        while (activeReads.get() > 0) {
+            Thread.yield();
+        }
+        MappedByteBuffer mapped = buffer;
+        buffer = null;
+        unmap(mapped);
+        if (file.exists() && !file.delete()) {
+            log.warn("delete query cache file {} failed", file);
+        }
+    }
+
+    /**
+     * Releases the mapping now instead of when the buffer is collected, the file can not be
+     * deleted on windows and keeps its disk space while it is mapped.
+     */
+    private static void unmap(MappedByteBuffer mapped) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), mapped);
+        } catch (NoSuchMethodException e) {
+            unmapJava8(mapped);
+        } catch (Exception e) {
+            log.warn("unmap query cache file failed, it is released when collected", e);
+        }
+    }
+
+    private static void unmapJava8(MappedByteBuffer mapped) {
+        try {
+            Method cleanerMethod = mapped.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(mapped);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            log.warn("unmap query cache file failed, it is released when collected", e);
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private boolean isOverwritten(Entry entry, long writtenEnd) {
+        return writtenEnd > entry.position + capacity;
+    }
+
+    private static class Entry {
+
+        private final long position;
+        private final int length;
+        private final long checksum;
+        private final long expireAt;
+
+        Entry(long position, int length, long checksum, long expireAt) {
+            this.position = position;
+            this.length = length;
+            this.checksum = checksum;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -2,11 +2,39 @@ package com.tencent.supersonic.headless.core.cache;
 
 import com.tencent.supersonic.headless.api.pojo.request.SemanticQueryReq;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
 public interface QueryCache {
 
     Object query(SemanticQueryReq semanticQueryReq, String cacheKey);
 
+    /**
+     * Returns the cached result, or the result of the loader which is then cached. Implementations
+     * may share one loader execution between identical concurrent requests. {@code onCached} is
+     * run in the calling thread when the result of its loader was put to the cache.
+     */
+    default Object query(SemanticQueryReq semanticQueryReq, String cacheKey,
+            Supplier<Object> loader, Runnable onCached) {
+        Object result = query(semanticQueryReq, cacheKey);
+        if (Objects.nonNull(result)) {
+            return result;
+        }
+        result = loader.get();
+        if (Boolean.TRUE.equals(put(cacheKey, result))) {
+            onCached.run();
+        }
+        return result;
+    }
+
     Boolean put(String cacheKey, Object value);
 
     String getCacheKey(SemanticQueryReq semanticQueryReq);
+
+    /** Hit, miss and coalesce counters by cache key. */
+    default Map<String, QueryCacheStats> getStats() {
+        return Collections.emptyMap();
+    }
 }
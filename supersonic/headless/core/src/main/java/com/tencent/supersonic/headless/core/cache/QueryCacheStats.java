@@ -0,0 +1,52 @@
+package com.tencent.supersonic.headless.core.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters of one cache key. */
+public class QueryCacheStats {
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder coalesceCount = new LongAdder();
+    private final LongAdder staleCount = new LongAdder();
+
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    public void recordMiss() {
+        missCount.increment();
+    }
+
+    /** A request that waited for an identical query already running. */
+    public void recordCoalesce() {
+        coalesceCount.increment();
+    }
+
+    /** An expired result that was served while it is refreshed. */
+    public void recordStale() {
+        staleCount.increment();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getCoalesceCount() {
+        return coalesceCount.sum();
+    }
+
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hit=%d, miss=%d, coalesce=%d, stale=%d", getHitCount(),
+                getMissCount(), getCoalesceCount(), getStaleCount());
+    }
+}
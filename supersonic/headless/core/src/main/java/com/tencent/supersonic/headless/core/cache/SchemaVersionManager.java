@@ -0,0 +1,46 @@
+package com.tencent.supersonic.headless.core.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Schema version of each model, bumped whenever the model, its metrics or its dimensions change.
+ * Versions are part of cache keys, so a change makes only the entries of the changed models
+ * unreachable.
+ */
+@Component
+public class SchemaVersionManager {
+
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+
+    public long getVersion(Long modelId) {
+        AtomicLong version = versions.get(modelId);
+        return version == null ? 0L : version.get();
+    }
+
+    /** Returns the versions of the models, joined in the given order. */
+    public String getVersionKey(Collection<Long> modelIds) {
+        return modelIds.stream().map(modelId -> modelId + "v" + getVersion(modelId))
+                .collect(Collectors.joining(","));
+    }
+
+    public long bump(Long modelId) {
+        long version = versions.computeIfAbsent(modelId, key -> new AtomicLong()).incrementAndGet();
+        listeners.forEach(listener -> listener.accept(modelId));
+        return version;
+    }
+
+    /** Registers a callback run with the model id after each bump, it must return quickly. */
+    public void addListener(Consumer<Long> listener) {
+        listeners.add(listener);
+    }
+}
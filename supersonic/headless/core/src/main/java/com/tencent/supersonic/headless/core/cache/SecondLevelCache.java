@@ -0,0 +1,15 @@
+package com.tencent.supersonic.headless.core.cache;
+
+/**
+ * Second level of the query cache, holds results evicted from the heap cache and results too large
+ * to be kept on the heap. Implementations are bounded by bytes and may drop entries at any time.
+ */
+public interface SecondLevelCache {
+
+    /** Stores the value until expireAt (epoch millis), returns false if it was not stored. */
+    boolean put(String key, Object value, long expireAt);
+
+    Object get(String key);
+
+    void remove(String key);
+}
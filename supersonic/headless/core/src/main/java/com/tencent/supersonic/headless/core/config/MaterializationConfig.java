@@ -0,0 +1,36 @@
+package com.tencent.supersonic.headless.core.config;
+
+import com.tencent.supersonic.headless.core.pojo.Materialization;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Materialized tables kept by the duckDb accelerator, e.g.
+ *
+ * <pre>
+ * s2.accelerator.duckDb.materializations[0].name=s2_database.s2_pv_uv_statis
+ * s2.accelerator.duckDb.materializations[0].columns=user_name,page,pv
+ * s2.accelerator.duckDb.materializations[0].partitioned=true
+ * s2.accelerator.duckDb.materializations[0].partitionName=imp_date
+ * s2.accelerator.duckDb.materializations[0].partitions=2024-01-01
+ * </pre>
+ *
+ * The name is the table as referenced by the translated sql. For a partitioned table the lowest
+ * configured partition is where loading starts, every later partition of the source is loaded.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "s2.accelerator.duck-db")
+public class MaterializationConfig {
+
+    private List<Materialization> materializations = new ArrayList<>();
+
+    /** number of the newest loaded partitions read again on reload, to pick up late data */
+    private Integer refreshPartitions = 1;
+
+    private Integer loadBatchSize = 5000;
+}
@@ -0,0 +1,100 @@
+package com.tencent.supersonic.headless.core.executor;
+
+import com.tencent.supersonic.headless.core.pojo.RowBatch;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+public abstract class AbstractResultCursor implements QueryResultCursor {
+
+    protected final int batchSize;
+    private final List<Consumer<RowBatch>> batchProcessors = new ArrayList<>();
+    private final List<Consumer<Boolean>> closeListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean closeNotified = new AtomicBoolean();
+    private volatile boolean failed;
+    private RowBatch nextBatch;
+    private boolean finished;
+    @Getter
+    @Setter
+    private String sql;
+
+    protected AbstractResultCursor(int batchSize) {
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    /** Reads the next batch from the underlying source, returns null once it is exhausted. */
+    protected abstract RowBatch fetch();
+
+    @Override
+    public boolean hasNext() {
+        if (nextBatch != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        RowBatch batch;
+        try {
+            batch = fetch();
+        } catch (RuntimeException e) {
+            markFailed();
+            close();
+            throw e;
+        }
+        if (batch == null || batch.isEmpty()) {
+            finished = true;
+            close();
+            return false;
+        }
+        nextBatch = batch;
+        return true;
+    }
+
+    @Override
+    public RowBatch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RowBatch batch = nextBatch;
+        nextBatch = null;
+        batchProcessors.forEach(processor -> processor.accept(batch));
+        return batch;
+    }
+
+    @Override
+    public void addBatchProcessor(Consumer<RowBatch> processor) {
+        batchProcessors.add(processor);
+    }
+
+    @Override
+    public boolean hasBatchProcessors() {
+        return !batchProcessors.isEmpty();
+    }
+
+    @Override
+    public void addCloseListener(Consumer<Boolean> listener) {
+        closeListeners.add(listener);
+    }
+
+    /** Marks that reading the source failed, reported to the close listeners. */
+    protected void markFailed() {
+        failed = true;
+    }
+
+    /** Runs the close listeners once, subclasses call it at the end of {@link #close()}. */
+    protected void notifyClosed() {
+        if (closeNotified.compareAndSet(false, true)) {
+            closeListeners.forEach(listener -> listener.accept(failed));
+        }
+    }
+
+    protected RowBatch newBatch() {
+        return new RowBatch(getColumns(), batchSize);
+    }
+}
@@ -0,0 +1,494 @@
+package com.tencent.supersonic.headless.core.executor;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.tencent.supersonic.common.jsqlparser.FunctionVisitor;
+import com.tencent.supersonic.common.jsqlparser.SqlSelectHelper;
+import com.tencent.supersonic.common.pojo.enums.EngineType;
+import com.tencent.supersonic.common.util.ContextUtils;
+import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
+import com.tencent.supersonic.headless.core.config.ExecutorConfig;
+import com.tencent.supersonic.headless.core.config.MaterializationConfig;
+import com.tencent.supersonic.headless.core.pojo.Database;
+import com.tencent.supersonic.headless.core.pojo.DuckDbSource;
+import com.tencent.supersonic.headless.core.pojo.Materialization;
+import com.tencent.supersonic.headless.core.pojo.QueryStatement;
+import com.tencent.supersonic.headless.core.pojo.RowBatch;
+import com.tencent.supersonic.headless.core.utils.JdbcDuckDbUtils;
+import com.tencent.supersonic.headless.core.utils.SqlUtils;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectItem;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Triple;
+import org.springframework.util.CollectionUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Answers queries from tables materialized in the embedded duckDb. A configured table is copied
+ * from the source database on the first query that reads it, the source connection is taken from
+ * that query. Each source database gets its own copy, kept in a duckDb schema named after the
+ * database id. {@link #reload()} keeps the copies fresh, a partitioned table only reloads its
+ * newest partitions and the partitions added since the last reload.
+ *
+ * <p>A query is only answered from duckDb when its source dialect is known and it calls no
+ * function outside {@link #PORTABLE_FUNCTIONS}, every other query goes to the source.
+ */
+@Slf4j
+public class DuckDbAccelerator extends AbstractAccelerator {
+
+    /** Source engines quoting identifiers with backticks, duckDb quotes them with double quotes. */
+    private static final Set<EngineType> BACKTICK_ENGINES = EnumSet.of(EngineType.MYSQL,
+            EngineType.DORIS, EngineType.H2, EngineType.CLICKHOUSE);
+    private static final Set<EngineType> ANSI_ENGINES =
+            EnumSet.of(EngineType.POSTGRESQL, EngineType.OPENGAUSS);
+    /** Functions with the same arguments and results in duckDb as in the source engines. */
+    private static final Set<String> PORTABLE_FUNCTIONS = ImmutableSet.of("SUM", "COUNT", "AVG",
+            "MIN", "MAX", "ABS", "ROUND", "FLOOR", "CEIL", "COALESCE", "NULLIF", "IFNULL", "UPPER",
+            "LOWER", "TRIM");
+    private static final int DECIMAL_MAX_PRECISION = 38;
+
+    private final Map<String, MaterializedTable> tables = new ConcurrentHashMap<>();
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("duckdb-load-%d").setDaemon(true).build());
+
+    @Override
+    public boolean reload() {
+        if (!isEnabled()) {
+            return false;
+        }
+        boolean success = true;
+        for (MaterializedTable table : tables.values()) {
+            success &= refresh(table);
+        }
+        return success;
+    }
+
+    @Override
+    public boolean check(QueryStatement queryStatement) {
+        if (!isEnabled() || !queryStatement.isOk()
+                || CollectionUtils.isEmpty(getConfig().getMaterializations())) {
+            return false;
+        }
+        String sql = queryStatement.getSql();
+        Set<String> tableNames = getTableNames(sql);
+        Map<String, Set<String>> fields = new HashMap<>();
+        getFields(sql).forEach((table, tableFields) -> fields.put(normalize(table), tableFields));
+        // tables joined directly, without a sub query, have no field info and are not accelerated
+        if (tableNames.isEmpty() || !fields.keySet().containsAll(tableNames)) {
+            return false;
+        }
+        Database database = getDatabase(queryStatement);
+        if (database == null || !isTranslatable(sql, database)) {
+            return false;
+        }
+        for (String tableName : tableNames) {
+            MaterializedTable table = register(tableName, database);
+            if (table == null || !table.covers(fields.get(tableName), queryStatement)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public SemanticQueryResp query(QueryStatement queryStatement) {
+        SemanticQueryResp semanticQueryResp = new SemanticQueryResp();
+        String sql = queryStatement.getSql();
+        try {
+            sql = toDuckDbSql(sql, getDatabase(queryStatement));
+            getDuckDbSource().query(sql, semanticQueryResp);
+            semanticQueryResp.setSql(StringUtils.normalizeSpace(queryStatement.getSql()));
+            return semanticQueryResp;
+        } catch (Exception e) {
+            log.error("duckDb query error [{}]", StringUtils.normalizeSpace(sql), e);
+        }
+        return null;
+    }
+
+    private MaterializedTable register(String tableName, Database database) {
+        String key = database.getId() + ":" + tableName;
+        MaterializedTable table = tables.get(key);
+        if (table != null) {
+            return table;
+        }
+        Materialization materialization = getConfig().getMaterializations().stream()
+                .filter(m -> normalize(m.getName()).equals(tableName)).findFirst().orElse(null);
+        if (materialization == null) {
+            return null;
+        }
+        MaterializedTable created = new MaterializedTable(tableName, materialization, database);
+        table = tables.putIfAbsent(key, created);
+        if (table == null) {
+            // the first query goes to the source, the copy is loaded in the background
+            loadExecutor.submit(() -> refresh(created));
+            table = created;
+        }
+        return table;
+    }
+
+    private boolean refresh(MaterializedTable table) {
+        synchronized (table) {
+            long start = System.currentTimeMillis();
+            try {
+                Materialization materialization = table.materialization;
+                if (!materialization.isPartitioned()) {
+                    load(table, null);
+                    table.loaded = true;
+                } else {
+                    for (String partition : listSourcePartitions(table)) {
+                        load(table, partition);
+                        table.partitions.add(partition);
+                    }
+                }
+                log.info("refresh materialization {} cost {}ms", table.name,
+                        System.currentTimeMillis() - start);
+                return true;
+            } catch (Exception e) {
+                log.error("refresh materialization {} error", table.name, e);
+                return false;
+            }
+        }
+    }
+
+    /** Lists the partitions to load: the newest loaded ones and every later partition. */
+    private List<String> listSourcePartitions(MaterializedTable table) throws Exception {
+        String partitionName = table.materialization.getPartitionName();
+        String from = table.refreshFrom(getConfig().getRefreshPartitions());
+        String sql = String.format("SELECT DISTINCT %s FROM %s", partitionName,
+                table.materialization.getName());
+        if (StringUtils.isNotBlank(from)) {
+            sql = sql + String.format(" WHERE %s >= '%s'", partitionName, escape(from));
+        }
+        List<String> partitions = new ArrayList<>();
+        try (QueryResultCursor cursor =
+                getSqlUtils().init(table.database).queryStream(sql, batchSize())) {
+            while (cursor.hasNext()) {
+                RowBatch batch = cursor.next();
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    if (Objects.nonNull(batch.getValue(row, 0))) {
+                        partitions.add(String.valueOf(batch.getValue(row, 0)));
+                    }
+                }
+            }
+        }
+        Collections.sort(partitions);
+        return partitions;
+    }
+
+    /**
+     * Copies the table, or one partition of it, from the source. The old rows are deleted and the
+     * new ones inserted in one duckDb transaction, readers see either version but never a mix.
+     */
+    private void load(MaterializedTable table, String partition) throws Exception {
+        Materialization materialization = table.materialization;
+        List<String> columns = new ArrayList<>(materialization.getColumns());
+        if (materialization.isPartitioned() && !columns.contains(table.partitionName())) {
+            columns.add(table.partitionName());
+        }
+        String selectSql = String.format("SELECT %s FROM %s", String.join(",", columns),
+                materialization.getName());
+        String deleteSql = "DELETE FROM " + table.duckDbName();
+        if (partition != null) {
+            String filter =
+                    String.format(" WHERE %s = '%s'", table.partitionName(), escape(partition));
+            selectSql = selectSql + filter;
+            deleteSql = deleteSql + filter;
+        }
+        try (QueryResultCursor cursor =
+                getSqlUtils().init(table.database).queryStream(selectSql, batchSize());
+                Connection connection = getDuckDbSource().getDuckDbJdbcTemplate().getDataSource()
+                        .getConnection()) {
+            createTable(table, cursor);
+            String insertSql = String.format("INSERT INTO %s VALUES (%s)", table.duckDbName(),
+                    columns.stream().map(c -> "?").collect(Collectors.joining(",")));
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement();
+                    PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                statement.execute(deleteSql);
+                while (cursor.hasNext()) {
+                    RowBatch batch = cursor.next();
+                    for (int row = 0; row < batch.getRowCount(); row++) {
+                        for (int col = 0; col < batch.getColumnCount(); col++) {
+                            insert.setObject(col + 1, batch.getValue(row, col));
+                        }
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                connection.commit();
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void createTable(MaterializedTable table, QueryResultCursor cursor) throws Exception {
+        if (table.created) {
+            return;
+        }
+        JdbcDuckDbUtils.createDatabase(getDuckDbSource(), table.duckDbSchema);
+        int[] sqlTypes = cursor.getSqlTypes();
+        List<String> columnDefs = new ArrayList<>();
+        for (int i = 0; i < sqlTypes.length; i++) {
+            columnDefs.add(String.format("%s %s", cursor.getColumns().get(i).getNameEn(),
+                    toDuckDbType(sqlTypes[i], cursor.getPrecision(i), cursor.getScale(i))));
+        }
+        getDuckDbSource().execute(String.format("CREATE OR REPLACE TABLE %s (%s)",
+                table.duckDbName(), String.join(",", columnDefs)));
+        table.created = true;
+    }
+
+    /**
+     * Values are read normalized from the source, so temporal columns are kept as text. Decimals
+     * keep their precision and scale, only a precision duckDb cannot hold falls back to double.
+     */
+    private static String toDuckDbType(int sqlType, int precision, int scale) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return "BIGINT";
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                if (precision > 0 && precision <= DECIMAL_MAX_PRECISION && scale >= 0
+                        && scale <= precision) {
+                    return String.format("DECIMAL(%d,%d)", precision, scale);
+                }
+                return "DOUBLE";
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+                return "DOUBLE";
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return "BOOLEAN";
+            default:
+                return "VARCHAR";
+        }
+    }
+
+    /**
+     * Points the materialized tables of the query to their copies of the database, and replaces
+     * the backtick quoting of mysql like sources, which duckDb does not support.
+     */
+    private String toDuckDbSql(String sql, Database database) {
+        Select select = SqlSelectHelper.getSelect(sql);
+        if (select == null) {
+            throw new IllegalArgumentException("not a select: " + sql);
+        }
+        Map<String, MaterializedTable> copies = new HashMap<>();
+        tables.values().stream().filter(t -> Objects.equals(t.database.getId(), database.getId()))
+                .forEach(t -> copies.put(t.name, t));
+        new TablesNamesFinder() {
+            @Override
+            public void visit(Table table) {
+                MaterializedTable copy = copies.get(normalize(table.getFullyQualifiedName()));
+                if (copy != null) {
+                    table.setSchemaName(copy.duckDbSchema);
+                    table.setName(copy.duckDbTable);
+                }
+            }
+        }.getTableList(select);
+        String duckDbSql = select.toString();
+        if (!BACKTICK_ENGINES.contains(getEngineType(database))) {
+            return duckDbSql;
+        }
+        StringBuilder builder = new StringBuilder(duckDbSql.length());
+        boolean inLiteral = false;
+        for (char c : duckDbSql.toCharArray()) {
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            }
+            builder.append(!inLiteral && c == '`' ? '"' : c);
+        }
+        return builder.toString();
+    }
+
+    /** Whether the source dialect is known and the query calls only portable functions. */
+    private static boolean isTranslatable(String sql, Database database) {
+        EngineType engineType = getEngineType(database);
+        if (!BACKTICK_ENGINES.contains(engineType) && !ANSI_ENGINES.contains(engineType)) {
+            return false;
+        }
+        Select select = SqlSelectHelper.getSelect(sql);
+        if (select == null) {
+            return false;
+        }
+        FunctionVisitor visitor = new FunctionVisitor();
+        for (Select item : SqlSelectHelper.getAllSelect(select)) {
+            if (!(item instanceof PlainSelect)) {
+                continue;
+            }
+            PlainSelect plainSelect = (PlainSelect) item;
+            for (SelectItem<?> selectItem : plainSelect.getSelectItems()) {
+                selectItem.accept(visitor);
+            }
+            List<Expression> expressions = new ArrayList<>();
+            expressions.add(plainSelect.getWhere());
+            expressions.add(plainSelect.getHaving());
+            if (plainSelect.getGroupBy() != null) {
+                expressions.add(plainSelect.getGroupBy().getGroupByExpressionList());
+            }
+            if (plainSelect.getOrderByElements() != null) {
+                plainSelect.getOrderByElements().stream().map(OrderByElement::getExpression)
+                        .forEach(expressions::add);
+            }
+            if (plainSelect.getJoins() != null) {
+                plainSelect.getJoins().stream().map(Join::getOnExpressions)
+                        .forEach(expressions::addAll);
+            }
+            expressions.stream().filter(Objects::nonNull).forEach(e -> e.accept(visitor));
+        }
+        return visitor.getFunctionNames().stream()
+                .allMatch(f -> PORTABLE_FUNCTIONS.contains(f.toUpperCase()));
+    }
+
+    private static EngineType getEngineType(Database database) {
+        try {
+            return EngineType.fromString(database.getType());
+        } catch (IllegalArgumentException e) {
+            return EngineType.OTHER;
+        }
+    }
+
+    private static Database getDatabase(QueryStatement queryStatement) {
+        return Objects.nonNull(queryStatement.getSemanticModel())
+                ? queryStatement.getSemanticModel().getDatabase()
+                : null;
+    }
+
+    private static Set<String> getTableNames(String sql) {
+        Select select = SqlSelectHelper.getSelect(sql);
+        if (select == null) {
+            return Collections.emptySet();
+        }
+        return new TablesNamesFinder().getTableList(select).stream()
+                .map(DuckDbAccelerator::normalize).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static String normalize(String tableName) {
+        return tableName.replaceAll("[`\"]", "").toLowerCase();
+    }
+
+    private static String escape(String value) {
+        return value.replace("'", "''");
+    }
+
+    private boolean isEnabled() {
+        return Boolean.TRUE.equals(ContextUtils.getBean(ExecutorConfig.class).getDuckEnable());
+    }
+
+    private int batchSize() {
+        return getConfig().getLoadBatchSize();
+    }
+
+    private MaterializationConfig getConfig() {
+        return ContextUtils.getBean(MaterializationConfig.class);
+    }
+
+    private DuckDbSource getDuckDbSource() {
+        return ContextUtils.getBean(DuckDbSource.class);
+    }
+
+    private SqlUtils getSqlUtils() {
+        return ContextUtils.getBean(SqlUtils.class);
+    }
+
+    /** A materialized table and the state of its copy in duckDb. */
+    private static class MaterializedTable {
+
+        private final String name;
+        private final Materialization materialization;
+        private final Database database;
+        /** where the copy lives in duckDb, one schema per source database */
+        private final String duckDbSchema;
+        private final String duckDbTable;
+        private final ConcurrentSkipListSet<String> partitions = new ConcurrentSkipListSet<>();
+        private volatile boolean loaded;
+        private volatile boolean created;
+
+        MaterializedTable(String name, Materialization materialization, Database database) {
+            this.name = name;
+            this.materialization = materialization;
+            this.database = database;
+            int dot = name.lastIndexOf('.');
+            this.duckDbSchema = "db_" + database.getId()
+                    + (dot < 0 ? "" : "_" + name.substring(0, dot).replace('.', '_'));
+            this.duckDbTable = name.substring(dot + 1);
+        }
+
+        String duckDbName() {
+            return duckDbSchema + "." + duckDbTable;
+        }
+
+        String partitionName() {
+            return materialization.getPartitionName();
+        }
+
+        /** The lowest partition to read again, null loads every partition of the source. */
+        String refreshFrom(int refreshPartitions) {
+            if (partitions.isEmpty()) {
+                return CollectionUtils.isEmpty(materialization.getPartitions()) ? null
+                        : Collections.min(materialization.getPartitions());
+            }
+            String from = partitions.last();
+            for (String partition : partitions.descendingSet()) {
+                if (refreshPartitions-- <= 0) {
+                    break;
+                }
+                from = partition;
+            }
+            return from;
+        }
+
+        /**
+         * Whether the copy has all fields of the query and, for a partitioned table, all
+         * partitions of the queried date range. Partitions are loaded without gaps from the lowest
+         * one on, so checking the bounds is enough.
+         */
+        boolean covers(Set<String> fields, QueryStatement queryStatement) {
+            Set<String> columns = new HashSet<>(materialization.getColumns());
+            if (!materialization.isPartitioned()) {
+                return loaded && columns.containsAll(fields);
+            }
+            columns.add(partitionName());
+            Triple<String, String, String> minMaxTime = queryStatement.getMinMaxTime();
+            if (partitions.isEmpty() || !columns.containsAll(fields) || minMaxTime == null
+                    || !partitionName().equalsIgnoreCase(minMaxTime.getLeft())
+                    || StringUtils.isAnyBlank(minMaxTime.getMiddle(), minMaxTime.getRight())) {
+                return false;
+            }
+            return partitions.first().compareTo(minMaxTime.getMiddle()) <= 0
+                    && partitions.last().compareTo(minMaxTime.getRight()) >= 0;
+        }
+    }
+}
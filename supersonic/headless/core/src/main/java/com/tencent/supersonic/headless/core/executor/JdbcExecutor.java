@@ -50,4 +50,30 @@ public class JdbcExecutor implements QueryExecutor {
         }
         return queryResultWithColumns;
     }
+
+    @Override
+    public QueryResultCursor executeStream(QueryStatement queryStatement, int batchSize) {
+        for (QueryAccelerator queryAccelerator : ComponentFactory.getQueryAccelerators()) {
+            if (queryAccelerator.check(queryStatement)) {
+                SemanticQueryResp semanticQueryResp = queryAccelerator.query(queryStatement);
+                if (Objects.nonNull(semanticQueryResp)
+                        && !semanticQueryResp.getResultList().isEmpty()) {
+                    log.info("stream query by Accelerator {}",
+                            queryAccelerator.getClass().getSimpleName());
+                    return new ListResultCursor(semanticQueryResp, batchSize);
+                }
+            }
+        }
+
+        SqlUtils sqlUtils = ContextUtils.getBean(SqlUtils.class);
+        String sql = StringUtils.normalizeSpace(queryStatement.getSql());
+        log.info("executing SQL in stream mode: {}", sql);
+        Database database = queryStatement.getSemanticModel().getDatabase();
+        try {
+            return sqlUtils.init(database).queryStream(queryStatement.getSql(), batchSize);
+        } catch (Exception e) {
+            log.error("queryStream error [{}]", StringUtils.normalizeSpace(e.toString()));
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package com.tencent.supersonic.headless.core.executor;
+
+import com.tencent.supersonic.common.pojo.QueryColumn;
+import com.tencent.supersonic.headless.core.pojo.RowBatch;
+import com.tencent.supersonic.headless.core.utils.JdbcDataSourceUtils;
+import com.tencent.supersonic.headless.core.utils.SqlUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reads rows from an open JDBC {@link ResultSet} batch by batch, by column index. */
+@Slf4j
+public class JdbcResultCursor extends AbstractResultCursor {
+
+    private final Connection connection;
+    private final Statement statement;
+    @Getter
+    private final ResultSet resultSet;
+    private final boolean restoreAutoCommit;
+    private final List<QueryColumn> columns = new ArrayList<>();
+    private final int[] sqlTypes;
+    private final int[] precisions;
+    private final int[] scales;
+    private volatile boolean closed;
+
+    public JdbcResultCursor(Connection connection, Statement statement, ResultSet resultSet,
+            boolean restoreAutoCommit, int batchSize) throws SQLException {
+        super(batchSize);
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.restoreAutoCommit = restoreAutoCommit;
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        this.sqlTypes = new int[metaData.getColumnCount()];
+        this.precisions = new int[metaData.getColumnCount()];
+        this.scales = new int[metaData.getColumnCount()];
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.add(new QueryColumn(metaData.getColumnLabel(i), metaData.getColumnTypeName(i)));
+            sqlTypes[i - 1] = metaData.getColumnType(i);
+            precisions[i - 1] = metaData.getPrecision(i);
+            scales[i - 1] = metaData.getScale(i);
+        }
+    }
+
+    @Override
+    protected RowBatch fetch() {
+        if (closed) {
+            return null;
+        }
+        RowBatch batch = newBatch();
+        Object[] row = new Object[columns.size()];
+        try {
+            while (!batch.isFull() && resultSet.next()) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = SqlUtils.getValue(resultSet.getObject(i + 1));
+                }
+                batch.addRow(row);
+            }
+        } catch (SQLException e) {
+            markFailed();
+            close();
+            throw new RuntimeException("read result set error: " + e.getMessage(), e);
+        }
+        return batch;
+    }
+
+    @Override
+    public List<QueryColumn> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int[] getSqlTypes() {
+        return sqlTypes;
+    }
+
+    @Override
+    public int getPrecision(int column) {
+        return precisions[column];
+    }
+
+    @Override
+    public int getScale(int column) {
+        return scales[column];
+    }
+
+    @Override
+    public void cancel() {
+        if (closed) {
+            return;
+        }
+        try {
+            statement.cancel();
+        } catch (Exception e) {
+            log.warn("Statement cancel error", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        JdbcDataSourceUtils.closeResult(resultSet);
+        try {
+            statement.close();
+        } catch (Exception e) {
+            log.error("Statement close error", e);
+        }
+        if (restoreAutoCommit) {
+            try {
+                connection.setAutoCommit(true);
+            } catch (Exception e) {
+                log.error("Connection reset auto commit error", e);
+            }
+        }
+        JdbcDataSourceUtils.releaseConnection(connection);
+        notifyClosed();
+    }
+}
@@ -0,0 +1,113 @@
+package com.tencent.supersonic.headless.core.executor;
+
+import com.tencent.supersonic.common.pojo.QueryColumn;
+import com.tencent.supersonic.headless.api.pojo.ColumnarResult;
+import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
+import com.tencent.supersonic.headless.core.pojo.RowBatch;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/** Exposes an already materialized {@link SemanticQueryResp} as a cursor. */
+public class ListResultCursor extends AbstractResultCursor {
+
+    private final List<QueryColumn> columns;
+    private final List<Map<String, Object>> resultList;
+    private final ColumnarResult columnarResult;
+    private final int[] columnarIndexes;
+    private int position;
+
+    public ListResultCursor(SemanticQueryResp semanticQueryResp, int batchSize) {
+        super(batchSize);
+        this.columns = semanticQueryResp.getColumns();
+        this.resultList = semanticQueryResp.getResultList();
+        this.columnarResult = semanticQueryResp.getColumnarResult();
+        this.columnarIndexes = new int[columns.size()];
+        for (int i = 0; i < columns.size() && columnarResult != null; i++) {
+            columnarIndexes[i] = columnarResult.indexOf(columns.get(i).getNameEn());
+        }
+        setSql(semanticQueryResp.getSql());
+    }
+
+    @Override
+    protected RowBatch fetch() {
+        if (position >= resultList.size()) {
+            return null;
+        }
+        RowBatch batch = newBatch();
+        Object[] row = new Object[columns.size()];
+        while (position < resultList.size() && !batch.isFull()) {
+            if (columnarResult != null) {
+                // read positionally from the compact form, no row map is built
+                for (int i = 0; i < columns.size(); i++) {
+                    row[i] = columnarIndexes[i] < 0 ? null
+                            : columnarResult.getValue(position, columnarIndexes[i]);
+                }
+                position++;
+            } else {
+                Map<String, Object> line = resultList.get(position++);
+                for (int i = 0; i < columns.size(); i++) {
+                    row[i] = line.get(columns.get(i).getNameEn());
+                }
+            }
+            batch.addRow(row);
+        }
+        return batch;
+    }
+
+    @Override
+    public List<QueryColumn> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int[] getSqlTypes() {
+        int[] sqlTypes = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            sqlTypes[i] = resolveType(i);
+        }
+        return sqlTypes;
+    }
+
+    private int resolveType(int col) {
+        if (columnarResult != null && columnarIndexes[col] >= 0) {
+            switch (columnarResult.getColumnType(columnarIndexes[col])) {
+                case INT:
+                    return Types.INTEGER;
+                case LONG:
+                    return Types.BIGINT;
+                case DOUBLE:
+                    return Types.DOUBLE;
+                case STRING:
+                case TEMPORAL:
+                    return Types.VARCHAR;
+                default:
+                    break;
+            }
+        }
+        String columnName = columns.get(col).getNameEn();
+        Object value = resultList.stream().map(line -> line.get(columnName))
+                .filter(Objects::nonNull).findFirst().orElse(null);
+        if (value instanceof Long) {
+            return Types.BIGINT;
+        }
+        if (value instanceof Integer) {
+            return Types.INTEGER;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return Types.DOUBLE;
+        }
+        if (value instanceof BigDecimal) {
+            return Types.DECIMAL;
+        }
+        return Types.VARCHAR;
+    }
+
+    @Override
+    public void close() {
+        notifyClosed();
+    }
+}
@@ -9,4 +9,12 @@ public interface QueryExecutor {
     boolean accept(QueryStatement queryStatement);
 
     SemanticQueryResp execute(QueryStatement queryStatement);
+
+    /**
+     * Executes the statement in streaming mode. Executors that cannot stream fall back to a full
+     * execution exposed through a cursor.
+     */
+    default QueryResultCursor executeStream(QueryStatement queryStatement, int batchSize) {
+        return new ListResultCursor(execute(queryStatement), batchSize);
+    }
 }
@@ -0,0 +1,52 @@
+package com.tencent.supersonic.headless.core.executor;
+
+import com.tencent.supersonic.common.pojo.QueryColumn;
+import com.tencent.supersonic.headless.core.pojo.RowBatch;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * QueryResultCursor streams a query result as a sequence of {@link RowBatch}es, so that callers
+ * hold at most one batch in memory. Cursors own database resources and must be closed.
+ */
+public interface QueryResultCursor extends Iterator<RowBatch>, AutoCloseable {
+
+    int DEFAULT_BATCH_SIZE = 1000;
+
+    List<QueryColumn> getColumns();
+
+    /** JDBC types of the columns, see {@link java.sql.Types}. */
+    int[] getSqlTypes();
+
+    /** Precision of a decimal column by index, 0 when unknown. */
+    default int getPrecision(int column) {
+        return 0;
+    }
+
+    /** Scale of a decimal column by index, 0 when unknown. */
+    default int getScale(int column) {
+        return 0;
+    }
+
+    String getSql();
+
+    /** Registers a processor applied to every batch before it is returned by {@link #next()}. */
+    void addBatchProcessor(Consumer<RowBatch> processor);
+
+    /** Whether batches are rewritten by processors, raw source rows must not be exposed then. */
+    boolean hasBatchProcessors();
+
+    /**
+     * Registers a callback run once when the cursor is closed or exhausted, with whether reading
+     * it failed.
+     */
+    void addCloseListener(Consumer<Boolean> listener);
+
+    /** Aborts a running query from another thread, the cursor still has to be closed. */
+    default void cancel() {}
+
+    @Override
+    void close();
+}
@@ -125,6 +125,7 @@ public class DuckDbSource {
                             row.put(column, resultSet.getString(i));
                             break;
                         case java.sql.Types.NUMERIC:
+                        case java.sql.Types.DECIMAL:
                             row.put(column, resultSet.getBigDecimal(i));
                             break;
                         case java.sql.Types.TINYINT:
@@ -0,0 +1,81 @@
+package com.tencent.supersonic.headless.core.pojo;
+
+import com.tencent.supersonic.common.pojo.QueryColumn;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of result rows stored column by column. Values are addressed by column index, so
+ * consumers can process a batch without building a map per row.
+ */
+public class RowBatch {
+
+    @Getter
+    private final List<QueryColumn> columns;
+    private final Object[][] values;
+    @Getter
+    private int rowCount;
+
+    public RowBatch(List<QueryColumn> columns, int capacity) {
+        this.columns = columns;
+        this.values = new Object[columns.size()][capacity];
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public int getCapacity() {
+        return values.length == 0 ? 0 : values[0].length;
+    }
+
+    public boolean isFull() {
+        return rowCount >= getCapacity();
+    }
+
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    /** Appends a row, returning its index in this batch. */
+    public int addRow(Object[] row) {
+        int rowIndex = rowCount++;
+        for (int col = 0; col < values.length; col++) {
+            values[col][rowIndex] = row[col];
+        }
+        return rowIndex;
+    }
+
+    public Object getValue(int row, int col) {
+        return values[col][row];
+    }
+
+    public void setValue(int row, int col, Object value) {
+        values[col][row] = value;
+    }
+
+    public int indexOf(String columnName) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getNameEn().equals(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public List<Map<String, Object>> toRows() {
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            for (int col = 0; col < columns.size(); col++) {
+                line.put(columns.get(col).getNameEn(), values[col][row]);
+            }
+            rows.add(line);
+        }
+        return rows;
+    }
+}
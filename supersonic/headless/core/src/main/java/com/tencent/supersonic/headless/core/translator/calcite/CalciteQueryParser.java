@@ -32,22 +32,23 @@ public class CalciteQueryParser implements QueryParser {
         }
         queryStatement.setMetricQueryParam(metricReq);
         SemanticSchema semanticSchema = getSemanticSchema(semanticModel, queryStatement);
-        AggPlanner aggBuilder = new AggPlanner(semanticSchema);
-        aggBuilder.explain(queryStatement, isAgg);
-        EngineType engineType = EngineType.fromString(semanticModel.getDatabase().getType());
-        queryStatement.setSql(aggBuilder.getSql(engineType));
-        if (Objects.nonNull(queryStatement.getEnableOptimize())
-                && queryStatement.getEnableOptimize()
-                && Objects.nonNull(queryStatement.getDataSetAlias())
-                && !queryStatement.getDataSetAlias().isEmpty()) {
-            // simplify model sql with query sql
-            String simplifySql = aggBuilder.simplify(
-                    getSqlByDataSet(engineType, aggBuilder.getSql(engineType),
-                            queryStatement.getDataSetSql(), queryStatement.getDataSetAlias()),
-                    engineType);
-            if (Objects.nonNull(simplifySql) && !simplifySql.isEmpty()) {
-                log.debug("simplifySql [{}]", simplifySql);
-                queryStatement.setDataSetSimplifySql(simplifySql);
+        try (AggPlanner aggBuilder = new AggPlanner(semanticSchema)) {
+            aggBuilder.explain(queryStatement, isAgg);
+            EngineType engineType = EngineType.fromString(semanticModel.getDatabase().getType());
+            queryStatement.setSql(aggBuilder.getSql(engineType));
+            if (Objects.nonNull(queryStatement.getEnableOptimize())
+                    && queryStatement.getEnableOptimize()
+                    && Objects.nonNull(queryStatement.getDataSetAlias())
+                    && !queryStatement.getDataSetAlias().isEmpty()) {
+                // simplify model sql with query sql
+                String simplifySql = aggBuilder.simplify(
+                        getSqlByDataSet(engineType, aggBuilder.getSql(engineType),
+                                queryStatement.getDataSetSql(), queryStatement.getDataSetAlias()),
+                        engineType);
+                if (Objects.nonNull(simplifySql) && !simplifySql.isEmpty()) {
+                    log.debug("simplifySql [{}]", simplifySql);
+                    queryStatement.setDataSetSimplifySql(simplifySql);
+                }
             }
         }
     }
@@ -8,7 +8,7 @@ import com.tencent.supersonic.headless.core.pojo.MetricQueryParam;
 import com.tencent.supersonic.headless.core.pojo.QueryStatement;
 import com.tencent.supersonic.headless.core.translator.calcite.s2sql.Constants;
 import com.tencent.supersonic.headless.core.translator.calcite.s2sql.DataSource;
-import com.tencent.supersonic.headless.core.translator.calcite.schema.SchemaBuilder;
+import com.tencent.supersonic.headless.core.translator.calcite.schema.SchemaScopeCache;
 import com.tencent.supersonic.headless.core.translator.calcite.schema.SemanticSchema;
 import com.tencent.supersonic.headless.core.translator.calcite.sql.Renderer;
 import com.tencent.supersonic.headless.core.translator.calcite.sql.TableView;
@@ -31,11 +31,13 @@ import java.util.Stack;
 
 /** parsing from query dimensions and metrics */
 @Slf4j
-public class AggPlanner implements Planner {
+public class AggPlanner implements Planner, AutoCloseable {
 
     private MetricQueryParam metricReq;
     private SemanticSchema schema;
     private SqlValidatorScope scope;
+    private SchemaScopeCache.PooledScope pooledScope;
+    private boolean completed = false;
     private Stack<TableView> dataSets = new Stack<>();
     private SqlNode parserNode;
     private String sourceId;
@@ -48,7 +50,8 @@ public class AggPlanner implements Planner {
 
     public void parse() throws Exception {
         // find the match Datasource
-        scope = SchemaBuilder.getScope(schema);
+        pooledScope = SchemaScopeCache.borrow(schema);
+        scope = pooledScope.getScope();
         List<DataSource> datasource = getMatchDataSource(scope);
         if (datasource == null || datasource.isEmpty()) {
             throw new Exception("datasource not found");
@@ -115,6 +118,7 @@ public class AggPlanner implements Planner {
         Database database = queryStatement.getSemanticModel().getDatabase();
         EngineType engineType = EngineType.fromString(database.getType());
         optimize(engineType);
+        completed = true;
     }
 
     @Override
@@ -144,6 +148,15 @@ public class AggPlanner implements Planner {
         }
     }
 
+    /** Returns the borrowed scope, the planner can not be used afterwards. */
+    @Override
+    public void close() {
+        if (pooledScope != null) {
+            SchemaScopeCache.release(pooledScope, completed);
+            pooledScope = null;
+        }
+    }
+
     public String optimize(String sql, EngineType engineType) {
         try {
             SqlNode sqlNode =
@@ -0,0 +1,103 @@
+package com.tencent.supersonic.headless.core.translator.calcite.schema;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tencent.supersonic.common.util.ContextUtils;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
+import com.tencent.supersonic.headless.core.translator.calcite.s2sql.DataSource;
+import com.tencent.supersonic.headless.core.translator.calcite.s2sql.SemanticModel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.sql.validate.SqlValidatorScope;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Pools the validator scopes built by {@link SchemaBuilder#getScope(SemanticSchema)}, keyed by the
+ * schema key and the version of the models in the schema. A scope keeps its root schema, so the
+ * source views registered by earlier queries are reused. Scopes are not thread safe, each one is
+ * borrowed by a single query at a time. When a model changes its version changes too and the
+ * scopes built for the old version are dropped.
+ */
+@Slf4j
+public class SchemaScopeCache {
+
+    private static final int MAX_IDLE_SCOPES = 8;
+    /** The validator keeps the types of every validated node, retire it after some queries. */
+    private static final int MAX_SCOPE_USES = 200;
+
+    private static final Cache<String, ScopePool> POOLS = Caffeine.newBuilder().maximumSize(256)
+            .expireAfterAccess(30, TimeUnit.MINUTES).build();
+
+    public static PooledScope borrow(SemanticSchema schema) throws Exception {
+        String schemaKey = schema.getSchemaKey();
+        String version = getVersion(schema.getSemanticModel());
+        ScopePool pool = POOLS.asMap().compute(schemaKey,
+                (key, current) -> current == null || !current.version.equals(version)
+                        ? new ScopePool(version)
+                        : current);
+        PooledScope scope = pool.idle.pollFirst();
+        if (scope == null) {
+            scope = new PooledScope(schemaKey, version, SchemaBuilder.getScope(schema));
+        }
+        scope.uses++;
+        return scope;
+    }
+
+    /**
+     * Returns a scope to its pool. Scopes of a failed query are dropped since the validator may be
+     * left in an inconsistent state.
+     */
+    public static void release(PooledScope scope, boolean reusable) {
+        if (!reusable || scope.uses >= MAX_SCOPE_USES) {
+            return;
+        }
+        ScopePool pool = POOLS.getIfPresent(scope.schemaKey);
+        if (pool != null && pool.version.equals(scope.version)
+                && pool.idle.size() < MAX_IDLE_SCOPES) {
+            pool.idle.offerFirst(scope);
+        }
+    }
+
+    public static void invalidate(String schemaKey) {
+        POOLS.invalidate(schemaKey);
+    }
+
+    private static String getVersion(SemanticModel semanticModel) {
+        String engineType = Objects.isNull(semanticModel.getDatabase()) ? ""
+                : semanticModel.getDatabase().getType();
+        String versionKey = ContextUtils.getBean(SchemaVersionManager.class)
+                .getVersionKey(semanticModel.getDatasourceMap().values().stream()
+                        .map(DataSource::getId).filter(Objects::nonNull).sorted()
+                        .collect(Collectors.toList()));
+        return engineType + ":" + versionKey;
+    }
+
+    private static class ScopePool {
+
+        private final String version;
+        private final ConcurrentLinkedDeque<PooledScope> idle = new ConcurrentLinkedDeque<>();
+
+        private ScopePool(String version) {
+            this.version = version;
+        }
+    }
+
+    public static class PooledScope {
+
+        private final String schemaKey;
+        private final String version;
+        @Getter
+        private final SqlValidatorScope scope;
+        private int uses;
+
+        private PooledScope(String schemaKey, String version, SqlValidatorScope scope) {
+            this.schemaKey = schemaKey;
+            this.version = version;
+            this.scope = scope;
+        }
+    }
+}
@@ -47,6 +47,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -57,6 +58,8 @@ public abstract class SemanticNode {
 
     public static Set<SqlKind> AGGREGATION_KIND = new HashSet<>();
     public static Set<String> AGGREGATION_FUNC = new HashSet<>();
+    private static final Map<EngineType, Set<String>> RESERVED_AND_KEY_WORDS =
+            new ConcurrentHashMap<>();
     public static List<String> groupHints =
             new ArrayList<>(Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8", "9"));
 
@@ -76,10 +79,7 @@ public abstract class SemanticNode {
 
     public static SqlNode parse(String expression, SqlValidatorScope scope, EngineType engineType)
             throws Exception {
-        SqlValidatorWithHints sqlValidatorWithHints = Configuration.getSqlValidatorWithHints(
-                scope.getValidator().getCatalogReader().getRootSchema(), engineType);
-        if (Configuration.getSqlAdvisor(sqlValidatorWithHints, engineType).getReservedAndKeyWords()
-                .contains(expression.toUpperCase())) {
+        if (getReservedAndKeyWords(scope, engineType).contains(expression.toUpperCase())) {
             expression = String.format("`%s`", expression);
         }
         SqlParser sqlParser =
@@ -89,6 +89,24 @@ public abstract class SemanticNode {
         return sqlNode;
     }
 
+    private static Set<String> getReservedAndKeyWords(SqlValidatorScope scope,
+            EngineType engineType) {
+        // the key words only depend on the parser config, build the advisor once per engine
+        if (Objects.isNull(engineType)) {
+            return buildReservedAndKeyWords(scope, null);
+        }
+        return RESERVED_AND_KEY_WORDS.computeIfAbsent(engineType,
+                type -> buildReservedAndKeyWords(scope, type));
+    }
+
+    private static Set<String> buildReservedAndKeyWords(SqlValidatorScope scope,
+            EngineType engineType) {
+        SqlValidatorWithHints sqlValidatorWithHints = Configuration.getSqlValidatorWithHints(
+                scope.getValidator().getCatalogReader().getRootSchema(), engineType);
+        return new HashSet<>(Configuration.getSqlAdvisor(sqlValidatorWithHints, engineType)
+                .getReservedAndKeyWords());
+    }
+
     public static SqlNode buildAs(String asName, SqlNode sqlNode) throws Exception {
         SqlAsOperator sqlAsOperator = new SqlAsOperator();
         SqlIdentifier sqlIdentifier = new SqlIdentifier(asName, SqlParserPos.ZERO);
@@ -3,9 +3,11 @@ package com.tencent.supersonic.headless.core.utils;
 import javax.sql.DataSource;
 
 import com.tencent.supersonic.common.pojo.QueryColumn;
-import com.tencent.supersonic.common.util.DateUtils;
+import com.tencent.supersonic.headless.api.pojo.ColumnarResult;
 import com.tencent.supersonic.headless.api.pojo.enums.DataType;
 import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
+import com.tencent.supersonic.headless.core.executor.JdbcResultCursor;
+import com.tencent.supersonic.headless.core.executor.QueryResultCursor;
 import com.tencent.supersonic.headless.core.pojo.Database;
 import com.tencent.supersonic.headless.core.pojo.JdbcDataSource;
 import io.seata.common.exception.DataAccessException;
@@ -23,12 +25,8 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -101,6 +99,7 @@ public class SqlUtils {
         JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
         jdbcTemplate.setDatabaseProductName(database.getName());
         jdbcTemplate.setFetchSize(500);
+        jdbcTemplate.setMaxRows(resultLimit);
         return jdbcTemplate;
     }
 
@@ -108,6 +107,47 @@ public class SqlUtils {
         getResult(sql, queryResultWithColumns, jdbcTemplate());
     }
 
+    /**
+     * 以游标方式执行SQL查询，按批次读取结果而不是一次性物化全部数据
+     *
+     * 返回的游标持有数据库连接，调用方读取完毕或中途放弃时必须关闭游标
+     *
+     * @param sql 查询语句
+     * @param batchSize 每个批次的行数
+     * @return 结果游标
+     */
+    public QueryResultCursor queryStream(String sql, int batchSize) throws SQLException {
+        Connection connection = jdbcDataSourceUtils.getConnection(database);
+        Statement statement = null;
+        boolean restoreAutoCommit = false;
+        try {
+            if (DataType.POSTGRESQL.equals(dataTypeEnum)
+                    || DataType.OPENGAUSS.equals(dataTypeEnum)) {
+                // postgresql only fetches with a server side cursor inside a transaction
+                restoreAutoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+            }
+            statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            // mysql driver streams row by row only with Integer.MIN_VALUE
+            statement.setFetchSize(
+                    DataType.MYSQL.equals(dataTypeEnum) ? Integer.MIN_VALUE : batchSize);
+            // the same limit as the materialized path, a stream is not unbounded either
+            statement.setMaxRows(resultLimit);
+            ResultSet rs = statement.executeQuery(sql);
+            JdbcResultCursor cursor =
+                    new JdbcResultCursor(connection, statement, rs, restoreAutoCommit, batchSize);
+            cursor.setSql(sql);
+            return cursor;
+        } catch (SQLException e) {
+            if (statement != null) {
+                statement.close();
+            }
+            JdbcDataSourceUtils.releaseConnection(connection);
+            throw e;
+        }
+    }
+
     /**
      * 执行SQL查询并获取结果
      *
@@ -140,9 +180,8 @@ public class SqlUtils {
             // 将列信息设置到queryResultWithColumns对象中
             queryResultWithColumns.setColumns(queryColumns);
 
-            // 从结果集中提取所有数据，并将结果设置到queryResultWithColumns对象中
-            List<Map<String, Object>> resultList = getAllData(rs, queryColumns);
-            queryResultWithColumns.setResultList(resultList);
+            // 按列位置读取所有数据，以列式结构保存，结果行在被访问时才构建
+            queryResultWithColumns.setColumnarResult(getAllData(rs, queryColumns));
             // 返回填充了查询结果的queryResultWithColumns对象
             return queryResultWithColumns;
         });
@@ -238,43 +277,24 @@ public class SqlUtils {
     }
 
 
-    private List<Map<String, Object>> getAllData(ResultSet rs, List<QueryColumn> queryColumns) {
-        List<Map<String, Object>> data = new ArrayList<>();
+    private ColumnarResult getAllData(ResultSet rs, List<QueryColumn> queryColumns) {
+        ColumnarResult columnarResult = new ColumnarResult(queryColumns);
+        Object[] row = new Object[queryColumns.size()];
         try {
             while (rs.next()) {
-                data.add(getLineData(rs, queryColumns));
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                columnarResult.addRow(row);
             }
         } catch (Exception e) {
             log.warn("error in getAllData, e:", e);
         }
-        return data;
+        return columnarResult.seal();
     }
 
-    private Map<String, Object> getLineData(ResultSet rs, List<QueryColumn> queryColumns)
-            throws SQLException {
-        Map<String, Object> map = new LinkedHashMap<>();
-        for (QueryColumn queryColumn : queryColumns) {
-            String colName = queryColumn.getNameEn();
-            Object value = rs.getObject(colName);
-            map.put(colName, getValue(value));
-        }
-        return map;
-    }
-
-    private Object getValue(Object value) {
-        if (value instanceof LocalDate) {
-            LocalDate localDate = (LocalDate) value;
-            return localDate.format(DateTimeFormatter.ofPattern(DateUtils.DEFAULT_DATE_FORMAT));
-        } else if (value instanceof LocalDateTime) {
-            LocalDateTime localDateTime = (LocalDateTime) value;
-            return localDateTime.format(DateTimeFormatter.ofPattern(DateUtils.DEFAULT_TIME_FORMAT));
-        } else if (value instanceof Date) {
-            Date date = (Date) value;
-            return DateUtils.format(date);
-        } else if (value instanceof byte[]) {
-            return new String((byte[]) value);
-        }
-        return value;
+    public static Object getValue(Object value) {
+        return ColumnarResult.normalize(value);
     }
 
     public static final class SqlUtilsBuilder {
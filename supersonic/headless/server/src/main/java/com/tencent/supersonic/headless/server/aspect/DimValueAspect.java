@@ -11,12 +11,13 @@ import com.tencent.supersonic.common.pojo.exception.InvalidArgumentException;
 import com.tencent.supersonic.common.util.JsonUtil;
 import com.tencent.supersonic.headless.api.pojo.DimValueMap;
 import com.tencent.supersonic.headless.api.pojo.MetaFilter;
-import com.tencent.supersonic.headless.api.pojo.SchemaItem;
 import com.tencent.supersonic.headless.api.pojo.request.QuerySqlReq;
 import com.tencent.supersonic.headless.api.pojo.request.QueryStructReq;
 import com.tencent.supersonic.headless.api.pojo.request.SemanticQueryReq;
 import com.tencent.supersonic.headless.api.pojo.response.DimensionResp;
 import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
+import com.tencent.supersonic.headless.core.executor.QueryResultCursor;
+import com.tencent.supersonic.headless.core.pojo.RowBatch;
 import com.tencent.supersonic.headless.server.service.DimensionService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -30,11 +31,11 @@ import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Aspect
 @Component
@@ -47,112 +48,81 @@ public class DimValueAspect {
     @Autowired
     private DimensionService dimensionService;
 
-    @Around("execution(* com.tencent.supersonic.headless.server.facade.service.SemanticLayerService.queryByReq(..))")
+    @Around("execution(* com.tencent.supersonic.headless.server.facade.service.SemanticLayerService.queryByReq*(..))")
     public Object handleDimValue(ProceedingJoinPoint joinPoint) throws Throwable {
         if (!dimensionValueMapEnable) {
             log.debug("dimensionValueMapEnable is false, skip dimensionValueMap");
-            SemanticQueryResp queryResultWithColumns = (SemanticQueryResp) joinPoint.proceed();
-            return queryResultWithColumns;
+            return joinPoint.proceed();
         }
 
         Object[] args = joinPoint.getArgs();
         SemanticQueryReq queryReq = (SemanticQueryReq) args[0];
-        if (queryReq instanceof QueryStructReq) {
-            return handleStructDimValue(joinPoint);
+        if (!(queryReq instanceof QueryStructReq) && !(queryReq instanceof QuerySqlReq)) {
+            throw new InvalidArgumentException("queryReq is not Invalid:" + queryReq);
         }
-        if (queryReq instanceof QuerySqlReq) {
-            return handleSqlDimValue(joinPoint);
-        }
-        throw new InvalidArgumentException("queryReq is not Invalid:" + queryReq);
-    }
-
-    private SemanticQueryResp handleStructDimValue(ProceedingJoinPoint joinPoint) throws Throwable {
-        Object[] args = joinPoint.getArgs();
-        QueryStructReq queryStructReq = (QueryStructReq) args[0];
-        MetaFilter metaFilter = new MetaFilter(Lists.newArrayList(queryStructReq.getModelIds()));
-        List<DimensionResp> dimensions = dimensionService.getDimensions(metaFilter);
-        Map<String, Map<String, String>> dimAndAliasAndTechNamePair =
-                getAliasAndBizNameToTechName(dimensions);
-        Map<String, Map<String, String>> dimAndTechNameAndBizNamePair =
-                getTechNameToBizName(dimensions);
-
-        rewriteFilter(queryStructReq.getDimensionFilters(), dimAndAliasAndTechNamePair);
+        try (QueryAspectContext context = QueryAspectContext.open(queryReq)) {
+            MetaFilter metaFilter = new MetaFilter(Lists.newArrayList(queryReq.getModelIds()));
+            List<DimensionResp> dimensions = dimensionService.getDimensions(metaFilter);
+            if (queryReq instanceof QueryStructReq) {
+                rewriteFilter(((QueryStructReq) queryReq).getDimensionFilters(),
+                        getAliasAndBizNameToTechName(dimensions));
+            } else {
+                rewriteSql(context, (QuerySqlReq) queryReq, dimensions);
+            }
 
-        SemanticQueryResp semanticQueryResp = (SemanticQueryResp) joinPoint.proceed();
-        if (Objects.nonNull(semanticQueryResp)) {
-            rewriteDimValue(semanticQueryResp, dimAndTechNameAndBizNamePair);
+            Object result = joinPoint.proceed();
+            rewriteResult(result, getTechNameToBizName(dimensions));
+            return result;
         }
-
-        return semanticQueryResp;
     }
 
-    public Object handleSqlDimValue(ProceedingJoinPoint joinPoint) throws Throwable {
-        Object[] args = joinPoint.getArgs();
-        QuerySqlReq querySqlReq = (QuerySqlReq) args[0];
-        MetaFilter metaFilter = new MetaFilter(Lists.newArrayList(querySqlReq.getModelIds()));
+    private void rewriteSql(QueryAspectContext context, QuerySqlReq querySqlReq,
+            List<DimensionResp> dimensions) {
+        Map<String, Map<String, String>> nameToAliasAndTechName =
+                getNameToAliasAndTechName(dimensions);
+        if (CollectionUtils.isEmpty(nameToAliasAndTechName)) {
+            return;
+        }
         String sql = querySqlReq.getSql();
         log.debug("correctorSql before replacing:{}", sql);
-        List<FieldExpression> fieldExpressionList = SqlSelectHelper.getWhereExpressions(sql);
-        List<DimensionResp> dimensions = dimensionService.getDimensions(metaFilter);
-        Set<String> fieldNames =
-                dimensions.stream().map(SchemaItem::getName).collect(Collectors.toSet());
         Map<String, Map<String, String>> filedNameToValueMap = new HashMap<>();
-        for (FieldExpression expression : fieldExpressionList) {
-            if (!fieldNames.contains(expression.getFieldName())) {
+        for (FieldExpression expression : SqlSelectHelper.getWhereExpressions(sql)) {
+            Map<String, String> aliasPair = nameToAliasAndTechName.get(expression.getFieldName());
+            if (aliasPair == null) {
                 continue;
             }
-            for (DimensionResp dimension : dimensions) {
-                if (!expression.getFieldName().equals(dimension.getName())
-                        || CollectionUtils.isEmpty(dimension.getDimValueMaps())) {
-                    continue;
-                }
-                // consider '=' filter
-                if (expression.getOperator().equals(FilterOperatorEnum.EQUALS.getValue())) {
-                    dimension.getDimValueMaps().stream().forEach(dimValue -> {
-                        if (!CollectionUtils.isEmpty(dimValue.getAlias()) && dimValue.getAlias()
-                                .contains(expression.getFieldValue().toString())) {
-                            getFiledNameToValueMap(filedNameToValueMap,
-                                    expression.getFieldValue().toString(), dimValue.getTechName(),
-                                    expression.getFieldName());
-                        }
-                    });
+            // consider '=' filter
+            if (FilterOperatorEnum.EQUALS.getValue().equals(expression.getOperator())
+                    && Objects.nonNull(expression.getFieldValue())) {
+                String fieldValue = expression.getFieldValue().toString();
+                String techName = aliasPair.get(fieldValue);
+                if (techName != null) {
+                    getFiledNameToValueMap(filedNameToValueMap, fieldValue, techName,
+                            expression.getFieldName());
                 }
-                // consider 'in' filter,each element needs to judge.
-                replaceInCondition(expression, dimension, filedNameToValueMap);
             }
+            // consider 'in' filter,each element needs to judge.
+            replaceInCondition(expression, aliasPair, filedNameToValueMap);
         }
-        sql = SqlReplaceHelper.replaceValue(sql, filedNameToValueMap);
-        log.debug("correctorSql after replacing:{}", sql);
-        querySqlReq.setSql(sql);
-        Map<String, Map<String, String>> techNameToBizName = getTechNameToBizName(dimensions);
-
-        SemanticQueryResp queryResultWithColumns = (SemanticQueryResp) joinPoint.proceed();
-        if (Objects.nonNull(queryResultWithColumns)) {
-            rewriteDimValue(queryResultWithColumns, techNameToBizName);
+        if (filedNameToValueMap.isEmpty()) {
+            return;
+        }
+        if (SqlReplaceHelper.replaceValue(context.getSelect(sql), filedNameToValueMap, true)) {
+            sql = context.rewritten();
+            log.debug("correctorSql after replacing:{}", sql);
+            querySqlReq.setSql(sql);
         }
-        return queryResultWithColumns;
     }
 
-    public void replaceInCondition(FieldExpression expression, DimensionResp dimension,
+    public void replaceInCondition(FieldExpression expression, Map<String, String> aliasPair,
             Map<String, Map<String, String>> filedNameToValueMap) {
         if (expression.getOperator().equals(FilterOperatorEnum.IN.getValue())) {
             String fieldValue = JsonUtil.toString(expression.getFieldValue());
             fieldValue = fieldValue.replace("'", "");
             List<String> values = JsonUtil.toList(fieldValue, String.class);
-            List<String> revisedValues = new ArrayList<>();
-            for (int i = 0; i < values.size(); i++) {
-                Boolean flag = new Boolean(false);
-                for (DimValueMap dimValueMap : dimension.getDimValueMaps()) {
-                    if (!CollectionUtils.isEmpty(dimValueMap.getAlias())
-                            && dimValueMap.getAlias().contains(values.get(i))) {
-                        flag = true;
-                        revisedValues.add(dimValueMap.getTechName());
-                        break;
-                    }
-                }
-                if (!flag) {
-                    revisedValues.add(values.get(i));
-                }
+            List<String> revisedValues = new ArrayList<>(values.size());
+            for (String value : values) {
+                revisedValues.add(aliasPair.getOrDefault(value, value));
             }
             if (!revisedValues.equals(values)) {
                 getFiledNameToValueMap(filedNameToValueMap, JsonUtil.toString(values),
@@ -168,25 +138,70 @@ public class DimValueAspect {
         filedNameToValueMap.put(fieldName, map);
     }
 
+    private void rewriteResult(Object result,
+            Map<String, Map<String, String>> dimAndTechNameAndBizNamePair) {
+        if (result instanceof SemanticQueryResp) {
+            rewriteDimValue((SemanticQueryResp) result, dimAndTechNameAndBizNamePair);
+        }
+        if (result instanceof QueryResultCursor) {
+            QueryResultCursor cursor = (QueryResultCursor) result;
+            if (selectDimValueMap(cursor.getColumns(), dimAndTechNameAndBizNamePair)) {
+                cursor.addBatchProcessor(
+                        batch -> rewriteDimValue(batch, dimAndTechNameAndBizNamePair));
+            }
+        }
+    }
+
+    private void rewriteDimValue(RowBatch batch,
+            Map<String, Map<String, String>> dimAndTechNameAndBizNamePair) {
+        for (int col = 0; col < batch.getColumnCount(); col++) {
+            Map<String, String> techAndBizPair =
+                    dimAndTechNameAndBizNamePair.get(batch.getColumns().get(col).getNameEn());
+            if (CollectionUtils.isEmpty(techAndBizPair)) {
+                continue;
+            }
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                Object value = batch.getValue(row, col);
+                if (Objects.isNull(value)) {
+                    continue;
+                }
+                String bizValueName = techAndBizPair.get(value.toString());
+                if (StringUtils.isNotEmpty(bizValueName)) {
+                    batch.setValue(row, col, bizValueName);
+                }
+            }
+        }
+    }
+
     private void rewriteDimValue(SemanticQueryResp semanticQueryResp,
             Map<String, Map<String, String>> dimAndTechNameAndBizNamePair) {
-        if (!selectDimValueMap(semanticQueryResp.getColumns(), dimAndTechNameAndBizNamePair)) {
+        if (!selectDimValueMap(semanticQueryResp.getColumns(), dimAndTechNameAndBizNamePair)
+                || CollectionUtils.isEmpty(semanticQueryResp.getResultList())) {
             return;
         }
         log.debug("start rewriteDimValue for resultList");
+        // resolve the lookup of each mapped column once, not per cell
+        Set<String> keys = new LinkedHashSet<>();
+        semanticQueryResp.getColumns().forEach(column -> keys.add(column.getNameEn()));
+        keys.addAll(semanticQueryResp.getResultList().get(0).keySet());
+        List<String> bizNames = new ArrayList<>();
+        List<Map<String, String>> techAndBizPairs = new ArrayList<>();
+        for (String key : keys) {
+            Map<String, String> techAndBizPair = dimAndTechNameAndBizNamePair.get(key);
+            if (!CollectionUtils.isEmpty(techAndBizPair)) {
+                bizNames.add(key);
+                techAndBizPairs.add(techAndBizPair);
+            }
+        }
         for (Map<String, Object> line : semanticQueryResp.getResultList()) {
-            for (String bizName : line.keySet()) {
-                if (dimAndTechNameAndBizNamePair.containsKey(bizName)
-                        && Objects.nonNull(line.get(bizName))) {
-                    String techName = line.get(bizName).toString();
-                    Map<String, String> techAndBizPair = dimAndTechNameAndBizNamePair.get(bizName);
-                    if (!CollectionUtils.isEmpty(techAndBizPair)
-                            && techAndBizPair.containsKey(techName)) {
-                        String bizValueName = techAndBizPair.get(techName);
-                        if (StringUtils.isNotEmpty(bizValueName)) {
-                            line.put(bizName, bizValueName);
-                        }
-                    }
+            for (int i = 0; i < bizNames.size(); i++) {
+                Object value = line.get(bizNames.get(i));
+                if (Objects.isNull(value)) {
+                    continue;
+                }
+                String bizValueName = techAndBizPairs.get(i).get(value.toString());
+                if (StringUtils.isNotEmpty(bizValueName)) {
+                    line.put(bizNames.get(i), bizValueName);
                 }
             }
         }
@@ -284,6 +299,38 @@ public class DimValueAspect {
         return result;
     }
 
+    /**
+     * Returns alias to tech name of the mapped values, by dimension name. An alias of several
+     * values maps to the first one.
+     */
+    private Map<String, Map<String, String>> getNameToAliasAndTechName(
+            List<DimensionResp> dimensions) {
+        Map<String, Map<String, String>> result = new HashMap<>();
+        if (CollectionUtils.isEmpty(dimensions)) {
+            return result;
+        }
+        for (DimensionResp dimension : dimensions) {
+            if (Objects.isNull(dimension) || StringUtils.isEmpty(dimension.getName())
+                    || CollectionUtils.isEmpty(dimension.getDimValueMaps())) {
+                continue;
+            }
+            for (DimValueMap dimValueMap : dimension.getDimValueMaps()) {
+                if (needSkipDimValue(dimValueMap)
+                        || CollectionUtils.isEmpty(dimValueMap.getAlias())) {
+                    continue;
+                }
+                Map<String, String> aliasPair =
+                        result.computeIfAbsent(dimension.getName(), key -> new HashMap<>());
+                for (String alias : dimValueMap.getAlias()) {
+                    if (Objects.nonNull(alias)) {
+                        aliasPair.putIfAbsent(alias, dimValueMap.getTechName());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     private boolean needSkipDimValue(DimValueMap dimValueMap) {
         return Objects.isNull(dimValueMap) || StringUtils.isEmpty(dimValueMap.getTechName());
     }
@@ -0,0 +1,73 @@
+package com.tencent.supersonic.headless.server.aspect;
+
+import com.tencent.supersonic.common.jsqlparser.SqlSelectHelper;
+import com.tencent.supersonic.headless.api.pojo.response.SemanticSchemaResp;
+import lombok.Getter;
+import lombok.Setter;
+import net.sf.jsqlparser.statement.select.Select;
+
+/**
+ * State shared by the query aspects while they handle one request. The aspects wrapping the same
+ * call join the context opened by the outermost one, a nested call with another request opens its
+ * own. The sql rewrites of the aspects are applied to one parsed statement, which is parsed again
+ * only when the sql was changed by other code in between.
+ */
+public class QueryAspectContext implements AutoCloseable {
+
+    private static final ThreadLocal<QueryAspectContext> CURRENT = new ThreadLocal<>();
+
+    private final Object queryReq;
+    private final QueryAspectContext previous;
+    private int joined;
+
+    private Select select;
+    private String selectSql;
+
+    @Getter
+    @Setter
+    private SemanticSchemaResp semanticSchemaResp;
+
+    private QueryAspectContext(Object queryReq, QueryAspectContext previous) {
+        this.queryReq = queryReq;
+        this.previous = previous;
+    }
+
+    public static QueryAspectContext open(Object queryReq) {
+        QueryAspectContext current = CURRENT.get();
+        if (current != null && current.queryReq == queryReq) {
+            current.joined++;
+            return current;
+        }
+        QueryAspectContext context = new QueryAspectContext(queryReq, current);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /** Returns the statement to rewrite for the sql, null if the sql can not be parsed. */
+    public Select getSelect(String sql) {
+        if (select == null || !sql.equals(selectSql)) {
+            select = SqlSelectHelper.getSelect(sql);
+            selectSql = sql;
+        }
+        return select;
+    }
+
+    /** Records that the statement returned by {@link #getSelect} was rewritten, returns its sql. */
+    public String rewritten() {
+        selectSql = select.toString();
+        return selectSql;
+    }
+
+    @Override
+    public void close() {
+        if (joined > 0) {
+            joined--;
+            return;
+        }
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
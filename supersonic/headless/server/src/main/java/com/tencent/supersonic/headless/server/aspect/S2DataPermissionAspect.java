@@ -86,32 +86,34 @@ public class S2DataPermissionAspect {
             throw new RuntimeException("please provide user information");
         }
 
-        SemanticSchemaResp semanticSchemaResp = getSemanticSchemaResp(queryReq);
-        Set<Long> modelIds = getModelIdInQuery(queryReq, semanticSchemaResp);
+        try (QueryAspectContext context = QueryAspectContext.open(queryReq)) {
+            SemanticSchemaResp semanticSchemaResp = getSemanticSchemaResp(context, queryReq);
+            Set<Long> modelIds = getModelIdInQuery(queryReq, semanticSchemaResp);
 
-        // 2. determine whether admin of the model
-        if (checkModelAdmin(user, modelIds)) {
-            return joinPoint.proceed();
-        }
-        // 3. determine whether the model is visible to cur user
-        checkModelVisible(user, modelIds);
+            // 2. determine whether admin of the model
+            if (checkModelAdmin(user, modelIds)) {
+                return joinPoint.proceed();
+            }
+            // 3. determine whether the model is visible to cur user
+            checkModelVisible(user, modelIds);
 
-        // 4. get permissions auth to cur user
-        AuthorizedResourceResp authorizedResource = getAuthorizedResource(user, modelIds);
+            // 4. get permissions auth to cur user
+            AuthorizedResourceResp authorizedResource = getAuthorizedResource(user, modelIds);
 
-        // 5. check col permission
-        if (needQueryData) {
-            checkColPermission(queryReq, authorizedResource, modelIds, semanticSchemaResp);
-        }
-        // 6. check row permission
-        checkRowPermission(queryReq, authorizedResource);
+            // 5. check col permission
+            if (needQueryData) {
+                checkColPermission(queryReq, authorizedResource, modelIds, semanticSchemaResp);
+            }
+            // 6. check row permission
+            checkRowPermission(context, queryReq, authorizedResource);
 
-        // 7. add hint to user
-        Object result = joinPoint.proceed();
-        if (result instanceof SemanticQueryResp) {
-            addHint(modelIds, (SemanticQueryResp) result, authorizedResource);
+            // 7. add hint to user
+            Object result = joinPoint.proceed();
+            if (result instanceof SemanticQueryResp) {
+                addHint(modelIds, (SemanticQueryResp) result, authorizedResource);
+            }
+            return result;
         }
-        return result;
     }
 
     private void checkColPermission(SemanticQueryReq semanticQueryReq,
@@ -151,10 +153,10 @@ public class S2DataPermissionAspect {
         return Sets.newHashSet();
     }
 
-    private void checkRowPermission(SemanticQueryReq queryReq,
+    private void checkRowPermission(QueryAspectContext context, SemanticQueryReq queryReq,
             AuthorizedResourceResp authorizedResource) {
         if (queryReq instanceof QuerySqlReq) {
-            doRowPermission((QuerySqlReq) queryReq, authorizedResource);
+            doRowPermission(context, (QuerySqlReq) queryReq, authorizedResource);
         }
         if (queryReq instanceof QueryStructReq) {
             doRowPermission((QueryStructReq) queryReq, authorizedResource);
@@ -172,14 +174,18 @@ public class S2DataPermissionAspect {
         throw new InvalidArgumentException("queryReq is not Invalid:" + queryReq);
     }
 
-    private SemanticSchemaResp getSemanticSchemaResp(SemanticQueryReq semanticQueryReq) {
-        SchemaFilterReq filter = new SchemaFilterReq();
-        filter.setModelIds(semanticQueryReq.getModelIds());
-        filter.setDataSetId(semanticQueryReq.getDataSetId());
-        return schemaService.fetchSemanticSchema(filter);
+    private SemanticSchemaResp getSemanticSchemaResp(QueryAspectContext context,
+            SemanticQueryReq semanticQueryReq) {
+        if (context.getSemanticSchemaResp() == null) {
+            SchemaFilterReq filter = new SchemaFilterReq();
+            filter.setModelIds(semanticQueryReq.getModelIds());
+            filter.setDataSetId(semanticQueryReq.getDataSetId());
+            context.setSemanticSchemaResp(schemaService.fetchSemanticSchema(filter));
+        }
+        return context.getSemanticSchemaResp();
     }
 
-    private void doRowPermission(QuerySqlReq querySqlReq,
+    private void doRowPermission(QueryAspectContext context, QuerySqlReq querySqlReq,
             AuthorizedResourceResp authorizedResource) {
         log.debug("Start doRowPermission logic");
 
@@ -205,7 +211,10 @@ public class S2DataPermissionAspect {
             Expression expression = CCJSqlParserUtil.parseCondExpression(" ( " + joiner + " ) ");
             if (StringUtils.isNotEmpty(joiner.toString())) {
                 String originalSql = querySqlReq.getSql();
-                String modifiedSql = SqlAddHelper.addWhere(originalSql, expression);
+                String modifiedSql =
+                        SqlAddHelper.addWhere(context.getSelect(originalSql), expression)
+                                ? context.rewritten()
+                                : originalSql;
                 log.info("Before doRowPermission, querySqlReq: {}", originalSql);
                 querySqlReq.setSql(modifiedSql);
                 log.info("After doRowPermission, querySqlReq: {}", modifiedSql);
@@ -12,6 +12,7 @@ import com.tencent.supersonic.headless.api.pojo.response.ItemResp;
 import com.tencent.supersonic.headless.api.pojo.response.MetricResp;
 import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
 import com.tencent.supersonic.headless.api.pojo.response.SemanticTranslateResp;
+import com.tencent.supersonic.headless.core.executor.QueryResultCursor;
 
 import java.util.List;
 
@@ -24,6 +25,13 @@ public interface SemanticLayerService {
 
     SemanticQueryResp queryByReq(SemanticQueryReq queryReq, User user) throws Exception;
 
+    /**
+     * Streams the query result batch by batch instead of materializing it, the returned cursor
+     * must be closed by the caller.
+     */
+    QueryResultCursor queryByReqStream(SemanticQueryReq queryReq, User user, int batchSize)
+            throws Exception;
+
     SemanticQueryResp queryDimensionValue(DimensionValueReq dimensionValueReq, User user);
 
     EntityInfo getEntityInfo(SemanticParseInfo parseInfo, DataSetSchema dataSetSchema, User user);
@@ -34,7 +34,9 @@ import com.tencent.supersonic.headless.chat.knowledge.helper.HanlpHelper;
 import com.tencent.supersonic.headless.chat.knowledge.helper.NatureHelper;
 import com.tencent.supersonic.headless.chat.utils.QueryReqBuilder;
 import com.tencent.supersonic.headless.core.cache.QueryCache;
+import com.tencent.supersonic.headless.core.executor.ListResultCursor;
 import com.tencent.supersonic.headless.core.executor.QueryExecutor;
+import com.tencent.supersonic.headless.core.executor.QueryResultCursor;
 import com.tencent.supersonic.headless.core.pojo.QueryStatement;
 import com.tencent.supersonic.headless.core.translator.SemanticTranslator;
 import com.tencent.supersonic.headless.core.translator.calcite.s2sql.SemanticModel;
@@ -127,49 +129,21 @@ public class S2SemanticLayerService implements SemanticLayerService {
             // 1.initStatInfo
             statUtils.initStatInfo(queryReq, user);
 
-            // 2.query from cache
-
+            // 2.query from cache, identical running queries are executed once
             String cacheKey = queryCache.getCacheKey(queryReq);
-            Object query = queryCache.query(queryReq, cacheKey);
-            if (Objects.nonNull(query)) {
+            SemanticQueryResp queryResp = (SemanticQueryResp) queryCache.query(queryReq, cacheKey,
+                    () -> executeQuery(queryReq, user),
+                    () -> statUtils.updateResultCacheKey(cacheKey));
+            if (Objects.nonNull(queryResp) && queryResp.isUseCache()) {
                 log.info("cacheKey:{},query:{}", cacheKey,
-                        StringUtils.normalizeSpace(query.toString()));
-            }
-            if (Objects.nonNull(query)) {
-                SemanticQueryResp queryResp = (SemanticQueryResp) query;
-                queryResp.setUseCache(true);
+                        StringUtils.normalizeSpace(queryResp.toString()));
                 return queryResp;
             }
             StatUtils.get().setUseResultCache(false);
 
-            // 3 query
-            QueryStatement queryStatement = buildQueryStatement(queryReq, user);
-            SemanticQueryResp queryResp = null;
-
-            // skip translation if already done.
-            if (!queryStatement.isTranslated()) {
-                semanticTranslator.translate(queryStatement);
-            }
-            queryPreCheck(queryStatement);
-
-            for (QueryExecutor queryExecutor : queryExecutors) {
-                if (queryExecutor.accept(queryStatement)) {
-                    queryResp = queryExecutor.execute(queryStatement);
-                    queryUtils.populateQueryColumns(queryResp,
-                            queryStatement.getSemanticSchemaResp());
-                }
-            }
-
-            // 4 reset cache and set stateInfo
-            Boolean setCacheSuccess = queryCache.put(cacheKey, queryResp);
-            if (setCacheSuccess) {
-                // if result is not null, update cache data
-                statUtils.updateResultCacheKey(cacheKey);
-            }
+            // 3 set stateInfo
             if (Objects.isNull(queryResp)) {
                 state = TaskStatusEnum.ERROR;
-            } else {
-                queryResp.appendErrorMsg(queryStatement.getErrMsg());
             }
 
             return queryResp;
@@ -182,6 +156,81 @@ public class S2SemanticLayerService implements SemanticLayerService {
         }
     }
 
+    @SneakyThrows
+    private SemanticQueryResp executeQuery(SemanticQueryReq queryReq, User user) {
+        QueryStatement queryStatement = buildTranslatedStatement(queryReq, user);
+        SemanticQueryResp queryResp = null;
+        for (QueryExecutor queryExecutor : queryExecutors) {
+            if (queryExecutor.accept(queryStatement)) {
+                queryResp = queryExecutor.execute(queryStatement);
+                queryUtils.populateQueryColumns(queryResp, queryStatement.getSemanticSchemaResp());
+            }
+        }
+        if (Objects.nonNull(queryResp)) {
+            queryResp.appendErrorMsg(queryStatement.getErrMsg());
+        }
+        return queryResp;
+    }
+
+    @Override
+    @S2DataPermission
+    @SneakyThrows
+    public QueryResultCursor queryByReqStream(SemanticQueryReq queryReq, User user,
+            int batchSize) {
+        log.info("[stream queryReq:{}]", queryReq);
+        QueryResultCursor cursor = null;
+        try {
+            statUtils.initStatInfo(queryReq, user);
+
+            // serve from cache if the result has already been materialized
+            String cacheKey = queryCache.getCacheKey(queryReq);
+            Object query = queryCache.query(queryReq, cacheKey);
+            if (Objects.nonNull(query)) {
+                return recordStatOnClose(
+                        new ListResultCursor((SemanticQueryResp) query, batchSize));
+            }
+            StatUtils.get().setUseResultCache(false);
+
+            QueryStatement queryStatement = buildTranslatedStatement(queryReq, user);
+            for (QueryExecutor queryExecutor : queryExecutors) {
+                if (queryExecutor.accept(queryStatement)) {
+                    cursor = queryExecutor.executeStream(queryStatement, batchSize);
+                    queryUtils.populateQueryColumns(cursor.getColumns(),
+                            queryStatement.getSemanticSchemaResp());
+                    return recordStatOnClose(cursor);
+                }
+            }
+            throw new RuntimeException("no query executor accepts the query statement");
+        } catch (Exception e) {
+            log.error("exception in queryByReqStream:{}, e: ", queryReq, e);
+            if (Objects.nonNull(cursor)) {
+                cursor.close();
+            }
+            statUtils.statInfo2DbAsync(TaskStatusEnum.ERROR);
+            throw e;
+        }
+    }
+
+    /** The rows of a stream are read after it is returned, so its stat is recorded on close. */
+    private QueryResultCursor recordStatOnClose(QueryResultCursor cursor) {
+        QueryStat queryStat = StatUtils.get();
+        StatUtils.remove();
+        cursor.addCloseListener(failed -> statUtils.statInfo2DbAsync(queryStat,
+                failed ? TaskStatusEnum.ERROR : TaskStatusEnum.SUCCESS));
+        return cursor;
+    }
+
+    private QueryStatement buildTranslatedStatement(SemanticQueryReq queryReq, User user)
+            throws Exception {
+        QueryStatement queryStatement = buildQueryStatement(queryReq, user);
+        // skip translation if already done.
+        if (!queryStatement.isTranslated()) {
+            semanticTranslator.translate(queryStatement);
+        }
+        queryPreCheck(queryStatement);
+        return queryStatement;
+    }
+
     @Override
     public SemanticQueryResp queryDimensionValue(DimensionValueReq dimensionValueReq, User user) {
         SemanticQueryResp semanticQueryResp = new SemanticQueryResp();
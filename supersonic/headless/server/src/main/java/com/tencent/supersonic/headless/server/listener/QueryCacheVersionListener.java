@@ -0,0 +1,42 @@
+package com.tencent.supersonic.headless.server.listener;
+
+import com.tencent.supersonic.common.pojo.Constants;
+import com.tencent.supersonic.common.pojo.DataEvent;
+import com.tencent.supersonic.common.pojo.DataItem;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/** Bumps the schema version of the models whose metrics or dimensions changed. */
+@Component
+@Slf4j
+public class QueryCacheVersionListener implements ApplicationListener<DataEvent> {
+
+    @Autowired
+    private SchemaVersionManager schemaVersionManager;
+
+    @Override
+    public void onApplicationEvent(DataEvent dataEvent) {
+        if (CollectionUtils.isEmpty(dataEvent.getDataItems())) {
+            return;
+        }
+        Set<Long> modelIds = dataEvent.getDataItems().stream().map(DataItem::getModelId)
+                .filter(StringUtils::isNotBlank)
+                .map(modelId -> StringUtils.removeEnd(modelId, Constants.UNDERLINE))
+                .filter(StringUtils::isNumeric).map(Long::valueOf).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        modelIds.forEach(modelId -> {
+            long version = schemaVersionManager.bump(modelId);
+            log.info("model {} schema changed by {} event, version:{}", modelId,
+                    dataEvent.getEventType(), version);
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package com.tencent.supersonic.headless.server.persistence.dataobject;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/** Daily use count of a dimension or metric, maintained from the query stats as they are written. */
+@Data
+@TableName("s2_query_stat_rollup")
+public class QueryStatRollupDO {
+
+    /** yyyy-MM-dd */
+    private String statDate;
+
+    /** 0 when the query had no model */
+    private Long modelId;
+
+    private Long dataSetId;
+
+    /** dimension or metric */
+    private String type;
+
+    private String bizName;
+
+    private Long useCnt;
+}
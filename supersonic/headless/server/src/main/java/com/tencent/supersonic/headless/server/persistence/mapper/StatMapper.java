@@ -2,7 +2,9 @@ package com.tencent.supersonic.headless.server.persistence.mapper;
 
 import com.tencent.supersonic.headless.api.pojo.QueryStat;
 import com.tencent.supersonic.headless.api.pojo.request.ItemUseReq;
+import com.tencent.supersonic.headless.server.persistence.dataobject.QueryStatRollupDO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
 
@@ -11,5 +13,25 @@ public interface StatMapper {
 
     Boolean createRecord(QueryStat queryStatInfo);
 
+    Boolean batchCreateRecord(@Param("list") List<QueryStat> queryStatInfos);
+
     List<QueryStat> getStatInfo(ItemUseReq itemUseCommend);
+
+    Long getMaxStatId();
+
+    List<QueryStat> getStatInfoBetween(@Param("fromId") Long fromId, @Param("toId") Long toId,
+            @Param("limit") int limit);
+
+    int incrementRollup(QueryStatRollupDO rollup);
+
+    int createRollup(QueryStatRollupDO rollup);
+
+    Long getRollupUseCnt(QueryStatRollupDO rollup);
+
+    /** Sets the use count of the rollup row if it is still the expected one. */
+    int updateRollupUseCnt(@Param("rollup") QueryStatRollupDO rollup,
+            @Param("expected") Long expected);
+
+    List<QueryStatRollupDO> getRollupStatInfo(@Param("req") ItemUseReq itemUseReq,
+            @Param("startDate") String startDate);
 }
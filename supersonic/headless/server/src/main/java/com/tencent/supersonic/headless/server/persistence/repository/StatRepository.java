@@ -10,6 +10,25 @@ public interface StatRepository {
 
     Boolean createRecord(QueryStat queryStatInfo);
 
+    /**
+     * Writes the stats with one insert and adds their dimensions and metrics to the rollup. Claims
+     * the rollup backfill first, stats are only written once its range is fixed.
+     */
+    void batchCreateRecord(List<QueryStat> queryStatInfos);
+
+    /**
+     * Fixes the range of the rollup backfill, once per database: the stats up to the highest id
+     * before the first claim. Stats are written after a claim only, so each stat is rolled up
+     * either by the backfill or by {@link #batchCreateRecord(List)}.
+     */
+    void claimRollupBackfill();
+
+    /**
+     * Adds the next batch of the backfill range to the rollup and records the progress with it, a
+     * batch is taken by one instance only. Returns false once the range is done or not claimed.
+     */
+    boolean backfillRollupBatch();
+
     List<ItemUseResp> getStatInfo(ItemUseReq itemUseCommend);
 
     List<QueryStat> getQueryStatInfoWithoutCache(ItemUseReq itemUseCommend);
@@ -6,19 +6,28 @@ import com.tencent.supersonic.common.pojo.enums.TypeEnums;
 import com.tencent.supersonic.headless.api.pojo.QueryStat;
 import com.tencent.supersonic.headless.api.pojo.request.ItemUseReq;
 import com.tencent.supersonic.headless.api.pojo.response.ItemUseResp;
+import com.tencent.supersonic.headless.server.persistence.dataobject.QueryStatRollupDO;
 import com.tencent.supersonic.headless.server.persistence.mapper.StatMapper;
 import com.tencent.supersonic.headless.server.persistence.repository.StatRepository;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.tencent.supersonic.common.pojo.Constants.AT_SYMBOL;
@@ -27,8 +36,16 @@ import static com.tencent.supersonic.common.pojo.Constants.AT_SYMBOL;
 @Repository
 public class StatRepositoryImpl implements StatRepository {
 
+    private static final String ROLLUP_BACKFILL_TYPE = "backfill";
+    /** use_cnt of the marker rows: the last stat id of the backfill, and the last id done */
+    private static final String ROLLUP_BACKFILL_HIGH_WATER = "";
+    private static final String ROLLUP_BACKFILL_PROGRESS = "progress";
+    private static final int ROLLUP_BACKFILL_BATCH = 1000;
+    private static final int BIZ_NAME_MAX_LENGTH = 255;
+
     private final StatMapper statMapper;
     private final ObjectMapper mapper = new ObjectMapper();
+    private volatile boolean rollupClaimed;
 
     public StatRepositoryImpl(StatMapper statMapper) {
         this.statMapper = statMapper;
@@ -40,8 +57,101 @@ public class StatRepositoryImpl implements StatRepository {
     }
 
     @Override
-    @SneakyThrows
+    public void batchCreateRecord(List<QueryStat> queryStatInfos) {
+        if (CollectionUtils.isEmpty(queryStatInfos)) {
+            return;
+        }
+        claimRollupBackfill();
+        statMapper.batchCreateRecord(queryStatInfos);
+        String today = LocalDate.now().toString();
+        addToRollup(queryStatInfos, stat -> Objects.isNull(stat.getStartTime()) ? today
+                : Instant.ofEpochMilli(stat.getStartTime()).atZone(ZoneId.systemDefault())
+                        .toLocalDate().toString());
+    }
+
+    @Override
+    public void claimRollupBackfill() {
+        if (rollupClaimed) {
+            return;
+        }
+        // read before the marker exists, no instance writes stats before that
+        Long maxId = statMapper.getMaxStatId();
+        try {
+            statMapper.createRollup(
+                    backfillMarker(ROLLUP_BACKFILL_HIGH_WATER, Objects.isNull(maxId) ? 0L : maxId));
+            statMapper.createRollup(backfillMarker(ROLLUP_BACKFILL_PROGRESS, 0L));
+        } catch (DuplicateKeyException e) {
+            // claimed by this or another instance
+        }
+        rollupClaimed = true;
+    }
+
+    @Override
+    @Transactional
+    public boolean backfillRollupBatch() {
+        Long highWaterId =
+                statMapper.getRollupUseCnt(backfillMarker(ROLLUP_BACKFILL_HIGH_WATER, 0L));
+        if (Objects.isNull(highWaterId)) {
+            return false;
+        }
+        QueryStatRollupDO progress = backfillMarker(ROLLUP_BACKFILL_PROGRESS, 0L);
+        Long fromId = statMapper.getRollupUseCnt(progress);
+        if (Objects.isNull(fromId)) {
+            // the claim stopped between its two inserts
+            try {
+                statMapper.createRollup(progress);
+            } catch (DuplicateKeyException e) {
+                // created meanwhile by another instance
+            }
+            return true;
+        }
+        if (fromId >= highWaterId) {
+            return false;
+        }
+        List<QueryStat> stats =
+                statMapper.getStatInfoBetween(fromId, highWaterId, ROLLUP_BACKFILL_BATCH);
+        progress.setUseCnt(CollectionUtils.isEmpty(stats) ? highWaterId
+                : stats.get(stats.size() - 1).getId());
+        // the row lock holds other instances until this batch commits, they then update nothing
+        if (statMapper.updateRollupUseCnt(progress, fromId) == 0) {
+            return true;
+        }
+        String today = LocalDate.now().toString();
+        addToRollup(stats, stat -> StringUtils.isEmpty(stat.getCreatedAt()) ? today
+                : StringUtils.left(stat.getCreatedAt(), 10));
+        log.debug("query stat rollup backfilled up to id {} of {}", progress.getUseCnt(),
+                highWaterId);
+        return true;
+    }
+
+    private QueryStatRollupDO backfillMarker(String bizName, Long useCnt) {
+        QueryStatRollupDO marker = new QueryStatRollupDO();
+        marker.setStatDate("1970-01-01");
+        marker.setModelId(0L);
+        marker.setDataSetId(0L);
+        marker.setType(ROLLUP_BACKFILL_TYPE);
+        marker.setBizName(bizName);
+        marker.setUseCnt(useCnt);
+        return marker;
+    }
+
+    @Override
     public List<ItemUseResp> getStatInfo(ItemUseReq itemUseReq) {
+        // the rollup does not keep which metrics were queried together, filter on the stats
+        if (StringUtils.isNotEmpty(itemUseReq.getMetric())) {
+            return getStatInfoFromStats(itemUseReq);
+        }
+        String startDate = StringUtils.isEmpty(itemUseReq.getStartTime()) ? null
+                : StringUtils.left(itemUseReq.getStartTime(), 10);
+        return statMapper.getRollupStatInfo(itemUseReq, startDate).stream()
+                .map(rollup -> new ItemUseResp(rollup.getDataSetId(), rollup.getType(),
+                        rollup.getBizName(), rollup.getUseCnt()))
+                .sorted(Comparator.comparing(ItemUseResp::getUseCnt).reversed())
+                .collect(Collectors.toList());
+    }
+
+    @SneakyThrows
+    private List<ItemUseResp> getStatInfoFromStats(ItemUseReq itemUseReq) {
         List<ItemUseResp> result = new ArrayList<>();
         List<QueryStat> statInfos = statMapper.getStatInfo(itemUseReq);
         Map<String, Long> map = new ConcurrentHashMap<>();
@@ -71,6 +181,68 @@ public class StatRepositoryImpl implements StatRepository {
         return statMapper.getStatInfo(itemUseCommend);
     }
 
+    private void addToRollup(List<QueryStat> stats, Function<QueryStat, String> statDateOf) {
+        Map<String, QueryStatRollupDO> rollups = new HashMap<>();
+        for (QueryStat stat : stats) {
+            if (Objects.isNull(stat.getDataSetId())) {
+                continue;
+            }
+            String statDate = statDateOf.apply(stat);
+            addToRollup(rollups, stat, statDate, TypeEnums.DIMENSION.name().toLowerCase(),
+                    stat.getDimensions());
+            addToRollup(rollups, stat, statDate, TypeEnums.METRIC.name().toLowerCase(),
+                    stat.getMetrics());
+        }
+        rollups.values().forEach(this::incrementRollup);
+    }
+
+    private void addToRollup(Map<String, QueryStatRollupDO> rollups, QueryStat stat,
+            String statDate, String type, String bizNames) {
+        if (StringUtils.isEmpty(bizNames)) {
+            return;
+        }
+        List<String> bizNameList;
+        try {
+            bizNameList = mapper.readValue(bizNames, new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            log.warn("e:{}", e);
+            return;
+        }
+        Long modelId = Objects.isNull(stat.getModelId()) ? 0L : stat.getModelId();
+        for (String bizName : bizNameList) {
+            if (Objects.isNull(bizName)) {
+                continue;
+            }
+            String name = StringUtils.left(bizName, BIZ_NAME_MAX_LENGTH);
+            String key = statDate + AT_SYMBOL + AT_SYMBOL + modelId + AT_SYMBOL + AT_SYMBOL
+                    + stat.getDataSetId() + AT_SYMBOL + AT_SYMBOL + type + AT_SYMBOL + AT_SYMBOL
+                    + name;
+            QueryStatRollupDO rollup = rollups.computeIfAbsent(key, k -> {
+                QueryStatRollupDO created = new QueryStatRollupDO();
+                created.setStatDate(statDate);
+                created.setModelId(modelId);
+                created.setDataSetId(stat.getDataSetId());
+                created.setType(type);
+                created.setBizName(name);
+                created.setUseCnt(0L);
+                return created;
+            });
+            rollup.setUseCnt(rollup.getUseCnt() + 1);
+        }
+    }
+
+    private void incrementRollup(QueryStatRollupDO rollup) {
+        if (statMapper.incrementRollup(rollup) > 0) {
+            return;
+        }
+        try {
+            statMapper.createRollup(rollup);
+        } catch (DuplicateKeyException e) {
+            // created meanwhile by another instance
+            statMapper.incrementRollup(rollup);
+        }
+    }
+
     private void updateStatMapInfo(Map<String, Long> map, String dimensions, String type,
             Long dataSetId) {
         if (StringUtils.isNotEmpty(dimensions)) {
@@ -21,6 +21,7 @@ import com.tencent.supersonic.headless.api.pojo.response.SemanticSchemaResp;
 import com.tencent.supersonic.headless.server.pojo.yaml.DataModelYamlTpl;
 import com.tencent.supersonic.headless.server.pojo.yaml.DimensionYamlTpl;
 import com.tencent.supersonic.headless.server.pojo.yaml.MetricYamlTpl;
+import com.tencent.supersonic.headless.server.utils.SchemaSnapshotStats;
 
 import java.util.List;
 import java.util.Map;
@@ -65,4 +66,7 @@ public interface SchemaService {
     ItemDateResp getItemDate(ItemDateFilter dimension, ItemDateFilter metric);
 
     DatabaseResp getDatabase(Long id);
+
+    /** Counters of the schema snapshot caches, by cache name. */
+    Map<String, SchemaSnapshotStats> getSnapshotStats();
 }
@@ -26,6 +26,7 @@ import com.tencent.supersonic.headless.api.pojo.response.DimensionResp;
 import com.tencent.supersonic.headless.api.pojo.response.DomainResp;
 import com.tencent.supersonic.headless.api.pojo.response.MetricResp;
 import com.tencent.supersonic.headless.api.pojo.response.TagItem;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
 import com.tencent.supersonic.headless.server.persistence.dataobject.DataSetDO;
 import com.tencent.supersonic.headless.server.persistence.mapper.DataSetDOMapper;
 import com.tencent.supersonic.headless.server.service.DataSetService;
@@ -73,6 +74,9 @@ public class DataSetServiceImpl extends ServiceImpl<DataSetDOMapper, DataSetDO>
     @Autowired
     private TagMetaService tagMetaService;
 
+    @Autowired
+    private SchemaVersionManager schemaVersionManager;
+
     @Override
     public DataSetResp save(DataSetReq dataSetReq, User user) {
         dataSetReq.createdBy(user.getName());
@@ -82,6 +86,7 @@ public class DataSetServiceImpl extends ServiceImpl<DataSetDOMapper, DataSetDO>
         conflictCheck(dataSetResp);
         save(dataSetDO);
         dataSetResp.setId(dataSetDO.getId());
+        bumpModelVersions(dataSetResp);
         return dataSetResp;
     }
 
@@ -91,7 +96,12 @@ public class DataSetServiceImpl extends ServiceImpl<DataSetDOMapper, DataSetDO>
         DataSetDO dataSetDO = convert(dataSetReq);
         DataSetResp dataSetResp = convert(dataSetDO);
         conflictCheck(dataSetResp);
+        DataSetDO oldDataSetDO = getById(dataSetDO.getId());
         updateById(dataSetDO);
+        if (oldDataSetDO != null) {
+            bumpModelVersions(convert(oldDataSetDO));
+        }
+        bumpModelVersions(dataSetResp);
         return dataSetResp;
     }
 
@@ -130,6 +140,12 @@ public class DataSetServiceImpl extends ServiceImpl<DataSetDOMapper, DataSetDO>
         dataSetDO.setUpdatedBy(user.getName());
         dataSetDO.setUpdatedAt(new Date());
         updateById(dataSetDO);
+        bumpModelVersions(convert(dataSetDO));
+    }
+
+    /** The schemas built from a data set are versioned by the models it contains. */
+    private void bumpModelVersions(DataSetResp dataSetResp) {
+        dataSetResp.getAllModels().forEach(schemaVersionManager::bump);
     }
 
     @Override
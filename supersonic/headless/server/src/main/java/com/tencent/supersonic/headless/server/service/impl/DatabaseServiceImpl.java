@@ -14,6 +14,7 @@ import com.tencent.supersonic.headless.api.pojo.response.ModelResp;
 import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
 import com.tencent.supersonic.headless.core.adaptor.db.DbAdaptor;
 import com.tencent.supersonic.headless.core.adaptor.db.DbAdaptorFactory;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
 import com.tencent.supersonic.headless.core.pojo.Database;
 import com.tencent.supersonic.headless.core.utils.JdbcDataSourceUtils;
 import com.tencent.supersonic.headless.core.utils.SqlUtils;
@@ -55,6 +56,9 @@ public class DatabaseServiceImpl extends ServiceImpl<DatabaseDOMapper, DatabaseD
     @Autowired
     private ModelService datasourceService;
 
+    @Autowired
+    private SchemaVersionManager schemaVersionManager;
+
     @Override
     public boolean testConnect(DatabaseReq databaseReq, User user) {
         Database database = DatabaseConverter.convert(databaseReq);
@@ -73,6 +77,7 @@ public class DatabaseServiceImpl extends ServiceImpl<DatabaseDOMapper, DatabaseD
             databaseReq.updatedBy(user.getName());
             DatabaseConverter.convert(databaseReq, databaseDO);
             updateById(databaseDO);
+            bumpModelVersions(databaseDO.getId());
             return DatabaseConverter.convertWithPassword(databaseDO);
         }
         databaseReq.createdBy(user.getName());
@@ -81,6 +86,15 @@ public class DatabaseServiceImpl extends ServiceImpl<DatabaseDOMapper, DatabaseD
         return DatabaseConverter.convertWithPassword(databaseDO);
     }
 
+    /** The database type is part of the schema served for its models. */
+    private void bumpModelVersions(Long databaseId) {
+        ModelFilter modelFilter = new ModelFilter();
+        modelFilter.setDatabaseId(databaseId);
+        modelFilter.setIncludesDetail(false);
+        datasourceService.getModelList(modelFilter).stream().map(ModelResp::getId)
+                .forEach(schemaVersionManager::bump);
+    }
+
     @Override
     public List<DatabaseResp> getDatabaseList(User user) {
         List<DatabaseResp> databaseResps =
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
@@ -30,25 +31,34 @@ public class DictWordService {
 
     private List<DictWord> preDictWords = new ArrayList<>();
 
-    public void loadDictWord() {
+    public synchronized void loadDictWord() {
         List<DictWord> dictWords = getAllDictWords();
         setPreDictWords(dictWords);
         knowledgeBaseService.reloadAllData(dictWords);
     }
 
-    public void reloadDictWord() {
+    public synchronized void reloadDictWord() {
         long startTime = System.currentTimeMillis();
         List<DictWord> dictWords = getAllDictWords();
-        List<DictWord> preDictWords = getPreDictWords();
-        if (org.apache.commons.collections.CollectionUtils.isEqualCollection(dictWords,
-                preDictWords)) {
+        Set<DictWord> current = new HashSet<>(dictWords);
+        Set<DictWord> previous = new HashSet<>(getPreDictWords());
+        List<DictWord> removed = previous.stream().filter(word -> !current.contains(word))
+                .collect(Collectors.toList());
+        // a removal drops the natures of the word, add back what the word still has
+        Set<String> removedWords =
+                removed.stream().map(DictWord::getWord).collect(Collectors.toSet());
+        List<DictWord> added = current.stream()
+                .filter(word -> !previous.contains(word) || removedWords.contains(word.getWord()))
+                .collect(Collectors.toList());
+        if (added.isEmpty() && removed.isEmpty()) {
             log.debug("Dictionary hasn't been reloaded.");
             return;
         }
+        knowledgeBaseService.updateDictWords(added, removed);
         setPreDictWords(dictWords);
-        knowledgeBaseService.reloadAllData(getAllDictWords());
         long duration = System.currentTimeMillis() - startTime;
-        log.info("Dictionary has been regularly reloaded in {} milliseconds", duration);
+        log.info("Dictionary has been regularly updated in {} milliseconds, added:{}, removed:{}",
+                duration, added.size(), removed.size());
     }
 
     public List<DictWord> getAllDictWords() {
@@ -11,6 +11,7 @@ import com.tencent.supersonic.headless.api.pojo.request.DomainReq;
 import com.tencent.supersonic.headless.api.pojo.request.DomainUpdateReq;
 import com.tencent.supersonic.headless.api.pojo.response.DomainResp;
 import com.tencent.supersonic.headless.api.pojo.response.ModelResp;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
 import com.tencent.supersonic.headless.server.persistence.dataobject.DomainDO;
 import com.tencent.supersonic.headless.server.persistence.repository.DomainRepository;
 import com.tencent.supersonic.headless.server.service.DomainService;
@@ -40,12 +41,14 @@ public class DomainServiceImpl implements DomainService {
     private final DomainRepository domainRepository;
     private final ModelService modelService;
     private final UserService userService;
+    private final SchemaVersionManager schemaVersionManager;
 
     public DomainServiceImpl(DomainRepository domainRepository, @Lazy ModelService modelService,
-            UserService userService) {
+            UserService userService, SchemaVersionManager schemaVersionManager) {
         this.domainRepository = domainRepository;
         this.modelService = modelService;
         this.userService = userService;
+        this.schemaVersionManager = schemaVersionManager;
     }
 
     @Override
@@ -62,6 +65,9 @@ public class DomainServiceImpl implements DomainService {
         DomainDO domainDO = getDomainDO(domainUpdateReq.getId());
         BeanMapper.mapper(domainUpdateReq, domainDO);
         domainRepository.updateDomain(domainDO);
+        // the models of the domain and its children are served with its settings
+        modelService.getAllModelByDomainIds(Lists.newArrayList(domainDO.getId())).stream()
+                .map(ModelResp::getId).distinct().forEach(schemaVersionManager::bump);
         return DomainConvert.convert(domainDO);
     }
 
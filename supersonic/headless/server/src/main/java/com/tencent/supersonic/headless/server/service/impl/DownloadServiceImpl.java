@@ -6,7 +6,11 @@ import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.ExcelWriter;
 import com.alibaba.excel.util.FileUtils;
 import com.alibaba.excel.write.metadata.WriteSheet;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.tencent.supersonic.common.pojo.Aggregator;
 import com.tencent.supersonic.common.pojo.Constants;
 import com.tencent.supersonic.common.pojo.DateConf;
@@ -26,6 +30,8 @@ import com.tencent.supersonic.headless.api.pojo.request.QueryStructReq;
 import com.tencent.supersonic.headless.api.pojo.response.DimensionResp;
 import com.tencent.supersonic.headless.api.pojo.response.MetricResp;
 import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
+import com.tencent.supersonic.headless.core.executor.QueryResultCursor;
+import com.tencent.supersonic.headless.core.pojo.RowBatch;
 import com.tencent.supersonic.headless.core.utils.DataTransformUtils;
 import com.tencent.supersonic.headless.server.facade.service.SemanticLayerService;
 import com.tencent.supersonic.headless.server.pojo.DataDownload;
@@ -36,21 +42,28 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -63,6 +76,28 @@ public class DownloadServiceImpl implements DownloadService {
 
     private static final String dateFormat = "yyyyMMddHHmmss";
 
+    private static final int downloadBatchSize = 5000;
+
+    /** Cell text written by one export, counted in utf-8 bytes as stored in the sheet. */
+    private static final long downloadByteBudget = 200L * 1024 * 1024;
+
+    private static final int downloadThreads = 8;
+
+    /** Queries of batch downloads a user may run at the same time. */
+    private static final int userParallelism = 3;
+
+    private static final ThreadPoolExecutor downloadExecutor = new ThreadPoolExecutor(
+            downloadThreads, downloadThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("download-query-%d").setDaemon(true).build());
+
+    static {
+        downloadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Held by the running downloads of a user only, so users without downloads are dropped. */
+    private final LoadingCache<String, Semaphore> userPermits = CacheBuilder.newBuilder()
+            .weakValues().build(CacheLoader.from(name -> new Semaphore(userParallelism)));
+
     private MetricService metricService;
 
     private DimensionService dimensionService;
@@ -84,12 +119,23 @@ public class DownloadServiceImpl implements DownloadService {
         File file = FileUtils.createTmpFile(fileName);
         try {
             QueryStructReq queryStructReq = metricService.convert(downloadMetricReq);
-            SemanticQueryResp queryResult =
-                    queryService.queryByReq(queryStructReq.convert(true), user);
-            DataDownload dataDownload =
-                    buildDataDownload(queryResult, queryStructReq, downloadMetricReq.isTransform());
-            EasyExcel.write(file).sheet("Sheet1").head(dataDownload.getHeaders())
-                    .doWrite(dataDownload.getData());
+            if (downloadMetricReq.isTransform()) {
+                SemanticQueryResp queryResult =
+                        queryService.queryByReq(queryStructReq.convert(true), user);
+                DataDownload dataDownload = buildDataDownload(queryResult, queryStructReq, true);
+                new ExportBudget().charge(dataDownload.getData());
+                EasyExcel.write(file).sheet("Sheet1").head(dataDownload.getHeaders())
+                        .doWrite(dataDownload.getData());
+            } else {
+                ExcelWriter excelWriter = EasyExcel.write(file).build();
+                try {
+                    writeSheet(excelWriter, "Sheet1", queryService.queryByReqStream(
+                            queryStructReq.convert(true), user, downloadBatchSize),
+                            new ExportBudget());
+                } finally {
+                    excelWriter.finish();
+                }
+            }
         } catch (RuntimeException e) {
             EasyExcel.write(file).sheet("Sheet1").head(buildErrMessageHead())
                     .doWrite(buildErrMessageData(e.getMessage()));
@@ -126,7 +172,7 @@ public class DownloadServiceImpl implements DownloadService {
         metaFilter.setIds(dimensionIds);
         Map<Long, DimensionResp> dimensionRespMap = dimensionService.getDimensions(metaFilter)
                 .stream().collect(Collectors.toMap(DimensionResp::getId, d -> d));
-        ExcelWriter excelWriter = EasyExcel.write(file).build();
+        List<Callable<PreparedSheet>> sheets = new ArrayList<>();
         int sheetCount = 1;
         for (List<MetricResp> metrics : metricMap.values()) {
             if (CollectionUtils.isEmpty(metrics)) {
@@ -134,29 +180,119 @@ public class DownloadServiceImpl implements DownloadService {
             }
             MetricResp metricResp = metrics.get(0);
             List<DimensionResp> dimensions = getMetricRelaDimensions(metricResp, dimensionRespMap);
+            String sheetName = "Sheet" + sheetCount;
             for (MetricResp metric : metrics) {
-                try {
-                    QueryStructReq queryStructReq =
-                            buildDownloadReq(dimensions, metric, batchDownloadReq);
-                    QuerySqlReq querySqlReq = queryStructReq.convert();
-                    querySqlReq.setNeedAuth(true);
-                    SemanticQueryResp queryResult = queryService.queryByReq(querySqlReq, user);
-                    DataDownload dataDownload = buildDataDownload(queryResult, queryStructReq,
-                            batchDownloadReq.isTransform());
-                    WriteSheet writeSheet = EasyExcel.writerSheet("Sheet" + sheetCount)
-                            .head(dataDownload.getHeaders()).build();
-                    excelWriter.write(dataDownload.getData(), writeSheet);
-                } catch (RuntimeException e) {
-                    EasyExcel.write(file).sheet("Sheet1").head(buildErrMessageHead())
-                            .doWrite(buildErrMessageData(e.getMessage()));
-                    return;
-                }
+                sheets.add(() -> prepareSheet(sheetName, dimensions, metric, batchDownloadReq,
+                        user));
             }
             sheetCount++;
         }
+        ExcelWriter excelWriter = EasyExcel.write(file).build();
+        try {
+            writeSheets(excelWriter, sheets, user);
+        } catch (RuntimeException e) {
+            try {
+                excelWriter.finish();
+            } catch (RuntimeException finishException) {
+                log.warn("failed to finish excel writer", finishException);
+            }
+            EasyExcel.write(file).sheet("Sheet1").head(buildErrMessageHead())
+                    .doWrite(buildErrMessageData(e.getMessage()));
+            return;
+        }
         excelWriter.finish();
     }
 
+    private PreparedSheet prepareSheet(String sheetName, List<DimensionResp> dimensions,
+            MetricResp metric, BatchDownloadReq batchDownloadReq, User user) throws Exception {
+        QueryStructReq queryStructReq = buildDownloadReq(dimensions, metric, batchDownloadReq);
+        QuerySqlReq querySqlReq = queryStructReq.convert();
+        querySqlReq.setNeedAuth(true);
+        if (!batchDownloadReq.isTransform()) {
+            return new PreparedSheet(sheetName,
+                    queryService.queryByReqStream(querySqlReq, user, downloadBatchSize), null);
+        }
+        SemanticQueryResp queryResult = queryService.queryByReq(querySqlReq, user);
+        return new PreparedSheet(sheetName, null,
+                buildDataDownload(queryResult, queryStructReq, true));
+    }
+
+    /**
+     * Runs the queries of the sheets on the download pool ahead of the writer and writes the
+     * sheets in order. A user runs at most {@link #userParallelism} queries at a time over all
+     * of its downloads, a streamed sheet holds its permit until it is written.
+     */
+    private void writeSheets(ExcelWriter excelWriter, List<Callable<PreparedSheet>> sheets,
+            User user) {
+        Semaphore permits = userPermits.getUnchecked(String.valueOf(user.getName()));
+        Deque<Future<PreparedSheet>> pending = new ArrayDeque<>();
+        ExportBudget budget = new ExportBudget();
+        int next = 0;
+        try {
+            while (next < sheets.size() || !pending.isEmpty()) {
+                // only wait for a permit while holding none, so downloads can not block each other
+                while (next < sheets.size()
+                        && (pending.isEmpty() ? acquire(permits) : permits.tryAcquire())) {
+                    pending.add(downloadExecutor.submit(sheets.get(next++)));
+                }
+                try (PreparedSheet sheet = getPreparedSheet(pending.poll())) {
+                    if (Objects.nonNull(sheet.cursor)) {
+                        writeSheet(excelWriter, sheet.sheetName, sheet.cursor, budget);
+                    } else {
+                        budget.charge(sheet.dataDownload.getData());
+                        WriteSheet writeSheet = EasyExcel.writerSheet(sheet.sheetName)
+                                .head(sheet.dataDownload.getHeaders()).build();
+                        excelWriter.write(sheet.dataDownload.getData(), writeSheet);
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+        } finally {
+            for (Future<PreparedSheet> future : pending) {
+                discard(future);
+                permits.release();
+            }
+        }
+    }
+
+    private boolean acquire(Semaphore permits) {
+        try {
+            permits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("download interrupted", e);
+        }
+    }
+
+    private PreparedSheet getPreparedSheet(Future<PreparedSheet> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("download interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void discard(Future<PreparedSheet> future) {
+        if (future.cancel(false)) {
+            return;
+        }
+        try {
+            future.get().close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.debug("discarded sheet failed", e.getCause());
+        }
+    }
+
     private List<List<String>> buildErrMessageHead() {
         List<List<String>> headers = Lists.newArrayList();
         headers.add(Lists.newArrayList("异常提示"));
@@ -169,9 +305,28 @@ public class DownloadServiceImpl implements DownloadService {
         return data;
     }
 
-    private List<List<String>> buildHeader(SemanticQueryResp semanticQueryResp) {
+    /** Writes the cursor into the sheet batch by batch, so only one batch is held in memory. */
+    private void writeSheet(ExcelWriter excelWriter, String sheetName,
+            QueryResultCursor queryResultCursor, ExportBudget budget) {
+        try (QueryResultCursor cursor = queryResultCursor) {
+            WriteSheet writeSheet =
+                    EasyExcel.writerSheet(sheetName).head(buildHeader(cursor.getColumns())).build();
+            boolean written = false;
+            while (cursor.hasNext()) {
+                List<List<String>> data = buildData(cursor.next());
+                budget.charge(data);
+                excelWriter.write(data, writeSheet);
+                written = true;
+            }
+            if (!written) {
+                excelWriter.write(Lists.newArrayList(), writeSheet);
+            }
+        }
+    }
+
+    private List<List<String>> buildHeader(List<QueryColumn> columns) {
         List<List<String>> header = Lists.newArrayList();
-        for (QueryColumn column : semanticQueryResp.getColumns()) {
+        for (QueryColumn column : columns) {
             header.add(Lists.newArrayList(column.getName()));
         }
         return header;
@@ -192,6 +347,18 @@ public class DownloadServiceImpl implements DownloadService {
         return headers;
     }
 
+    private List<List<String>> buildData(RowBatch batch) {
+        List<List<String>> data = new ArrayList<>(batch.getRowCount());
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            List<String> rowData = new ArrayList<>(batch.getColumnCount());
+            for (int col = 0; col < batch.getColumnCount(); col++) {
+                rowData.add(String.valueOf(batch.getValue(row, col)));
+            }
+            data.add(rowData);
+        }
+        return data;
+    }
+
     private List<List<String>> buildData(SemanticQueryResp semanticQueryResp) {
         List<List<String>> data = new ArrayList<>();
         for (Map<String, Object> row : semanticQueryResp.getResultList()) {
@@ -244,7 +411,7 @@ public class DownloadServiceImpl implements DownloadService {
             return DataDownload.builder().headers(headers).data(data).build();
         } else {
             List<List<String>> data = buildData(queryResult);
-            List<List<String>> header = buildHeader(queryResult);
+            List<List<String>> header = buildHeader(queryResult.getColumns());
             return DataDownload.builder().data(data).headers(header).build();
         }
     }
@@ -308,7 +475,6 @@ public class DownloadServiceImpl implements DownloadService {
 
     private void downloadFile(HttpServletResponse response, File file, String filename) {
         try {
-            byte[] buffer = readFileToByteArray(file);
             response.reset();
             response.setCharacterEncoding("UTF-8");
             response.addHeader("Content-Disposition",
@@ -316,7 +482,7 @@ public class DownloadServiceImpl implements DownloadService {
             response.addHeader("Content-Length", "" + file.length());
             try (OutputStream outputStream = new BufferedOutputStream(response.getOutputStream())) {
                 response.setContentType("application/octet-stream");
-                outputStream.write(buffer);
+                Files.copy(file.toPath(), outputStream);
                 outputStream.flush();
             }
         } catch (Exception e) {
@@ -324,11 +490,62 @@ public class DownloadServiceImpl implements DownloadService {
         }
     }
 
-    private byte[] readFileToByteArray(File file) throws IOException {
-        try (InputStream fis = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
-            byte[] buffer = new byte[fis.available()];
-            fis.read(buffer);
-            return buffer;
+    /** A sheet whose query has run, either as an open cursor or as transformed data. */
+    private static class PreparedSheet implements AutoCloseable {
+
+        private final String sheetName;
+        private final QueryResultCursor cursor;
+        private final DataDownload dataDownload;
+
+        PreparedSheet(String sheetName, QueryResultCursor cursor, DataDownload dataDownload) {
+            this.sheetName = sheetName;
+            this.cursor = cursor;
+            this.dataDownload = dataDownload;
+        }
+
+        @Override
+        public void close() {
+            if (Objects.nonNull(cursor)) {
+                cursor.close();
+            }
+        }
+    }
+
+    /** Aborts an export once its cell text exceeds {@link #downloadByteBudget}. */
+    private static class ExportBudget {
+
+        private long remaining = downloadByteBudget;
+
+        void charge(List<List<String>> data) {
+            for (List<String> row : data) {
+                for (String value : row) {
+                    remaining -= value == null ? 0 : utf8Length(value);
+                }
+            }
+            if (remaining < 0) {
+                throw new RuntimeException(String.format(
+                        "download exceeds %d MB, please narrow the query",
+                        downloadByteBudget / 1024 / 1024));
+            }
+        }
+
+        private static long utf8Length(String value) {
+            long length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    length += 1;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
         }
     }
 }
@@ -1,13 +1,11 @@
 package com.tencent.supersonic.headless.server.service.impl;
 
 import javax.sql.RowSetMetaData;
-import javax.sql.rowset.CachedRowSet;
-import javax.sql.rowset.RowSetFactory;
 import javax.sql.rowset.RowSetMetaDataImpl;
-import javax.sql.rowset.RowSetProvider;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
 import com.tencent.supersonic.auth.api.authentication.config.AuthenticationConfig;
@@ -18,12 +16,17 @@ import com.tencent.supersonic.common.pojo.User;
 import com.tencent.supersonic.headless.api.pojo.Param;
 import com.tencent.supersonic.headless.api.pojo.request.QuerySqlReq;
 import com.tencent.supersonic.headless.api.pojo.request.SemanticQueryReq;
-import com.tencent.supersonic.headless.api.pojo.response.SemanticQueryResp;
+import com.tencent.supersonic.headless.core.executor.JdbcResultCursor;
+import com.tencent.supersonic.headless.core.executor.QueryResultCursor;
+import com.tencent.supersonic.headless.core.pojo.RowBatch;
 import com.tencent.supersonic.headless.server.facade.service.SemanticLayerService;
 import com.tencent.supersonic.headless.server.service.FlightService;
 import com.tencent.supersonic.headless.server.utils.FlightUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.arrow.adapter.jdbc.ArrowVectorIterator;
+import org.apache.arrow.adapter.jdbc.JdbcFieldInfo;
+import org.apache.arrow.adapter.jdbc.JdbcToArrowConfig;
+import org.apache.arrow.adapter.jdbc.JdbcToArrowConfigBuilder;
 import org.apache.arrow.adapter.jdbc.JdbcToArrowUtils;
 import org.apache.arrow.flight.CallHeaders;
 import org.apache.arrow.flight.CallStatus;
@@ -41,28 +44,40 @@ import org.apache.arrow.flight.sql.impl.FlightSql.ActionCreatePreparedStatementR
 import org.apache.arrow.flight.sql.impl.FlightSql.CommandPreparedStatementQuery;
 import org.apache.arrow.flight.sql.impl.FlightSql.CommandStatementQuery;
 import org.apache.arrow.flight.sql.impl.FlightSql.TicketStatementQuery;
+import org.apache.arrow.memory.AllocationListener;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.RootAllocator;
-import org.apache.arrow.vector.VectorLoader;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
-import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Types;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.protobuf.Any.pack;
 import static com.google.protobuf.ByteString.copyFrom;
@@ -84,10 +99,23 @@ public class FlightServiceImpl extends BasicFlightSqlProducer implements FlightS
     private final String nameHeaderKey = "name";
     private final String passwordHeaderKey = "password";
     private final Calendar defaultCalendar = JdbcToArrowUtils.getUtcCalendar();
+    private final BufferAllocator rootAllocator = new RootAllocator();
+    private final ScheduledExecutorService allocatorCloser =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("flight-allocator-close-%d").setDaemon(true).build());
     private final SemanticLayerService queryService;
     private final AuthenticationConfig authenticationConfig;
     private final UserService userService;
 
+    @Value("${s2.flight.batch.size:4096}")
+    private int batchSize;
+
+    @Value("${s2.flight.allocator.limit:1073741824}")
+    private long allocatorLimit;
+
+    @Value("${s2.flight.ready.timeout:600000}")
+    private long readyTimeoutMs;
+
     public FlightServiceImpl(SemanticLayerService queryService,
             AuthenticationConfig authenticationConfig, UserService userService) {
         this.queryService = queryService;
@@ -109,6 +137,12 @@ public class FlightServiceImpl extends BasicFlightSqlProducer implements FlightS
                 .expireAfterWrite(expireMinute, TimeUnit.MINUTES).build();
     }
 
+    @Override
+    public void close() throws Exception {
+        allocatorCloser.shutdownNow();
+        rootAllocator.close();
+    }
+
     @Override
     public FlightInfo getFlightInfo(CallContext callContext, FlightDescriptor flightDescriptor) {
         return super.getFlightInfo(callContext, flightDescriptor);
@@ -150,57 +184,159 @@ public class FlightServiceImpl extends BasicFlightSqlProducer implements FlightS
                     CallStatus.INTERNAL.withDescription("Failed to get prepared statement: empty")
                             .toRuntimeException());
             log.error("getStreamPreparedStatement error {}", hander);
-            listener.completed();
             return;
         }
         executorService.submit(() -> {
-            BufferAllocator rootAllocator = new RootAllocator();
+            StreamAllocator streamAllocator = new StreamAllocator();
+            BufferAllocator allocator = streamAllocator.open(hander.toStringUtf8());
             try {
                 Optional<Param> authOpt = semanticQueryReq.getParams().stream().filter(
                         p -> p.getName().equals(authenticationConfig.getTokenHttpHeaderKey()))
                         .findFirst();
-                if (authOpt.isPresent()) {
-                    User user = UserHolder.findUser(authOpt.get().getValue(),
-                            authenticationConfig.getTokenHttpHeaderAppKey());
-                    SemanticQueryResp resp = queryService.queryByReq(semanticQueryReq, user);
-                    ResultSet resultSet =
-                            semanticQueryRespToResultSet(resp, semanticQueryReq.getDataSetId());
-                    final Schema schema =
-                            jdbcToArrowSchema(resultSet.getMetaData(), defaultCalendar);
-                    try (final VectorSchemaRoot vectorSchemaRoot =
-                            VectorSchemaRoot.create(schema, rootAllocator)) {
-                        final VectorLoader loader = new VectorLoader(vectorSchemaRoot);
-                        listener.start(vectorSchemaRoot);
-                        final ArrowVectorIterator iterator =
-                                sqlToArrowVectorIterator(resultSet, rootAllocator);
-                        while (iterator.hasNext()) {
-                            final VectorSchemaRoot batch = iterator.next();
-                            if (batch.getRowCount() == 0) {
-                                break;
-                            }
-                            final VectorUnloader unloader = new VectorUnloader(batch);
-                            loader.load(unloader.getRecordBatch());
-                            listener.putNext();
-                            vectorSchemaRoot.clear();
-                        }
-
-                        listener.putNext();
+                if (!authOpt.isPresent()) {
+                    listener.error(CallStatus.UNAUTHENTICATED
+                            .withDescription("Failed to get exec statement: auth empty")
+                            .toRuntimeException());
+                    return;
+                }
+                User user = UserHolder.findUser(authOpt.get().getValue(),
+                        authenticationConfig.getTokenHttpHeaderAppKey());
+                try (QueryResultCursor cursor =
+                        queryService.queryByReqStream(semanticQueryReq, user, batchSize)) {
+                    StreamControl control = new StreamControl(listener, cursor);
+                    if (cursor instanceof JdbcResultCursor && !cursor.hasBatchProcessors()
+                            && FlightUtils.isNativeTypes(cursor.getSqlTypes())) {
+                        streamResultSet(((JdbcResultCursor) cursor).getResultSet(), allocator,
+                                listener, control);
+                    } else {
+                        streamCursor(cursor, semanticQueryReq.getDataSetId(), allocator,
+                                listener, control);
                     }
+                    control.finish();
                 }
             } catch (Exception e) {
                 listener.error(CallStatus.INTERNAL
                         .withDescription(
                                 String.format("Failed to get exec statement %s", e.getMessage()))
                         .toRuntimeException());
-                log.error("getStreamPreparedStatement error {}", hander);
+                log.error("getStreamPreparedStatement error {}", hander, e);
             } finally {
                 preparedStatementCache.invalidate(hander);
-                listener.completed();
-                rootAllocator.close();
+                streamAllocator.finish();
             }
         });
     }
 
+    /**
+     * Reads the source result set straight into arrow vectors. The root is reused for every batch,
+     * so memory is bounded by one batch whatever the size of the result.
+     */
+    private void streamResultSet(ResultSet resultSet, BufferAllocator allocator,
+            final ServerStreamListener listener, StreamControl control)
+            throws SQLException, IOException {
+        JdbcToArrowConfig config = new JdbcToArrowConfigBuilder(allocator, defaultCalendar)
+                .setTargetBatchSize(batchSize).setReuseVectorSchemaRoot(true)
+                .setJdbcToArrowTypeConverter(this::toArrowType).build();
+        try (final ArrowVectorIterator iterator = sqlToArrowVectorIterator(resultSet, config)) {
+            if (!iterator.hasNext()) {
+                Schema schema = jdbcToArrowSchema(resultSet.getMetaData(), config);
+                try (VectorSchemaRoot empty = VectorSchemaRoot.create(schema, allocator)) {
+                    listener.start(empty);
+                    listener.putNext();
+                }
+                return;
+            }
+            // the same root is refilled by every call to next()
+            VectorSchemaRoot root = iterator.next();
+            try {
+                listener.start(root);
+                do {
+                    if (!control.awaitReady()) {
+                        return;
+                    }
+                    listener.putNext();
+                } while (iterator.hasNext() && iterator.next().getRowCount() > 0);
+            } finally {
+                root.close();
+            }
+        }
+    }
+
+    /** Arrow type of a source column, the same mapping as the columns of a cursor stream. */
+    private ArrowType toArrowType(JdbcFieldInfo fieldInfo) {
+        return JdbcToArrowUtils.getArrowTypeFromJdbcType(
+                new JdbcFieldInfo(FlightUtils.toFlightType(fieldInfo.getJdbcType()),
+                        fieldInfo.getPrecision(), fieldInfo.getScale()),
+                defaultCalendar);
+    }
+
+    /**
+     * Sends the cursor to the listener batch by batch, only one batch is held in memory. The
+     * values of a batch are written straight into the vectors.
+     */
+    private void streamCursor(QueryResultCursor cursor, Long dataSetId, BufferAllocator allocator,
+            final ServerStreamListener listener, StreamControl control) throws SQLException {
+        RowSetMetaData rowSetMetaData = buildRowSetMetaData(cursor, dataSetId);
+        final Schema schema = jdbcToArrowSchema(rowSetMetaData, defaultCalendar);
+        try (final VectorSchemaRoot vectorSchemaRoot =
+                VectorSchemaRoot.create(schema, allocator)) {
+            listener.start(vectorSchemaRoot);
+            while (cursor.hasNext()) {
+                RowBatch batch = cursor.next();
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                // sent batches keep their own buffers, the next one is written to new ones
+                vectorSchemaRoot.clear();
+                vectorSchemaRoot.allocateNew();
+                for (int col = 0; col < batch.getColumnCount(); col++) {
+                    fillVector(vectorSchemaRoot.getVector(col), batch, col);
+                }
+                vectorSchemaRoot.setRowCount(batch.getRowCount());
+                if (!control.awaitReady()) {
+                    return;
+                }
+                listener.putNext();
+            }
+            vectorSchemaRoot.clear();
+            vectorSchemaRoot.setRowCount(0);
+            listener.putNext();
+        }
+    }
+
+    /** Writes a column of the batch, the vector has one of the types of {@link FlightUtils}. */
+    private void fillVector(FieldVector vector, RowBatch batch, int col) {
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            Object value = batch.getValue(row, col);
+            if (value == null) {
+                if (vector instanceof BaseFixedWidthVector) {
+                    ((BaseFixedWidthVector) vector).setNull(row);
+                } else {
+                    ((BaseVariableWidthVector) vector).setNull(row);
+                }
+            } else if (vector instanceof BigIntVector) {
+                ((BigIntVector) vector).setSafe(row, value instanceof Number
+                        ? ((Number) value).longValue()
+                        : Long.parseLong(String.valueOf(value)));
+            } else if (vector instanceof IntVector) {
+                ((IntVector) vector).setSafe(row, value instanceof Number
+                        ? ((Number) value).intValue()
+                        : Integer.parseInt(String.valueOf(value)));
+            } else if (vector instanceof Float8Vector) {
+                ((Float8Vector) vector).setSafe(row, value instanceof Number
+                        ? ((Number) value).doubleValue()
+                        : Double.parseDouble(String.valueOf(value)));
+            } else if (vector instanceof BitVector) {
+                boolean bit = value instanceof Number ? ((Number) value).intValue() != 0
+                        : Boolean.parseBoolean(String.valueOf(value));
+                ((BitVector) vector).setSafe(row, bit ? 1 : 0);
+            } else {
+                ((VarCharVector) vector).setSafe(row,
+                        String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
     @Override
     public void closePreparedStatement(final ActionClosePreparedStatementRequest request,
             final CallContext context, final StreamListener<Result> listener) {
@@ -301,44 +437,139 @@ public class FlightServiceImpl extends BasicFlightSqlProducer implements FlightS
         return auth;
     }
 
-    private ResultSet semanticQueryRespToResultSet(SemanticQueryResp resp, Long dataSetId)
+    private RowSetMetaData buildRowSetMetaData(QueryResultCursor cursor, Long dataSetId)
             throws SQLException {
-        RowSetFactory factory = RowSetProvider.newFactory();
-        CachedRowSet rowset = factory.createCachedRowSet();
         RowSetMetaData rowSetMetaData = new RowSetMetaDataImpl();
-        int columnNum = resp.getColumns().size();
+        int columnNum = cursor.getColumns().size();
+        int[] sqlTypes = cursor.getSqlTypes();
         rowSetMetaData.setColumnCount(columnNum);
         for (int i = 1; i <= columnNum; i++) {
-            String columnName = resp.getColumns().get(i - 1).getNameEn();
-            rowSetMetaData.setColumnName(i, columnName);
-            Optional<Map<String, Object>> valOpt = resp.getResultList().stream()
-                    .filter(r -> r.containsKey(columnName) && Objects.nonNull(r.get(columnName)))
-                    .findFirst();
-            if (valOpt.isPresent()) {
-                int type = FlightUtils.resolveType(valOpt.get());
-                rowSetMetaData.setColumnType(i, type);
-                rowSetMetaData.setNullable(i, FlightUtils.isNullable(type));
-            } else {
-                rowSetMetaData.setNullable(i, ResultSetMetaData.columnNullable);
-                rowSetMetaData.setColumnType(i, Types.VARCHAR);
-            }
+            rowSetMetaData.setColumnName(i, cursor.getColumns().get(i - 1).getNameEn());
+            int type = FlightUtils.toFlightType(sqlTypes[i - 1]);
+            rowSetMetaData.setColumnType(i, type);
+            rowSetMetaData.setNullable(i, ResultSetMetaData.columnNullable);
             rowSetMetaData.setCatalogName(i, String.valueOf(dataSetId));
             rowSetMetaData.setSchemaName(i, dataSetIdHeaderKey);
         }
-        rowset.setMetaData(rowSetMetaData);
-        for (Map<String, Object> row : resp.getResultList()) {
-            rowset.moveToInsertRow();
-            for (int i = 1; i <= columnNum; i++) {
-                String columnName = resp.getColumns().get(i - 1).getNameEn();
-                if (row.containsKey(columnName)) {
-                    rowset.updateObject(i, row.get(columnName));
-                } else {
-                    rowset.updateObject(i, null);
+        return rowSetMetaData;
+    }
+
+    /**
+     * Allocator of one stream. Batches handed to the listener keep their buffers until they are
+     * written to the transport, which may be after the stream returned, so the allocator is closed
+     * by the release of the last buffer. A client that stops reading never releases them, the
+     * allocator is then closed after the ready timeout.
+     */
+    private class StreamAllocator implements AllocationListener {
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile BufferAllocator allocator;
+        private volatile boolean finished;
+        private volatile ScheduledFuture<?> timeout;
+
+        BufferAllocator open(String name) {
+            allocator = rootAllocator.newChildAllocator(name, this, 0, allocatorLimit);
+            return allocator;
+        }
+
+        @Override
+        public void onRelease(long size) {
+            if (finished && allocator.getAllocatedMemory() == 0) {
+                // not from within the release of one of its buffers
+                allocatorCloser.execute(this::close);
+            }
+        }
+
+        /** Called once nothing is allocated for the stream any more. */
+        void finish() {
+            finished = true;
+            if (allocator.getAllocatedMemory() == 0) {
+                close();
+                return;
+            }
+            timeout = allocatorCloser.schedule(this::close, readyTimeoutMs,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            ScheduledFuture<?> scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            try {
+                allocator.close();
+            } catch (IllegalStateException e) {
+                log.warn("flight allocator {} closed with {} bytes still in use",
+                        allocator.getName(), allocator.getAllocatedMemory(), e);
+            }
+        }
+    }
+
+    /**
+     * Backpressure and cancellation of one stream. Batches are only produced while the client is
+     * able to receive them, a cancelled call aborts the running statement.
+     */
+    private class StreamControl {
+
+        private final ServerStreamListener listener;
+        private final Object lock = new Object();
+        private CallStatus abortStatus;
+
+        StreamControl(ServerStreamListener listener, QueryResultCursor cursor) {
+            this.listener = listener;
+            listener.setOnReadyHandler(this::signal);
+            listener.setOnCancelHandler(() -> {
+                log.info("flight stream cancelled by client, sql:{}", cursor.getSql());
+                cursor.cancel();
+                signal();
+            });
+        }
+
+        private void signal() {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+
+        /** Returns false when the stream was cancelled or the client stopped reading. */
+        boolean awaitReady() {
+            long deadline = System.currentTimeMillis() + readyTimeoutMs;
+            synchronized (lock) {
+                while (!listener.isReady() && !listener.isCancelled()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        log.warn("flight client not ready after {}ms, stop streaming",
+                                readyTimeoutMs);
+                        abortStatus = CallStatus.TIMED_OUT.withDescription(
+                                String.format("client not ready after %dms", readyTimeoutMs));
+                        return false;
+                    }
+                    try {
+                        lock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        abortStatus = CallStatus.CANCELLED.withDescription("stream interrupted");
+                        return false;
+                    }
                 }
             }
-            rowset.insertRow();
-            rowset.moveToCurrentRow();
+            if (listener.isCancelled()) {
+                abortStatus = CallStatus.CANCELLED.withDescription("stream cancelled by client");
+                return false;
+            }
+            return true;
+        }
+
+        /** Ends the call, completed when every batch was sent, else with the abort status. */
+        void finish() {
+            if (abortStatus == null) {
+                listener.completed();
+            } else {
+                listener.error(abortStatus.toRuntimeException());
+            }
         }
-        return rowset;
     }
 }
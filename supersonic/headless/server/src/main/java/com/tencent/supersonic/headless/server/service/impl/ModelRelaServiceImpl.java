@@ -10,6 +10,7 @@ import com.tencent.supersonic.common.pojo.User;
 import com.tencent.supersonic.common.util.BeanMapper;
 import com.tencent.supersonic.headless.api.pojo.enums.IdentifyType;
 import com.tencent.supersonic.headless.api.pojo.response.ModelResp;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
 import com.tencent.supersonic.headless.server.persistence.dataobject.ModelRelaDO;
 import com.tencent.supersonic.headless.server.persistence.mapper.ModelRelaDOMapper;
 import com.tencent.supersonic.headless.server.service.ModelRelaService;
@@ -20,7 +21,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ModelRelaServiceImpl extends ServiceImpl<ModelRelaDOMapper, ModelRelaDO>
@@ -30,12 +33,16 @@ public class ModelRelaServiceImpl extends ServiceImpl<ModelRelaDOMapper, ModelRe
     @Autowired
     private ModelService modelService;
 
+    @Autowired
+    private SchemaVersionManager schemaVersionManager;
+
     @Override
     public void save(ModelRela modelRela, User user) {
         check(modelRela);
         modelRela.createdBy(user.getName());
         ModelRelaDO modelRelaDO = convert(modelRela);
         save(modelRelaDO);
+        bumpModelVersions(modelRelaDO);
     }
 
     @Override
@@ -43,7 +50,10 @@ public class ModelRelaServiceImpl extends ServiceImpl<ModelRelaDOMapper, ModelRe
         check(modelRela);
         modelRela.updatedBy(user.getName());
         ModelRelaDO modelRelaDO = convert(modelRela);
+        ModelRelaDO oldModelRelaDO = getById(modelRelaDO.getId());
         updateById(modelRelaDO);
+        bumpModelVersions(oldModelRelaDO);
+        bumpModelVersions(modelRelaDO);
     }
 
     private void check(ModelRela modelRela) {
@@ -85,7 +95,17 @@ public class ModelRelaServiceImpl extends ServiceImpl<ModelRelaDOMapper, ModelRe
 
     @Override
     public void delete(Long id) {
+        ModelRelaDO modelRelaDO = getById(id);
         removeById(id);
+        bumpModelVersions(modelRelaDO);
+    }
+
+    private void bumpModelVersions(ModelRelaDO modelRelaDO) {
+        if (modelRelaDO == null) {
+            return;
+        }
+        Stream.of(modelRelaDO.getFromModelId(), modelRelaDO.getToModelId())
+                .filter(Objects::nonNull).distinct().forEach(schemaVersionManager::bump);
     }
 
     private ModelRela convert(ModelRelaDO modelRelaDO) {
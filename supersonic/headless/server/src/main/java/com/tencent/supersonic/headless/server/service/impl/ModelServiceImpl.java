@@ -32,6 +32,7 @@ import com.tencent.supersonic.headless.api.pojo.response.DomainResp;
 import com.tencent.supersonic.headless.api.pojo.response.MetricResp;
 import com.tencent.supersonic.headless.api.pojo.response.ModelResp;
 import com.tencent.supersonic.headless.api.pojo.response.UnAvailableItemResp;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
 import com.tencent.supersonic.headless.server.modeller.SemanticModeller;
 import com.tencent.supersonic.headless.server.persistence.dataobject.DateInfoDO;
 import com.tencent.supersonic.headless.server.persistence.dataobject.ModelDO;
@@ -96,13 +97,16 @@ public class ModelServiceImpl implements ModelService {
 
     private ModelRelaService modelRelaService;
 
+    private SchemaVersionManager schemaVersionManager;
+
     ExecutorService executor =
             new ThreadPoolExecutor(0, 5, 5L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
 
     public ModelServiceImpl(ModelRepository modelRepository, DatabaseService databaseService,
             @Lazy DimensionService dimensionService, @Lazy MetricService metricService,
             DomainService domainService, UserService userService, DataSetService dataSetService,
-            DateInfoRepository dateInfoRepository, ModelRelaService modelRelaService) {
+            DateInfoRepository dateInfoRepository, ModelRelaService modelRelaService,
+            SchemaVersionManager schemaVersionManager) {
         this.modelRepository = modelRepository;
         this.databaseService = databaseService;
         this.dimensionService = dimensionService;
@@ -112,6 +116,7 @@ public class ModelServiceImpl implements ModelService {
         this.dataSetService = dataSetService;
         this.dateInfoRepository = dateInfoRepository;
         this.modelRelaService = modelRelaService;
+        this.schemaVersionManager = schemaVersionManager;
     }
 
     @Override
@@ -135,6 +140,7 @@ public class ModelServiceImpl implements ModelService {
         modelRepository.updateModel(modelDO);
         batchCreateDimension(modelDO, user);
         batchCreateMetric(modelDO, user);
+        schemaVersionManager.bump(modelDO.getId());
         return ModelConverter.convert(modelDO);
     }
 
@@ -175,6 +181,7 @@ public class ModelServiceImpl implements ModelService {
         datasourceDO.setUpdatedAt(new Date());
         datasourceDO.setUpdatedBy(user.getName());
         modelRepository.updateModel(datasourceDO);
+        schemaVersionManager.bump(id);
     }
 
     @Override
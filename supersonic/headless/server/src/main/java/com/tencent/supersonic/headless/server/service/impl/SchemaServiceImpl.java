@@ -2,8 +2,10 @@ package com.tencent.supersonic.headless.server.service.impl;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.tencent.supersonic.common.pojo.ItemDateResp;
 import com.tencent.supersonic.common.pojo.ModelRela;
 import com.tencent.supersonic.common.pojo.User;
@@ -34,6 +36,7 @@ import com.tencent.supersonic.headless.api.pojo.response.ModelSchemaResp;
 import com.tencent.supersonic.headless.api.pojo.response.SemanticSchemaResp;
 import com.tencent.supersonic.headless.api.pojo.response.TagResp;
 import com.tencent.supersonic.headless.api.pojo.response.TermResp;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
 import com.tencent.supersonic.headless.server.manager.DimensionYamlManager;
 import com.tencent.supersonic.headless.server.manager.MetricYamlManager;
 import com.tencent.supersonic.headless.server.manager.ModelYamlManager;
@@ -55,6 +58,8 @@ import com.tencent.supersonic.headless.server.service.TermService;
 import com.tencent.supersonic.headless.server.utils.DataSetSchemaBuilder;
 import com.tencent.supersonic.headless.server.utils.DimensionConverter;
 import com.tencent.supersonic.headless.server.utils.MetricConverter;
+import com.tencent.supersonic.headless.server.utils.SchemaSnapshotCache;
+import com.tencent.supersonic.headless.server.utils.SchemaSnapshotStats;
 import com.tencent.supersonic.headless.server.utils.StatUtils;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -63,6 +68,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PreDestroy;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -71,6 +78,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -80,14 +89,33 @@ import static com.tencent.supersonic.common.pojo.Constants.AT_SYMBOL;
 @Service
 public class SchemaServiceImpl implements SchemaService {
 
+    /** Usage counts are part of the data set schemas, which are rebuilt when they expire. */
     protected final Cache<String, List<ItemUseResp>> itemUseCache =
-            CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.DAYS).build();
+            CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.DAYS)
+                    .<String, List<ItemUseResp>>removalListener(notification -> {
+                        if (notification.getCause() == RemovalCause.EXPIRED) {
+                            onItemUseExpired();
+                        }
+                    }).build();
+
+    /** Coalesces the changes of one save before rebuilding, and lets its transaction commit. */
+    private static final long SNAPSHOT_REBUILD_DELAY_MS = 1000L;
+
+    /** Schema inputs signal their changes, the max age only bounds a missed one. */
+    private static final long SNAPSHOT_MAX_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static final long SNAPSHOT_EVICT_PERIOD_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final long SNAPSHOT_IDLE_MS = TimeUnit.MINUTES.toMillis(30);
+
+    // one thread, so data set snapshots are rebuilt before the semantic schemas built from them
+    private final ScheduledExecutorService snapshotExecutor =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("schema-snapshot-%d").setDaemon(true).build());
 
-    protected final Cache<DataSetFilterReq, List<DataSetSchemaResp>> dataSetSchemaCache =
-            CacheBuilder.newBuilder().expireAfterWrite(30, TimeUnit.SECONDS).build();
+    private final SchemaSnapshotCache<DataSetFilterReq, List<DataSetSchemaResp>> dataSetSchemaCache;
 
-    protected final Cache<SchemaFilterReq, SemanticSchemaResp> semanticSchemaCache =
-            CacheBuilder.newBuilder().expireAfterWrite(30, TimeUnit.SECONDS).build();
+    private final SchemaSnapshotCache<SchemaFilterReq, SemanticSchemaResp> semanticSchemaCache;
 
     private final StatUtils statUtils;
     private final ModelService modelService;
@@ -106,7 +134,8 @@ public class SchemaServiceImpl implements SchemaService {
     public SchemaServiceImpl(ModelService modelService, DimensionService dimensionService,
             MetricService metricService, DomainService domainService, DataSetService dataSetService,
             ModelRelaService modelRelaService, StatUtils statUtils, TagMetaService tagService,
-            TermService termService, DatabaseService databaseService) {
+            TermService termService, DatabaseService databaseService,
+            SchemaVersionManager schemaVersionManager) {
         this.modelService = modelService;
         this.dimensionService = dimensionService;
         this.metricService = metricService;
@@ -117,18 +146,81 @@ public class SchemaServiceImpl implements SchemaService {
         this.tagService = tagService;
         this.termService = termService;
         this.databaseService = databaseService;
+        this.dataSetSchemaCache = new SchemaSnapshotCache<>("dataSetSchema",
+                filter -> Collections.unmodifiableList(buildDataSetSchema(filter)),
+                this::getModelIds, snapshotExecutor, SNAPSHOT_REBUILD_DELAY_MS,
+                SNAPSHOT_MAX_AGE_MS, SNAPSHOT_IDLE_MS);
+        this.semanticSchemaCache = new SchemaSnapshotCache<>("semanticSchema",
+                filter -> freeze(buildSemanticSchema(filter)), (filter, resp) -> resp.getModelIds(),
+                snapshotExecutor, SNAPSHOT_REBUILD_DELAY_MS, SNAPSHOT_MAX_AGE_MS,
+                SNAPSHOT_IDLE_MS);
+        schemaVersionManager.addListener(modelId -> {
+            dataSetSchemaCache.onModelChanged(modelId);
+            semanticSchemaCache.onModelChanged(modelId);
+        });
+        snapshotExecutor.scheduleWithFixedDelay(() -> {
+            // expired usage counts are only noticed on access otherwise
+            itemUseCache.cleanUp();
+            dataSetSchemaCache.evictIdle();
+            semanticSchemaCache.evictIdle();
+            log.info("{} snapshots: {}", dataSetSchemaCache.getName(),
+                    dataSetSchemaCache.getStats());
+            log.info("{} snapshots: {}", semanticSchemaCache.getName(),
+                    semanticSchemaCache.getStats());
+        }, SNAPSHOT_EVICT_PERIOD_MS, SNAPSHOT_EVICT_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        snapshotExecutor.shutdownNow();
+    }
+
+    @Override
+    public Map<String, SchemaSnapshotStats> getSnapshotStats() {
+        Map<String, SchemaSnapshotStats> stats = new HashMap<>();
+        stats.put(dataSetSchemaCache.getName(), dataSetSchemaCache.getStats());
+        stats.put(semanticSchemaCache.getName(), semanticSchemaCache.getStats());
+        return stats;
+    }
+
+    /** Makes the lists of a shared snapshot read only, their elements are shared as they are. */
+    private SemanticSchemaResp freeze(SemanticSchemaResp resp) {
+        resp.setModelIds(unmodifiable(resp.getModelIds()));
+        resp.setMetrics(unmodifiable(resp.getMetrics()));
+        resp.setDimensions(unmodifiable(resp.getDimensions()));
+        resp.setTags(unmodifiable(resp.getTags()));
+        resp.setModelRelas(unmodifiable(resp.getModelRelas()));
+        resp.setModelResps(unmodifiable(resp.getModelResps()));
+        return resp;
     }
 
+    private static <T> List<T> unmodifiable(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(list);
+    }
+
+    private void onItemUseExpired() {
+        if (dataSetSchemaCache != null && semanticSchemaCache != null) {
+            dataSetSchemaCache.onAllChanged();
+            semanticSchemaCache.onAllChanged();
+        }
+    }
+
+    /** Returns a shared snapshot when the schema cache is enabled, it must not be modified. */
     public List<DataSetSchemaResp> fetchDataSetSchema(DataSetFilterReq filter) {
-        List<DataSetSchemaResp> dataSetList = Lists.newArrayList();
         if (schemaCacheEnable) {
-            dataSetList = dataSetSchemaCache.getIfPresent(filter);
+            return dataSetSchemaCache.get(filter);
         }
-        if (CollectionUtils.isEmpty(dataSetList)) {
-            dataSetList = buildDataSetSchema(filter);
-            dataSetSchemaCache.put(filter, dataSetList);
+        return buildDataSetSchema(filter);
+    }
+
+    private Collection<Long> getModelIds(DataSetFilterReq filter,
+            List<DataSetSchemaResp> dataSetSchemaResps) {
+        if (CollectionUtils.isEmpty(filter.getDataSetIds())) {
+            // all data sets, a new one may be built from any model
+            return null;
         }
-        return dataSetList;
+        return dataSetSchemaResps.stream().map(DataSetSchemaResp::getAllModels)
+                .flatMap(Collection::stream).collect(Collectors.toSet());
     }
 
     public DataSetSchemaResp fetchDataSetSchema(Long dataSetId) {
@@ -419,17 +511,13 @@ public class SchemaServiceImpl implements SchemaService {
         return semanticSchemaResp;
     }
 
+    /** Returns a shared snapshot when the schema cache is enabled, it must not be modified. */
     @Override
     public SemanticSchemaResp fetchSemanticSchema(SchemaFilterReq schemaFilterReq) {
-        SemanticSchemaResp semanticSchemaResp = null;
         if (schemaCacheEnable) {
-            semanticSchemaResp = semanticSchemaCache.getIfPresent(schemaFilterReq);
+            return semanticSchemaCache.get(schemaFilterReq);
         }
-        if (semanticSchemaResp == null) {
-            semanticSchemaResp = buildSemanticSchema(schemaFilterReq);
-            semanticSchemaCache.put(schemaFilterReq, semanticSchemaResp);
-        }
-        return semanticSchemaResp;
+        return buildSemanticSchema(schemaFilterReq);
     }
 
     @SneakyThrows
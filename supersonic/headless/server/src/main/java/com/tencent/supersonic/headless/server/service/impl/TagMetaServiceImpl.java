@@ -18,6 +18,7 @@ import com.tencent.supersonic.headless.api.pojo.response.ModelResp;
 import com.tencent.supersonic.headless.api.pojo.response.TagItem;
 import com.tencent.supersonic.headless.api.pojo.response.TagObjectResp;
 import com.tencent.supersonic.headless.api.pojo.response.TagResp;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
 import com.tencent.supersonic.headless.server.persistence.dataobject.CollectDO;
 import com.tencent.supersonic.headless.server.persistence.dataobject.TagDO;
 import com.tencent.supersonic.headless.server.persistence.repository.TagRepository;
@@ -57,11 +58,12 @@ public class TagMetaServiceImpl implements TagMetaService {
     private final MetricService metricService;
     private final TagObjectService tagObjectService;
     private final DomainService domainService;
+    private final SchemaVersionManager schemaVersionManager;
 
     public TagMetaServiceImpl(TagRepository tagRepository, ModelService modelService,
             CollectService collectService, @Lazy DimensionService dimensionService,
             @Lazy MetricService metricService, TagObjectService tagObjectService,
-            DomainService domainService) {
+            DomainService domainService, SchemaVersionManager schemaVersionManager) {
         this.tagRepository = tagRepository;
         this.modelService = modelService;
         this.collectService = collectService;
@@ -69,6 +71,7 @@ public class TagMetaServiceImpl implements TagMetaService {
         this.metricService = metricService;
         this.tagObjectService = tagObjectService;
         this.domainService = domainService;
+        this.schemaVersionManager = schemaVersionManager;
     }
 
     @Override
@@ -83,6 +86,7 @@ public class TagMetaServiceImpl implements TagMetaService {
         tagDO.setUpdatedBy(user.getName());
         tagDO.setUpdatedAt(date);
         tagRepository.create(tagDO);
+        bumpModelVersion(tagDO.getItemId(), tagDO.getType());
         return getTag(tagDO.getId(), user);
     }
 
@@ -100,7 +104,11 @@ public class TagMetaServiceImpl implements TagMetaService {
 
     @Override
     public Boolean delete(Long id, User user) {
+        TagDO tagDO = tagRepository.getTagById(id);
         tagRepository.delete(id);
+        if (Objects.nonNull(tagDO)) {
+            bumpModelVersion(tagDO.getItemId(), tagDO.getType());
+        }
         return true;
     }
 
@@ -108,7 +116,10 @@ public class TagMetaServiceImpl implements TagMetaService {
     public Boolean deleteBatch(List<TagDeleteReq> tagDeleteReqList, User user) {
         for (TagDeleteReq tagDeleteReq : tagDeleteReqList) {
             try {
+                List<TagDO> tagDOList = getDeletedTags(tagDeleteReq);
                 tagRepository.deleteBatch(tagDeleteReq);
+                tagDOList.forEach(
+                        tagDO -> bumpModelVersion(tagDO.getItemId(), tagDO.getType()));
             } catch (Exception e) {
                 log.warn("createBatch, e:{}", e);
             }
@@ -236,6 +247,40 @@ public class TagMetaServiceImpl implements TagMetaService {
         }
     }
 
+    private List<TagDO> getDeletedTags(TagDeleteReq tagDeleteReq) {
+        List<TagDO> tagDOList = new ArrayList<>();
+        if (CollectionUtils.isNotEmpty(tagDeleteReq.getIds())) {
+            tagDeleteReq.getIds().stream().map(tagRepository::getTagById)
+                    .filter(Objects::nonNull).forEach(tagDOList::add);
+        }
+        if (Objects.nonNull(tagDeleteReq.getTagDefineType())
+                && CollectionUtils.isNotEmpty(tagDeleteReq.getItemIds())) {
+            for (Long itemId : tagDeleteReq.getItemIds()) {
+                TagDO tagDO = new TagDO();
+                tagDO.setItemId(itemId);
+                tagDO.setType(tagDeleteReq.getTagDefineType().name());
+                tagDOList.add(tagDO);
+            }
+        }
+        return tagDOList;
+    }
+
+    /** Tags are part of the model schema, so the model of the tagged item gets a new version. */
+    private void bumpModelVersion(Long itemId, String type) {
+        Long modelId = null;
+        if (TagDefineType.METRIC.name().equalsIgnoreCase(type)) {
+            MetricResp metric = metricService.getMetric(itemId);
+            modelId = Objects.isNull(metric) ? null : metric.getModelId();
+        }
+        if (TagDefineType.DIMENSION.name().equalsIgnoreCase(type)) {
+            DimensionResp dimension = dimensionService.getDimension(itemId);
+            modelId = Objects.isNull(dimension) ? null : dimension.getModelId();
+        }
+        if (Objects.nonNull(modelId)) {
+            schemaVersionManager.bump(modelId);
+        }
+    }
+
     private TagResp convert2Resp(TagDO tagDO) {
         TagResp tagResp = new TagResp();
         BeanUtils.copyProperties(tagDO, tagResp);
@@ -2,28 +2,42 @@ package com.tencent.supersonic.headless.server.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.common.collect.Lists;
 import com.tencent.supersonic.common.pojo.User;
 import com.tencent.supersonic.common.util.BeanMapper;
 import com.tencent.supersonic.common.util.JsonUtil;
 import com.tencent.supersonic.headless.api.pojo.request.MetaBatchReq;
 import com.tencent.supersonic.headless.api.pojo.request.TermReq;
+import com.tencent.supersonic.headless.api.pojo.response.ModelResp;
 import com.tencent.supersonic.headless.api.pojo.response.TermResp;
+import com.tencent.supersonic.headless.core.cache.SchemaVersionManager;
 import com.tencent.supersonic.headless.server.persistence.dataobject.TermDO;
 import com.tencent.supersonic.headless.server.persistence.mapper.TermMapper;
+import com.tencent.supersonic.headless.server.service.ModelService;
 import com.tencent.supersonic.headless.server.service.TermService;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class TermServiceImpl extends ServiceImpl<TermMapper, TermDO> implements TermService {
 
+    @Lazy
+    @Autowired
+    private ModelService modelService;
+
+    @Autowired
+    private SchemaVersionManager schemaVersionManager;
+
     @Override
     public void saveOrUpdate(TermReq termReq, User user) {
         QueryWrapper<TermDO> queryWrapper = new QueryWrapper<>();
@@ -34,13 +48,19 @@ public class TermServiceImpl extends ServiceImpl<TermMapper, TermDO> implements
             termSetDO = new TermDO();
         }
         termReq.updatedBy(user.getName());
+        Long oldDomainId = termSetDO.getDomainId();
         convert(termReq, termSetDO);
         saveOrUpdate(termSetDO);
+        bumpModelVersions(Lists.newArrayList(oldDomainId, termSetDO.getDomainId()));
     }
 
     @Override
     public void delete(Long id) {
+        TermDO termDO = getById(id);
         removeById(id);
+        if (termDO != null) {
+            bumpModelVersions(Lists.newArrayList(termDO.getDomainId()));
+        }
     }
 
     @Override
@@ -48,7 +68,21 @@ public class TermServiceImpl extends ServiceImpl<TermMapper, TermDO> implements
         if (CollectionUtils.isEmpty(metaBatchReq.getIds())) {
             throw new RuntimeException("术语ID不可为空");
         }
+        List<Long> domainIds = listByIds(metaBatchReq.getIds()).stream()
+                .map(TermDO::getDomainId).collect(Collectors.toList());
         removeBatchByIds(metaBatchReq.getIds());
+        bumpModelVersions(domainIds);
+    }
+
+    /** Terms are served with the data sets of their domain, whose models get a new version. */
+    private void bumpModelVersions(List<Long> domainIds) {
+        List<Long> ids = domainIds.stream().filter(Objects::nonNull).distinct()
+                .collect(Collectors.toList());
+        if (CollectionUtils.isEmpty(ids)) {
+            return;
+        }
+        modelService.getAllModelByDomainIds(ids).stream().map(ModelResp::getId).distinct()
+                .forEach(schemaVersionManager::bump);
     }
 
     @Override
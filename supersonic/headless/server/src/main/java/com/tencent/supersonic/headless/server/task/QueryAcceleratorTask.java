@@ -0,0 +1,27 @@
+package com.tencent.supersonic.headless.server.task;
+
+import com.tencent.supersonic.headless.core.executor.QueryAccelerator;
+import com.tencent.supersonic.headless.core.utils.ComponentFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class QueryAcceleratorTask {
+
+    /** reload the data of query accelerators */
+    @Scheduled(cron = "${s2.accelerator.reload.cron:0 0/10 * * * ?}")
+    public void reloadAccelerators() {
+        for (QueryAccelerator queryAccelerator : ComponentFactory.getQueryAccelerators()) {
+            try {
+                boolean success = queryAccelerator.reload();
+                log.debug("reload accelerator {} {}", queryAccelerator.getClass().getSimpleName(),
+                        success);
+            } catch (Exception e) {
+                log.error("reload accelerator {} error",
+                        queryAccelerator.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -33,6 +33,58 @@ public class FlightUtils {
         return Types.VARCHAR;
     }
 
+    /**
+     * Maps the JDBC type of a result column to the type exposed over flight. Temporal values are
+     * already formatted as strings by the executor and decimals are sent as doubles.
+     */
+    public static int toFlightType(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.BOOLEAN:
+            case Types.DOUBLE:
+                return sqlType;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                return Types.INTEGER;
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return Types.DOUBLE;
+            default:
+                return Types.VARCHAR;
+        }
+    }
+
+    /**
+     * Returns true when the source values of all columns can be read as is for their flight type,
+     * so a result set can be sent without going through the executor's value conversion.
+     * Temporal and binary columns are formatted by the executor and are not native.
+     */
+    public static boolean isNativeTypes(int[] sqlTypes) {
+        for (int sqlType : sqlTypes) {
+            if (toFlightType(sqlType) == Types.VARCHAR && !isCharType(sqlType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCharType(int sqlType) {
+        switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     public static int isNullable(int sqlType) throws SQLException {
         switch (sqlType) {
             case Types.VARCHAR:
@@ -1,5 +1,6 @@
 package com.tencent.supersonic.headless.server.utils;
 
+import com.tencent.supersonic.common.jsqlparser.SqlHandle;
 import com.tencent.supersonic.common.jsqlparser.SqlRemoveHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlReplaceHelper;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectFunctionHelper;
@@ -281,7 +282,7 @@ public class QueryReqConverter {
 
     private void generateDerivedMetric(SemanticSchemaResp semanticSchemaResp, AggOption aggOption,
             DataSetQueryParam viewQueryParam) {
-        String sql = viewQueryParam.getSql();
+        SqlHandle sql = SqlHandle.of(viewQueryParam.getSql());
         for (MetricTable metricTable : viewQueryParam.getTables()) {
             Set<String> measures = new HashSet<>();
             Map<String, String> replaces = generateDerivedMetric(semanticSchemaResp, aggOption,
@@ -289,7 +290,7 @@ public class QueryReqConverter {
 
             if (!CollectionUtils.isEmpty(replaces)) {
                 // metricTable sql use measures replace metric
-                sql = SqlReplaceHelper.replaceSqlByExpression(sql, replaces);
+                SqlReplaceHelper.replaceSqlByExpression(sql, replaces);
                 metricTable.setAggOption(AggOption.NATIVE);
                 // metricTable use measures replace metric
                 if (!CollectionUtils.isEmpty(measures)) {
@@ -302,7 +303,7 @@ public class QueryReqConverter {
                 }
             }
         }
-        viewQueryParam.setSql(sql);
+        viewQueryParam.setSql(sql.getSql());
     }
 
     private Map<String, String> generateDerivedMetric(SemanticSchemaResp semanticSchemaResp,
@@ -47,6 +47,13 @@ public class QueryUtils {
         columns.forEach(column -> processColumn(column, namePair, nameTypePair, metricRespMap));
     }
 
+    public void populateQueryColumns(List<QueryColumn> columns,
+            SemanticSchemaResp semanticSchemaResp) {
+        SemanticQueryResp semanticQueryResp = new SemanticQueryResp();
+        semanticQueryResp.setColumns(columns);
+        populateQueryColumns(semanticQueryResp, semanticSchemaResp);
+    }
+
     private Map<String, MetricResp> createMetricRespMap(SemanticSchemaResp semanticSchemaResp) {
         List<MetricSchemaResp> metrics = semanticSchemaResp.getMetrics();
         return metrics.stream()
@@ -0,0 +1,189 @@
+package com.tencent.supersonic.headless.server.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Schema snapshots per key. A snapshot is built once and then replaced as a whole, never changed,
+ * so readers just read the current reference. When a model changes, the snapshots built from it
+ * are rebuilt once in the background and readers keep the previous snapshot until the new one is
+ * swapped in. Only the first read of a key builds in the calling thread.
+ *
+ * <p>Snapshots older than the max age are rebuilt in the background as well, a safety net for a
+ * change that was not signaled. Keys not read for the idle time are dropped.
+ *
+ * <p>Snapshot values are shared by all readers and must not be modified.
+ */
+@Slf4j
+public class SchemaSnapshotCache<K, V> {
+
+    private final String name;
+    private final Function<K, V> builder;
+    private final BiFunction<K, V, Collection<Long>> modelIdsOf;
+    private final ScheduledExecutorService rebuildExecutor;
+    private final long rebuildDelayMs;
+    private final long maxAgeMs;
+    private final long idleMs;
+    private final Map<K, Holder<K, V>> holders = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    private final SchemaSnapshotStats stats = new SchemaSnapshotStats();
+
+    /**
+     * @param modelIdsOf the models a snapshot of a key was built from, a snapshot without models
+     *        is rebuilt on every change
+     * @param rebuildExecutor runs rebuilds in submission order, caches sharing it rebuild in the
+     *        order they were notified of a change
+     */
+    public SchemaSnapshotCache(String name, Function<K, V> builder,
+            BiFunction<K, V, Collection<Long>> modelIdsOf, ScheduledExecutorService rebuildExecutor,
+            long rebuildDelayMs, long maxAgeMs, long idleMs) {
+        this.name = name;
+        this.builder = builder;
+        this.modelIdsOf = modelIdsOf;
+        this.rebuildExecutor = rebuildExecutor;
+        this.rebuildDelayMs = rebuildDelayMs;
+        this.maxAgeMs = maxAgeMs;
+        this.idleMs = idleMs;
+    }
+
+    public V get(K key) {
+        Holder<K, V> holder = holders.computeIfAbsent(key, Holder::new);
+        holder.lastReadAt = System.currentTimeMillis();
+        Snapshot<V> snapshot = holder.snapshot;
+        if (snapshot == null) {
+            synchronized (holder) {
+                if (holder.snapshot == null) {
+                    build(holder);
+                }
+                snapshot = holder.snapshot;
+            }
+        } else if (holder.lastReadAt - snapshot.builtAt > maxAgeMs) {
+            scheduleRebuild(holder);
+        }
+        return snapshot.value;
+    }
+
+    /** Rebuilds the snapshots built from the model, and those not built from any model. */
+    public void onModelChanged(Long modelId) {
+        changes.incrementAndGet();
+        for (Holder<K, V> holder : holders.values()) {
+            Snapshot<V> snapshot = holder.snapshot;
+            if (snapshot != null && (snapshot.modelIds.isEmpty()
+                    || snapshot.modelIds.contains(modelId))) {
+                scheduleRebuild(holder);
+            }
+        }
+    }
+
+    /** Rebuilds all snapshots, for an input that is not tied to models. */
+    public void onAllChanged() {
+        changes.incrementAndGet();
+        for (Holder<K, V> holder : holders.values()) {
+            if (holder.snapshot != null) {
+                scheduleRebuild(holder);
+            }
+        }
+    }
+
+    /** Drops the keys not read for the idle time. */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        holders.values().removeIf(holder -> now - holder.lastReadAt > idleMs);
+    }
+
+    public SchemaSnapshotStats getStats() {
+        long now = System.currentTimeMillis();
+        long maxAge = 0L;
+        for (Holder<K, V> holder : holders.values()) {
+            Snapshot<V> snapshot = holder.snapshot;
+            if (snapshot != null) {
+                maxAge = Math.max(maxAge, now - snapshot.builtAt);
+            }
+        }
+        stats.setSnapshots(holders.size(), maxAge);
+        return stats;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void scheduleRebuild(Holder<K, V> holder) {
+        if (holder.scheduled.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(() -> rebuild(holder), rebuildDelayMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuild(Holder<K, V> holder) {
+        // a change from now on schedules another rebuild
+        holder.scheduled.set(false);
+        if (holders.get(holder.key) != holder) {
+            return;
+        }
+        try {
+            build(holder);
+        } catch (RuntimeException e) {
+            stats.recordFailure();
+            log.warn("{} snapshot rebuild failed, key:{}", name, holder.key, e);
+        }
+    }
+
+    private void build(Holder<K, V> holder) {
+        long version = changes.get();
+        long start = System.currentTimeMillis();
+        V value = builder.apply(holder.key);
+        Collection<Long> modelIds = value == null ? null : modelIdsOf.apply(holder.key, value);
+        Snapshot<V> snapshot = new Snapshot<>(value, version, start,
+                modelIds == null ? Collections.emptySet() : new HashSet<>(modelIds));
+        synchronized (holder) {
+            // a first read and a rebuild may race, keep the snapshot that saw more changes
+            if (holder.snapshot == null || holder.snapshot.version <= version) {
+                holder.snapshot = snapshot;
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        stats.recordRebuild(elapsed);
+        log.debug("{} snapshot built, key:{}, version:{}, cost:{}ms", name, holder.key, version,
+                elapsed);
+    }
+
+    private static class Holder<K, V> {
+
+        private final K key;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile Snapshot<V> snapshot;
+        private volatile long lastReadAt;
+
+        Holder(K key) {
+            this.key = key;
+        }
+    }
+
+    private static class Snapshot<V> {
+
+        private final V value;
+        private final long version;
+        private final long builtAt;
+        private final Set<Long> modelIds;
+
+        Snapshot(V value, long version, long builtAt, Set<Long> modelIds) {
+            this.value = value;
+            this.version = version;
+            this.builtAt = builtAt;
+            this.modelIds = modelIds;
+        }
+    }
+}
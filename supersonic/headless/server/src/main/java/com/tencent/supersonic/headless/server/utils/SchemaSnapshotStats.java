@@ -0,0 +1,64 @@
+package com.tencent.supersonic.headless.server.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters of one schema snapshot cache. */
+public class SchemaSnapshotStats {
+
+    private final LongAdder rebuildCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final AtomicLong lastRebuildMs = new AtomicLong();
+    private final AtomicLong maxRebuildMs = new AtomicLong();
+    private volatile int snapshotCount;
+    private volatile long maxSnapshotAgeMs;
+
+    public void recordRebuild(long elapsedMs) {
+        rebuildCount.increment();
+        lastRebuildMs.set(elapsedMs);
+        maxRebuildMs.accumulateAndGet(elapsedMs, Math::max);
+    }
+
+    public void recordFailure() {
+        failureCount.increment();
+    }
+
+    void setSnapshots(int snapshotCount, long maxSnapshotAgeMs) {
+        this.snapshotCount = snapshotCount;
+        this.maxSnapshotAgeMs = maxSnapshotAgeMs;
+    }
+
+    public long getRebuildCount() {
+        return rebuildCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public long getLastRebuildMs() {
+        return lastRebuildMs.get();
+    }
+
+    public long getMaxRebuildMs() {
+        return maxRebuildMs.get();
+    }
+
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /** Age of the oldest snapshot, as of the last {@link SchemaSnapshotCache#getStats()}. */
+    public long getMaxSnapshotAgeMs() {
+        return maxSnapshotAgeMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "snapshots=%d, maxAgeMs=%d, rebuilds=%d, failures=%d, lastRebuildMs=%d, "
+                        + "maxRebuildMs=%d",
+                getSnapshotCount(), getMaxSnapshotAgeMs(), getRebuildCount(), getFailureCount(),
+                getLastRebuildMs(), getMaxRebuildMs());
+    }
+}
@@ -3,6 +3,7 @@ package com.tencent.supersonic.headless.server.utils;
 import com.alibaba.ttl.TransmittableThreadLocal;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 import com.tencent.supersonic.common.jsqlparser.SqlSelectHelper;
 import com.tencent.supersonic.common.pojo.User;
 import com.tencent.supersonic.common.pojo.enums.TaskStatusEnum;
@@ -26,19 +27,40 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Query stats are written behind by a dedicated thread, in multi-row inserts of up to
+ * {@link #BATCH_SIZE} stats at most {@link #FLUSH_INTERVAL_MS} after the first one was buffered.
+ * The buffer is bounded, when the database can not keep up new stats are dropped and counted.
+ */
 @Component
 @Slf4j
 public class StatUtils {
 
     private static final TransmittableThreadLocal<QueryStat> STATS =
             new TransmittableThreadLocal<>();
+    private static final int BUFFER_CAPACITY = 10000;
+    private static final int BATCH_SIZE = 200;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    private static final long STOP_TIMEOUT_MS = 10000;
+    private static final long BACKFILL_RETRY_MS = 60000;
+
+    private final BlockingQueue<QueryStat> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+    private final AtomicLong droppedCount = new AtomicLong();
+    private Thread writer;
+    private Thread backfill;
     private final StatRepository statRepository;
     private final SqlFilterUtils sqlFilterUtils;
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -62,17 +84,110 @@ public class StatUtils {
     }
 
     public void statInfo2DbAsync(TaskStatusEnum state) {
-        QueryStat queryStatInfo = get();
+        statInfo2DbAsync(get(), state);
+        remove();
+    }
+
+    /** Records a stat taken off the thread, e.g. when a streamed query is closed. */
+    public void statInfo2DbAsync(QueryStat queryStatInfo, TaskStatusEnum state) {
         queryStatInfo.setElapsedMs(System.currentTimeMillis() - queryStatInfo.getStartTime());
         queryStatInfo.setQueryState(state.getStatus());
-        CompletableFuture.runAsync(() -> {
-            statRepository.createRecord(queryStatInfo);
-        }).exceptionally(exception -> {
-            log.warn("queryStatInfo, exception:", exception);
-            return null;
-        });
+        if (!buffer.offer(queryStatInfo)) {
+            long dropped = droppedCount.incrementAndGet();
+            if (dropped % 1000 == 1) {
+                log.warn("query stat buffer is full, {} stats dropped so far", dropped);
+            }
+        }
+    }
 
-        remove();
+    /** Returns how many stats were dropped because the buffer was full. */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @PostConstruct
+    public void startWriter() {
+        writer = new Thread(this::writeStats, "s2-query-stat-writer");
+        writer.setDaemon(true);
+        writer.start();
+        backfill = new Thread(this::backfillRollup, "s2-query-stat-rollup-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    @PreDestroy
+    public void stopWriter() throws InterruptedException {
+        backfill.interrupt();
+        writer.interrupt();
+        writer.join(STOP_TIMEOUT_MS);
+    }
+
+    /**
+     * Runs the rollup backfill next to the writer, so live stats keep being written meanwhile. The
+     * progress is kept in the database, a backfill that failed or was stopped resumes from there.
+     */
+    private void backfillRollup() {
+        while (true) {
+            try {
+                statRepository.claimRollupBackfill();
+                long batches = 0L;
+                while (statRepository.backfillRollupBatch()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    batches++;
+                }
+                if (batches > 0) {
+                    log.info("query stat rollup backfill done, {} batches", batches);
+                }
+                return;
+            } catch (Exception e) {
+                log.warn("query stat rollup backfill, retry in {}ms, exception:",
+                        BACKFILL_RETRY_MS, e);
+            }
+            try {
+                Thread.sleep(BACKFILL_RETRY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void writeStats() {
+        List<QueryStat> batch = new ArrayList<>(BATCH_SIZE);
+        long deadline = 0L;
+        while (true) {
+            try {
+                long timeout = batch.isEmpty() ? FLUSH_INTERVAL_MS
+                        : Math.max(1L, deadline - System.currentTimeMillis());
+                QueryStat queryStat = buffer.poll(timeout, TimeUnit.MILLISECONDS);
+                if (Objects.nonNull(queryStat)) {
+                    if (batch.isEmpty()) {
+                        deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MS;
+                    }
+                    batch.add(queryStat);
+                    buffer.drainTo(batch, BATCH_SIZE - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // stopping, write what is left
+                buffer.drainTo(batch);
+                Lists.partition(batch, BATCH_SIZE).forEach(this::writeBatch);
+                return;
+            }
+            if (batch.size() >= BATCH_SIZE
+                    || (!batch.isEmpty() && System.currentTimeMillis() >= deadline)) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<QueryStat> batch) {
+        try {
+            statRepository.batchCreateRecord(batch);
+        } catch (Exception e) {
+            log.warn("queryStatInfo, size:{}, exception:", batch.size(), e);
+        }
     }
 
     public Boolean updateResultCacheKey(String key) {
@@ -209,6 +209,17 @@ CREATE TABLE `s2_query_stat_info` (
 ) ;
 COMMENT ON TABLE s2_query_stat_info IS 'query statistics table';
 
+CREATE TABLE IF NOT EXISTS `s2_query_stat_rollup` (
+    `stat_date` varchar(10) NOT NULL , -- yyyy-MM-dd
+    `model_id` bigINT NOT NULL DEFAULT 0 ,
+    `data_set_id` bigINT NOT NULL DEFAULT 0 ,
+    `type` varchar(20) NOT NULL , -- dimension or metric
+    `biz_name` varchar(255) NOT NULL ,
+    `use_cnt` bigINT NOT NULL DEFAULT 0 ,
+    PRIMARY KEY (`stat_date`, `model_id`, `data_set_id`, `type`, `biz_name`)
+) ;
+COMMENT ON TABLE s2_query_stat_rollup IS 'daily dimension and metric use counts';
+
 
 CREATE TABLE IF NOT EXISTS `s2_semantic_pasre_info` (
     `id` INT NOT NULL AUTO_INCREMENT,
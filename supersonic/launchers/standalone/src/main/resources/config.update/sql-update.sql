@@ -393,4 +393,15 @@ ALTER TABLE s2_agent DROP COLUMN  `multi_turn_config`;
 ALTER TABLE s2_agent DROP COLUMN  `enable_memory_review`;
 
 --20241012
-alter table s2_agent add column `enable_feedback` tinyint DEFAULT 1;
\ No newline at end of file
+alter table s2_agent add column `enable_feedback` tinyint DEFAULT 1;
+
+--20241018
+CREATE TABLE IF NOT EXISTS `s2_query_stat_rollup` (
+      `stat_date` varchar(10) NOT NULL COMMENT '统计日期 yyyy-MM-dd',
+      `model_id` bigint(20) NOT NULL DEFAULT 0,
+      `data_set_id` bigint(20) NOT NULL DEFAULT 0,
+      `type` varchar(20) NOT NULL COMMENT 'dimension 或 metric',
+      `biz_name` varchar(255) NOT NULL,
+      `use_cnt` bigint(20) NOT NULL DEFAULT 0 COMMENT '使用次数',
+      PRIMARY KEY (`stat_date`, `model_id`, `data_set_id`, `type`, `biz_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='查询统计按天汇总表';
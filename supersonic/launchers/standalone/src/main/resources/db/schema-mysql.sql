@@ -422,6 +422,16 @@ CREATE TABLE IF NOT EXISTS `s2_query_stat_info` (
       KEY `domain_index` (`model_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='查询统计信息表';
 
+CREATE TABLE IF NOT EXISTS `s2_query_stat_rollup` (
+      `stat_date` varchar(10) NOT NULL COMMENT '统计日期 yyyy-MM-dd',
+      `model_id` bigint(20) NOT NULL DEFAULT 0,
+      `data_set_id` bigint(20) NOT NULL DEFAULT 0,
+      `type` varchar(20) NOT NULL COMMENT 'dimension 或 metric',
+      `biz_name` varchar(255) NOT NULL,
+      `use_cnt` bigint(20) NOT NULL DEFAULT 0 COMMENT '使用次数',
+      PRIMARY KEY (`stat_date`, `model_id`, `data_set_id`, `type`, `biz_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='查询统计按天汇总表';
+
 CREATE TABLE IF NOT EXISTS `s2_semantic_pasre_info` (
       `id` bigint(20) unsigned NOT NULL AUTO_INCREMENT,
       `trace_id` varchar(200) NOT NULL COMMENT '查询标识',